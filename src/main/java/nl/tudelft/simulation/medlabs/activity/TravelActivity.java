@@ -3,6 +3,7 @@ package nl.tudelft.simulation.medlabs.activity;
 import nl.tudelft.simulation.medlabs.activity.locator.DistanceBasedLocatorInterface;
 import nl.tudelft.simulation.medlabs.activity.locator.LocatorInterface;
 import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.simulation.TinySimEvent;
@@ -95,6 +96,11 @@ public abstract class TravelActivity extends Activity
         // we have to report the time here since we don't know anymore when the activity started when it ends
         travelLocation.getLocationType().reportActivityDuration(activityDuration);
 
+        // now that the arrival time is known, let a reservation for the end location expire relative to the arrival time
+        ReservationManager reservationManager = this.model.getReservationManager();
+        if (reservationManager.getReservedLocation(person) == toLocation)
+            reservationManager.reserve(person, toLocation, this.model.getSimulator().getSimulatorTime() + activityDuration);
+
         this.model.getSimulator()
                 .scheduleEvent(new TinySimEvent(this.model.getSimulator().getSimulatorTime() + activityDuration, this,
                         "finishTravelActivity", new Object[] {person, travelLocation, toLocation}));
@@ -4,11 +4,11 @@ import nl.tudelft.simulation.medlabs.activity.locator.LocatorInterface;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
-import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
 
 /**
  * Travel activity based on distance. The activity takes place in a large area where probability for transmission is zero. It
- * will either use the "walk", "bike" or "car" location, dependent on distance.
+ * will either use the "walk", "bike" or "car" location, dependent on distance. The duration is looked up in the model's
+ * TravelTimeMatrix, which caches mode and duration between grid cells.
  * <p>
  * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -46,24 +46,12 @@ public class TravelActivityDistanceBased extends TravelActivity
     {
         return Double.NaN;
     }
-    
+
     /** {@inheritDoc} */
     @Override
     protected double getDuration(final Person person, final Location startLocation, final Location endLocation)
     {
-        double distanceM = startLocation.distanceM(endLocation);
-        if (distanceM < 1000)
-        {
-            return TimeUnit.convert(distanceM, TimeUnit.SECOND); // 1 m/s
-        }
-        else if (distanceM < 5000)
-        {
-            return TimeUnit.convert(distanceM / 3.0, TimeUnit.SECOND); // 3 m/s
-        }
-        else
-        {
-            return TimeUnit.convert(distanceM / 11.1, TimeUnit.SECOND); // 11.1 m/s
-        }
+        return this.model.getTravelTimeMatrix().getDuration(startLocation, endLocation);
     }
 
 }
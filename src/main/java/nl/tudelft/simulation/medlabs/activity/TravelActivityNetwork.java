@@ -0,0 +1,75 @@
+package nl.tudelft.simulation.medlabs.activity;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorInterface;
+import nl.tudelft.simulation.medlabs.activity.travel.RoadNetworkRouter;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * Travel activity where the travel time is determined by the road network. The travel time is looked up in the precomputed
+ * travel time tables of a RoadNetworkRouter. The mode is either fixed for the activity, or chosen on the basis of the
+ * straight-line distance with the speed model of the router, in the same way as the DistanceBasedTravelLocator does. The
+ * activity takes place in the location that the travel locator returns, e.g., the walk, bike or car location.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TravelActivityNetwork extends TravelActivity
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the router with the travel time tables. */
+    private final RoadNetworkRouter router;
+
+    /** the fixed mode (SpeedModel.WALK, BIKE or CAR), or -1 to choose the mode based on distance. */
+    private final byte mode;
+
+    /**
+     * Create a travel activity that uses the road network for the travel time.
+     * @param model MedlabsModelInterface; pointer to the model for retrieving simulator and other relevant information
+     * @param name String; the name of the activity
+     * @param travelLocator LocatorInterface; the locator to determine the location in which travel takes place
+     * @param startLocator LocatorInterface; the locator to determine the start location (usually the CurrentLocator)
+     * @param endLocator LocatorInterface; the locator to determine the arrival location
+     * @param router RoadNetworkRouter; the router with the precomputed travel time tables
+     * @param mode byte; the fixed mode (SpeedModel.WALK, BIKE or CAR), or -1 to choose the mode based on distance
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public TravelActivityNetwork(final MedlabsModelInterface model, final String name, final LocatorInterface travelLocator,
+            final LocatorInterface startLocator, final LocatorInterface endLocator, final RoadNetworkRouter router,
+            final byte mode)
+    {
+        super(model, name, travelLocator, startLocator, endLocator);
+        Throw.whenNull(router, "router cannot be null");
+        this.router = router;
+        this.mode = mode;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDuration(final Person person)
+    {
+        return Double.NaN;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected double getDuration(final Person person, final Location startLocation, final Location endLocation)
+    {
+        byte travelMode =
+                this.mode >= 0 ? this.mode : this.router.getSpeedModel().getMode(startLocation.distanceM(endLocation));
+        return this.router.getDuration(travelMode, startLocation, endLocation);
+    }
+
+}
@@ -0,0 +1,82 @@
+package nl.tudelft.simulation.medlabs.activity;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorInterface;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.transit.TransitNetwork;
+
+/**
+ * Travel activity that uses public transport when the TransitNetwork has a route between the current location and the end
+ * location. The person walks to the boarding stop, waits for a vehicle of the line, rides to the alighting stop, and walks to
+ * the end location; the network handles boarding and alighting in batches per vehicle stop, and ends the activity on arrival.
+ * When there is no route, the activity behaves as a distance based travel activity with the travel locator of the activity
+ * (e.g., the DistanceBasedTravelLocator) and the model's TravelTimeMatrix.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TravelActivityTransit extends TravelActivity
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the public transport network. */
+    private final TransitNetwork network;
+
+    /**
+     * Create a travel activity that uses public transport when possible.
+     * @param model MedlabsModelInterface; pointer to the model for retrieving simulator and other relevant information
+     * @param name String; the name of the activity
+     * @param travelLocator LocatorInterface; the locator for the travel location when there is no public transport route
+     * @param startLocator LocatorInterface; the locator to determine the start location (usually the CurrentLocator)
+     * @param endLocator LocatorInterface; the locator to determine the arrival location
+     * @param network TransitNetwork; the public transport network
+     */
+    public TravelActivityTransit(final MedlabsModelInterface model, final String name, final LocatorInterface travelLocator,
+            final LocatorInterface startLocator, final LocatorInterface endLocator, final TransitNetwork network)
+    {
+        super(model, name, travelLocator, startLocator, endLocator);
+        Throw.whenNull(network, "network cannot be null");
+        this.network = network;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startActivity(final Person person)
+    {
+        Location origin = person.getCurrentLocation();
+        Location destination = getEndLocation(person);
+        long route = this.network.findRoute(origin, destination);
+        if (route < 0L)
+        {
+            super.startActivity(person);
+            return;
+        }
+        this.network.startTrip(person, origin, destination, route);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDuration(final Person person)
+    {
+        return Double.NaN;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected double getDuration(final Person person, final Location startLocation, final Location endLocation)
+    {
+        return this.model.getTravelTimeMatrix().getDuration(startLocation, endLocation);
+    }
+
+}
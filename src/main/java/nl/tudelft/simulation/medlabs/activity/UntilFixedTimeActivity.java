@@ -65,4 +65,13 @@ public class UntilFixedTimeActivity extends AbstractDurationActivity
         return (duration > 0) ? TimeUnit.convert(duration, TimeUnit.HOUR) : Double.NaN;
     }
 
+    /**
+     * Return the hour of the day till which the activity takes place.
+     * @return double; the hour of the day between 0 and 24 till which the activity takes place
+     */
+    public double getUntilHour()
+    {
+        return this.untilHour;
+    }
+
 }
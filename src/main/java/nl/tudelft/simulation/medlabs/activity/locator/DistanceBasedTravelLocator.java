@@ -6,7 +6,7 @@ import nl.tudelft.simulation.medlabs.person.Person;
 
 /**
  * The TravelLocator can locate a location to walk, bike, or use the car -- right now these are spaces where no infections
- * occur.
+ * occur. The travel mode is looked up in the model's TravelTimeMatrix, which caches mode and duration between grid cells.
  * <p>
  * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -25,19 +25,7 @@ public class DistanceBasedTravelLocator implements DistanceBasedLocatorInterface
     @Override
     public Location getLocation(final Person person, final Location startLocation, final Location endLocation)
     {
-        double distanceM = startLocation.distanceM(endLocation);
-        if (distanceM < 1000)
-        {
-            return person.getModel().getLocationWalk();
-        }
-        else if (distanceM < 5000)
-        {
-            return person.getModel().getLocationBike();
-        }
-        else
-        {
-            return person.getModel().getLocationCar();
-        }
+        return person.getModel().getTravelTimeMatrix().getTravelLocation(startLocation, endLocation);
     }
 
 }
@@ -0,0 +1,150 @@
+package nl.tudelft.simulation.medlabs.activity.locator;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import nl.tudelft.simulation.jstats.streams.Java2Random;
+import nl.tudelft.simulation.jstats.streams.StreamInterface;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
+
+/**
+ * LocatorDecisionCache remembers per person whether the person may still visit a location of a partially closed location
+ * type. The decision is drawn reproducibly from the location id and the person id, with the fractionOpen and
+ * fractionActivities of the location type, so it only changes when the closure policies change. Each locator has its own
+ * cache, so the decisions are cached per person and activity. The cache stores the location id and the decision per person id
+ * in one long array, and is cleared when the policy epoch of the model's ClosureState changes.
+ * <p>
+ * The capacity-constrained locators (the locators ending on Cap) are not cached, since their answer depends on the occupancy
+ * of the locations at the moment of the decision.
+ * </p>
+ * <p>
+ * The hits and misses of the caches are counted per model in its ClosureState, and written by the ResultWriter.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LocatorDecisionCache implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the value of an empty entry. */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /** the name of the locator, used for the seed of the reproducible stream. */
+    private final String locatorName;
+
+    /** local reproducible stream. */
+    private StreamInterface stream = null;
+
+    /** Experiment seed. */
+    private long seed = 1L;
+
+    /** the cached decision per person id: the location id shifted left by one, plus 1 when the person may visit it. */
+    private long[] decisions = new long[0];
+
+    /** the policy epoch of the cached decisions. */
+    private int epoch = -1;
+
+    /**
+     * Create a decision cache for a locator.
+     * @param locatorName String; the name of the locator, which determines the seed of the reproducible stream, e.g.,
+     *            "WorkLocator"
+     */
+    public LocatorDecisionCache(final String locatorName)
+    {
+        this.locatorName = locatorName;
+    }
+
+    /**
+     * Return whether the person may still visit the location under the closure policy of its location type, i.e., whether the
+     * location is one of the open locations and the activity is one of the activities that still take place. The decision is
+     * only drawn when it has not been cached in the current policy epoch. The caller should only ask when the location type is
+     * not fully open.
+     * @param person Person; the person
+     * @param location Location; the location the person wants to visit
+     * @return boolean; whether the person may still visit the location
+     */
+    public boolean mayVisit(final Person person, final Location location)
+    {
+        ClosureState closureState = person.getModel().getClosureState();
+        int policyEpoch = closureState.getPolicyEpoch();
+        if (policyEpoch != this.epoch)
+        {
+            Arrays.fill(this.decisions, EMPTY);
+            this.epoch = policyEpoch;
+        }
+        int id = person.getId();
+        if (id < this.decisions.length)
+        {
+            long decision = this.decisions[id];
+            if (decision != EMPTY && (decision >> 1) == location.getId())
+            {
+                closureState.countDecisionHit();
+                return (decision & 1L) != 0L;
+            }
+        }
+        else
+        {
+            int length = this.decisions.length;
+            this.decisions = Arrays.copyOf(this.decisions, Math.max(id + 1, length + (length >> 1)));
+            Arrays.fill(this.decisions, length, this.decisions.length, EMPTY);
+        }
+        long t0 = System.nanoTime();
+        boolean visit = draw(person, location);
+        closureState.countDecisionMiss(System.nanoTime() - t0);
+        this.decisions[id] = ((long) location.getId() << 1) | (visit ? 1L : 0L);
+        return visit;
+    }
+
+    /**
+     * Draw the decision whether the person may visit the location, reproducible by location id and person id.
+     * @param person Person; the person
+     * @param location Location; the location the person wants to visit
+     * @return boolean; whether the person may still visit the location
+     */
+    private boolean draw(final Person person, final Location location)
+    {
+        LocationType lt = location.getLocationType();
+        if (lt.getFractionOpen() > 0.0)
+        {
+            if (this.stream == null)
+            {
+                this.seed = person.getModel().getDefaultStream().getOriginalSeed() + this.locatorName.hashCode();
+                this.stream = new Java2Random(this.seed);
+            }
+            this.stream.setSeed(this.seed + location.getId()); // reproducible by location id
+            if (this.stream.nextDouble() < lt.getFractionOpen())
+            {
+                if (lt.getFractionActivities() > 0.0)
+                {
+                    this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
+                    if (this.stream.nextDouble() < lt.getFractionActivities())
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "LocatorDecisionCache [locator=" + this.locatorName + ", epoch=" + this.epoch + "]";
+    }
+
+}
@@ -0,0 +1,231 @@
+package nl.tudelft.simulation.medlabs.activity.locator;
+
+import java.io.Serializable;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+
+/**
+ * LocatorRegistry holds shared locator instances per kind of locator and location type, and the fallback locators that are
+ * used when a location type is (partly) closed. Instead of constructing a new NearestLocator for the alternative location
+ * type in every call of a locator, the fallback is resolved once when the closure policy of a location type is set, and the
+ * locators look it up in the registry. The locators in the registry start from the current location of the person.
+ * <p>
+ * When the fallback of a location type is resolved, the chain of alternative location types is checked for cycles: a chain
+ * that returns to a location type without passing a house type or a fully open location type would let the locators recurse
+ * without end, and is reported when the closure policy is set instead of during the simulation. A location that is closed in
+ * the model's ClosureState, by a ClosurePolicy or by an override of the location, only falls back to an alternative location
+ * type that is fully open, and otherwise to the home location, so these closures cannot create a cycle either.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LocatorRegistry implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the shared locator of the current location. */
+    private final CurrentLocator currentLocator = new CurrentLocator();
+
+    /** the shared locator of the home location. */
+    private final HomeLocator homeLocator = new HomeLocator();
+
+    /** the shared nearest locators from the current location, indexed by the unsigned location type id. */
+    private final NearestLocator[] nearestLocators = new NearestLocator[256];
+
+    /** the shared capacity-constrained nearest locators from the current location, indexed by the unsigned location type id. */
+    private final NearestLocatorCap[] nearestLocatorsCap = new NearestLocatorCap[256];
+
+    /** the fallback locator for a closed location type, indexed by the unsigned location type id. */
+    private final LocatorInterface[] fallbackLocators = new LocatorInterface[256];
+
+    /** the capacity-constrained fallback locator for a closed location type, indexed by the unsigned location type id. */
+    private final LocatorInterface[] fallbackLocatorsCap = new LocatorInterface[256];
+
+    /** the alternative location type of the resolved fallback locators, indexed by the unsigned location type id. */
+    private final LocationType[] resolvedAlternatives = new LocationType[256];
+
+    /**
+     * @return the shared locator of the current location
+     */
+    public CurrentLocator getCurrentLocator()
+    {
+        return this.currentLocator;
+    }
+
+    /**
+     * @return the shared locator of the home location
+     */
+    public HomeLocator getHomeLocator()
+    {
+        return this.homeLocator;
+    }
+
+    /**
+     * Return the shared locator of the nearest location of a location type, from the current location of the person.
+     * @param locationType LocationType; the location type to find
+     * @return NearestLocator; the shared locator of the nearest location of the location type
+     */
+    public NearestLocator getNearestLocator(final LocationType locationType)
+    {
+        int t = locationType.getLocationTypeId() & 0xFF;
+        if (this.nearestLocators[t] == null)
+            this.nearestLocators[t] = new NearestLocator(this.currentLocator, locationType);
+        return this.nearestLocators[t];
+    }
+
+    /**
+     * Return the shared capacity-constrained locator of the nearest location of a location type, from the current location of
+     * the person.
+     * @param locationType LocationType; the location type to find
+     * @return NearestLocatorCap; the shared capacity-constrained locator of the nearest location of the location type
+     */
+    public NearestLocatorCap getNearestLocatorCap(final LocationType locationType)
+    {
+        int t = locationType.getLocationTypeId() & 0xFF;
+        if (this.nearestLocatorsCap[t] == null)
+            this.nearestLocatorsCap[t] = new NearestLocatorCap(this.currentLocator, locationType);
+        return this.nearestLocatorsCap[t];
+    }
+
+    /**
+     * Return the locator to use when a person cannot visit a location of a (partly) closed location type: the home locator
+     * when the alternative location type is the house type, and otherwise the shared nearest locator of the alternative type.
+     * @param locationType LocationType; the (partly) closed location type
+     * @return LocatorInterface; the locator for the alternative location type
+     */
+    public LocatorInterface getFallbackLocator(final LocationType locationType)
+    {
+        int t = locationType.getLocationTypeId() & 0xFF;
+        if (this.resolvedAlternatives[t] != locationType.getAlternativeLocationType())
+            resolve(locationType);
+        return this.fallbackLocators[t];
+    }
+
+    /**
+     * Return the capacity-constrained locator to use when a person cannot visit a location of a (partly) closed location type:
+     * the home locator when the alternative location type is the house type, and otherwise the shared capacity-constrained
+     * nearest locator of the alternative type.
+     * @param locationType LocationType; the (partly) closed location type
+     * @return LocatorInterface; the capacity-constrained locator for the alternative location type
+     */
+    public LocatorInterface getFallbackLocatorCap(final LocationType locationType)
+    {
+        int t = locationType.getLocationTypeId() & 0xFF;
+        if (this.resolvedAlternatives[t] != locationType.getAlternativeLocationType())
+            resolve(locationType);
+        return this.fallbackLocatorsCap[t];
+    }
+
+    /**
+     * Return the locator to use when the location that a locator chose is closed in the model's ClosureState, by a closure
+     * policy or by an override of the location: the fallback locator of the location type when its alternative location type
+     * is another type that is fully open, and the home locator otherwise. Since the alternative type is fully open, its
+     * locator never sends the person on to another fallback, so closed locations cannot make the locators recurse.
+     * @param locationType LocationType; the location type of the closed location
+     * @return LocatorInterface; the locator for the alternative location type, or the home locator
+     */
+    public LocatorInterface getClosedLocator(final LocationType locationType)
+    {
+        return hasOpenAlternative(locationType) ? getFallbackLocator(locationType) : this.homeLocator;
+    }
+
+    /**
+     * Return the capacity-constrained locator to use when the location that a locator chose is closed in the model's
+     * ClosureState: the capacity-constrained fallback locator of the location type when its alternative location type is
+     * another type that is fully open, and the home locator otherwise.
+     * @param locationType LocationType; the location type of the closed location
+     * @return LocatorInterface; the capacity-constrained locator for the alternative location type, or the home locator
+     */
+    public LocatorInterface getClosedLocatorCap(final LocationType locationType)
+    {
+        return hasOpenAlternative(locationType) ? getFallbackLocatorCap(locationType) : this.homeLocator;
+    }
+
+    /**
+     * Resolve the fallback locators of a location type after a change of its closure policy, and check the chains of
+     * alternative location types of all location types of the model for cycles.
+     * @param locationType LocationType; the location type with a new closure policy
+     * @throws MedlabsRuntimeException when a chain of alternative location types contains a cycle
+     */
+    public void resolve(final LocationType locationType)
+    {
+        int t = locationType.getLocationTypeId() & 0xFF;
+        LocationType alt = locationType.getAlternativeLocationType();
+        if (isHouse(alt))
+        {
+            this.fallbackLocators[t] = this.homeLocator;
+            this.fallbackLocatorsCap[t] = this.homeLocator;
+        }
+        else
+        {
+            this.fallbackLocators[t] = getNearestLocator(alt);
+            this.fallbackLocatorsCap[t] = getNearestLocatorCap(alt);
+        }
+        this.resolvedAlternatives[t] = alt;
+        for (LocationType lt : locationType.getModel().getLocationTypeIndexMap().values())
+        {
+            checkCycle(lt);
+        }
+    }
+
+    /**
+     * Check that the chain of alternative location types of a (partly) closed location type ends in a house type or in a fully
+     * open location type.
+     * @param locationType LocationType; the location type to check
+     * @throws MedlabsRuntimeException when the chain of alternative location types contains a cycle
+     */
+    private void checkCycle(final LocationType locationType)
+    {
+        boolean[] visited = new boolean[256];
+        LocationType lt = locationType;
+        while (!isHouse(lt) && isClosed(lt))
+        {
+            int t = lt.getLocationTypeId() & 0xFF;
+            if (visited[t])
+                throw new MedlabsRuntimeException("closure policy of location type " + locationType.getName()
+                        + ": the chain of alternative location types returns to " + lt.getName());
+            visited[t] = true;
+            lt = lt.getAlternativeLocationType();
+        }
+    }
+
+    /**
+     * @param locationType LocationType; the location type
+     * @return whether the location type is the house type of the model
+     */
+    private static boolean isHouse(final LocationType locationType)
+    {
+        return locationType.getLocationTypeId() == locationType.getModel().getLocationTypeHouse().getLocationTypeId();
+    }
+
+    /**
+     * @param locationType LocationType; the location type
+     * @return whether the alternative location type is another location type that is not (partly) closed by its closure
+     *         policy, and of which no location is closed in the model's ClosureState
+     */
+    private static boolean hasOpenAlternative(final LocationType locationType)
+    {
+        LocationType alt = locationType.getAlternativeLocationType();
+        return alt != locationType && !isClosed(alt) && alt.getModel().getClosureState().isFullyOpen(alt);
+    }
+
+    /**
+     * @param locationType LocationType; the location type
+     * @return whether the location type is (partly) closed, so persons can be sent to the alternative location type
+     */
+    private static boolean isClosed(final LocationType locationType)
+    {
+        return locationType.getFractionActivities() < 1.0 || locationType.getFractionOpen() < 1.0;
+    }
+
+}
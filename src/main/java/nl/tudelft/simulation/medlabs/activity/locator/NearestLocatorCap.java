@@ -66,7 +66,14 @@ public class NearestLocatorCap implements LocatorInterface
         Location loc = this.activityLocationType.getNearestLocationCap(startLocation);
         if (loc == null)
             loc = person.getHomeLocation();
-        if (this.activityLocationType.getFractionActivities() < 1.0 || this.activityLocationType.getFractionOpen() < 1.0)
+        if (loc.isClosed())
+        {
+            // the location is closed by a closure policy: send the person home, or to the alternative location type
+            loc = person.getModel().getLocatorRegistry().getClosedLocatorCap(this.activityLocationType).getLocation(person);
+            if (loc == null || loc == person.getHomeLocation())
+                return person.getHomeLocation();
+        }
+        else if (this.activityLocationType.getFractionActivities() < 1.0 || this.activityLocationType.getFractionOpen() < 1.0)
         {
             // person might be forced to go somewhere else or to stay at home
             if (this.activityLocationType.getFractionOpen() > 0.0)
@@ -89,7 +96,7 @@ public class NearestLocatorCap implements LocatorInterface
             LocationType alt = this.activityLocationType.getAlternativeLocationType();
             if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
                 return person.getHomeLocation();
-            loc = new NearestLocatorCap(new CurrentLocator(), alt).getLocation(person);
+            loc = person.getModel().getLocatorRegistry().getFallbackLocatorCap(this.activityLocationType).getLocation(person);
             if (loc == null)
                 loc = person.getHomeLocation();
         }
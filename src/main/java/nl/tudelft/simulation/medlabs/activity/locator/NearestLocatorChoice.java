@@ -1,12 +1,10 @@
 package nl.tudelft.simulation.medlabs.activity.locator;
 
-import java.util.Map;
 import java.util.SortedMap;
 
 import org.djutils.exceptions.Throw;
 
-import nl.tudelft.simulation.jstats.streams.Java2Random;
-import nl.tudelft.simulation.jstats.streams.StreamInterface;
+import nl.tudelft.simulation.medlabs.common.AliasSampler;
 import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
@@ -34,14 +32,17 @@ public class NearestLocatorChoice implements LocatorInterface
     /** the cumulative probabilities and corresponding location types to return. */
     private final SortedMap<Double, LocationType> activityLocationTypeMap;
 
+    /** the alias table to draw the location type from the probabilities in constant time. */
+    private final AliasSampler<LocationType> sampler;
+
+    /** the policy epoch for which the alias table was built. */
+    private int samplerEpoch = -1;
+
     /** whether the draw should be reproducible for the person or not. */
     private final boolean reproducible;
 
-    /** local reproducible stream. */
-    private StreamInterface stream = null;
-
-    /** Experiment seed. */
-    private long seed = 1L;
+    /** the cached decisions whether persons may still visit partially closed locations. */
+    private final LocatorDecisionCache decisions = new LocatorDecisionCache("NearestLocatorChoice");
 
     /**
      * Construct a locator that draws a LocationType with a probability and returns the nearest location of that type.
@@ -58,10 +59,8 @@ public class NearestLocatorChoice implements LocatorInterface
                 "NearestLocatorChoice: last (cumulative) probability should be 1.0");
         this.startLocator = startLocator;
         this.activityLocationTypeMap = activityLocationTypeMap;
+        this.sampler = new AliasSampler<>(activityLocationTypeMap);
         this.reproducible = reproducible;
-        this.seed = this.activityLocationTypeMap.values().iterator().next().getModel().getDefaultStream().getOriginalSeed()
-                + "NearestLocatorChoice".hashCode();
-        this.stream = new Java2Random(this.seed);
     }
 
     /** {@inheritDoc} */
@@ -73,49 +72,42 @@ public class NearestLocatorChoice implements LocatorInterface
         Location startLocation = this.startLocator.getLocation(person);
         double prob = this.reproducible ? person.getModel().getReproducibleJava2Random().nextDouble(person.hashCode())
                 : person.getModel().getU01().draw();
-        for (Map.Entry<Double, LocationType> entry : this.activityLocationTypeMap.entrySet())
+        int policyEpoch = person.getModel().getClosureState().getPolicyEpoch();
+        if (policyEpoch != this.samplerEpoch)
         {
-            if (prob < entry.getKey())
-            {
-                if (entry.getValue().getLocationTypeId() == person.getModel().getLocationTypeHouse().getLocationTypeId())
-                {
-                    return person.getHomeLocation();
-                }
-                Location loc = entry.getValue().getNearestLocation(startLocation);
-                LocationType lt = loc.getLocationType();
-
-                if (lt.getFractionActivities() < 1.0 || lt.getFractionOpen() < 1.0)
-                {
-                    // person might be forced to go somewhere else or to stay at home
-                    if (lt.getFractionOpen() > 0.0)
-                    {
-                        this.stream.setSeed(this.seed + loc.getId()); // reproducible by nearest location id
-                        if (this.stream.nextDouble() < lt.getFractionOpen())
-                        {
-                            if (lt.getFractionActivities() > 0.0)
-                            {
-                                this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
-                                if (this.stream.nextDouble() < lt.getFractionActivities())
-                                {
-                                    loc.addReservation(person);
-                                    return loc; // can still go to the nearest location
-                                }
-                            }
-                        }
-                    }
-                    
-                    LocationType alt = lt.getAlternativeLocationType();
-                    if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
-                        return person.getHomeLocation();
-                    return new NearestLocator(new CurrentLocator(), alt).getLocation(person);
-                }
+            // the probabilities of the location types might have been changed by a policy
+            this.sampler.rebuild(this.activityLocationTypeMap);
+            this.samplerEpoch = policyEpoch;
+        }
+        LocationType choice = this.sampler.draw(prob);
+        if (choice.getLocationTypeId() == person.getModel().getLocationTypeHouse().getLocationTypeId())
+        {
+            return person.getHomeLocation();
+        }
+        Location loc = choice.getNearestLocation(startLocation);
+        LocationType lt = loc.getLocationType();
+        if (loc.isClosed())
+        {
+            // the location is closed by a closure policy: send the person home, or to the alternative location type
+            return person.getModel().getLocatorRegistry().getClosedLocator(lt).getLocation(person);
+        }
 
-                // location is open
+        if (lt.getFractionActivities() < 1.0 || lt.getFractionOpen() < 1.0)
+        {
+            // person might be forced to go somewhere else or to stay at home
+            if (this.decisions.mayVisit(person, loc))
+            {
                 loc.addReservation(person);
-                return loc;
+                return loc; // can still go to the nearest location
             }
+
+            // send the person home, or to the nearest location of the alternative location type
+            return person.getModel().getLocatorRegistry().getFallbackLocator(lt).getLocation(person);
         }
-        throw new MedlabsRuntimeException("NearestLocatorChoice.getLocation -- did not find a LocationType");
+
+        // location is open
+        loc.addReservation(person);
+        return loc;
     }
 
 }
@@ -2,8 +2,6 @@ package nl.tudelft.simulation.medlabs.activity.locator;
 
 import org.djutils.exceptions.Throw;
 
-import nl.tudelft.simulation.jstats.streams.Java2Random;
-import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
@@ -38,11 +36,8 @@ public class RandomLocator implements LocatorInterface
     /** whether the draw should be reproducible for the person or not. */
     private final boolean reproducible;
 
-    /** local reproducible stream. */
-    private StreamInterface stream = null;
-
-    /** Experiment seed. */
-    private long seed = 1L;
+    /** the cached decisions whether persons may still visit partially closed locations. */
+    private final LocatorDecisionCache decisions = new LocatorDecisionCache("RandomLocator");
 
     /**
      * Construct a locator that draws a random Location of a certain type within a search radius.
@@ -60,8 +55,6 @@ public class RandomLocator implements LocatorInterface
         this.activityLocationType = activityLocationType;
         this.maxDistanceM = maxDistanceM;
         this.reproducible = reproducible;
-        this.seed = this.activityLocationType.getModel().getDefaultStream().getOriginalSeed() + "RandomLocator".hashCode();
-        this.stream = new Java2Random(this.seed);
     }
 
     /** {@inheritDoc} */
@@ -90,32 +83,24 @@ public class RandomLocator implements LocatorInterface
             loc = locations[index];
         }
 
+        if (loc.isClosed())
+        {
+            // the location is closed by a closure policy: send the person home, or to the alternative location type
+            return person.getModel().getLocatorRegistry().getClosedLocator(this.activityLocationType).getLocation(person);
+        }
         if (this.activityLocationType.getFractionActivities() < 1.0 || this.activityLocationType.getFractionOpen() < 1.0)
         {
             // person might be forced to go somewhere else or to stay at home
-            if (this.activityLocationType.getFractionOpen() > 0.0)
+            if (this.decisions.mayVisit(person, loc))
             {
-                this.stream.setSeed(this.seed + loc.getId()); // reproducible by location id
-                if (this.stream.nextDouble() < this.activityLocationType.getFractionOpen())
-                {
-                    if (this.activityLocationType.getFractionActivities() > 0.0)
-                    {
-                        this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
-                        if (this.stream.nextDouble() < this.activityLocationType.getFractionActivities())
-                        {
-                            loc.addReservation(person);
-                            return loc; // can still go to the chosen location
-                        }
-                    }
-                }
+                loc.addReservation(person);
+                return loc; // can still go to the chosen location
             }
-            
-            LocationType alt = this.activityLocationType.getAlternativeLocationType();
-            if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
-                return person.getHomeLocation();
-            return new NearestLocator(new CurrentLocator(), alt).getLocation(person);
+
+            // send the person home, or to the nearest location of the alternative location type
+            return person.getModel().getLocatorRegistry().getFallbackLocator(this.activityLocationType).getLocation(person);
         }
-        
+
         // location is open
         loc.addReservation(person);
         return loc;
@@ -1,12 +1,12 @@
 package nl.tudelft.simulation.medlabs.activity.locator;
 
-import java.util.Map;
 import java.util.SortedMap;
 
 import org.djutils.exceptions.Throw;
 
 import nl.tudelft.simulation.jstats.streams.Java2Random;
 import nl.tudelft.simulation.jstats.streams.StreamInterface;
+import nl.tudelft.simulation.medlabs.common.AliasSampler;
 import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
@@ -36,6 +36,12 @@ public class RandomLocatorChoiceCap implements LocatorInterface
     /** the cumulative probabilities and corresponding location types to return. */
     private final SortedMap<Double, LocationType> activityLocationTypeMap;
 
+    /** the alias table to draw the location type from the probabilities in constant time. */
+    private final AliasSampler<LocationType> sampler;
+
+    /** the policy epoch for which the alias table was built. */
+    private int samplerEpoch = -1;
+
     /** the maximum distance in meters. */
     private final double maxDistanceM;
 
@@ -66,6 +72,7 @@ public class RandomLocatorChoiceCap implements LocatorInterface
                 "NearestLocatorChoice: last (cumulative) probability should be 1.0");
         this.startLocator = startLocator;
         this.activityLocationTypeMap = activityLocationTypeMap;
+        this.sampler = new AliasSampler<>(activityLocationTypeMap);
         this.maxDistanceM = maxDistanceM;
         this.reproducible = reproducible;
         this.seed = this.activityLocationTypeMap.values().iterator().next().getModel().getDefaultStream().getOriginalSeed()
@@ -83,71 +90,78 @@ public class RandomLocatorChoiceCap implements LocatorInterface
         Location startLocation = this.startLocator.getLocation(person);
         double prob = this.reproducible ? person.getModel().getReproducibleJava2Random().nextDouble(person.hashCode() + 1)
                 : person.getModel().getU01().draw();
-        for (Map.Entry<Double, LocationType> entry : this.activityLocationTypeMap.entrySet())
+        int policyEpoch = person.getModel().getClosureState().getPolicyEpoch();
+        if (policyEpoch != this.samplerEpoch)
         {
-            if (prob < entry.getKey())
-            {
-                LocationType lt = entry.getValue();
-                if (lt.getLocationTypeId() == person.getModel().getLocationTypeHouse().getLocationTypeId())
-                {
-                    return person.getHomeLocation();
-                }
+            // the probabilities of the location types might have been changed by a policy
+            this.sampler.rebuild(this.activityLocationTypeMap);
+            this.samplerEpoch = policyEpoch;
+        }
+        LocationType lt = this.sampler.draw(prob);
+        if (lt.getLocationTypeId() == person.getModel().getLocationTypeHouse().getLocationTypeId())
+        {
+            return person.getHomeLocation();
+        }
 
-                Location[] locations = lt.getLocationArrayMaxDistanceMCap(startLocation, this.maxDistanceM);
-                Location loc = null;
-                if (locations.length == 0)
-                {
-                    loc = lt.getNearestLocationCap(startLocation);
-                    if (loc == null)
-                        loc = person.getHomeLocation();
-                }
-                else
-                {
-                    // return locations[MedlabsModel.randomUniform(locations.length)];
-                    int index = this.reproducible
-                            ? model.getReproducibleJava2Random().nextInt(0, locations.length, (person.hashCode() + 2))
-                            : model.getRandomStream().nextInt(0, locations.length);
-                    if (index >= locations.length)
-                    {
-                        index = locations.length - 1;
-                    }
-                    loc = locations[index];
-                }
+        Location[] locations = lt.getLocationArrayMaxDistanceMCap(startLocation, this.maxDistanceM);
+        Location loc = null;
+        if (locations.length == 0)
+        {
+            loc = lt.getNearestLocationCap(startLocation);
+            if (loc == null)
+                loc = person.getHomeLocation();
+        }
+        else
+        {
+            // return locations[MedlabsModel.randomUniform(locations.length)];
+            int index = this.reproducible
+                    ? model.getReproducibleJava2Random().nextInt(0, locations.length, (person.hashCode() + 2))
+                    : model.getRandomStream().nextInt(0, locations.length);
+            if (index >= locations.length)
+            {
+                index = locations.length - 1;
+            }
+            loc = locations[index];
+        }
 
-                if (lt.getFractionActivities() < 1.0 || lt.getFractionOpen() < 1.0)
+        if (loc.isClosed())
+        {
+            // the location is closed by a closure policy: send the person home, or to the alternative location type
+            loc = person.getModel().getLocatorRegistry().getClosedLocatorCap(lt).getLocation(person);
+            if (loc == null || loc == person.getHomeLocation())
+                return person.getHomeLocation();
+        }
+        else if (lt.getFractionActivities() < 1.0 || lt.getFractionOpen() < 1.0)
+        {
+            // person might be forced to go somewhere else or to stay at home
+            if (lt.getFractionOpen() > 0.0)
+            {
+                this.stream.setSeed(this.seed + loc.getId()); // reproducible by location id
+                if (this.stream.nextDouble() < lt.getFractionOpen())
                 {
-                    // person might be forced to go somewhere else or to stay at home
-                    if (lt.getFractionOpen() > 0.0)
+                    if (lt.getFractionActivities() > 0.0)
                     {
-                        this.stream.setSeed(this.seed + loc.getId()); // reproducible by location id
-                        if (this.stream.nextDouble() < lt.getFractionOpen())
+                        this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
+                        if (this.stream.nextDouble() < lt.getFractionActivities())
                         {
-                            if (lt.getFractionActivities() > 0.0)
-                            {
-                                this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
-                                if (this.stream.nextDouble() < lt.getFractionActivities())
-                                {
-                                    loc.addReservation(person);
-                                    return loc; // can still go to the chosen location
-                                }
-                            }
+                            loc.addReservation(person);
+                            return loc; // can still go to the chosen location
                         }
                     }
-
-                    LocationType alt = lt.getAlternativeLocationType();
-                    if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
-                        return person.getHomeLocation();
-                    loc = new NearestLocatorCap(new CurrentLocator(), alt).getLocation(person);
-                    if (loc == null)
-                        loc = person.getHomeLocation();
                 }
-
-                // location is open
-                loc.addReservation(person);
-                return loc;
             }
+
+            LocationType alt = lt.getAlternativeLocationType();
+            if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
+                return person.getHomeLocation();
+            loc = person.getModel().getLocatorRegistry().getFallbackLocatorCap(lt).getLocation(person);
+            if (loc == null)
+                loc = person.getHomeLocation();
         }
-        throw new MedlabsRuntimeException("RandomLocatorChoice.getLocation -- did not find a LocationType");
+
+        // location is open
+        loc.addReservation(person);
+        return loc;
     }
 
 }
@@ -1,7 +1,5 @@
 package nl.tudelft.simulation.medlabs.activity.locator;
 
-import nl.tudelft.simulation.jstats.streams.Java2Random;
-import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.person.Person;
@@ -23,11 +21,8 @@ import nl.tudelft.simulation.medlabs.person.index.IdxStudent;
  */
 public class SchoolLocator implements LocatorInterface
 {
-    /** local reproducible stream. */
-    private StreamInterface stream = null;
-
-    /** Experiment seed. */
-    private long seed = 1L;
+    /** the cached decisions whether persons may still visit partially closed locations. */
+    private final LocatorDecisionCache decisions = new LocatorDecisionCache("SchoolLocator");
 
     /** {@inheritDoc} */
     @Override
@@ -35,34 +30,21 @@ public class SchoolLocator implements LocatorInterface
     {
         Location schoolLocation = ((IdxStudent) person).getSchoolLocation();
         LocationType slt = schoolLocation.getLocationType();
+        if (schoolLocation.isClosed())
+        {
+            // the school is closed by a closure policy: send the person home, or to the alternative location type
+            return person.getModel().getLocatorRegistry().getClosedLocator(slt).getLocation(person);
+        }
         if (slt.getFractionActivities() < 1.0 || slt.getFractionOpen() < 1.0)
         {
             // person might be forced to study somewhere else, e.g., at home
-            if (slt.getFractionOpen() > 0.0)
+            if (this.decisions.mayVisit(person, schoolLocation))
             {
-                if (this.stream == null)
-                {
-                    this.seed = person.getModel().getDefaultStream().getOriginalSeed() + "SchoolLocator".hashCode();
-                    this.stream = new Java2Random(this.seed);
-                }
-                this.stream.setSeed(this.seed + schoolLocation.getId()); // reproducible by worklocation id
-                if (this.stream.nextDouble() < slt.getFractionOpen())
-                {
-                    if (slt.getFractionActivities() > 0.0)
-                    {
-                        this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
-                        if (this.stream.nextDouble() < slt.getFractionActivities())
-                        {
-                            return schoolLocation; // can still go to the school location
-                        }
-                    }
-                }
+                return schoolLocation; // can still go to the school location
             }
 
-            LocationType alt = slt.getAlternativeLocationType();
-            if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
-                return person.getHomeLocation();
-            return new NearestLocator(new CurrentLocator(), alt).getLocation(person);
+            // send the person home, or to the nearest location of the alternative location type
+            return person.getModel().getLocatorRegistry().getFallbackLocator(slt).getLocation(person);
         }
 
         // location is 100% open!
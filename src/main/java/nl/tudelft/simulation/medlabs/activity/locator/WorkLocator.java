@@ -1,7 +1,5 @@
 package nl.tudelft.simulation.medlabs.activity.locator;
 
-import nl.tudelft.simulation.jstats.streams.Java2Random;
-import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.person.Person;
@@ -23,11 +21,8 @@ import nl.tudelft.simulation.medlabs.person.index.IdxWorker;
  */
 public class WorkLocator implements LocatorInterface
 {
-    /** Local reproducible stream. */
-    private StreamInterface stream = null;
-
-    /** Experiment seed. */
-    private long seed = 1L;
+    /** the cached decisions whether persons may still visit partially closed locations. */
+    private final LocatorDecisionCache decisions = new LocatorDecisionCache("WorkLocator");
 
     /** {@inheritDoc} */
     @Override
@@ -35,34 +30,21 @@ public class WorkLocator implements LocatorInterface
     {
         Location workLocation = ((IdxWorker) person).getWorkLocation();
         LocationType wlt = workLocation.getLocationType();
+        if (workLocation.isClosed())
+        {
+            // the work location is closed by a closure policy: send the person home, or to the alternative location type
+            return person.getModel().getLocatorRegistry().getClosedLocator(wlt).getLocation(person);
+        }
         if (wlt.getFractionActivities() < 1.0 || wlt.getFractionOpen() < 1.0)
         {
             // person might be forced to work somewhere else, e.g., at home
-            if (wlt.getFractionOpen() > 0.0)
+            if (this.decisions.mayVisit(person, workLocation))
             {
-                if (this.stream == null)
-                {
-                    this.seed = person.getModel().getDefaultStream().getOriginalSeed() + "WorkLocator".hashCode();
-                    this.stream = new Java2Random(this.seed);
-                }
-                this.stream.setSeed(this.seed + workLocation.getId()); // reproducible by worklocation id
-                if (this.stream.nextDouble() < wlt.getFractionOpen())
-                {
-                    if (wlt.getFractionActivities() > 0.0)
-                    {
-                        this.stream.setSeed(this.seed + person.getId()); // reproducible by person id
-                        if (this.stream.nextDouble() < wlt.getFractionActivities())
-                        {
-                            return workLocation; // can still work at the work location
-                        }
-                    }
-                }
+                return workLocation; // can still work at the work location
             }
 
-            LocationType alt = wlt.getAlternativeLocationType();
-            if (person.getModel().getLocationTypeHouse().getLocationTypeId() == alt.getLocationTypeId())
-                return person.getHomeLocation();
-            return new NearestLocator(new CurrentLocator(), alt).getLocation(person);
+            // send the person home, or to the nearest location of the alternative location type
+            return person.getModel().getLocatorRegistry().getFallbackLocator(wlt).getLocation(person);
         }
 
         // location is 100% open!
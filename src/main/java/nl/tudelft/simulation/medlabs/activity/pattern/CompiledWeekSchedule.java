@@ -0,0 +1,145 @@
+package nl.tudelft.simulation.medlabs.activity.pattern;
+
+import java.io.Serializable;
+
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.TravelActivity;
+
+/**
+ * CompiledWeekSchedule flattens the seven day patterns of a week pattern into arrays, so advancing the schedule of a person
+ * takes a few array reads instead of walking the lists of the day patterns. The activities of all days are stored one day after
+ * the other; the position of activity <code>dayIndex</code> on day <code>weekDay</code> is
+ * <code>dayStart[weekDay] + dayIndex</code>. Next to the activities, the schedule holds the flags for starting after midnight,
+ * and the last activity of each day for the midnight rollover. The durations are not compiled: they are asked from the
+ * activity when it starts, because most of them depend on the person or on the time of day.
+ * <p>
+ * The schedule is a snapshot of the day patterns. When the activities of a day pattern or their settings change after the
+ * schedule has been compiled, the week pattern has to be compiled again.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class CompiledWeekSchedule implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the position of the first activity of each day, plus the total number of activities at index 7. */
+    private final int[] dayStart = new int[8];
+
+    /** the number of activities of each day. */
+    private final int[] daySize = new int[7];
+
+    /** the activities of all days. */
+    private final Activity[] activities;
+
+    /** whether each activity should still start after midnight. */
+    private final boolean[] startAfterMidnight;
+
+    /** the last activity of each day, or null for an empty day. */
+    private final Activity[] lastActivity = new Activity[7];
+
+    /** whether the last activity of each day is a travel activity. */
+    private final boolean[] lastIsTravel = new boolean[7];
+
+    /**
+     * Compile the seven day patterns of a week pattern.
+     * @param dayPatterns DayPattern[]; the seven day patterns, starting with Monday
+     */
+    public CompiledWeekSchedule(final DayPattern[] dayPatterns)
+    {
+        for (int day = 0; day < 7; day++)
+        {
+            this.daySize[day] = dayPatterns[day].size();
+            this.dayStart[day + 1] = this.dayStart[day] + this.daySize[day];
+        }
+        int total = this.dayStart[7];
+        this.activities = new Activity[total];
+        this.startAfterMidnight = new boolean[total];
+        for (int day = 0; day < 7; day++)
+        {
+            for (int i = 0; i < this.daySize[day]; i++)
+            {
+                int position = this.dayStart[day] + i;
+                Activity activity = dayPatterns[day].get(i);
+                this.activities[position] = activity;
+                this.startAfterMidnight[position] = activity.isStartAfterMidnight();
+            }
+            if (this.daySize[day] > 0)
+            {
+                this.lastActivity[day] = this.activities[this.dayStart[day + 1] - 1];
+                this.lastIsTravel[day] = this.lastActivity[day] instanceof TravelActivity;
+            }
+        }
+    }
+
+    /**
+     * Return the number of activities on a day of the week.
+     * @param weekDay int; the day of the week, 0 = Monday
+     * @return int; the number of activities on the day
+     */
+    public int getDaySize(final int weekDay)
+    {
+        return this.daySize[weekDay];
+    }
+
+    /**
+     * Return the activity for an activity index of the week pattern.
+     * @param activityIndex int; the activity index as <code>weekDay &lt;&lt; 12 | dayIndex</code>, not -1
+     * @return Activity; the activity, or null when the day has no activity with the day index
+     */
+    public Activity getActivity(final int activityIndex)
+    {
+        int weekDay = activityIndex >> 12;
+        int dayIndex = activityIndex & 0xfff;
+        return dayIndex < this.daySize[weekDay] ? this.activities[this.dayStart[weekDay] + dayIndex] : null;
+    }
+
+    /**
+     * Return whether the activity for an activity index should still start after midnight.
+     * @param activityIndex int; the activity index as <code>weekDay &lt;&lt; 12 | dayIndex</code>, not -1
+     * @return boolean; whether the activity should still start after midnight; false when the day has no such activity
+     */
+    public boolean isStartAfterMidnight(final int activityIndex)
+    {
+        int weekDay = activityIndex >> 12;
+        int dayIndex = activityIndex & 0xfff;
+        return dayIndex < this.daySize[weekDay] && this.startAfterMidnight[this.dayStart[weekDay] + dayIndex];
+    }
+
+    /**
+     * Return the last activity of a day, which determines the location of a person when the rest of the day is skipped.
+     * @param weekDay int; the day of the week, 0 = Monday
+     * @return Activity; the last activity of the day, or null for an empty day
+     */
+    public Activity getLastActivity(final int weekDay)
+    {
+        return this.lastActivity[weekDay];
+    }
+
+    /**
+     * Return whether the last activity of a day is a travel activity.
+     * @param weekDay int; the day of the week, 0 = Monday
+     * @return boolean; whether the last activity of the day is a travel activity
+     */
+    public boolean isLastTravel(final int weekDay)
+    {
+        return this.lastIsTravel[weekDay];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "CompiledWeekSchedule [activities=" + this.activities.length + "]";
+    }
+
+}
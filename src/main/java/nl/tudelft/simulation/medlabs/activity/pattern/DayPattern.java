@@ -3,7 +3,12 @@ package nl.tudelft.simulation.medlabs.activity.pattern;
 import java.util.List;
 
 import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.TravelActivity;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
 
 /**
  * A DayPattern contains a 24 hour pattern of activities.
@@ -76,4 +81,83 @@ public class DayPattern
         return this.activities.size();
     }
 
+    /**
+     * Walk the activities of the day for a person with a clock from 0:00 to 24:00, without the simulator, and report the
+     * planned location, start and duration of each activity to the visitor. The person starts at home. Travel activities move
+     * the person to the end location without taking time, an UntilFixedTimeActivity lasts till its hour of the day, and
+     * activities without a positive duration are skipped. The gap after the last activity is spent at the last location, as
+     * with the NoActivity of WeekDayPattern, and is reported with index -1. Stochastic durations and random locators draw from
+     * their streams as in the simulation; the draws of a lazy day take the place of the draws of the activities that are not
+     * carried out. The walk has no other side effects on the simulation:
+     * <ul>
+     * <li>the reservation manager is in the planning mode during the walk, so the reservations that the locators make are
+     * ignored and do not occupy capacity;</li>
+     * <li>the current location of the person is restored after the walk.</li>
+     * </ul>
+     * @param person Person; the person for whom to walk the day
+     * @param visitor ActivityVisitor; the visitor that receives the activities of the day
+     */
+    public void walk(final Person person, final ActivityVisitor visitor)
+    {
+        ReservationManager reservationManager = this.model.getReservationManager();
+        Location currentLocation = person.getCurrentLocation();
+        boolean planning = reservationManager.isPlanning();
+        try
+        {
+            reservationManager.setPlanning(true);
+            walkDay(person, visitor);
+        }
+        finally
+        {
+            reservationManager.setPlanning(planning);
+            person.setCurrentLocation(currentLocation);
+        }
+    }
+
+    /**
+     * Walk the activities of the day for a person, see walk(). The current location of the person is changed.
+     * @param person Person; the person for whom to walk the day
+     * @param visitor ActivityVisitor; the visitor that receives the activities of the day
+     */
+    private void walkDay(final Person person, final ActivityVisitor visitor)
+    {
+        person.setCurrentLocation(person.getHomeLocation());
+        double clock = 0.0;
+        for (int index = 0; index < this.activities.size() && clock < 24.0; index++)
+        {
+            Activity activity = this.activities.get(index);
+            if (activity instanceof TravelActivity)
+            {
+                person.setCurrentLocation(activity.getEndLocation(person));
+                continue;
+            }
+            double duration = activity instanceof UntilFixedTimeActivity
+                    ? ((UntilFixedTimeActivity) activity).getUntilHour() - clock : activity.getDuration(person);
+            if (Double.isNaN(duration) || duration <= 0.0)
+                continue;
+            duration = Math.min(duration, 24.0 - clock);
+            Location location = activity.getActivityLocation(person);
+            person.setCurrentLocation(location);
+            visitor.visit(index, location, clock, duration);
+            clock += duration;
+        }
+        if (clock < 24.0)
+            visitor.visit(-1, person.getCurrentLocation(), clock, 24.0 - clock);
+    }
+
+    /**
+     * ActivityVisitor receives the planned activities of a day from DayPattern.walk().
+     */
+    public interface ActivityVisitor
+    {
+        /**
+         * Receive one planned activity of the day.
+         * @param index int; the index of the activity in the day pattern, or -1 for the gap after the last activity
+         * @param location Location; the location of the activity
+         * @param startH double; the planned start of the activity in hours after midnight
+         * @param durationH double; the planned duration of the activity in hours
+         */
+        void visit(int index, Location location, double startH, double durationH);
+    }
+
 }
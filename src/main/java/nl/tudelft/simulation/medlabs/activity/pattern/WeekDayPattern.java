@@ -34,6 +34,9 @@ public class WeekDayPattern extends AbstractModelNamed implements WeekPattern
     /** pattern for the 7 days of the week, 0 = Monday. */
     private final DayPattern[] dayPatternArray = new DayPattern[7];
 
+    /** the compiled schedule of the day patterns; compiled on first use. */
+    private CompiledWeekSchedule schedule = null;
+
     /** Static constant for NoActivity. */
     private static Activity noActivityUntilMidnight;
 
@@ -102,51 +105,67 @@ public class WeekDayPattern extends AbstractModelNamed implements WeekPattern
         }
     }
 
+    /**
+     * Return the compiled schedule of this week pattern. The schedule is compiled on first use, after the model has been
+     * constructed.
+     * @return CompiledWeekSchedule; the compiled schedule of this week pattern
+     */
+    public CompiledWeekSchedule getSchedule()
+    {
+        if (this.schedule == null)
+            this.schedule = new CompiledWeekSchedule(this.dayPatternArray);
+        return this.schedule;
+    }
+
+    /**
+     * Compile the schedule of this week pattern again. This has to be called when the activities of the day patterns, or the
+     * settings of these activities, have been changed after the schedule was used for the first time.
+     */
+    public void compileSchedule()
+    {
+        this.schedule = new CompiledWeekSchedule(this.dayPatternArray);
+    }
+
     /** {@inheritDoc} */
     @Override
     public int getNextActivityIndex(final Person person, final int prevActivityIndex)
     {
         // make sure the weekday overflows to the next day at midnight (add 36 seconds)
-        int weekDay = ((int) Math.floor((this.model.getSimulator().getSimulatorTime() + 0.01) / 24)) % 7;
+        int weekDay = ((int) ((this.model.getSimulator().getSimulatorTime() + 0.01) / 24.0)) % 7;
         if (prevActivityIndex == -1)
         {
             // return activity 0 of the next day
             return weekDay << 12;
         }
+        CompiledWeekSchedule compiled = getSchedule();
         int newIndex = prevActivityIndex + 1;
         int prevWeekDay = prevActivityIndex >> 12;
-        int prevSize = this.dayPatternArray[prevWeekDay].size();
-        if (prevWeekDay == weekDay && (newIndex & 0xfff) >= prevSize)
+        if (prevWeekDay == weekDay)
         {
-            // there are no more activities for the current day -- fill with dummy activity till the end of the day
-            return -1;
+            // when there are no more activities for the current day, fill with dummy activity till the end of the day
+            return (newIndex & 0xfff) >= compiled.getDaySize(prevWeekDay) ? -1 : newIndex;
         }
-        if (prevWeekDay != weekDay)
+        // if there are no more activities for the previous day: go to the first one of the current day
+        if ((newIndex & 0xfff) == compiled.getDaySize(prevWeekDay))
         {
-            // if there are no more activities for the current day: go to the next one
-            if ((newIndex & 0xfff) == prevSize) 
-            {
-                return weekDay << 12;
-            }
-            // otherwise: if the next activity is a 'rollover' one, just start it, although it is out of sync
-            if (getActivity(newIndex).isStartAfterMidnight()) 
-            {
-                return newIndex;
-            }
-            // otherwise, put the person at the (destination) location of the last activity
-            Activity lastDayActivity = this.dayPatternArray[prevWeekDay].getLast();
-            if (lastDayActivity instanceof TravelActivity)
-            {
-                person.setCurrentLocation(((TravelActivity) lastDayActivity).getEndLocation(person));
-            }
-            else
-            {
-                person.setCurrentLocation(lastDayActivity.getActivityLocation(person));
-            }
             return weekDay << 12;
         }
-        // just return the next activity of the current day
-        return newIndex;
+        // otherwise: if the next activity is a 'rollover' one, just start it, although it is out of sync
+        if (compiled.isStartAfterMidnight(newIndex))
+        {
+            return newIndex;
+        }
+        // otherwise, put the person at the (destination) location of the last activity
+        Activity lastDayActivity = compiled.getLastActivity(prevWeekDay);
+        if (compiled.isLastTravel(prevWeekDay))
+        {
+            person.setCurrentLocation(((TravelActivity) lastDayActivity).getEndLocation(person));
+        }
+        else
+        {
+            person.setCurrentLocation(lastDayActivity.getActivityLocation(person));
+        }
+        return weekDay << 12;
     }
 
     /** {@inheritDoc} */
@@ -158,23 +177,29 @@ public class WeekDayPattern extends AbstractModelNamed implements WeekPattern
             // gap to fill till the end of the day
             return noActivityUntilMidnight;
         }
-        int weekDay = activityIndex >> 12;
-        int dayIndex = activityIndex & 0xfff;
-        if (dayIndex >= this.dayPatternArray[weekDay].size())
-        {
-            // can happen after schedule change
-            return noActivityUntilMidnight;
-        }
-        return this.dayPatternArray[weekDay].get(dayIndex);
+        Activity activity = getSchedule().getActivity(activityIndex);
+        // the activity can be missing after schedule change
+        return activity == null ? noActivityUntilMidnight : activity;
+    }
+
+    /**
+     * Return the day pattern for a day of the week.
+     * @param weekDay int; the day of the week, 0 = Monday
+     * @return DayPattern; the day pattern for the day of the week
+     */
+    public DayPattern getDayPattern(final int weekDay)
+    {
+        return this.dayPatternArray[weekDay];
     }
 
     /**
-     * Return the array of seven day patterns, starting with Monday.
-     * @return DayPattern[7]; the array of 7 DayPatterns
+     * Return a copy of the array of seven day patterns, starting with Monday. Replacing a day pattern in the returned array
+     * does not change this week pattern, and therefore cannot make the compiled schedule outdated.
+     * @return DayPattern[7]; a copy of the array of 7 DayPatterns
      */
     public DayPattern[] getDayPatternArray()
     {
-        return this.dayPatternArray;
+        return this.dayPatternArray.clone();
     }
 
     /** {@inheritDoc} */
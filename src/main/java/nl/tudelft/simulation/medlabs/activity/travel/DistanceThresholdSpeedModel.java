@@ -0,0 +1,73 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+/**
+ * DistanceThresholdSpeedModel is the default speed model for distance based travel: trips shorter than the walk threshold are
+ * walked at 1 m/s, trips shorter than the bike threshold are biked at 3 m/s, and longer trips are made by car at 11.1 m/s.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class DistanceThresholdSpeedModel implements SpeedModel
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the distance in meters below which persons walk. */
+    private final double walkThresholdM;
+
+    /** the distance in meters below which persons bike. */
+    private final double bikeThresholdM;
+
+    /** the speeds in m/s, indexed by mode. */
+    private final double[] speedMps;
+
+    /**
+     * Create the default speed model: walk below 1 km at 1 m/s, bike below 5 km at 3 m/s, and use the car at 11.1 m/s.
+     */
+    public DistanceThresholdSpeedModel()
+    {
+        this(1000.0, 5000.0, 1.0, 3.0, 11.1);
+    }
+
+    /**
+     * Create a speed model with the given thresholds and speeds.
+     * @param walkThresholdM double; the distance in meters below which persons walk
+     * @param bikeThresholdM double; the distance in meters below which persons bike
+     * @param walkSpeedMps double; the walking speed in m/s
+     * @param bikeSpeedMps double; the biking speed in m/s
+     * @param carSpeedMps double; the car speed in m/s
+     */
+    public DistanceThresholdSpeedModel(final double walkThresholdM, final double bikeThresholdM, final double walkSpeedMps,
+            final double bikeSpeedMps, final double carSpeedMps)
+    {
+        this.walkThresholdM = walkThresholdM;
+        this.bikeThresholdM = bikeThresholdM;
+        this.speedMps = new double[] {walkSpeedMps, bikeSpeedMps, carSpeedMps};
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte getMode(final double distanceM)
+    {
+        if (distanceM < this.walkThresholdM)
+            return WALK;
+        if (distanceM < this.bikeThresholdM)
+            return BIKE;
+        return CAR;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getSpeedMps(final byte mode)
+    {
+        return this.speedMps[mode];
+    }
+
+}
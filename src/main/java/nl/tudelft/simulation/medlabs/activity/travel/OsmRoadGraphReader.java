@@ -0,0 +1,279 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.djutils.exceptions.Throw;
+import org.openstreetmap.osmosis.core.container.v0_6.EntityContainer;
+import org.openstreetmap.osmosis.core.domain.v0_6.Entity;
+import org.openstreetmap.osmosis.core.domain.v0_6.Node;
+import org.openstreetmap.osmosis.core.domain.v0_6.Tag;
+import org.openstreetmap.osmosis.core.domain.v0_6.Way;
+import org.openstreetmap.osmosis.core.domain.v0_6.WayNode;
+import org.openstreetmap.osmosis.core.task.v0_6.Sink;
+import org.openstreetmap.osmosis.pbf2.v0_6.PbfReader;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * OsmRoadGraphReader reads an OpenStreetMap extract in .osm.pbf format with osmosis, and builds a RoadGraph for walking,
+ * biking and driving. Only ways with a <code>highway</code> tag are used. The allowed modes and the car speed are derived from
+ * the highway class, the <code>maxspeed</code>, <code>oneway</code>, <code>junction</code>, <code>foot</code>,
+ * <code>bicycle</code> and <code>access</code> tags. The file is expected to list the nodes before the ways, as osmosis and
+ * the common extract tools do.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class OsmRoadGraphReader implements Sink
+{
+    /** mode mask for walking. */
+    private static final byte WALK = 1 << SpeedModel.WALK;
+
+    /** mode mask for biking. */
+    private static final byte BIKE = 1 << SpeedModel.BIKE;
+
+    /** mode mask for car use. */
+    private static final byte CAR = 1 << SpeedModel.CAR;
+
+    /** the builder for the graph. */
+    private final RoadGraphBuilder builder = new RoadGraphBuilder();
+
+    /** the number of highways that have been read. */
+    private int numberOfWays = 0;
+
+    /**
+     * Read a .osm.pbf file and build the road graph for walk, bike and car.
+     * @param pbfFile File; the OpenStreetMap extract in .osm.pbf format
+     * @return RoadGraph; the compact road graph
+     * @throws MedlabsRuntimeException when the file cannot be found
+     */
+    public static RoadGraph read(final File pbfFile)
+    {
+        Throw.when(!pbfFile.exists(), MedlabsRuntimeException.class, "OSM file %s not found", pbfFile.getAbsolutePath());
+        OsmRoadGraphReader sink = new OsmRoadGraphReader();
+        PbfReader reader = new PbfReader(pbfFile, 1);
+        reader.setSink(sink);
+        reader.run();
+        return sink.getRoadGraph();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize(final Map<String, Object> metaData)
+    {
+        // no meta data needed
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void process(final EntityContainer entityContainer)
+    {
+        Entity entity = entityContainer.getEntity();
+        if (entity instanceof Node)
+        {
+            Node node = (Node) entity;
+            this.builder.addNode(node.getId(), (float) node.getLatitude(), (float) node.getLongitude());
+        }
+        else if (entity instanceof Way)
+        {
+            processWay((Way) entity);
+        }
+    }
+
+    /**
+     * Add the edges of a way to the builder when it is a highway.
+     * @param way Way; the way to process
+     */
+    private void processWay(final Way way)
+    {
+        String highway = null;
+        String maxspeed = null;
+        String oneway = null;
+        String junction = null;
+        String foot = null;
+        String bicycle = null;
+        String access = null;
+        for (Tag tag : way.getTags())
+        {
+            switch (tag.getKey())
+            {
+                case "highway":
+                    highway = tag.getValue();
+                    break;
+                case "maxspeed":
+                    maxspeed = tag.getValue();
+                    break;
+                case "oneway":
+                    oneway = tag.getValue();
+                    break;
+                case "junction":
+                    junction = tag.getValue();
+                    break;
+                case "foot":
+                    foot = tag.getValue();
+                    break;
+                case "bicycle":
+                    bicycle = tag.getValue();
+                    break;
+                case "access":
+                    access = tag.getValue();
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (highway == null)
+            return;
+        byte modes = highwayModes(highway);
+        if ("no".equals(access) || "private".equals(access))
+            modes = 0;
+        if ("yes".equals(foot) || "designated".equals(foot))
+            modes |= WALK;
+        else if ("no".equals(foot))
+            modes &= ~WALK;
+        if ("yes".equals(bicycle) || "designated".equals(bicycle))
+            modes |= BIKE;
+        else if ("no".equals(bicycle))
+            modes &= ~BIKE;
+        if (modes == 0)
+            return;
+        float carSpeed = carSpeedMps(highway, maxspeed);
+
+        boolean forwardOnly = "yes".equals(oneway) || "1".equals(oneway) || "true".equals(oneway)
+                || "roundabout".equals(junction) || (oneway == null && highway.startsWith("motorway"));
+        boolean backwardOnly = "-1".equals(oneway) || "reverse".equals(oneway);
+        byte forwardModes = backwardOnly ? (byte) (modes & ~CAR) : modes;
+        byte backwardModes = forwardOnly ? (byte) (modes & ~CAR) : modes;
+
+        List<WayNode> wayNodes = way.getWayNodes();
+        int previous = -1;
+        for (WayNode wayNode : wayNodes)
+        {
+            int current = this.builder.getNodeIndex(wayNode.getNodeId());
+            if (previous >= 0 && current >= 0)
+            {
+                this.builder.addEdge(previous, current, forwardModes, carSpeed);
+                this.builder.addEdge(current, previous, backwardModes, carSpeed);
+            }
+            previous = current;
+        }
+        this.numberOfWays++;
+    }
+
+    /**
+     * Return the default modes that may use a highway class.
+     * @param highway String; the value of the highway tag
+     * @return byte; the mode mask for the highway class
+     */
+    private static byte highwayModes(final String highway)
+    {
+        switch (highway)
+        {
+            case "motorway":
+            case "motorway_link":
+            case "trunk":
+            case "trunk_link":
+                return CAR;
+            case "primary":
+            case "primary_link":
+            case "secondary":
+            case "secondary_link":
+            case "tertiary":
+            case "tertiary_link":
+            case "unclassified":
+            case "residential":
+            case "living_street":
+            case "service":
+            case "road":
+                return (byte) (WALK | BIKE | CAR);
+            case "cycleway":
+                return (byte) (WALK | BIKE);
+            case "footway":
+            case "pedestrian":
+            case "path":
+            case "steps":
+            case "track":
+                return WALK;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Return the car speed for a highway, based on the maxspeed tag when it is a number in km/h, and on the highway class
+     * otherwise.
+     * @param highway String; the value of the highway tag
+     * @param maxspeed String; the value of the maxspeed tag, can be null
+     * @return float; the car speed in m/s
+     */
+    private static float carSpeedMps(final String highway, final String maxspeed)
+    {
+        if (maxspeed != null)
+        {
+            try
+            {
+                return Float.parseFloat(maxspeed.trim()) / 3.6f;
+            }
+            catch (NumberFormatException nfe)
+            {
+                // use the highway class, e.g., for 'NL:urban' or '30 mph'
+            }
+        }
+        switch (highway)
+        {
+            case "motorway":
+                return 100.0f / 3.6f;
+            case "trunk":
+                return 80.0f / 3.6f;
+            case "motorway_link":
+            case "trunk_link":
+            case "primary":
+                return 60.0f / 3.6f;
+            case "primary_link":
+            case "secondary":
+                return 50.0f / 3.6f;
+            case "secondary_link":
+            case "tertiary":
+            case "tertiary_link":
+                return 40.0f / 3.6f;
+            case "unclassified":
+            case "residential":
+            case "road":
+                return 30.0f / 3.6f;
+            default:
+                return 15.0f / 3.6f;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void complete()
+    {
+        System.out.println("OSM road network read: " + this.numberOfWays + " highways");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        // nothing to close
+    }
+
+    /**
+     * @return the road graph built from the entities that were read
+     */
+    public RoadGraph getRoadGraph()
+    {
+        return this.builder.build();
+    }
+
+}
@@ -0,0 +1,184 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import java.io.Serializable;
+
+/**
+ * RoadGraph is a compact, immutable road network stored in primitive arrays in compressed sparse row (CSR) format. The
+ * outgoing edges of node <code>n</code> are the edges with index <code>firstEdge[n]</code> up to (but not including)
+ * <code>firstEdge[n + 1]</code>. Each edge has a target node, a length in meters, a bit mask with the modes that are allowed
+ * to use the edge (bit <code>1 &lt;&lt; mode</code> for the modes in SpeedModel), and a maximum car speed. The graph is
+ * created by the RoadGraphBuilder, e.g., from an OpenStreetMap extract by the OsmRoadGraphReader.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class RoadGraph implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the latitude of each node. */
+    private final float[] nodeLat;
+
+    /** the longitude of each node. */
+    private final float[] nodeLon;
+
+    /** the OR of the mode masks of the edges that start or end in each node. */
+    private final byte[] nodeModes;
+
+    /** the index of the first outgoing edge of each node; has length numberOfNodes + 1. */
+    private final int[] firstEdge;
+
+    /** the target node of each edge. */
+    private final int[] edgeTarget;
+
+    /** the length of each edge in meters. */
+    private final float[] edgeLengthM;
+
+    /** the mask of modes that are allowed on each edge. */
+    private final byte[] edgeModes;
+
+    /** the maximum car speed on each edge in m/s. */
+    private final float[] edgeCarSpeedMps;
+
+    /**
+     * Create a road graph from CSR arrays. The arrays are not copied.
+     * @param nodeLat float[]; the latitude of each node
+     * @param nodeLon float[]; the longitude of each node
+     * @param nodeModes byte[]; the OR of the mode masks of the edges that start or end in each node
+     * @param firstEdge int[]; the index of the first outgoing edge of each node; has length numberOfNodes + 1
+     * @param edgeTarget int[]; the target node of each edge
+     * @param edgeLengthM float[]; the length of each edge in meters
+     * @param edgeModes byte[]; the mask of modes that are allowed on each edge
+     * @param edgeCarSpeedMps float[]; the maximum car speed on each edge in m/s
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public RoadGraph(final float[] nodeLat, final float[] nodeLon, final byte[] nodeModes, final int[] firstEdge,
+            final int[] edgeTarget, final float[] edgeLengthM, final byte[] edgeModes, final float[] edgeCarSpeedMps)
+    {
+        this.nodeLat = nodeLat;
+        this.nodeLon = nodeLon;
+        this.nodeModes = nodeModes;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeLengthM = edgeLengthM;
+        this.edgeModes = edgeModes;
+        this.edgeCarSpeedMps = edgeCarSpeedMps;
+    }
+
+    /**
+     * @return the number of nodes in the graph
+     */
+    public int getNumberOfNodes()
+    {
+        return this.nodeLat.length;
+    }
+
+    /**
+     * @return the number of (directed) edges in the graph
+     */
+    public int getNumberOfEdges()
+    {
+        return this.edgeTarget.length;
+    }
+
+    /**
+     * @param node int; the node index
+     * @return the latitude of the node
+     */
+    public float getNodeLat(final int node)
+    {
+        return this.nodeLat[node];
+    }
+
+    /**
+     * @param node int; the node index
+     * @return the longitude of the node
+     */
+    public float getNodeLon(final int node)
+    {
+        return this.nodeLon[node];
+    }
+
+    /**
+     * Return whether the node can be used by the given mode.
+     * @param node int; the node index
+     * @param mode byte; the mode as defined in SpeedModel
+     * @return boolean; whether at least one edge of the node allows the mode
+     */
+    public boolean isNodeAllowed(final int node, final byte mode)
+    {
+        return (this.nodeModes[node] & (1 << mode)) != 0;
+    }
+
+    /**
+     * @param node int; the node index
+     * @return the index of the first outgoing edge of the node
+     */
+    public int getFirstEdge(final int node)
+    {
+        return this.firstEdge[node];
+    }
+
+    /**
+     * @param node int; the node index
+     * @return the index after the last outgoing edge of the node
+     */
+    public int getEndEdge(final int node)
+    {
+        return this.firstEdge[node + 1];
+    }
+
+    /**
+     * @param edge int; the edge index
+     * @return the target node of the edge
+     */
+    public int getEdgeTarget(final int edge)
+    {
+        return this.edgeTarget[edge];
+    }
+
+    /**
+     * @param edge int; the edge index
+     * @return the length of the edge in meters
+     */
+    public float getEdgeLengthM(final int edge)
+    {
+        return this.edgeLengthM[edge];
+    }
+
+    /**
+     * Return whether the edge can be used by the given mode.
+     * @param edge int; the edge index
+     * @param mode byte; the mode as defined in SpeedModel
+     * @return boolean; whether the edge allows the mode
+     */
+    public boolean isEdgeAllowed(final int edge, final byte mode)
+    {
+        return (this.edgeModes[edge] & (1 << mode)) != 0;
+    }
+
+    /**
+     * @param edge int; the edge index
+     * @return the maximum car speed on the edge in m/s
+     */
+    public float getEdgeCarSpeedMps(final int edge)
+    {
+        return this.edgeCarSpeedMps[edge];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "RoadGraph [nodes=" + getNumberOfNodes() + ", edges=" + getNumberOfEdges() + "]";
+    }
+
+}
@@ -0,0 +1,178 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import gnu.trove.list.TByteList;
+import gnu.trove.list.TFloatList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import nl.tudelft.simulation.medlabs.common.Coordinate;
+
+/**
+ * RoadGraphBuilder collects nodes and edges in growable primitive lists, and turns them into a compact RoadGraph. Nodes that
+ * are not used by any edge are dropped when the graph is built, so all nodes of an OpenStreetMap extract can be added without
+ * knowing beforehand which ones belong to a road.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class RoadGraphBuilder
+{
+    /** the map from external (e.g., OSM) node id to the node index. */
+    private final TLongIntMap nodeIndexMap = new TLongIntHashMap(1024, 0.5f, Long.MIN_VALUE, -1);
+
+    /** the latitude of each node. */
+    private final TFloatList nodeLat = new TFloatArrayList();
+
+    /** the longitude of each node. */
+    private final TFloatList nodeLon = new TFloatArrayList();
+
+    /** the source node of each edge. */
+    private final TIntList edgeSource = new TIntArrayList();
+
+    /** the target node of each edge. */
+    private final TIntList edgeTarget = new TIntArrayList();
+
+    /** the length of each edge in meters. */
+    private final TFloatList edgeLengthM = new TFloatArrayList();
+
+    /** the mode mask of each edge. */
+    private final TByteList edgeModes = new TByteArrayList();
+
+    /** the car speed of each edge in m/s. */
+    private final TFloatList edgeCarSpeedMps = new TFloatArrayList();
+
+    /**
+     * Add a node, or return the index of the node when it was already added.
+     * @param externalId long; the external (e.g., OSM) id of the node
+     * @param lat float; the latitude of the node
+     * @param lon float; the longitude of the node
+     * @return int; the index of the node in the builder
+     */
+    public int addNode(final long externalId, final float lat, final float lon)
+    {
+        int index = this.nodeIndexMap.get(externalId);
+        if (index >= 0)
+            return index;
+        index = this.nodeLat.size();
+        this.nodeIndexMap.put(externalId, index);
+        this.nodeLat.add(lat);
+        this.nodeLon.add(lon);
+        return index;
+    }
+
+    /**
+     * Return the index of a node in the builder.
+     * @param externalId long; the external (e.g., OSM) id of the node
+     * @return int; the index of the node in the builder, or -1 when the node is unknown
+     */
+    public int getNodeIndex(final long externalId)
+    {
+        return this.nodeIndexMap.get(externalId);
+    }
+
+    /**
+     * Add a directed edge between two nodes; the length is calculated from the coordinates of the nodes.
+     * @param from int; the index of the source node
+     * @param to int; the index of the target node
+     * @param modes byte; the mask of modes that are allowed on the edge (bit 1 &lt;&lt; mode)
+     * @param carSpeedMps float; the maximum car speed on the edge in m/s
+     */
+    public void addEdge(final int from, final int to, final byte modes, final float carSpeedMps)
+    {
+        float lengthM = Coordinate.distanceMprecise(this.nodeLat.get(from), this.nodeLon.get(from), this.nodeLat.get(to),
+                this.nodeLon.get(to));
+        addEdge(from, to, lengthM, modes, carSpeedMps);
+    }
+
+    /**
+     * Add a directed edge between two nodes with a given length.
+     * @param from int; the index of the source node
+     * @param to int; the index of the target node
+     * @param lengthM float; the length of the edge in meters
+     * @param modes byte; the mask of modes that are allowed on the edge (bit 1 &lt;&lt; mode)
+     * @param carSpeedMps float; the maximum car speed on the edge in m/s
+     */
+    public void addEdge(final int from, final int to, final float lengthM, final byte modes, final float carSpeedMps)
+    {
+        if (from == to || modes == 0)
+            return;
+        this.edgeSource.add(from);
+        this.edgeTarget.add(to);
+        this.edgeLengthM.add(lengthM);
+        this.edgeModes.add(modes);
+        this.edgeCarSpeedMps.add(carSpeedMps);
+    }
+
+    /**
+     * Build the compact road graph. Nodes without edges are removed, and the edges are sorted on source node.
+     * @return RoadGraph; the compact road graph
+     */
+    public RoadGraph build()
+    {
+        int nrOldNodes = this.nodeLat.size();
+        int nrEdges = this.edgeSource.size();
+
+        // renumber the nodes that are used by at least one edge, and determine the node modes
+        byte[] oldNodeModes = new byte[nrOldNodes];
+        for (int e = 0; e < nrEdges; e++)
+        {
+            oldNodeModes[this.edgeSource.get(e)] |= this.edgeModes.get(e);
+            oldNodeModes[this.edgeTarget.get(e)] |= this.edgeModes.get(e);
+        }
+        int[] newIndex = new int[nrOldNodes];
+        int nrNodes = 0;
+        for (int n = 0; n < nrOldNodes; n++)
+        {
+            newIndex[n] = oldNodeModes[n] != 0 ? nrNodes++ : -1;
+        }
+        float[] lat = new float[nrNodes];
+        float[] lon = new float[nrNodes];
+        byte[] nodeModes = new byte[nrNodes];
+        for (int n = 0; n < nrOldNodes; n++)
+        {
+            if (newIndex[n] >= 0)
+            {
+                lat[newIndex[n]] = this.nodeLat.get(n);
+                lon[newIndex[n]] = this.nodeLon.get(n);
+                nodeModes[newIndex[n]] = oldNodeModes[n];
+            }
+        }
+
+        // counting sort of the edges on (new) source node
+        int[] firstEdge = new int[nrNodes + 1];
+        for (int e = 0; e < nrEdges; e++)
+        {
+            firstEdge[newIndex[this.edgeSource.get(e)] + 1]++;
+        }
+        for (int n = 0; n < nrNodes; n++)
+        {
+            firstEdge[n + 1] += firstEdge[n];
+        }
+        int[] fill = new int[nrNodes];
+        System.arraycopy(firstEdge, 0, fill, 0, nrNodes);
+        int[] target = new int[nrEdges];
+        float[] length = new float[nrEdges];
+        byte[] modes = new byte[nrEdges];
+        float[] carSpeed = new float[nrEdges];
+        for (int e = 0; e < nrEdges; e++)
+        {
+            int pos = fill[newIndex[this.edgeSource.get(e)]]++;
+            target[pos] = newIndex[this.edgeTarget.get(e)];
+            length[pos] = this.edgeLengthM.get(e);
+            modes[pos] = this.edgeModes.get(e);
+            carSpeed[pos] = this.edgeCarSpeedMps.get(e);
+        }
+        return new RoadGraph(lat, lon, nodeModes, firstEdge, target, length, modes, carSpeed);
+    }
+
+}
@@ -0,0 +1,521 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntFloatMap;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntFloatHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import nl.tudelft.simulation.medlabs.common.Coordinate;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
+
+/**
+ * RoadNetworkRouter answers travel time queries over a RoadGraph in constant time, using precomputed many-to-many travel time
+ * tables. The locations of the model are grouped in clusters of <code>clusterSizeCells</code> x <code>clusterSizeCells</code>
+ * grid cells. For each cluster and each mode, the graph node closest to the center of the locations in the cluster is used
+ * as the access node. The table holds the network travel time between the access nodes of all pairs of clusters, for walk,
+ * bike and car. A query is an array lookup plus the (straight-line) access and egress time from the locations to the access
+ * nodes of their clusters.
+ * <p>
+ * The tables are calculated with one pruned Dijkstra search per origin cluster and mode on the primitive arrays of the graph,
+ * which stops when all access nodes have been settled or the maximum travel time has been reached. The searches for different
+ * origin clusters run in parallel. Trips within one cluster, trips for locations that were not known when the tables were
+ * calculated, and trips between clusters that are not connected, use the straight-line distance times a detour factor.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class RoadNetworkRouter implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the number of modes in the tables (walk, bike, car). */
+    private static final int NUMBER_OF_MODES = 3;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the road graph. */
+    private final RoadGraph graph;
+
+    /** the speed model for walking and biking speeds, and for access, egress and fallback trips. */
+    private final SpeedModel speedModel;
+
+    /** the size of a cluster in grid cells in x and y direction. */
+    private final int clusterSizeCells;
+
+    /** the detour factor for straight-line trips. */
+    private final double detourFactor;
+
+    /** the maximum travel time in seconds for the search; pairs further apart are not connected. */
+    private final float maxTravelTimeS;
+
+    /** the graph nodes per grid cell, for snapping. */
+    private final TIntObjectMap<TIntList> nodeGrid = new TIntObjectHashMap<>();
+
+    /** the cluster index per location id. */
+    private final TIntIntMap locationCluster = new TIntIntHashMap(1024, 0.5f, Integer.MIN_VALUE, -1);
+
+    /** the straight-line access distance in meters per mode from the location to the access node of its cluster. */
+    private final TIntFloatMap[] locationAccessM = new TIntFloatMap[NUMBER_OF_MODES];
+
+    /** the number of clusters. */
+    private int numberOfClusters = 0;
+
+    /** the access node per mode and cluster, or -1 when no node could be found. */
+    private int[][] clusterNode;
+
+    /** the travel time tables in seconds per mode; index origin * numberOfClusters + destination; NaN if not connected. */
+    private float[][] tables;
+
+    /**
+     * Create a router with the default speed model of the model's travel time matrix, clusters of 5 x 5 grid cells, a detour
+     * factor of 1.3, and a maximum travel time of 3 hours.
+     * @param model MedlabsModelInterface; the model
+     * @param graph RoadGraph; the road graph
+     */
+    public RoadNetworkRouter(final MedlabsModelInterface model, final RoadGraph graph)
+    {
+        this(model, graph, model.getTravelTimeMatrix().getSpeedModel(), 5, 1.3, 3.0);
+    }
+
+    /**
+     * Create a router.
+     * @param model MedlabsModelInterface; the model
+     * @param graph RoadGraph; the road graph
+     * @param speedModel SpeedModel; the speed model for walking and biking speeds, and for access and fallback trips
+     * @param clusterSizeCells int; the size of a cluster in grid cells in x and y direction
+     * @param detourFactor double; the detour factor for straight-line trips
+     * @param maxTravelTimeH double; the maximum travel time in hours for the search
+     */
+    public RoadNetworkRouter(final MedlabsModelInterface model, final RoadGraph graph, final SpeedModel speedModel,
+            final int clusterSizeCells, final double detourFactor, final double maxTravelTimeH)
+    {
+        Throw.whenNull(model, "model cannot be null");
+        Throw.whenNull(graph, "graph cannot be null");
+        Throw.whenNull(speedModel, "speedModel cannot be null");
+        Throw.when(clusterSizeCells < 1, MedlabsRuntimeException.class, "clusterSizeCells should be at least 1");
+        this.model = model;
+        this.graph = graph;
+        this.speedModel = speedModel;
+        this.clusterSizeCells = clusterSizeCells;
+        this.detourFactor = detourFactor;
+        this.maxTravelTimeS = (float) (maxTravelTimeH * 3600.0);
+        for (int mode = 0; mode < NUMBER_OF_MODES; mode++)
+        {
+            this.locationAccessM[mode] = new TIntFloatHashMap();
+        }
+        for (int node = 0; node < graph.getNumberOfNodes(); node++)
+        {
+            int key = model.gridKeyLatLon(graph.getNodeLat(node), graph.getNodeLon(node));
+            TIntList nodes = this.nodeGrid.get(key);
+            if (nodes == null)
+            {
+                nodes = new TIntArrayList(4);
+                this.nodeGrid.put(key, nodes);
+            }
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Cluster all locations of the model with a non-negative id, and calculate the many-to-many travel time tables for walk,
+     * bike and car. This method should be called after all locations have been created, and can be called again when
+     * locations are added.
+     */
+    public void precompute()
+    {
+        // cluster the locations
+        this.locationCluster.clear();
+        for (int mode = 0; mode < NUMBER_OF_MODES; mode++)
+        {
+            this.locationAccessM[mode].clear();
+        }
+        TIntIntMap clusterIndexMap = new TIntIntHashMap();
+        TIntList clusterLocations = new TIntArrayList();
+        double[] sumLat = new double[16];
+        double[] sumLon = new double[16];
+        int[] count = new int[16];
+        for (TIntObjectIterator<Location> it = this.model.getLocationMap().iterator(); it.hasNext();)
+        {
+            it.advance();
+            Location location = it.value();
+            if (location.getId() < 0)
+                continue;
+            int clusterKey = this.model.gridKeyXY(Math.floorDiv(location.getGridX(), this.clusterSizeCells),
+                    Math.floorDiv(location.getGridY(), this.clusterSizeCells));
+            int cluster;
+            if (clusterIndexMap.containsKey(clusterKey))
+                cluster = clusterIndexMap.get(clusterKey);
+            else
+            {
+                cluster = clusterIndexMap.size();
+                clusterIndexMap.put(clusterKey, cluster);
+                if (cluster >= count.length)
+                {
+                    sumLat = Arrays.copyOf(sumLat, 2 * count.length);
+                    sumLon = Arrays.copyOf(sumLon, 2 * count.length);
+                    count = Arrays.copyOf(count, 2 * count.length);
+                }
+            }
+            this.locationCluster.put(location.getId(), cluster);
+            clusterLocations.add(location.getId());
+            sumLat[cluster] += location.getLatitude();
+            sumLon[cluster] += location.getLongitude();
+            count[cluster]++;
+        }
+        this.numberOfClusters = clusterIndexMap.size();
+        Throw.when((long) this.numberOfClusters * this.numberOfClusters > Integer.MAX_VALUE, MedlabsRuntimeException.class,
+                "too many clusters (%d) for the travel time tables; increase clusterSizeCells", this.numberOfClusters);
+
+        // snap the cluster centers to the graph per mode; the access node of a mode can differ per mode, e.g., when the
+        // cluster center is next to a footpath, so the access distance of each location is measured per mode
+        this.clusterNode = new int[NUMBER_OF_MODES][this.numberOfClusters];
+        for (byte mode = 0; mode < NUMBER_OF_MODES; mode++)
+        {
+            for (int c = 0; c < this.numberOfClusters; c++)
+            {
+                this.clusterNode[mode][c] = snap((float) (sumLat[c] / count[c]), (float) (sumLon[c] / count[c]), mode);
+            }
+            for (int i = 0; i < clusterLocations.size(); i++)
+            {
+                Location location = this.model.getLocationMap().get(clusterLocations.get(i));
+                int node = this.clusterNode[mode][this.locationCluster.get(location.getId())];
+                if (node >= 0)
+                    this.locationAccessM[mode].put(location.getId(), Coordinate.distanceMprecise(location.getLatitude(),
+                            location.getLongitude(), this.graph.getNodeLat(node), this.graph.getNodeLon(node)));
+            }
+        }
+
+        // calculate the tables
+        final int nc = this.numberOfClusters;
+        this.tables = new float[NUMBER_OF_MODES][nc * nc];
+        for (byte m = 0; m < NUMBER_OF_MODES; m++)
+        {
+            final byte mode = m;
+            Arrays.fill(this.tables[mode], Float.NaN);
+            ThreadLocal<SearchSpace> spaces = ThreadLocal.withInitial(() -> new SearchSpace(this.graph.getNumberOfNodes()));
+            IntStream.range(0, nc).parallel().forEach(origin -> search(spaces.get(), mode, origin));
+        }
+    }
+
+    /**
+     * Find the graph node closest to a point that can be used by the given mode, searching in rings of grid cells.
+     * @param lat float; the latitude of the point
+     * @param lon float; the longitude of the point
+     * @param mode byte; the mode
+     * @return int; the closest node, or -1 when there is no node within 50 grid cells
+     */
+    private int snap(final float lat, final float lon, final byte mode)
+    {
+        int gx = this.model.lonToGridX(lon);
+        int gy = this.model.latToGridY(lat);
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int ring = 0; ring <= 50; ring++)
+        {
+            for (int x = gx - ring; x <= gx + ring; x++)
+            {
+                for (int y = gy - ring; y <= gy + ring; y++)
+                {
+                    if (Math.abs(x - gx) != ring && Math.abs(y - gy) != ring)
+                        continue;
+                    TIntList nodes = this.nodeGrid.get(this.model.gridKeyXY(x, y));
+                    if (nodes == null)
+                        continue;
+                    for (int i = 0; i < nodes.size(); i++)
+                    {
+                        int node = nodes.get(i);
+                        if (!this.graph.isNodeAllowed(node, mode))
+                            continue;
+                        float d = Coordinate.distanceMprecise(lat, lon, this.graph.getNodeLat(node),
+                                this.graph.getNodeLon(node));
+                        if (d < bestDistance)
+                        {
+                            bestDistance = d;
+                            best = node;
+                        }
+                    }
+                }
+            }
+            // a node in a later ring can only be closer when the ring is within sqrt(2) of the best distance
+            if (best >= 0 && ring * this.model.getGridSizeM() > bestDistance * 1.5f)
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Run a Dijkstra search for one mode from the access node of one origin cluster, and fill the table row of the origin.
+     * @param space SearchSpace; the (thread-local) work arrays
+     * @param mode byte; the mode
+     * @param origin int; the origin cluster
+     */
+    private void search(final SearchSpace space, final byte mode, final int origin)
+    {
+        int source = this.clusterNode[mode][origin];
+        if (source < 0)
+            return;
+        int[] targets = this.clusterNode[mode];
+        int run = space.nextRun();
+        int remaining = 0;
+        for (int c = 0; c < targets.length; c++)
+        {
+            if (targets[c] >= 0 && space.targetRun[targets[c]] != run)
+            {
+                space.targetRun[targets[c]] = run;
+                remaining++;
+            }
+        }
+        float modeSpeed = mode == SpeedModel.CAR ? 0.0f : (float) this.speedModel.getSpeedMps(mode);
+
+        space.reach(source, 0.0f, run);
+        space.push(source, 0.0f);
+        while (space.size > 0 && remaining > 0)
+        {
+            int node = space.popNode();
+            float time = space.lastKey;
+            if (space.settledRun[node] == run)
+                continue;
+            space.settledRun[node] = run;
+            if (time > this.maxTravelTimeS)
+                break;
+            if (space.targetRun[node] == run)
+                remaining--;
+            for (int e = this.graph.getFirstEdge(node); e < this.graph.getEndEdge(node); e++)
+            {
+                if (!this.graph.isEdgeAllowed(e, mode))
+                    continue;
+                int next = this.graph.getEdgeTarget(e);
+                if (space.settledRun[next] == run)
+                    continue;
+                float speed = mode == SpeedModel.CAR ? this.graph.getEdgeCarSpeedMps(e) : modeSpeed;
+                float nextTime = time + this.graph.getEdgeLengthM(e) / speed;
+                if (space.reachedRun[next] != run || nextTime < space.time[next])
+                {
+                    space.reach(next, nextTime, run);
+                    space.push(next, nextTime);
+                }
+            }
+        }
+
+        float[] table = this.tables[mode];
+        int row = origin * this.numberOfClusters;
+        for (int c = 0; c < targets.length; c++)
+        {
+            int node = targets[c];
+            if (node >= 0 && space.settledRun[node] == run)
+                table[row + c] = space.time[node];
+        }
+    }
+
+    /**
+     * Return the travel time in hours between two locations for the given mode.
+     * @param mode byte; the mode (SpeedModel.WALK, BIKE or CAR)
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return double; the travel time in hours
+     */
+    public double getDuration(final byte mode, final Location origin, final Location destination)
+    {
+        int co = this.locationCluster.get(origin.getId());
+        int cd = this.locationCluster.get(destination.getId());
+        if (co < 0 || cd < 0 || co == cd || this.tables == null)
+            return straightLineDuration(mode, origin.distanceM(destination));
+        float networkTimeS = this.tables[mode][co * this.numberOfClusters + cd];
+        if (Float.isNaN(networkTimeS))
+            return straightLineDuration(mode, origin.distanceM(destination));
+        double accessM = getAccessDistanceM(mode, origin) + getAccessDistanceM(mode, destination);
+        return TimeUnit.convert(networkTimeS, TimeUnit.SECOND) + straightLineDuration(mode, accessM);
+    }
+
+    /**
+     * Return the straight-line distance from a location to the access node of its cluster for the given mode, as calculated
+     * by the last call to precompute.
+     * @param mode byte; the mode (SpeedModel.WALK, BIKE or CAR)
+     * @param location Location; the location
+     * @return double; the access distance in meters, or 0 when the location or the access node of its cluster is unknown
+     */
+    public double getAccessDistanceM(final byte mode, final Location location)
+    {
+        return this.locationAccessM[mode].get(location.getId());
+    }
+
+    /**
+     * Return the travel time in hours for a straight-line distance, corrected with the detour factor.
+     * @param mode byte; the mode
+     * @param distanceM double; the straight-line distance in meters
+     * @return double; the travel time in hours
+     */
+    private double straightLineDuration(final byte mode, final double distanceM)
+    {
+        return this.speedModel.getDurationH(mode, distanceM * this.detourFactor);
+    }
+
+    /**
+     * @return the road graph
+     */
+    public RoadGraph getGraph()
+    {
+        return this.graph;
+    }
+
+    /**
+     * @return the speed model
+     */
+    public SpeedModel getSpeedModel()
+    {
+        return this.speedModel;
+    }
+
+    /**
+     * @return the number of clusters in the tables
+     */
+    public int getNumberOfClusters()
+    {
+        return this.numberOfClusters;
+    }
+
+    /**
+     * Work arrays for one Dijkstra search: a lazy binary heap on node indices, and per-node arrays that are stamped with the
+     * number of the run, so they do not have to be cleared between searches.
+     */
+    private static class SearchSpace
+    {
+        /** the best known travel time per node in seconds. */
+        final float[] time;
+
+        /** the run in which the time of the node was set. */
+        final int[] reachedRun;
+
+        /** the run in which the node was settled. */
+        final int[] settledRun;
+
+        /** the run in which the node was marked as target. */
+        final int[] targetRun;
+
+        /** the heap nodes. */
+        int[] heapNode = new int[1024];
+
+        /** the heap keys. */
+        float[] heapKey = new float[1024];
+
+        /** the number of entries in the heap. */
+        int size = 0;
+
+        /** the key of the last popped node. */
+        float lastKey;
+
+        /** the current run number. */
+        int run = 0;
+
+        /**
+         * @param numberOfNodes int; the number of nodes in the graph
+         */
+        SearchSpace(final int numberOfNodes)
+        {
+            this.time = new float[numberOfNodes];
+            this.reachedRun = new int[numberOfNodes];
+            this.settledRun = new int[numberOfNodes];
+            this.targetRun = new int[numberOfNodes];
+        }
+
+        /**
+         * Start a new run with an empty heap.
+         * @return int; the number of the new run
+         */
+        int nextRun()
+        {
+            this.size = 0;
+            return ++this.run;
+        }
+
+        /**
+         * Store a travel time for a node.
+         * @param node int; the node
+         * @param t float; the travel time in seconds
+         * @param r int; the run number
+         */
+        void reach(final int node, final float t, final int r)
+        {
+            this.time[node] = t;
+            this.reachedRun[node] = r;
+        }
+
+        /**
+         * Push a node on the heap.
+         * @param node int; the node
+         * @param key float; the travel time in seconds
+         */
+        void push(final int node, final float key)
+        {
+            if (this.size == this.heapNode.length)
+            {
+                this.heapNode = Arrays.copyOf(this.heapNode, 2 * this.size);
+                this.heapKey = Arrays.copyOf(this.heapKey, 2 * this.size);
+            }
+            int i = this.size++;
+            while (i > 0)
+            {
+                int parent = (i - 1) >>> 1;
+                if (this.heapKey[parent] <= key)
+                    break;
+                this.heapNode[i] = this.heapNode[parent];
+                this.heapKey[i] = this.heapKey[parent];
+                i = parent;
+            }
+            this.heapNode[i] = node;
+            this.heapKey[i] = key;
+        }
+
+        /**
+         * Pop the node with the smallest key from the heap; the key is stored in lastKey.
+         * @return int; the node with the smallest key
+         */
+        int popNode()
+        {
+            int result = this.heapNode[0];
+            this.lastKey = this.heapKey[0];
+            int lastNode = this.heapNode[--this.size];
+            float key = this.heapKey[this.size];
+            int i = 0;
+            int half = this.size >>> 1;
+            while (i < half)
+            {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && this.heapKey[child + 1] < this.heapKey[child])
+                    child++;
+                if (key <= this.heapKey[child])
+                    break;
+                this.heapNode[i] = this.heapNode[child];
+                this.heapKey[i] = this.heapKey[child];
+                i = child;
+            }
+            this.heapNode[i] = lastNode;
+            this.heapKey[i] = key;
+            return result;
+        }
+    }
+
+}
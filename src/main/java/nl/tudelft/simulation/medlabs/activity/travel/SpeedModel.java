@@ -0,0 +1,58 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import java.io.Serializable;
+
+import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
+
+/**
+ * SpeedModel determines the travel mode and the travel speed for a trip of a given distance. The speed model is used by the
+ * TravelTimeMatrix to fill its cells, and can be replaced by a model-specific implementation to change the mode choice or the
+ * speeds that are used for the distance based travel activities.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public interface SpeedModel extends Serializable
+{
+    /** mode number for walking; maps on the model's walk location. */
+    byte WALK = 0;
+
+    /** mode number for biking; maps on the model's bike location. */
+    byte BIKE = 1;
+
+    /** mode number for car use; maps on the model's car location. */
+    byte CAR = 2;
+
+    /**
+     * Return the travel mode to use for a trip of the given distance.
+     * @param distanceM double; the distance of the trip in meters
+     * @return byte; the travel mode (WALK, BIKE, CAR, or a model-specific mode number between 0 and 6)
+     */
+    byte getMode(double distanceM);
+
+    /**
+     * Return the travel speed in m/s for the given travel mode.
+     * @param mode byte; the travel mode
+     * @return double; the speed in m/s for the given travel mode
+     */
+    double getSpeedMps(byte mode);
+
+    /**
+     * Return the travel time in hours for a trip of the given distance with the given mode.
+     * @param mode byte; the travel mode
+     * @param distanceM double; the distance of the trip in meters
+     * @return double; the travel time in hours
+     */
+    default double getDurationH(final byte mode, final double distanceM)
+    {
+        return TimeUnit.convert(distanceM / getSpeedMps(mode), TimeUnit.SECOND);
+    }
+
+}
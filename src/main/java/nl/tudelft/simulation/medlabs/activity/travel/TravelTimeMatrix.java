@@ -0,0 +1,375 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import java.io.Serializable;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
+
+/**
+ * TravelTimeMatrix caches the travel mode and travel time between grid cells, so the distance based travel activities and
+ * locators do not have to calculate the geometry and mode choice for every trip of every person. The matrix is filled lazily:
+ * the first trip between two cells determines the distance, mode and duration that are used for all later trips between
+ * those two cells. Trips within the same grid cell are always calculated exactly, and are not cached.
+ * <p>
+ * Pairs of cells that are close to each other (within <code>denseRadius</code> cells in both x and y direction) are stored in a
+ * compact int array per origin cell, indexed by the offset of the destination cell. Pairs that are further apart are stored in
+ * a sparse primitive map. Mode and duration are packed in one int: the upper 4 bits contain the mode + 1 (so 0 means 'not
+ * calculated'), and the lower 28 bits contain the duration in tenths of a second.
+ * </p>
+ * <p>
+ * The memory use of the matrix is capped. When storing a new far pair or allocating a new dense block would exceed the cap,
+ * the sparse map is cleared. When the dense blocks alone leave no room for the new entry, the trip is calculated without
+ * caching, and the sparse map is kept. The number of hits, misses, uncached calculations and evictions is kept for reporting,
+ * and written by the ResultWriter.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TravelTimeMatrix implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the estimated number of bytes for one entry in the sparse map (key, value, state, and load factor). */
+    private static final int SPARSE_ENTRY_BYTES = 26;
+
+    /** the mask for the duration part of a packed value. */
+    private static final int DURATION_MASK = 0x0FFFFFFF;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the speed model to determine mode and duration for a distance. */
+    private SpeedModel speedModel;
+
+    /** the number of cells in x and y direction around the origin cell that are stored in the dense blocks. */
+    private final int denseRadius;
+
+    /** the width of a dense block (2 * denseRadius + 1). */
+    private final int denseWidth;
+
+    /** the memory cap in bytes. */
+    private final long maxBytes;
+
+    /** the dense blocks, indexed by the grid key of the origin cell. */
+    private final TIntObjectMap<int[]> denseMap = new TIntObjectHashMap<>();
+
+    /** the sparse map for far pairs, indexed by the packed (origin, destination) grid keys. */
+    private final TLongIntMap sparseMap = new TLongIntHashMap();
+
+    /** the number of bytes allocated for dense blocks. */
+    private long denseBytes = 0L;
+
+    /** the number of lookups that were answered from the matrix. */
+    private long hits = 0L;
+
+    /** the number of lookups that were calculated and stored in the matrix. */
+    private long misses = 0L;
+
+    /** the number of lookups that were calculated without storing them (same cell, or memory cap reached). */
+    private long uncached = 0L;
+
+    /** the number of times the sparse map was cleared because of the memory cap. */
+    private long evictions = 0L;
+
+    /**
+     * Create a travel time matrix with the default speed model, a dense radius of 10 grid cells, and a memory cap of 64 MB.
+     * @param model MedlabsModelInterface; the model
+     */
+    public TravelTimeMatrix(final MedlabsModelInterface model)
+    {
+        this(model, new DistanceThresholdSpeedModel(), 10, 64L * 1024L * 1024L);
+    }
+
+    /**
+     * Create a travel time matrix.
+     * @param model MedlabsModelInterface; the model
+     * @param speedModel SpeedModel; the speed model to determine mode and duration for a distance
+     * @param denseRadius int; the number of cells in x and y direction around the origin cell that are stored densely
+     * @param maxBytes long; the memory cap in bytes
+     */
+    public TravelTimeMatrix(final MedlabsModelInterface model, final SpeedModel speedModel, final int denseRadius,
+            final long maxBytes)
+    {
+        this.model = model;
+        this.speedModel = speedModel;
+        this.denseRadius = denseRadius;
+        this.denseWidth = 2 * denseRadius + 1;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the travel mode between the two locations.
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return byte; the travel mode as defined by the speed model
+     */
+    public byte getMode(final Location origin, final Location destination)
+    {
+        return unpackMode(lookup(origin, destination));
+    }
+
+    /**
+     * Return the travel time in hours between the two locations.
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return double; the travel time in hours
+     */
+    public double getDuration(final Location origin, final Location destination)
+    {
+        return unpackDuration(lookup(origin, destination));
+    }
+
+    /**
+     * Return the location in which the travel between the two locations takes place (walk, bike or car).
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return Location; the model's walk, bike or car location
+     */
+    public Location getTravelLocation(final Location origin, final Location destination)
+    {
+        switch (getMode(origin, destination))
+        {
+            case SpeedModel.WALK:
+                return this.model.getLocationWalk();
+            case SpeedModel.BIKE:
+                return this.model.getLocationBike();
+            default:
+                return this.model.getLocationCar();
+        }
+    }
+
+    /**
+     * Look up the packed mode and duration between two locations, and calculate and store it when it is not yet known.
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return int; the packed mode and duration
+     */
+    public int lookup(final Location origin, final Location destination)
+    {
+        int dx = destination.getGridX() - origin.getGridX();
+        int dy = destination.getGridY() - origin.getGridY();
+        if (dx == 0 && dy == 0)
+        {
+            this.uncached++;
+            return calculate(origin, destination);
+        }
+
+        if (Math.abs(dx) <= this.denseRadius && Math.abs(dy) <= this.denseRadius)
+        {
+            int originKey = origin.getGridKey();
+            int[] block = this.denseMap.get(originKey);
+            if (block == null)
+            {
+                long blockBytes = 4L * this.denseWidth * this.denseWidth + 16L;
+                if (this.denseBytes + blockBytes > this.maxBytes)
+                {
+                    this.uncached++;
+                    return calculate(origin, destination);
+                }
+                if (this.denseBytes + blockBytes + sparseBytes() > this.maxBytes)
+                    evictSparse();
+                block = new int[this.denseWidth * this.denseWidth];
+                this.denseMap.put(originKey, block);
+                this.denseBytes += blockBytes;
+            }
+            int index = (dx + this.denseRadius) * this.denseWidth + dy + this.denseRadius;
+            int value = block[index];
+            if (value != 0)
+            {
+                this.hits++;
+                return value;
+            }
+            value = calculate(origin, destination);
+            block[index] = value;
+            this.misses++;
+            return value;
+        }
+
+        long key = ((long) origin.getGridKey() << 32) | (destination.getGridKey() & 0xFFFFFFFFL);
+        int value = this.sparseMap.get(key);
+        if (value != this.sparseMap.getNoEntryValue())
+        {
+            this.hits++;
+            return value;
+        }
+        value = calculate(origin, destination);
+        if (this.denseBytes + SPARSE_ENTRY_BYTES > this.maxBytes)
+        {
+            this.uncached++;
+            return value;
+        }
+        if (this.denseBytes + sparseBytes() + SPARSE_ENTRY_BYTES > this.maxBytes)
+            evictSparse();
+        this.sparseMap.put(key, value);
+        this.misses++;
+        return value;
+    }
+
+    /**
+     * Calculate the packed mode and duration for the distance between two locations, using the speed model.
+     * @param origin Location; the origin location
+     * @param destination Location; the destination location
+     * @return int; the packed mode and duration
+     */
+    protected int calculate(final Location origin, final Location destination)
+    {
+        double distanceM = origin.distanceM(destination);
+        byte mode = this.speedModel.getMode(distanceM);
+        double durationH = this.speedModel.getDurationH(mode, distanceM);
+        long tenthSeconds = Math.round(durationH * 36000.0);
+        return ((mode + 1) << 28) | (int) Math.min(tenthSeconds, DURATION_MASK);
+    }
+
+    /**
+     * Return the mode from a packed value.
+     * @param packed int; the packed mode and duration
+     * @return byte; the mode
+     */
+    public static byte unpackMode(final int packed)
+    {
+        return (byte) ((packed >>> 28) - 1);
+    }
+
+    /**
+     * Return the duration in hours from a packed value.
+     * @param packed int; the packed mode and duration
+     * @return double; the duration in hours
+     */
+    public static double unpackDuration(final int packed)
+    {
+        return TimeUnit.convert((packed & DURATION_MASK) / 10.0, TimeUnit.SECOND);
+    }
+
+    /**
+     * Clear the sparse map to stay within the memory cap.
+     */
+    private void evictSparse()
+    {
+        if (!this.sparseMap.isEmpty())
+        {
+            this.sparseMap.clear();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * @return the estimated number of bytes in use by the sparse map
+     */
+    private long sparseBytes()
+    {
+        return (long) SPARSE_ENTRY_BYTES * this.sparseMap.size();
+    }
+
+    /**
+     * Clear all cached values, e.g., after a change of the speed model. The statistics are not reset.
+     */
+    public void clear()
+    {
+        this.denseMap.clear();
+        this.sparseMap.clear();
+        this.denseBytes = 0L;
+    }
+
+    /**
+     * Reset the hit, miss, uncached and eviction statistics.
+     */
+    public void resetStatistics()
+    {
+        this.hits = 0L;
+        this.misses = 0L;
+        this.uncached = 0L;
+        this.evictions = 0L;
+    }
+
+    /**
+     * @return the speed model
+     */
+    public SpeedModel getSpeedModel()
+    {
+        return this.speedModel;
+    }
+
+    /**
+     * Set a new speed model, and clear the cached values.
+     * @param speedModel SpeedModel; the new speed model
+     */
+    public void setSpeedModel(final SpeedModel speedModel)
+    {
+        this.speedModel = speedModel;
+        clear();
+    }
+
+    /**
+     * @return the number of lookups that were answered from the matrix
+     */
+    public long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * @return the number of lookups that were calculated and stored in the matrix
+     */
+    public long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * @return the number of lookups that were calculated without storing them
+     */
+    public long getUncached()
+    {
+        return this.uncached;
+    }
+
+    /**
+     * @return the number of times the sparse map was cleared because of the memory cap
+     */
+    public long getEvictions()
+    {
+        return this.evictions;
+    }
+
+    /**
+     * @return the fraction of all lookups that was answered from the matrix, or 0 when there were no lookups
+     */
+    public double getHitRate()
+    {
+        long total = this.hits + this.misses + this.uncached;
+        return total == 0L ? 0.0 : (double) this.hits / total;
+    }
+
+    /**
+     * @return the estimated number of bytes in use by the matrix
+     */
+    public long getMemoryBytes()
+    {
+        return this.denseBytes + sparseBytes();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "TravelTimeMatrix [hits=" + this.hits + ", misses=" + this.misses + ", uncached=" + this.uncached
+                + ", evictions=" + this.evictions + ", hitRate=" + String.format("%.4f", getHitRate()) + ", denseBlocks="
+                + this.denseMap.size() + ", sparseEntries=" + this.sparseMap.size() + ", memoryBytes=" + getMemoryBytes()
+                + "]";
+    }
+
+}
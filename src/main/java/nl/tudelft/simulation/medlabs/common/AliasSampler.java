@@ -0,0 +1,211 @@
+package nl.tudelft.simulation.medlabs.common;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.djutils.exceptions.Throw;
+
+/**
+ * AliasSampler draws one of a fixed set of items with given probabilities in constant time, using the alias method of Walker
+ * with the construction of Vose. The table consists of two primitive arrays: for each column <code>i</code> the probability to
+ * keep item <code>i</code>, and the alias item that is returned otherwise. One uniform draw <code>u</code> in [0, 1) selects
+ * both the column (<code>floor(u * n)</code>) and the choice within the column (the fractional part of <code>u * n</code>), so
+ * a draw from a reproducible stream, e.g., seeded with the person id, gives a reproducible item for that person.
+ * <p>
+ * The sampler is built from the cumulative probability maps that are used throughout the model, such as the location type
+ * maps of the choice locators, and can be rebuilt when the probabilities change.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ * @param <T> the type of the items to draw
+ */
+public class AliasSampler<T> implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the items to draw. */
+    private Object[] items;
+
+    /** the probability per column to keep the item of the column instead of its alias. */
+    private double[] keep;
+
+    /** the alias item per column. */
+    private int[] alias;
+
+    /**
+     * Create an alias sampler from a map with cumulative probabilities, where the last key should be 1.0.
+     * @param cumulativeMap SortedMap&lt;Double, T&gt;; the cumulative probabilities and the corresponding items
+     * @throws MedlabsRuntimeException when the map is empty or the last cumulative probability is not 1.0
+     */
+    public AliasSampler(final SortedMap<Double, T> cumulativeMap)
+    {
+        rebuild(cumulativeMap);
+    }
+
+    /**
+     * Create an alias sampler from the items and their (not necessarily normalized) weights.
+     * @param items T[]; the items to draw
+     * @param weights double[]; the weights of the items, not negative, with a positive sum
+     * @throws MedlabsRuntimeException when the arrays are empty or of unequal length, or when the weights are not valid
+     */
+    public AliasSampler(final T[] items, final double[] weights)
+    {
+        Throw.whenNull(items, "items cannot be null");
+        Throw.whenNull(weights, "weights cannot be null");
+        build(items.clone(), weights);
+    }
+
+    /**
+     * Rebuild the table from a map with cumulative probabilities, e.g., after the probabilities have been changed by a policy.
+     * @param cumulativeMap SortedMap&lt;Double, T&gt;; the cumulative probabilities and the corresponding items
+     * @throws MedlabsRuntimeException when the map is empty or the last cumulative probability is not 1.0
+     */
+    public void rebuild(final SortedMap<Double, T> cumulativeMap)
+    {
+        Throw.whenNull(cumulativeMap, "cumulativeMap cannot be null");
+        Throw.when(cumulativeMap.isEmpty() || cumulativeMap.lastKey() != 1.0, MedlabsRuntimeException.class,
+                "AliasSampler: last (cumulative) probability should be 1.0");
+        Object[] newItems = new Object[cumulativeMap.size()];
+        double[] weights = new double[cumulativeMap.size()];
+        double previous = 0.0;
+        int i = 0;
+        for (Map.Entry<Double, T> entry : cumulativeMap.entrySet())
+        {
+            newItems[i] = entry.getValue();
+            weights[i] = entry.getKey() - previous;
+            previous = entry.getKey();
+            i++;
+        }
+        build(newItems, weights);
+    }
+
+    /**
+     * Build the alias table with the construction of Vose, using two primitive work lists for the small and large columns.
+     * @param newItems Object[]; the items to draw
+     * @param weights double[]; the weights of the items
+     * @throws MedlabsRuntimeException when the arrays are empty or of unequal length, or when the weights are not valid
+     */
+    private void build(final Object[] newItems, final double[] weights)
+    {
+        int n = newItems.length;
+        Throw.when(n == 0 || weights.length != n, MedlabsRuntimeException.class,
+                "AliasSampler: %d items and %d weights", n, weights.length);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++)
+        {
+            Throw.when(!(weights[i] >= 0.0), MedlabsRuntimeException.class, "AliasSampler: weight %d is negative", i);
+            sum += weights[i];
+        }
+        Throw.when(!(sum > 0.0) || Double.isInfinite(sum), MedlabsRuntimeException.class,
+                "AliasSampler: sum of weights should be positive");
+
+        double[] newKeep = new double[n];
+        int[] newAlias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int nSmall = 0;
+        int nLarge = 0;
+        for (int i = 0; i < n; i++)
+        {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0)
+                small[nSmall++] = i;
+            else
+                large[nLarge++] = i;
+        }
+        while (nSmall > 0 && nLarge > 0)
+        {
+            int s = small[--nSmall];
+            int l = large[--nLarge];
+            newKeep[s] = scaled[s];
+            newAlias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0)
+                small[nSmall++] = l;
+            else
+                large[nLarge++] = l;
+        }
+        // the remaining columns are full, apart from rounding errors
+        while (nLarge > 0)
+        {
+            int l = large[--nLarge];
+            newKeep[l] = 1.0;
+            newAlias[l] = l;
+        }
+        while (nSmall > 0)
+        {
+            int s = small[--nSmall];
+            newKeep[s] = 1.0;
+            newAlias[s] = s;
+        }
+        this.items = newItems;
+        this.keep = newKeep;
+        this.alias = newAlias;
+    }
+
+    /**
+     * Return the index of the item for a uniform draw.
+     * @param u double; a uniform draw in [0, 1), e.g., from a stream that is reproducible for the person
+     * @return int; the index of the drawn item
+     */
+    public int drawIndex(final double u)
+    {
+        int n = this.keep.length;
+        double x = u * n;
+        int column = (int) x;
+        if (column >= n)
+            column = n - 1;
+        else if (column < 0)
+            column = 0;
+        return x - column < this.keep[column] ? column : this.alias[column];
+    }
+
+    /**
+     * Return the item for a uniform draw.
+     * @param u double; a uniform draw in [0, 1), e.g., from a stream that is reproducible for the person
+     * @return T; the drawn item
+     */
+    @SuppressWarnings("unchecked")
+    public T draw(final double u)
+    {
+        return (T) this.items[drawIndex(u)];
+    }
+
+    /**
+     * Return the item with an index.
+     * @param index int; the index of the item
+     * @return T; the item with the index
+     */
+    @SuppressWarnings("unchecked")
+    public T getItem(final int index)
+    {
+        return (T) this.items[index];
+    }
+
+    /**
+     * @return the number of items of the sampler
+     */
+    public int size()
+    {
+        return this.items.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "AliasSampler [size=" + this.items.length + "]";
+    }
+
+}
@@ -2,15 +2,16 @@ package nl.tudelft.simulation.medlabs.demo.disease;
 
 import nl.tudelft.simulation.jstats.distributions.DistTriangular;
 import nl.tudelft.simulation.medlabs.disease.DiseasePhase;
-import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
 import nl.tudelft.simulation.medlabs.disease.DiseaseState;
 import nl.tudelft.simulation.medlabs.disease.DurationDistribution;
+import nl.tudelft.simulation.medlabs.disease.TableDiseaseProgression;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
 
 /**
- * The SEIRProgression model implements a state machine for disease progression.
+ * The SEIRProgression model implements a state machine for disease progression. The transitions E -&gt; I and I -&gt; R are
+ * declared as data in a TableDiseaseProgression, which processes all transitions that are due in the same hour in one event.
  * <p>
  * Copyright (c) 2020-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * code is part of the HERoS project (Health Emergency Response in Interconnected Systems), which builds on the MEDLABS project.
@@ -21,7 +22,7 @@ import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
  * @author <a href="https://www.linkedin.com/in/mikhailsirenko">Mikhail Sirenko</a>
  * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
  */
-public class SEIRProgression extends DiseaseProgression
+public class SEIRProgression extends TableDiseaseProgression
 {
     /** */
     private static final long serialVersionUID = 1L;
@@ -66,7 +67,8 @@ public class SEIRProgression extends DiseaseProgression
      */
     public SEIRProgression(final MedlabsModelInterface model)
     {
-        super(model, "SEIR");
+        // transitions that are due in the same hour are processed together
+        super(model, "SEIR", 1.0);
 
         susceptible = addDiseasePhase("Susceptible", DiseaseState.SUSCEPTIBLE);
         exposed = addDiseasePhase("Exposed", DiseaseState.ILL);
@@ -84,82 +86,30 @@ public class SEIRProgression extends DiseaseProgression
         // 5-15 days, symmetric triangular.
         this.distInfectedToRecovery = new DurationDistribution(
                 new DistTriangular(this.model.getRandomStream(), 9 * 24.0, 10 * 24.0, 11 * 24.0), TimeUnit.HOUR);
-    }
 
-    // -------------------------------------------------------------
-    // Progression model
-    // -------------------------------------------------------------
+        // -------------------------------------------------------------
+        // Progression model
+        // -------------------------------------------------------------
 
+        addTransition(exposed, infected, 1.0, this.distIncubationPeriod);
+        addTransition(infected, recovered, 1.0, this.distInfectedToRecovery);
+    }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc} In the SEIR model, exposure always leads to the Exposed phase.
+     */
     @Override
     public void expose(final Person exposedPerson, final DiseasePhase exposurePhase)
     {
-        exposedPerson.getDiseasePhase().removePerson();
-        exposedPerson.setDiseasePhase(exposed);
-        exposed.addPerson();
-        double incubationPeriod = this.distIncubationPeriod.getDuration();
-
-        this.model.getSimulator().scheduleEventRel(incubationPeriod, this, "changeDiseasePhase",
-                new Object[] {exposedPerson, SEIRProgression.infected});
+        super.expose(exposedPerson, exposed);
     }
-    
-    /**
-     * Update the disease phase for a person.
-     * @param person Person; 
-     * @param nextPhase DiseasePhase; 
-     */
-    protected void changeDiseasePhase(final Person person, final DiseasePhase nextPhase)
-    {
-        MedlabsModelInterface model = person.getModel();
-
-        // -------------------------------------------------------------
-        // Exposed
-        // -------------------------------------------------------------
 
-        if (nextPhase == exposed)
-        {
-            System.err.println("Should have been handled with expose(...) method");
-            expose(person, exposed);
-        }
-
-        // -------------------------------------------------------------
-        // Infected asymptomatic contagious
-        // -------------------------------------------------------------
-
-        else if (nextPhase == infected)
-        {
-            person.getDiseasePhase().removePerson();
-            person.setDiseasePhase(infected);
-            infected.addPerson();
-
-            model.getSimulator().scheduleEventRel(this.distInfectedToRecovery.getDuration(), TimeUnit.HOUR, this,
-                    "changeDiseasePhase", new Object[] {person, recovered});
-            return;
-        }
-
-        // -------------------------------------------------------------
-        // Recovered
-        // -------------------------------------------------------------
-
-        else if (nextPhase == recovered)
-        {
+    /** {@inheritDoc} */
+    @Override
+    protected void phaseChanged(final Person person, final DiseasePhase fromPhase, final DiseasePhase toPhase)
+    {
+        if (toPhase == recovered)
             this.model.getPersonMonitor().reportDeathPerson(person);
-
-            person.getDiseasePhase().removePerson();
-            person.setDiseasePhase(recovered);
-            recovered.addPerson();
-            return;
-        }
-
-        // -------------------------------------------------------------
-        // ERROR
-        // -------------------------------------------------------------
-
-        else
-        {
-            System.err.println("ERROR: Person " + person + " has unknown next disease phase " + nextPhase);
-        }
     }
 
 }
@@ -1,10 +1,16 @@
 package nl.tudelft.simulation.medlabs.demo.disease;
 
 import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.set.TIntSet;
 import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
 import nl.tudelft.simulation.medlabs.disease.InfectionRecord;
+import nl.tudelft.simulation.medlabs.disease.InfectivityCurve;
+import nl.tudelft.simulation.medlabs.disease.Strain;
+import nl.tudelft.simulation.medlabs.disease.StrainTable;
+import nl.tudelft.simulation.medlabs.disease.SublocationArrays;
+import nl.tudelft.simulation.medlabs.disease.TransmissionKernel;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
@@ -51,6 +57,15 @@ public class SEIRTransmission extends DiseaseTransmission
      */
     private final double calculationThreshold;
 
+    /** the triangular infectivity curve defined by t_e_min, t_e_mode and t_e_max. */
+    private final InfectivityCurve infectivityCurve;
+
+    /** buffer for the ids of the susceptible persons in the (sub)location, reused between calculations. */
+    private final TIntArrayList susceptibleBuffer = new TIntArrayList();
+
+    /** buffer for the indices of the infected persons in the susceptible buffer, reused between calculations. */
+    private final TIntArrayList infectedIndexBuffer = new TIntArrayList();
+
     /**
      * Create the SEIR Transmission model.
      * @param model MedlabsModelInterface; the Medlabs model
@@ -65,6 +80,48 @@ public class SEIRTransmission extends DiseaseTransmission
         this.t_e_mode = model.getParameterValueDouble("SEIR.t_e_mode") * 24.0;
         this.t_e_max = model.getParameterValueDouble("SEIR.t_e_max") * 24.0;
         this.calculationThreshold = model.getParameterValueDouble("SEIR.calculation_threshold") / 3600.0;
+        this.infectivityCurve = InfectivityCurve.triangular(this.t_e_min, this.t_e_mode, this.t_e_max, 1.0);
+        double deferredWindow = model.getParameterValueDouble("SEIR.deferred_window");
+        int numberOfStrains = model.getParameterValueInt("SEIR.strains");
+        if (numberOfStrains > 1)
+            setMultiStrainMode(makeStrainTable(numberOfStrains, model.getParameterValueDouble("SEIR.variant_transmissibility"),
+                    model.getParameterValueDouble("SEIR.cross_immunity")), SEIRProgression.exposed,
+                    this.beta * this.contagiousness);
+        else if (deferredWindow > 0.0)
+            setDeferredMode(this.infectivityCurve, SEIRProgression.exposed, this.beta * this.contagiousness, deferredWindow);
+        else if (model.getParameterValueBoolean("SEIR.incremental"))
+            setIncrementalMode(this.infectivityCurve, SEIRProgression.exposed, this.beta * this.contagiousness);
+        String kernel = model.getParameterValue("SEIR.kernel");
+        if (!"loop".equals(kernel))
+            setTransmissionKernel(TransmissionKernel.forName(kernel));
+    }
+
+    /**
+     * Make the strains for the multi-strain mode. All strains share the infectivity curve of the SEIR model. The first strain
+     * is the base strain; the other strains are variants with the given transmissibility relative to the base strain. An
+     * infection protects fully against the same strain, and with the given cross-immunity against the other strains.
+     * @param numberOfStrains int; the number of strains
+     * @param variantTransmissibility double; the transmissibility of the variants relative to the base strain
+     * @param crossImmunity double; the protection against the other strains after an infection, between 0 and 1
+     * @return StrainTable; the strain table with the strains
+     */
+    private StrainTable makeStrainTable(final int numberOfStrains, final double variantTransmissibility,
+            final double crossImmunity)
+    {
+        StrainTable strainTable = new StrainTable(getModel().getPersonMap().size());
+        for (int i = 0; i < numberOfStrains; i++)
+        {
+            strainTable.addStrain("strain" + i, this.infectivityCurve, i == 0 ? 1.0 : variantTransmissibility);
+        }
+        for (Strain from : strainTable.getStrains())
+        {
+            for (Strain to : strainTable.getStrains())
+            {
+                if (from != to)
+                    strainTable.setCrossImmunity(from, to, crossImmunity);
+            }
+        }
+        return strainTable;
     }
 
     // -------------------------------------------------------------
@@ -131,7 +188,7 @@ public class SEIRTransmission extends DiseaseTransmission
     @Override
     public InfectionRecord infectPeople(final Location location, final TIntSet personsInSublocation, final double duration)
     {
-        InfectionRecord infectionRecord = new InfectionRecord(SEIRProgression.exposed, location);
+        InfectionRecord infectionRecord = getInfectionRecord(SEIRProgression.exposed, location);
 
         // has contact been too short?
         if (duration < this.calculationThreshold)
@@ -150,18 +207,23 @@ public class SEIRTransmission extends DiseaseTransmission
             // INFECTION TAKES PLACE JUST IN THE SUBLOCATION
             // NOTE: WHEN THE LOCATION HAS ONLY 1 SUBLOCATION THIS PART OF THE METHOD IS USED (MUCH FASTER)
 
-            // calculate (beta . p_B . t_i,j) / (sigma_T . A_K)
+            // calculate -(beta . p_B . t_i,j) / (sigma_T . A_K)
             area /= location.getNumberOfSubLocations();
-            double factor = -this.beta * this.contagiousness * duration / (lt.getCorrectionFactorArea() * area);
+            double factor = exposureFactor(this.beta, this.contagiousness, duration, lt.getCorrectionFactorArea(), area);
             if (factor == 0.0)
                 return infectionRecord;
+            if (getTransmissionKernel() != null)
+                return infectPeopleKernel(personsInSublocation, factor, now, infectionRecord);
 
             // find the infectious persons in the sublocation (and make a set of others)
             double sumTij = 0.0;
+            this.susceptibleBuffer.resetQuick();
             for (TIntIterator it = personsInSublocation.iterator(); it.hasNext();)
             {
                 Person person = personMap.get(it.next());
-                if (person.getDiseasePhase().isIll())
+                if (person.getDiseasePhase().isSusceptible())
+                    this.susceptibleBuffer.add(person.getId());
+                else if (person.getDiseasePhase().isIll())
                 {
                     double te = now - person.getExposureTime();
                     double contribution = 0.0;
@@ -178,20 +240,9 @@ public class SEIRTransmission extends DiseaseTransmission
                 return infectionRecord;
 
             // calculate the probability for all persons present in the sublocation
-            double pInfection = 1.0 - Math.exp(factor * sumTij);
+            double pInfection = infectionProbability(factor, sumTij);
             // check if we infect others
-            for (TIntIterator it = personsInSublocation.iterator(); it.hasNext();)
-            {
-                Person person = personMap.get(it.next());
-                if (person.getDiseasePhase().isSusceptible())
-                {
-                    // roll the dice
-                    if (this.model.getU01().draw() < pInfection)
-                    {
-                        infectionRecord.addInfectedPerson(person.getId());
-                    }
-                }
-            }
+            sampleSusceptibles(pInfection, infectionRecord);
         }
 
         else
@@ -200,25 +251,28 @@ public class SEIRTransmission extends DiseaseTransmission
             // INFECTION TAKES PLACE IN THE TOTAL LOCATION
             // TRY TO AVOID CALLING THIS -- IT IS EXPENSIVE
 
-            // calculate (beta . p_B . t_i,j) / (sigma_T . A_K)
-            double factor = this.beta * this.contagiousness * duration / (lt.getCorrectionFactorArea() * area);
+            // calculate -(beta . p_B . t_i,j) / (sigma_T . A_K)
+            double factor = exposureFactor(this.beta, this.contagiousness, duration, lt.getCorrectionFactorArea(), area);
             if (factor == 0.0)
                 return infectionRecord;
 
             // find the infectious persons in the TOTAL location
             double sumTij = 0.0;
+            this.susceptibleBuffer.resetQuick();
             for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
             {
                 Person person = personMap.get(it.next());
-                if (person.getDiseasePhase().isIll())
+                if (person.getDiseasePhase().isSusceptible())
+                    this.susceptibleBuffer.add(person.getId());
+                else if (person.getDiseasePhase().isIll())
                 {
                     double te = now - person.getExposureTime();
                     double contribution = 0.0;
                     if (te >= this.t_e_min && te < this.t_e_mode)
-                        contribution += te / (this.t_e_mode - this.t_e_min);
+                        contribution += (te - this.t_e_min) / (this.t_e_mode - this.t_e_min);
                     else if (te >= this.t_e_mode && te <= this.t_e_max)
-                        contribution += 1.0 - te / (this.t_e_max - this.t_e_mode);
-                    // else the person is infected, but not contagious
+                        contribution += (this.t_e_max - te) / (this.t_e_max - this.t_e_mode);
+                    // else the person is infected, but not yet or not anymore contagious
                     sumTij += contribution;
                     infectionRecord.addInfectiousPerson(person.getId());
                 }
@@ -227,25 +281,129 @@ public class SEIRTransmission extends DiseaseTransmission
                 return infectionRecord;
 
             // calculate the probability for all persons present
-            double pInfection = 1.0 - Math.exp(factor * sumTij);
+            double pInfection = infectionProbability(factor, sumTij);
 
             // check if we infect others
-            for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
-            {
-                Person person = personMap.get(it.next());
-                if (person.getDiseasePhase().isSusceptible())
-                {
-                    // roll the dice
-                    if (this.model.getU01().draw() < pInfection)
-                    {
-                        infectionRecord.addInfectedPerson(person.getId());
-                    }
-                }
-            }
+            sampleSusceptibles(pInfection, infectionRecord);
+        }
+        return infectionRecord;
+    }
+
+    /**
+     * Carry out the infection calculation in the sublocation with the transmission kernel, on the persons gathered in
+     * primitive arrays. The result is the same as the loops in infectPeople, up to the order of floating point additions.
+     * @param personsInSublocation TIntSet; the persons present in the sublocation
+     * @param factor double; the factor -(beta . p_B . t_i,j) / (sigma_T . A_K)
+     * @param now double; the current simulation time
+     * @param infectionRecord InfectionRecord; the record to which the infectious and infected persons are added
+     * @return InfectionRecord; the infection record
+     */
+    private InfectionRecord infectPeopleKernel(final TIntSet personsInSublocation, final double factor, final double now,
+            final InfectionRecord infectionRecord)
+    {
+        SublocationArrays persons = gatherPersons(personsInSublocation);
+        if (persons.getNumberInfectious() == 0)
+            return infectionRecord;
+        int[] ids = persons.getIds();
+        byte[] flags = persons.getFlags();
+        for (int i = 0; i < persons.size(); i++)
+        {
+            if (flags[i] == SublocationArrays.INFECTIOUS)
+                infectionRecord.addInfectiousPerson(ids[i]);
+        }
+        double sumTij = getTransmissionKernel().sumInfectivity(persons, now, this.infectivityCurve);
+        if (sumTij == 0.0 || persons.getNumberSusceptible() == 0)
+            return infectionRecord;
+        double pInfection = infectionProbability(factor, sumTij);
+        if (pInfection <= 0.0)
+            return infectionRecord;
+        int[] susceptibles = persons.getIndexScratch();
+        int nrSusceptibles = getTransmissionKernel().selectSusceptibles(persons, susceptibles);
+        this.infectedIndexBuffer.resetQuick();
+        sampleInfected(nrSusceptibles, pInfection, this.infectedIndexBuffer);
+        for (int i = 0; i < this.infectedIndexBuffer.size(); i++)
+        {
+            infectionRecord.addInfectedPerson(ids[susceptibles[this.infectedIndexBuffer.get(i)]]);
         }
         return infectionRecord;
     }
 
+    /**
+     * Return the exponent factor -(beta . p_B . t_i,j) / (sigma_T . A_K) of the infection formula, which is multiplied by the
+     * sum of the infectiousness of the infectious persons. The factor is not positive, so the probability of infection stays
+     * between 0 and 1. Both the sublocation and the whole-location calculation use this method.
+     * @param beta double; the correction factor for personal protection
+     * @param contagiousness double; the base contagiousness p_B
+     * @param duration double; the time t_i,j spent together, in hours
+     * @param correctionFactorArea double; the correction factor sigma_T of the location type
+     * @param area double; the area A_K of the (sub)location in m2
+     * @return double; the factor -(beta . p_B . t_i,j) / (sigma_T . A_K)
+     */
+    static double exposureFactor(final double beta, final double contagiousness, final double duration,
+            final double correctionFactorArea, final double area)
+    {
+        return -beta * contagiousness * duration / (correctionFactorArea * area);
+    }
+
+    /**
+     * Return the probability of infection 1 - e^(factor . SUM p_j(t_e)) for a susceptible person.
+     * @param factor double; the factor -(beta . p_B . t_i,j) / (sigma_T . A_K), not positive
+     * @param sumTij double; the sum of the infectiousness of the infectious persons
+     * @return double; the probability of infection for a susceptible person
+     */
+    static double infectionProbability(final double factor, final double sumTij)
+    {
+        return 1.0 - Math.exp(factor * sumTij);
+    }
+
+    /**
+     * Draw which of the susceptible persons in the susceptible buffer get infected, and add them to the infection record. The
+     * draw uses skip-ahead sampling, so the number of random draws is proportional to the number of infections.
+     * @param pInfection double; the probability of infection for each susceptible person
+     * @param infectionRecord InfectionRecord; the record to which the infected persons are added
+     */
+    private void sampleSusceptibles(final double pInfection, final InfectionRecord infectionRecord)
+    {
+        if (pInfection <= 0.0 || this.susceptibleBuffer.isEmpty())
+            return;
+        this.infectedIndexBuffer.resetQuick();
+        sampleInfected(this.susceptibleBuffer.size(), pInfection, this.infectedIndexBuffer);
+        for (int i = 0; i < this.infectedIndexBuffer.size(); i++)
+        {
+            infectionRecord.addInfectedPerson(this.susceptibleBuffer.get(this.infectedIndexBuffer.get(i)));
+        }
+    }
+
+    /**
+     * Return the probability of infection in the incremental and deferred mode, using the same formula as infectPeople, where
+     * the integral of the infectious pressure replaces SUM p_j(t_e) . t_i,j. Note that these modes always infect within the
+     * sublocation, and do not use the calculation threshold.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param pressureIntegral double; the integral of the infectious pressure in infectivity-hours
+     * @return double; the probability of infection for a susceptible person over the interval
+     */
+    @Override
+    protected double getInfectionProbability(final Location location, final short subLocationIndex,
+            final double pressureIntegral)
+    {
+        double sigma = location.getLocationType().getCorrectionFactorArea();
+        if (sigma == 0.0)
+            return 0.0;
+        double area = location.getTotalSurfaceM2() / location.getNumberOfSubLocations();
+        return 1.0 - Math.exp(-this.beta * this.contagiousness * pressureIntegral / (sigma * area));
+    }
+
+    /**
+     * Return the triangular infectivity curve of the SEIR model, defined by t_e_min, t_e_mode and t_e_max. Unlike
+     * getInfectivityCurve(), the curve is also returned when the incremental or deferred mode is not used.
+     * @return InfectivityCurve; the triangular infectivity curve of the SEIR model
+     */
+    public InfectivityCurve getTriangularInfectivityCurve()
+    {
+        return this.infectivityCurve;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setParameter(final String parameterName, final double value)
@@ -24,15 +24,21 @@ import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
 import nl.tudelft.simulation.medlabs.demo.disease.SEIRProgression;
 import nl.tudelft.simulation.medlabs.demo.disease.SEIRTransmission;
 import nl.tudelft.simulation.medlabs.demo.person.Worker;
+import nl.tudelft.simulation.medlabs.disease.ContactLayerEngine;
+import nl.tudelft.simulation.medlabs.disease.ContactLayers;
 import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
 import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
 import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
+import nl.tudelft.simulation.medlabs.disease.HouseholdKernel;
+import nl.tudelft.simulation.medlabs.disease.StrainTable;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.location.animation.defaults.HouseAnimation;
 import nl.tudelft.simulation.medlabs.location.animation.defaults.WorkplaceAnimation;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.output.ResultWriter;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
 import nl.tudelft.simulation.medlabs.person.PersonType;
@@ -102,7 +108,18 @@ public class ConstructSEIRModel
             makePersonTypes();
             makePersons();
             makeFamilies();
+            this.model.getPersonRelations();
+            if (this.model.getParameterValueBoolean("SEIR.household_kernel") && seirTransmission.getInfectivityCurve() != null)
+                seirTransmission.setHouseholdKernel(HouseholdKernel.build(this.model));
             infectPersons();
+            if ("layers".equals(this.model.getParameterValue("SEIR.engine")))
+                makeContactLayerEngine((SEIRTransmission) seirTransmission);
+            else if (this.model.getParameterValueInt("settings.HybridRegionCells") > 0)
+                this.model.setHybridRegions(new HybridRegions(this.model,
+                        this.model.getParameterValueInt("settings.HybridRegionCells"),
+                        this.model.getParameterValueDouble("settings.HybridDormantDays")));
+            if (this.model.getParameterValueBoolean("settings.LazyPersons"))
+                this.model.setLazyPersons(new LazyPersons(this.model));
             makeResultWriter();
         }
         catch (Exception exception)
@@ -234,6 +251,7 @@ public class ConstructSEIRModel
         int ageMax = 100;
         List<Person> persons = new ArrayList<>(this.model.getPersonMap().valueCollection());
         int nrPersons = persons.size() - 1;
+        StrainTable strainTable = this.model.getDiseaseTransmission().getStrainTable();
         while (numberToInfect > 0)
         {
             Person person = persons.get(this.model.getRandomStream().nextInt(0, nrPersons));
@@ -241,6 +259,8 @@ public class ConstructSEIRModel
             {
                 if (person.getAge() >= ageMin && person.getAge() <= ageMax)
                 {
+                    if (strainTable != null)
+                        strainTable.infect(person.getId(), numberToInfect % strainTable.getNumberOfStrains());
                     this.model.getDiseaseProgression().expose(person, SEIRProgression.exposed);
                     numberToInfect--;
                 }
@@ -248,6 +268,20 @@ public class ConstructSEIRModel
         }
     }
 
+    /**
+     * Create the contact layer engine that replaces the activities of the persons by steps on static contact layers.
+     * @param seirTransmission SEIRTransmission; the transmission model with the infectivity curve
+     */
+    private void makeContactLayerEngine(final SEIRTransmission seirTransmission)
+    {
+        ContactLayerEngine engine = new ContactLayerEngine(this.model, seirTransmission.getTriangularInfectivityCurve(),
+                SEIRProgression.exposed, this.model.getParameterValueDouble("SEIR.layer_step"));
+        engine.setLayerFactor(ContactLayers.HOUSEHOLD, this.model.getParameterValueDouble("SEIR.layer_factor_household"));
+        engine.setLayerFactor(ContactLayers.WORK_SCHOOL, this.model.getParameterValueDouble("SEIR.layer_factor_work_school"));
+        engine.setLayerFactor(ContactLayers.COMMUNITY, this.model.getParameterValueDouble("SEIR.layer_factor_community"));
+        this.model.setContactLayerEngine(engine);
+    }
+
     /**
      * Create the ResultWriter to write the output files.
      */
@@ -256,7 +290,7 @@ public class ConstructSEIRModel
         if (this.model.getParameterValueBoolean("generic.WriteOutput"))
         {
             String outputPath = this.model.getParameterValue("generic.OutputPath");
-            new ResultWriter(this.model, outputPath);
+            this.model.setResultWriter(new ResultWriter(this.model, outputPath));
         }
     }
 
@@ -6,10 +6,12 @@ import java.util.Map;
 import org.djutils.draw.bounds.Bounds2d;
 
 import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterBoolean;
 import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterDouble;
 import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterException;
 import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterInteger;
 import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterMap;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterString;
 import nl.tudelft.simulation.medlabs.demo.person.Worker;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
@@ -137,6 +139,12 @@ public class SEIRModel extends AbstractMedlabsModel
                 100.0, 1.0, 1E6, true, true, "%f", 4.0));
         settingsMap.add(new InputParameterInteger("NumberInfected", "number of people infected at t=0",
                 "(between 0 and 10000, can be 0)", 0, 0, 10000, "%d", 5.0));
+        settingsMap.add(new InputParameterInteger("HybridRegionCells", "region size of the hybrid mode in grid cells",
+                "(between 0 and 1000, 0 = all persons carry out their activities)", 0, 0, 1000, "%d", 6.0));
+        settingsMap.add(new InputParameterDouble("HybridDormantDays", "days without infections before a region is dormant",
+                "(days, between 0 and 365)", 14.0, 0.0, 365.0, true, true, "%f", 7.0));
+        settingsMap.add(new InputParameterBoolean("LazyPersons", "lazy mobility for persons away from infections",
+                "Resolve the days that only touch sublocations without infectious persons without events", false, 8.0));
         root.add(settingsMap);
 
         InputParameterMap seirTransmissionMap =
@@ -157,6 +165,39 @@ public class SEIRModel extends AbstractMedlabsModel
         seirTransmissionMap.add(new InputParameterDouble("calculation_threshold",
                 "threshold for the transmission contact calculation (sec)",
                 "Below this contact duration, no infections will be calculated", 60, 0.0, 3600.0, true, true, "%f", 5.0));
+        seirTransmissionMap.add(new InputParameterBoolean("incremental", "incremental infectious pressure per sublocation",
+                "Integrate the infectious pressure per sublocation instead of summing it over all persons", false, 6.0));
+        seirTransmissionMap.add(new InputParameterString("kernel", "transmission kernel: loop or scalar",
+                "Implementation of the inner loops of the transmission calculation in a sublocation", "loop", 7.0));
+        seirTransmissionMap.add(new InputParameterDouble("deferred_window",
+                "window for deferred transmission evaluation (hours)",
+                "0 evaluates every enter and leave directly; otherwise infections are calculated at window boundaries", 0.0,
+                0.0, 24.0, true, true, "%f", 8.0));
+        seirTransmissionMap.add(new InputParameterInteger("strains", "number of strains that spread at the same time",
+                "(between 1 and 8); the initial infections are divided over the strains", 1, 1, 8, "%d", 9.0));
+        seirTransmissionMap.add(new InputParameterDouble("variant_transmissibility",
+                "transmissibility of the variants relative to the first strain", "value between 0.0 and 10.0", 1.0, 0.0,
+                10.0, true, true, "%f", 10.0));
+        seirTransmissionMap.add(new InputParameterDouble("cross_immunity",
+                "protection against the other strains after an infection", "value between 0.0 and 1.0", 0.0, 0.0, 1.0,
+                true, true, "%f", 11.0));
+        seirTransmissionMap.add(new InputParameterBoolean("household_kernel", "array-based transmission in the homes",
+                "Handle the homes with household arrays instead of the generic path (incremental or deferred mode)", false,
+                12.0));
+        seirTransmissionMap.add(new InputParameterString("engine", "engine: des or layers",
+                "des carries out the activities of the persons; layers takes daily steps on static contact layers", "des",
+                13.0));
+        seirTransmissionMap.add(new InputParameterDouble("layer_step", "step of the contact layer engine (hours)",
+                "a divisor of 24, e.g., 24 for daily or 12 for half-day steps", 24.0, 1.0, 24.0, true, true, "%f", 14.0));
+        seirTransmissionMap.add(new InputParameterDouble("layer_factor_household",
+                "calibration factor for the pressure in the household layer", "value between 0.0 and 10.0", 1.0, 0.0, 10.0,
+                true, true, "%f", 15.0));
+        seirTransmissionMap.add(new InputParameterDouble("layer_factor_work_school",
+                "calibration factor for the pressure in the work/school layer", "value between 0.0 and 10.0", 1.0, 0.0, 10.0,
+                true, true, "%f", 16.0));
+        seirTransmissionMap.add(new InputParameterDouble("layer_factor_community",
+                "calibration factor for the pressure in the community layer", "value between 0.0 and 10.0", 1.0, 0.0, 10.0,
+                true, true, "%f", 17.0));
 
         root.add(seirTransmissionMap);
     }
@@ -0,0 +1,311 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonBitSet;
+
+/**
+ * ContactLayerEngine is a fast, approximate alternative for the event-level mobility of the persons, e.g., for large parameter
+ * sweeps. The persons do not carry out their activities; instead, the transmission is advanced in steps of a fixed number of
+ * hours (typically 24 or 12) on the static groups of the ContactLayers. The disease progression is not changed: the
+ * DiseaseProgression of the model handles the phases of the exposed persons on the simulator, as in the full model.
+ * <p>
+ * In each step, every infectious person adds infectivity-hours to the groups of the person for the day, i.e., the average
+ * infectivity over the step times the hours in the group in the step. A group that is in use for H hours in the step, with a
+ * total of I infectivity-hours, gives a susceptible member who is present for h hours an integral of the pressure of h . I / H,
+ * as if the presence intervals of the members are nested, which is exact when all members are present at the same time. The
+ * probability of infection follows from the same getInfectionProbability of the DiseaseTransmission that the incremental and
+ * deferred modes use, for the location and sublocation of the group, so the transmission parameters of the full model apply.
+ * For a community group, the pressure is scaled with the area of the sublocation relative to the area of the pool. The
+ * infectious person of each exposure is drawn with a probability proportional to its contribution to the pressure.
+ * </p>
+ * <p>
+ * Only the groups that contain an infectious person are evaluated, so the time per step is proportional to the number of
+ * persons in groups with an infectious person rather than to the number of mobility events of the population. The engine can
+ * be calibrated against the full model with a factor per layer that multiplies the pressure in that layer. The number of
+ * infections per layer is kept for the comparison with the infection locations of the full model.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ContactLayerEngine implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the infectivity of an infected person as a function of the time since exposure. */
+    private final InfectivityCurve infectivityCurve;
+
+    /** the disease phase of a person after an exposure. */
+    private final DiseasePhase exposedPhase;
+
+    /** the length of a step in hours. */
+    private final double stepH;
+
+    /** the calibration factor per layer, multiplying the pressure in the layer. */
+    private final double[] layerFactors = new double[ContactLayers.NUMBER_OF_LAYERS];
+
+    /** the number of infections per layer. */
+    private final long[] infectionsPerLayer = new long[ContactLayers.NUMBER_OF_LAYERS];
+
+    /** the contact layers; built in start(). */
+    private ContactLayers contactLayers = null;
+
+    /** the infectivity-hours per group in the current step; only the touched groups are nonzero. */
+    private double[] groupPressure;
+
+    /** the groups with an infectious member in the current step. */
+    private final TIntArrayList touchedGroups = new TIntArrayList();
+
+    /** the members of a group who get infected, reused. */
+    private final TIntArrayList infectedBuffer = new TIntArrayList();
+
+    /** the infectious members of a group, reused. */
+    private final TIntArrayList infectiousBuffer = new TIntArrayList();
+
+    /** the cumulative contribution of the infectious members of a group, reused. */
+    private final TDoubleArrayList contributionBuffer = new TDoubleArrayList();
+
+    /**
+     * Create a contact layer engine. The engine is started by the model with start() instead of the initialization of the
+     * activities of the persons.
+     * @param model MedlabsModelInterface; the model
+     * @param infectivityCurve InfectivityCurve; the infectivity of an infected person as a function of the time since exposure
+     * @param exposedPhase DiseasePhase; the disease phase of a person after an exposure
+     * @param stepH double; the length of a step in hours, a divisor of 24, e.g., 24 for daily or 12 for half-day steps
+     * @throws MedlabsRuntimeException when the step is not a positive divisor of 24 hours
+     */
+    public ContactLayerEngine(final MedlabsModelInterface model, final InfectivityCurve infectivityCurve,
+            final DiseasePhase exposedPhase, final double stepH)
+    {
+        Throw.whenNull(model, "model cannot be null");
+        Throw.whenNull(infectivityCurve, "infectivityCurve cannot be null");
+        Throw.whenNull(exposedPhase, "exposedPhase cannot be null");
+        Throw.when(stepH <= 0.0 || stepH > 24.0 || Math.abs(24.0 / stepH - Math.rint(24.0 / stepH)) > 1E-9,
+                MedlabsRuntimeException.class, "step of %f hours is not a divisor of 24 hours", stepH);
+        this.model = model;
+        this.infectivityCurve = infectivityCurve;
+        this.exposedPhase = exposedPhase;
+        this.stepH = stepH;
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            this.layerFactors[layer] = 1.0;
+        }
+    }
+
+    /**
+     * Build the contact layers, and schedule the first step at the end of the first step interval. This should be called
+     * after all persons have been created, instead of the initialization of the persons.
+     */
+    public void start()
+    {
+        this.contactLayers = ContactLayers.build(this.model);
+        this.groupPressure = new double[this.contactLayers.getNumberOfGroups()];
+        System.out.println("Contact layer engine started: " + this.contactLayers);
+        this.model.getSimulator().scheduleEventRel(this.stepH, this, "step", null);
+    }
+
+    /**
+     * Scheduled method that carries out the transmission over the step that ends now, and schedules the next step.
+     */
+    protected void step()
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        double start = now - this.stepH;
+        int weekday = ((int) Math.floor((start + 0.01) / 24.0)) % 7;
+        ContactLayers.DayLayers day = this.contactLayers.getDayLayers(weekday);
+        double fraction = this.stepH / 24.0;
+
+        // add the infectivity-hours of the infectious persons to their groups
+        int[] personOffsets = day.getPersonOffsets();
+        int[] personGroups = day.getPersonGroups();
+        float[] personHours = day.getPersonHours();
+        PersonBitSet ill = this.model.getDiseaseProgression().getStateIndex().getPersons(DiseaseState.ILL);
+        for (int id = ill.nextSetBit(0); id >= 0; id = ill.nextSetBit(id + 1))
+        {
+            if (id >= personOffsets.length - 1)
+                break;
+            double infectivity = averageInfectivity(this.model.getPersonMap().get(id), start);
+            if (infectivity <= 0.0)
+                continue;
+            for (int i = personOffsets[id]; i < personOffsets[id + 1]; i++)
+            {
+                int g = personGroups[i];
+                double contribution =
+                        infectivity * personHours[i] * fraction * this.layerFactors[this.contactLayers.getLayer(g)];
+                if (contribution <= 0.0)
+                    continue;
+                if (this.groupPressure[g] == 0.0)
+                    this.touchedGroups.add(g);
+                this.groupPressure[g] += contribution;
+            }
+        }
+
+        // evaluate the groups with an infectious member
+        for (int k = 0; k < this.touchedGroups.size(); k++)
+        {
+            int g = this.touchedGroups.get(k);
+            evaluateGroup(day, g, start);
+            this.groupPressure[g] = 0.0;
+        }
+        this.touchedGroups.resetQuick();
+        this.model.getSimulator().scheduleEventRel(this.stepH, this, "step", null);
+    }
+
+    /**
+     * Return the average infectivity of a person over the step.
+     * @param person Person; the person
+     * @param start double; the start time of the step
+     * @return double; the average infectivity of the person over the step, 0 when the person is not infectious
+     */
+    private double averageInfectivity(final Person person, final double start)
+    {
+        double age = start - person.getExposureTime();
+        if (Double.isNaN(age) || age + this.stepH <= 0.0 || age >= this.infectivityCurve.getEndTimeH())
+            return 0.0;
+        return this.infectivityCurve.integral(Math.max(0.0, age), age + this.stepH) / this.stepH;
+    }
+
+    /**
+     * Infect the susceptible members of a group with the probability that follows from the pressure in the group and their
+     * hours in the group, and draw the infectious person for every exposure.
+     * @param day ContactLayers.DayLayers; the groups of the day
+     * @param g int; the group
+     * @param start double; the start time of the step
+     */
+    private void evaluateGroup(final ContactLayers.DayLayers day, final int g, final double start)
+    {
+        Location location = this.model.getLocationMap().get(this.contactLayers.getLocationId(g));
+        short subLocationIndex = this.contactLayers.getSubLocationIndex(g);
+        double pressurePerHour = this.groupPressure[g] * this.contactLayers.getAreaScale(g) / day.getGroupHours()[g];
+        int[] memberOffsets = day.getMemberOffsets();
+        int[] memberIds = day.getMemberIds();
+        float[] memberHours = day.getMemberHours();
+        DiseaseTransmission transmission = this.model.getDiseaseTransmission();
+
+        this.infectedBuffer.resetQuick();
+        for (int i = memberOffsets[g]; i < memberOffsets[g + 1]; i++)
+        {
+            Person person = this.model.getPersonMap().get(memberIds[i]);
+            if (!person.getDiseasePhase().isSusceptible())
+                continue;
+            double pInfection =
+                    transmission.getInfectionProbability(location, subLocationIndex, memberHours[i] * pressurePerHour);
+            if (pInfection > 0.0 && this.model.getRandomStream().nextDouble() < pInfection)
+                this.infectedBuffer.add(memberIds[i]);
+        }
+        if (this.infectedBuffer.isEmpty())
+            return;
+
+        // the infectious members, with their cumulative contribution for the attribution of the exposures
+        this.infectiousBuffer.resetQuick();
+        this.contributionBuffer.resetQuick();
+        double total = 0.0;
+        for (int i = memberOffsets[g]; i < memberOffsets[g + 1]; i++)
+        {
+            double contribution = averageInfectivity(this.model.getPersonMap().get(memberIds[i]), start) * memberHours[i];
+            if (contribution > 0.0 && !this.model.getPersonMap().get(memberIds[i]).getDiseasePhase().isSusceptible())
+            {
+                total += contribution;
+                this.infectiousBuffer.add(memberIds[i]);
+                this.contributionBuffer.add(total);
+            }
+        }
+        if (this.infectiousBuffer.isEmpty())
+            return;
+
+        transmission.startExposures(location);
+        for (int k = 0; k < this.infectedBuffer.size(); k++)
+        {
+            double draw = this.model.getRandomStream().nextDouble() * total;
+            int j = 0;
+            while (j < this.contributionBuffer.size() - 1 && this.contributionBuffer.get(j) < draw)
+            {
+                j++;
+            }
+            transmission.exposePerson(this.model.getPersonMap().get(this.infectedBuffer.get(k)),
+                    this.model.getPersonMap().get(this.infectiousBuffer.get(j)), location, this.exposedPhase);
+        }
+        transmission.reportExposures();
+        this.infectionsPerLayer[this.contactLayers.getLayer(g)] += this.infectedBuffer.size();
+    }
+
+    /**
+     * Set the calibration factor of a layer, which multiplies the pressure in the layer. The factors can be fitted on the
+     * number of infections per layer in a run of the full model.
+     * @param layer int; the layer: ContactLayers.HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     * @param factor double; the calibration factor, 1.0 by default
+     * @throws MedlabsRuntimeException when the factor is negative
+     */
+    public void setLayerFactor(final int layer, final double factor)
+    {
+        Throw.when(factor < 0.0, MedlabsRuntimeException.class, "layer factor %f should not be negative", factor);
+        this.layerFactors[layer] = factor;
+    }
+
+    /**
+     * @param layer int; the layer: ContactLayers.HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     * @return the calibration factor of the layer
+     */
+    public double getLayerFactor(final int layer)
+    {
+        return this.layerFactors[layer];
+    }
+
+    /**
+     * @param layer int; the layer: ContactLayers.HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     * @return the number of infections in the layer since the start
+     */
+    public long getNumberOfInfections(final int layer)
+    {
+        return this.infectionsPerLayer[layer];
+    }
+
+    /**
+     * @return the contact layers, or null when the engine has not been started
+     */
+    public ContactLayers getContactLayers()
+    {
+        return this.contactLayers;
+    }
+
+    /**
+     * @return the length of a step in hours
+     */
+    public double getStepH()
+    {
+        return this.stepH;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder("ContactLayerEngine [step=" + this.stepH + "h");
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            s.append(", ").append(ContactLayers.getLayerName(layer)).append("=").append(this.infectionsPerLayer[layer]);
+        }
+        return s.append("]").toString();
+    }
+
+}
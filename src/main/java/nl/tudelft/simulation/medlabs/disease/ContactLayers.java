@@ -0,0 +1,574 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntFloatMap;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TIntFloatHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.Student;
+import nl.tudelft.simulation.medlabs.person.Worker;
+
+/**
+ * ContactLayers contains the static contact groups of the persons for the ContactLayerEngine, derived once from the week
+ * patterns and the locators of the model. There are three layers:
+ * <ul>
+ * <li>HOUSEHOLD: the home sublocations, with the same sublocation index as in Location.addPerson;</li>
+ * <li>WORK_SCHOOL: the sublocation of the work location of a Worker, or of the school of a Student;</li>
+ * <li>COMMUNITY: all other locations, pooled per grid cell and location type.</li>
+ * </ul>
+ * For every person, the DayPattern of each weekday is walked once with DayPattern.walk(), and the hours that the person spends
+ * in each group are added up. Weekdays for which all week patterns use the same DayPattern share one day type, so a pattern
+ * with weekdays and weekend days results in two day types. Stochastic durations and random locators are drawn once, so the
+ * layers hold one typical day per day type. Changes of the week pattern after the layers have been built, e.g., by a lockdown
+ * policy, are not reflected in the layers.
+ * <p>
+ * The groups of a day type are stored in compressed sparse row form in both directions: the members of each group with their
+ * hours, and the groups of each person with the same hours.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ContactLayers implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the household layer. */
+    public static final byte HOUSEHOLD = 0;
+
+    /** the work and school layer. */
+    public static final byte WORK_SCHOOL = 1;
+
+    /** the community layer. */
+    public static final byte COMMUNITY = 2;
+
+    /** the number of layers. */
+    public static final int NUMBER_OF_LAYERS = 3;
+
+    /** the names of the layers for reporting. */
+    private static final String[] LAYER_NAMES = {"household", "work/school", "community"};
+
+    /** the day type for each weekday, 0 = Monday. */
+    private final int[] dayTypeOfWeekday;
+
+    /** the layer of each group. */
+    private final byte[] groupLayers;
+
+    /** the location id of each group; for a community group the first location of the pool. */
+    private final int[] groupLocationIds;
+
+    /** the sublocation index of each group; 0 for a community group. */
+    private final short[] groupSubLocationIndices;
+
+    /** the area of the sublocation of the group location divided by the area of the group (1 except for the pools). */
+    private final double[] groupAreaScales;
+
+    /** the groups per day type. */
+    private final DayLayers[] dayLayers;
+
+    /**
+     * Create the contact layers from the arrays made by build.
+     * @param dayTypeOfWeekday int[]; the day type for each weekday
+     * @param groupLayers byte[]; the layer of each group
+     * @param groupLocationIds int[]; the location id of each group
+     * @param groupSubLocationIndices short[]; the sublocation index of each group
+     * @param groupAreaScales double[]; the area scale of each group
+     * @param dayLayers DayLayers[]; the groups per day type
+     */
+    protected ContactLayers(final int[] dayTypeOfWeekday, final byte[] groupLayers, final int[] groupLocationIds,
+            final short[] groupSubLocationIndices, final double[] groupAreaScales, final DayLayers[] dayLayers)
+    {
+        this.dayTypeOfWeekday = dayTypeOfWeekday;
+        this.groupLayers = groupLayers;
+        this.groupLocationIds = groupLocationIds;
+        this.groupSubLocationIndices = groupSubLocationIndices;
+        this.groupAreaScales = groupAreaScales;
+        this.dayLayers = dayLayers;
+    }
+
+    /**
+     * Build the contact layers for all persons of the model, from the current week pattern of each person. The layers should
+     * be built after all persons and locations have been created, before the simulation starts. Each person is returned to the
+     * home location afterwards.
+     * @param model MedlabsModelInterface; the model
+     * @return ContactLayers; the contact layers of the model
+     * @throws MedlabsRuntimeException when a person has a week pattern that is not a WeekDayPattern
+     */
+    public static ContactLayers build(final MedlabsModelInterface model)
+    {
+        int[] ids = model.getPersonMap().keys();
+        Arrays.sort(ids);
+        int maxId = ids.length == 0 ? -1 : ids[ids.length - 1];
+
+        // weekdays with the same day pattern in all week patterns share a day type
+        int[] dayTypeOfWeekday = new int[7];
+        TIntArrayList representativeWeekdays = new TIntArrayList();
+        for (int weekday = 0; weekday < 7; weekday++)
+        {
+            dayTypeOfWeekday[weekday] = -1;
+            for (int t = 0; t < representativeWeekdays.size(); t++)
+            {
+                if (sameDayPatterns(model, weekday, representativeWeekdays.get(t)))
+                {
+                    dayTypeOfWeekday[weekday] = t;
+                    break;
+                }
+            }
+            if (dayTypeOfWeekday[weekday] < 0)
+            {
+                dayTypeOfWeekday[weekday] = representativeWeekdays.size();
+                representativeWeekdays.add(weekday);
+            }
+        }
+
+        Builder builder = new Builder(model);
+        DayLayers[] dayLayers = new DayLayers[representativeWeekdays.size()];
+        TIntFloatMap hoursPerGroup = new TIntFloatHashMap();
+        for (int t = 0; t < dayLayers.length; t++)
+        {
+            int weekday = representativeWeekdays.get(t);
+            TIntArrayList personList = new TIntArrayList();
+            TIntArrayList groupList = new TIntArrayList();
+            TFloatArrayList hourList = new TFloatArrayList();
+            for (int id : ids)
+            {
+                Person person = model.getPersonMap().get(id);
+                WeekPattern weekPattern = person.getCurrentWeekPattern();
+                if (!(weekPattern instanceof WeekDayPattern))
+                    throw new MedlabsRuntimeException("ContactLayers: week pattern " + weekPattern.getName() + " of person "
+                            + id + " is not a WeekDayPattern");
+                hoursPerGroup.clear();
+                builder.walkDay(person, ((WeekDayPattern) weekPattern).getDayPattern(weekday), hoursPerGroup);
+                int[] groups = hoursPerGroup.keys();
+                Arrays.sort(groups);
+                for (int group : groups)
+                {
+                    personList.add(id);
+                    groupList.add(group);
+                    hourList.add(hoursPerGroup.get(group));
+                }
+            }
+            dayLayers[t] = new DayLayers(maxId, personList, groupList, hourList);
+        }
+
+        // the groups are known now; the day layers are sized to the final number of groups
+        int numberOfGroups = builder.groupLayerList.size();
+        for (DayLayers day : dayLayers)
+        {
+            day.finish(numberOfGroups);
+        }
+        byte[] groupLayers = new byte[numberOfGroups];
+        short[] groupSubLocationIndices = new short[numberOfGroups];
+        double[] groupAreaScales = new double[numberOfGroups];
+        for (int g = 0; g < numberOfGroups; g++)
+        {
+            groupLayers[g] = (byte) builder.groupLayerList.get(g);
+            groupSubLocationIndices[g] = (short) builder.groupSubLocationList.get(g);
+            groupAreaScales[g] = 1.0;
+            if (groupLayers[g] == COMMUNITY)
+            {
+                Location location = model.getLocationMap().get(builder.groupLocationList.get(g));
+                double subArea = location.getTotalSurfaceM2() / Math.max(1, location.getNumberOfSubLocations());
+                double poolArea = builder.poolAreaList.get(g);
+                groupAreaScales[g] = poolArea > 0.0 ? subArea / poolArea : 1.0;
+            }
+        }
+        return new ContactLayers(dayTypeOfWeekday, groupLayers, builder.groupLocationList.toArray(), groupSubLocationIndices,
+                groupAreaScales, dayLayers);
+    }
+
+    /**
+     * Return whether all week patterns of the model use the same DayPattern on two weekdays.
+     * @param model MedlabsModelInterface; the model
+     * @param weekday1 int; the first weekday
+     * @param weekday2 int; the second weekday
+     * @return boolean; whether all week patterns use the same DayPattern on both weekdays
+     */
+    private static boolean sameDayPatterns(final MedlabsModelInterface model, final int weekday1, final int weekday2)
+    {
+        for (WeekPattern weekPattern : model.getWeekPatternList())
+        {
+            if (!(weekPattern instanceof WeekDayPattern))
+                return false;
+            WeekDayPattern weekDayPattern = (WeekDayPattern) weekPattern;
+            if (weekDayPattern.getDayPattern(weekday1) != weekDayPattern.getDayPattern(weekday2))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param weekday int; the weekday, 0 = Monday
+     * @return the groups of the day type of the weekday
+     */
+    public DayLayers getDayLayers(final int weekday)
+    {
+        return this.dayLayers[this.dayTypeOfWeekday[weekday]];
+    }
+
+    /**
+     * @return the number of day types
+     */
+    public int getNumberOfDayTypes()
+    {
+        return this.dayLayers.length;
+    }
+
+    /**
+     * @return the number of groups in all layers
+     */
+    public int getNumberOfGroups()
+    {
+        return this.groupLayers.length;
+    }
+
+    /**
+     * @param group int; the group
+     * @return the layer of the group: HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     */
+    public byte getLayer(final int group)
+    {
+        return this.groupLayers[group];
+    }
+
+    /**
+     * @param group int; the group
+     * @return the location id of the group; for a community group the first location of the pool
+     */
+    public int getLocationId(final int group)
+    {
+        return this.groupLocationIds[group];
+    }
+
+    /**
+     * @param group int; the group
+     * @return the sublocation index of the group; 0 for a community group
+     */
+    public short getSubLocationIndex(final int group)
+    {
+        return this.groupSubLocationIndices[group];
+    }
+
+    /**
+     * Return the factor to apply to the pressure of the group when the infection probability is calculated for the location
+     * and sublocation of the group. For a community group this is the area of the sublocation divided by the total area of the
+     * locations in the pool; for the other groups it is 1.
+     * @param group int; the group
+     * @return double; the area scale of the group
+     */
+    public double getAreaScale(final int group)
+    {
+        return this.groupAreaScales[group];
+    }
+
+    /**
+     * Return the layer in which a person has contacts in a location: the household layer for a home, the work/school layer
+     * for the work location of a Worker and the school location of a Student, and the community layer for other locations.
+     * The same classification is used for the groups of the layers and for the infections of the full model, so both can be
+     * compared per layer.
+     * @param model MedlabsModelInterface; the model
+     * @param person Person; the person
+     * @param location Location; the location
+     * @return byte; the layer: HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     */
+    public static byte layerOf(final MedlabsModelInterface model, final Person person, final Location location)
+    {
+        if (location.getLocationType().getLocationTypeId() == model.getLocationTypeHouse().getLocationTypeId())
+            return HOUSEHOLD;
+        if ((person instanceof Worker && location.equals(((Worker) person).getWorkLocation()))
+                || (person instanceof Student && location.equals(((Student) person).getSchoolLocation())))
+            return WORK_SCHOOL;
+        return COMMUNITY;
+    }
+
+    /**
+     * @param layer int; the layer
+     * @return the name of the layer for reporting
+     */
+    public static String getLayerName(final int layer)
+    {
+        return LAYER_NAMES[layer];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        int[] groupsPerLayer = new int[NUMBER_OF_LAYERS];
+        for (byte layer : this.groupLayers)
+        {
+            groupsPerLayer[layer]++;
+        }
+        return "ContactLayers [dayTypes=" + this.dayLayers.length + ", households=" + groupsPerLayer[HOUSEHOLD]
+                + ", workSchool=" + groupsPerLayer[WORK_SCHOOL] + ", community=" + groupsPerLayer[COMMUNITY] + "]";
+    }
+
+    /**
+     * DayLayers contains the groups of one day type in compressed sparse row form, from group to members and from person to
+     * groups. The arrays are returned without a copy for speed, and should not be changed.
+     * <p>
+     * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved.
+     * See license.txt in the main project.
+     * </p>
+     * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+     */
+    public static class DayLayers implements Serializable
+    {
+        /** */
+        private static final long serialVersionUID = 20240601L;
+
+        /** the start of the groups of each person id in personGroups; the last entry is the number of entries. */
+        private final int[] personOffsets;
+
+        /** the groups of the persons, per person id. */
+        private final int[] personGroups;
+
+        /** the hours per day of the persons in the groups, parallel to personGroups. */
+        private final float[] personHours;
+
+        /** the start of the members of each group in memberIds; the last entry is the number of entries. */
+        private int[] memberOffsets;
+
+        /** the person ids of the members, per group. */
+        private int[] memberIds;
+
+        /** the hours per day of the members in the group, parallel to memberIds. */
+        private float[] memberHours;
+
+        /** the hours per day that each group is in use, i.e., the largest number of hours of its members. */
+        private float[] groupHours;
+
+        /**
+         * Create the person to group direction from the entries, which are ordered by person id.
+         * @param maxId int; the largest person id
+         * @param personList TIntArrayList; the person id of each entry
+         * @param groupList TIntArrayList; the group of each entry
+         * @param hourList TFloatArrayList; the hours of each entry
+         */
+        DayLayers(final int maxId, final TIntArrayList personList, final TIntArrayList groupList,
+                final TFloatArrayList hourList)
+        {
+            this.personOffsets = new int[maxId + 2];
+            for (int i = 0; i < personList.size(); i++)
+            {
+                this.personOffsets[personList.get(i) + 1]++;
+            }
+            for (int id = 0; id <= maxId; id++)
+            {
+                this.personOffsets[id + 1] += this.personOffsets[id];
+            }
+            this.personGroups = groupList.toArray();
+            this.personHours = hourList.toArray();
+        }
+
+        /**
+         * Create the group to member direction, when the total number of groups is known.
+         * @param numberOfGroups int; the number of groups in all day types
+         */
+        void finish(final int numberOfGroups)
+        {
+            this.memberOffsets = new int[numberOfGroups + 1];
+            this.groupHours = new float[numberOfGroups];
+            for (int i = 0; i < this.personGroups.length; i++)
+            {
+                int g = this.personGroups[i];
+                this.memberOffsets[g + 1]++;
+                this.groupHours[g] = Math.max(this.groupHours[g], this.personHours[i]);
+            }
+            for (int g = 0; g < numberOfGroups; g++)
+            {
+                this.memberOffsets[g + 1] += this.memberOffsets[g];
+            }
+            this.memberIds = new int[this.personGroups.length];
+            this.memberHours = new float[this.personGroups.length];
+            int[] fill = Arrays.copyOf(this.memberOffsets, numberOfGroups);
+            for (int id = 0; id < this.personOffsets.length - 1; id++)
+            {
+                for (int i = this.personOffsets[id]; i < this.personOffsets[id + 1]; i++)
+                {
+                    int slot = fill[this.personGroups[i]]++;
+                    this.memberIds[slot] = id;
+                    this.memberHours[slot] = this.personHours[i];
+                }
+            }
+        }
+
+        /**
+         * @return the start of the groups of each person id in getPersonGroups(); the last entry is the number of entries
+         */
+        public int[] getPersonOffsets()
+        {
+            return this.personOffsets;
+        }
+
+        /**
+         * @return the groups of the persons, per person id
+         */
+        public int[] getPersonGroups()
+        {
+            return this.personGroups;
+        }
+
+        /**
+         * @return the hours per day of the persons in the groups, parallel to getPersonGroups()
+         */
+        public float[] getPersonHours()
+        {
+            return this.personHours;
+        }
+
+        /**
+         * @return the start of the members of each group in getMemberIds(); the last entry is the number of entries
+         */
+        public int[] getMemberOffsets()
+        {
+            return this.memberOffsets;
+        }
+
+        /**
+         * @return the person ids of the members, per group
+         */
+        public int[] getMemberIds()
+        {
+            return this.memberIds;
+        }
+
+        /**
+         * @return the hours per day of the members in the group, parallel to getMemberIds()
+         */
+        public float[] getMemberHours()
+        {
+            return this.memberHours;
+        }
+
+        /**
+         * @return the hours per day that each group is in use, i.e., the largest number of hours of its members
+         */
+        public float[] getGroupHours()
+        {
+            return this.groupHours;
+        }
+    }
+
+    /**
+     * Builder keeps the groups that have been found while the days of the persons are walked.
+     */
+    private static class Builder
+    {
+        /** the model. */
+        private final MedlabsModelInterface model;
+
+        /** the group per key of layer, location or cell, and sublocation or location type. */
+        private final TLongIntMap groupIndex = new TLongIntHashMap();
+
+        /** the layer of each group. */
+        private final TIntArrayList groupLayerList = new TIntArrayList();
+
+        /** the location id of each group. */
+        private final TIntArrayList groupLocationList = new TIntArrayList();
+
+        /** the sublocation index of each group. */
+        private final TIntArrayList groupSubLocationList = new TIntArrayList();
+
+        /** the total area of the locations in each group; only used for the community groups. */
+        private final TDoubleArrayList poolAreaList = new TDoubleArrayList();
+
+        /** the locations that have been added to a community pool. */
+        private final TIntSet poolLocations = new TIntHashSet();
+
+        /**
+         * @param model MedlabsModelInterface; the model
+         */
+        Builder(final MedlabsModelInterface model)
+        {
+            this.model = model;
+        }
+
+        /**
+         * Walk the day pattern of a person from 0:00 to 24:00, and add the hours per group.
+         * @param person Person; the person
+         * @param dayPattern DayPattern; the day pattern
+         * @param hoursPerGroup TIntFloatMap; the map to which the hours per group are added
+         */
+        void walkDay(final Person person, final DayPattern dayPattern, final TIntFloatMap hoursPerGroup)
+        {
+            dayPattern.walk(person, (index, location, startH, durationH) ->
+            {
+                float hours = (float) durationH;
+                hoursPerGroup.adjustOrPutValue(group(person, location), hours, hours);
+            });
+            person.setCurrentLocation(person.getHomeLocation());
+        }
+
+        /**
+         * Return the group of a person in a location, and create the group when it does not exist yet.
+         * @param person Person; the person
+         * @param location Location; the location
+         * @return int; the group
+         */
+        private int group(final Person person, final Location location)
+        {
+            int layer = layerOf(this.model, person, location);
+            int id;
+            int sub;
+            short n = location.getNumberOfSubLocations();
+            if (layer == HOUSEHOLD)
+            {
+                id = location.getId();
+                sub = Math.min(person.getHomeSubLocationIndex(), n - 1);
+            }
+            else if (layer == WORK_SCHOOL)
+            {
+                id = location.getId();
+                if (n < 2)
+                    sub = 0;
+                else if (location.getLocationType().isReproducible())
+                    sub = this.model.getReproducibleJava2Random().nextInt(0, n, (person.hashCode() * 1000 + location.getId()));
+                else
+                    sub = this.model.getRandomStream().nextInt(0, n);
+                sub = Math.min(sub, n - 1);
+            }
+            else
+            {
+                id = location.getGridKey();
+                sub = location.getLocationTypeId() & 0xff;
+            }
+            long key = ((long) layer << 56) | (Integer.toUnsignedLong(id) << 16) | (sub & 0xffff);
+            if (!this.groupIndex.containsKey(key))
+            {
+                this.groupIndex.put(key, this.groupLayerList.size());
+                this.groupLayerList.add(layer);
+                this.groupLocationList.add(location.getId());
+                this.groupSubLocationList.add(layer == COMMUNITY ? 0 : sub);
+                this.poolAreaList.add(0.0);
+            }
+            int g = this.groupIndex.get(key);
+            if (layer == COMMUNITY && this.poolLocations.add(location.getId()))
+                this.poolAreaList.set(g, this.poolAreaList.get(g) + location.getTotalSurfaceM2());
+            return g;
+        }
+    }
+
+}
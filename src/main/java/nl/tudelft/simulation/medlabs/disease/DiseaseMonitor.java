@@ -47,6 +47,11 @@ public class DiseaseMonitor extends LocalEventProducer
                     new ObjectDescriptor("infectious-person", "infectious person", Person.class),
                     new ObjectDescriptor("location", "location", Location.class)));
 
+    /** statistics event for the infections of one transmission evaluation; the batch is reused, so process it immediately. */
+    public static final EventType INFECTIONS_EVENT = new EventType("INFECTIONS_EVENT",
+            new MetaData("infections", "infections of one transmission evaluation with the infectious persons",
+                    new ObjectDescriptor("exposure-batch", "batch of exposures", ExposureBatch.class)));
+
     /** statistics event for an offspring event. */
     public static final EventType OFFSPRING_EVENT = new EventType("OFFSPRING_EVENT",
             new MetaData("offspring", "number of infected persons by an infectious person in a location",
@@ -102,6 +107,26 @@ public class DiseaseMonitor extends LocalEventProducer
                 this.model.getSimulator().getSimulatorTime()));
     }
 
+    /**
+     * Report the infections of one transmission evaluation for statistics. Listeners for INFECTIONS_EVENT receive the batch in
+     * one event; listeners for the older INFECTION_EVENT still get one event per infection, but these events are only created
+     * when there are such listeners.
+     * @param batch ExposureBatch; the exposures of one transmission evaluation, reused by the caller
+     */
+    public void reportInfections(final ExposureBatch batch)
+    {
+        if (numberOfListeners(INFECTIONS_EVENT) > 0)
+            fireEvent(new TimedEvent<Double>(INFECTIONS_EVENT, batch, this.model.getSimulator().getSimulatorTime()));
+        if (numberOfListeners(INFECTION_EVENT) > 0)
+        {
+            for (int i = 0; i < batch.size(); i++)
+            {
+                reportInfection(this.model.getPersonMap().get(batch.getInfectedId(i)),
+                        this.model.getPersonMap().get(batch.getInfectiousId(i)), batch.getLocation());
+            }
+        }
+    }
+
     /**
      * Report offspring for offspring statistics.The method is called when an infectious person leaves a location.
      * @param infectiousPerson Person; the infectious person possibly transmitting the disease
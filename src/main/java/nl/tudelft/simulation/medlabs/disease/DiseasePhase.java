@@ -100,7 +100,7 @@ public class DiseasePhase
      */
     public boolean isSusceptible()
     {
-        return this.diseaseState.equals(DiseaseState.SUSCEPTIBLE);
+        return this.diseaseState == DiseaseState.SUSCEPTIBLE;
     }
 
     /**
@@ -109,7 +109,7 @@ public class DiseasePhase
      */
     public boolean isIll()
     {
-        return this.diseaseState.equals(DiseaseState.ILL);
+        return this.diseaseState == DiseaseState.ILL;
     }
 
     /**
@@ -118,7 +118,7 @@ public class DiseasePhase
      */
     public boolean isDead()
     {
-        return this.diseaseState.equals(DiseaseState.DEAD);
+        return this.diseaseState == DiseaseState.DEAD;
     }
 
     /**
@@ -127,7 +127,7 @@ public class DiseasePhase
      */
     public boolean isRecovered()
     {
-        return this.diseaseState.equals(DiseaseState.RECOVERED);
+        return this.diseaseState == DiseaseState.RECOVERED;
     }
 
     /**
@@ -136,7 +136,16 @@ public class DiseasePhase
      */
     public boolean isImmune()
     {
-        return this.diseaseState.equals(DiseaseState.IMMUNE);
+        return this.diseaseState == DiseaseState.IMMUNE;
+    }
+
+    /**
+     * Return the rough state of the disease phase.
+     * @return DiseaseState; the state of the disease phase
+     */
+    public DiseaseState getDiseaseState()
+    {
+        return this.diseaseState;
     }
 
     /**
@@ -36,6 +36,9 @@ public abstract class DiseaseProgression extends AbstractModelNamed
     /** a safe copy of the disease phases. */
     private List<DiseasePhase> diseasePhaseList = new ArrayList<>();
 
+    /** the ids of the persons per disease phase and per disease state. */
+    private final DiseaseStateIndex stateIndex = new DiseaseStateIndex(this);
+
     /**
      * @param model MedlabsModelInterface; the model
      * @param name String; the name of the disease for reporting
@@ -75,6 +78,16 @@ public abstract class DiseaseProgression extends AbstractModelNamed
         return this.diseasePhaseList;
     }
 
+    /**
+     * Return the index with the ids of the persons per disease phase and per disease state, for queries on the population
+     * without a scan of the person map.
+     * @return DiseaseStateIndex; the index of the persons per disease phase and disease state
+     */
+    public DiseaseStateIndex getStateIndex()
+    {
+        return this.stateIndex;
+    }
+
     /**
      * @param searchName String; the name to look up in the phase map
      * @return the diseasePhase belonging to the name
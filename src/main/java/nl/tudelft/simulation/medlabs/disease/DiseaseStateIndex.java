@@ -0,0 +1,141 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import nl.tudelft.simulation.medlabs.person.PersonBitSet;
+
+/**
+ * DiseaseStateIndex keeps, for a disease, the ids of the persons per DiseasePhase and per DiseaseState in bit sets, so queries
+ * such as "all persons who are currently ill" or, intersected with a property set, "all susceptible persons aged 60 and over"
+ * do not need a scan of the person map. The index is updated by the person when its disease phase is set. The bit sets that
+ * are returned are the live sets of the index; they should not be changed by the caller.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class DiseaseStateIndex implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the initial capacity of the bit sets in person ids. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** the disease progression with the phases. */
+    private final DiseaseProgression disease;
+
+    /** the bit sets per phase index, created when needed. */
+    private PersonBitSet[] phaseSets = new PersonBitSet[0];
+
+    /** the bit sets per DiseaseState ordinal. */
+    private final PersonBitSet[] stateSets = new PersonBitSet[DiseaseState.values().length];
+
+    /**
+     * Create an empty index for a disease.
+     * @param disease DiseaseProgression; the disease progression with the phases
+     */
+    public DiseaseStateIndex(final DiseaseProgression disease)
+    {
+        this.disease = disease;
+        for (int i = 0; i < this.stateSets.length; i++)
+        {
+            this.stateSets[i] = new PersonBitSet(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * Register the move of a person from one phase to another phase.
+     * @param personId int; the id of the person
+     * @param fromPhaseIndex int; the index of the previous phase, or -1 when the person did not have a phase yet
+     * @param toPhaseIndex int; the index of the new phase
+     */
+    public void move(final int personId, final int fromPhaseIndex, final int toPhaseIndex)
+    {
+        if (fromPhaseIndex == toPhaseIndex)
+            return;
+        if (fromPhaseIndex >= 0)
+        {
+            phaseSet(fromPhaseIndex).remove(personId);
+            this.stateSets[stateOrdinal(fromPhaseIndex)].remove(personId);
+        }
+        phaseSet(toPhaseIndex).add(personId);
+        this.stateSets[stateOrdinal(toPhaseIndex)].add(personId);
+    }
+
+    /**
+     * Return the bit set for a phase index, creating it when needed.
+     * @param phaseIndex int; the phase index
+     * @return PersonBitSet; the bit set of the phase
+     */
+    private PersonBitSet phaseSet(final int phaseIndex)
+    {
+        if (phaseIndex >= this.phaseSets.length)
+            this.phaseSets = Arrays.copyOf(this.phaseSets, phaseIndex + 1);
+        if (this.phaseSets[phaseIndex] == null)
+            this.phaseSets[phaseIndex] = new PersonBitSet(INITIAL_CAPACITY);
+        return this.phaseSets[phaseIndex];
+    }
+
+    /**
+     * @param phaseIndex int; the phase index
+     * @return the ordinal of the DiseaseState of the phase
+     */
+    private int stateOrdinal(final int phaseIndex)
+    {
+        return this.disease.getDiseasePhases().get(phaseIndex).getDiseaseState().ordinal();
+    }
+
+    /**
+     * Return the ids of the persons in a disease phase. The set should not be changed.
+     * @param phase DiseasePhase; the phase
+     * @return PersonBitSet; the ids of the persons in the phase
+     */
+    public PersonBitSet getPersons(final DiseasePhase phase)
+    {
+        return phaseSet(phase.getIndex());
+    }
+
+    /**
+     * Return the ids of the persons in a disease state, e.g., all persons who are ILL. The set should not be changed.
+     * @param state DiseaseState; the state
+     * @return PersonBitSet; the ids of the persons in the state
+     */
+    public PersonBitSet getPersons(final DiseaseState state)
+    {
+        return this.stateSets[state.ordinal()];
+    }
+
+    /**
+     * @param phase DiseasePhase; the phase
+     * @return the number of persons in the phase according to the index
+     */
+    public int count(final DiseasePhase phase)
+    {
+        return getPersons(phase).cardinality();
+    }
+
+    /**
+     * @param state DiseaseState; the state
+     * @return the number of persons in the state according to the index
+     */
+    public int count(final DiseaseState state)
+    {
+        return getPersons(state).cardinality();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "DiseaseStateIndex [disease=" + this.disease.getName() + "]";
+    }
+
+}
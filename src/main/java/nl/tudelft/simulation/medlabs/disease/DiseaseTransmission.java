@@ -1,9 +1,16 @@
 package nl.tudelft.simulation.medlabs.disease;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.djutils.exceptions.Throw;
 
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.TLongFloatMap;
@@ -16,6 +23,7 @@ import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import nl.tudelft.simulation.medlabs.AbstractModelNamed;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
@@ -31,7 +39,30 @@ import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
  * Person ids. The Map takes a considerable amount of memory but is can sped up calculations with a factor 500 or more... <br>
  * <br>
  * The second cache contains the last calculation time for a location where one or more infectious persons are present. Note
- * that locations where no infectious persons are located do not need to store such a time.
+ * that locations where no infectious persons are located do not need to store such a time.<br>
+ * <br>
+ * In the incremental mode, set with setIncrementalMode, infectPeople is not used. Instead, each sublocation with one or more
+ * infected persons keeps an InfectiousPressure accumulator with the sum of the infectivity of the infected persons and the
+ * list of susceptible persons, which are updated on enter, leave and phase change. The infectivity of each infected person
+ * follows a piecewise-linear InfectivityCurve of the time since exposure, and the accumulated pressure is integrated exactly
+ * over the elapsed interval, so the cost per event does not depend on the number of persons in the sublocation, apart from
+ * the sampling of the infected persons.<br>
+ * <br>
+ * In the deferred mode, set with setDeferredMode, enter and leave events only record the presence interval of the person in a
+ * SublocationIntervalLog of the sublocation, for sublocations where an infected person is or was present. At the end of each
+ * time window, all logs are evaluated in parallel with a fork/join pool, using the exact overlap of the presence intervals of
+ * the susceptible and infectious persons. Each log gets its own random generator, seeded from the sublocation and the window,
+ * so the result does not depend on the number of threads. The exposures are applied afterwards, in a fixed order.<br>
+ * <br>
+ * In the multi-strain mode, set with setMultiStrainMode, several strains of the disease spread at the same time. Each
+ * sublocation with an infected person keeps a MultiStrainPressure with an accumulator per strain and one list of candidates
+ * who are not infected. One enter or leave event evaluates all strains of the sublocation together, so k strains cost one
+ * pass over the mobility events plus k evaluations of an accumulator. The strain and the earlier strains of every person are
+ * kept in a StrainTable, which also holds the cross-immunity between the strains.<br>
+ * <br>
+ * In the incremental and deferred modes, a HouseholdKernel can be set with setHouseholdKernel. Enter and leave events in the
+ * home sublocations of the kernel are then handled by the kernel, using arrays per household instead of the hash maps of the
+ * generic path, and evaluated directly at each event.
  * <p>
  * Copyright (c) 2022-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -66,6 +97,69 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
     /** the simulator. */
     private final SimpleDevsSimulatorInterface simulator;
 
+    /** the infectivity curve for the incremental mode; null when the incremental mode is not used. */
+    private InfectivityCurve infectivityCurve = null;
+
+    /** the disease phase for persons who get exposed in the incremental mode. */
+    private DiseasePhase incrementalExposedPhase = null;
+
+    /** the transmission rate for the incremental mode, per unit of infectivity-hours per m2. */
+    private double transmissionRate = 0.0;
+
+    /** the infectious pressure accumulators per sublocation in the incremental mode. */
+    private TLongObjectMap<InfectiousPressure> pressureMap = new TLongObjectHashMap<>();
+
+    /** reusable list of the persons that are infected in one evaluation in the incremental mode. */
+    private TIntArrayList infectedBuffer = new TIntArrayList();
+
+    /** the infection record that is reused for every call of infectPeople. */
+    private final InfectionRecord reusableInfectionRecord = new InfectionRecord(null, null);
+
+    /** the exposures of the current evaluation, reported to the monitors as one batch. */
+    private final ExposureBatch exposureBatch = new ExposureBatch(16);
+
+    /** the sampler for the infected persons among the susceptible persons, drawing from the model's stream. */
+    private InfectionSampler infectionSampler = null;
+
+    /** the kernel for the inner loops of the transmission calculation, or null when the subclass uses its own loops. */
+    private TransmissionKernel transmissionKernel = null;
+
+    /** the persons of the (sub)location that is calculated, gathered for the transmission kernel. */
+    private SublocationArrays sublocationArrays = new SublocationArrays(64);
+
+    /** the length of the evaluation window of the deferred mode in hours, or 0 when the deferred mode is not used. */
+    private double deferredWindowH = 0.0;
+
+    /** the interval logs of the sublocations with infected persons in the deferred mode. */
+    private TLongObjectMap<SublocationIntervalLog> intervalLogs = new TLongObjectHashMap<>();
+
+    /** the base seed for the random generators per sublocation and window in the deferred mode. */
+    private long deferredSeed = 0L;
+
+    /** the number of threads for the evaluation of the windows in the deferred mode. */
+    private int deferredParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** the pool for the evaluation of the windows in the deferred mode, created on first use. */
+    private transient ForkJoinPool deferredPool = null;
+
+    /** the start time of the current window in the deferred mode. */
+    private double windowStart = 0.0;
+
+    /** whether the evaluation of the current window has been scheduled. */
+    private boolean windowScheduled = false;
+
+    /** the strains and the strain state of the persons in the multi-strain mode; null when the mode is not used. */
+    private StrainTable strainTable = null;
+
+    /** the accumulators per sublocation in the multi-strain mode. */
+    private TLongObjectMap<MultiStrainPressure> strainPressureMap = new TLongObjectHashMap<>();
+
+    /** the kernel for the home sublocations, or null when the homes use the generic path. */
+    private HouseholdKernel householdKernel = null;
+
+    /** reusable list of the susceptible persons in a household. */
+    private TIntArrayList householdBuffer = new TIntArrayList();
+
     /**
      * Create a new Transmission model.
      * @param model MedlabsModelInterface; the Medlabs model
@@ -88,6 +182,16 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
      */
     public void calculateTransmissionEnter(final Location location, final short subLocationIndex, final Person person)
     {
+        if (this.householdKernel != null)
+        {
+            int household = this.householdKernel.householdOf(location, subLocationIndex, person);
+            if (household >= 0)
+            {
+                evaluateHousehold(location, subLocationIndex, household);
+                this.householdKernel.arrive(household, person);
+                return;
+            }
+        }
         long key = makeCacheKey(location, subLocationIndex);
         if (location.getLocationTypeId() >= 0)
         {
@@ -96,6 +200,22 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
         if (location.getLocationTypeId() < 0) // Less than 0 means no infections (e.g., walk, drive, bike).
             return;
 
+        if (this.strainTable != null)
+        {
+            enterMultiStrain(location, subLocationIndex, key, person);
+            return;
+        }
+        if (this.deferredWindowH > 0.0)
+        {
+            enterDeferred(location, subLocationIndex, key, person);
+            return;
+        }
+        if (this.infectivityCurve != null)
+        {
+            enterIncremental(location, subLocationIndex, key, person);
+            return;
+        }
+
         if (!isSublocationInfected(key))
         {
             // check if the newly entered person is infectious
@@ -144,6 +264,17 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
      */
     public void calculateTransmissionLeave(final Location location, final short subLocationIndex, final Person person)
     {
+        if (this.householdKernel != null)
+        {
+            int household = this.householdKernel.householdOf(location, subLocationIndex, person);
+            if (household >= 0)
+            {
+                evaluateHousehold(location, subLocationIndex, household);
+                this.householdKernel.depart(household, person);
+                reportHouseholdOffspring(location, person);
+                return;
+            }
+        }
         long key = makeCacheKey(location, subLocationIndex);
         if (location.getLocationTypeId() >= 0)
         {
@@ -152,6 +283,24 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
         if (location.getLocationTypeId() < 0)
             return;
 
+        if (this.strainTable != null)
+        {
+            leaveMultiStrain(location, subLocationIndex, key, person);
+            return;
+        }
+        if (this.deferredWindowH > 0.0)
+        {
+            SublocationIntervalLog log = this.intervalLogs.get(key);
+            if (log != null)
+                log.leave(person.getId(), this.simulator.getSimulatorTime().doubleValue());
+            return;
+        }
+        if (this.infectivityCurve != null)
+        {
+            leaveIncremental(location, subLocationIndex, key, person);
+            return;
+        }
+
         if (!isSublocationInfected(key))
         {
             return;
@@ -210,6 +359,792 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
         }
     }
 
+    /**
+     * Switch to the incremental mode, in which each sublocation with infected persons keeps an accumulator of the infectious
+     * pressure, and the infectivity of an infected person follows the given curve as a function of the time since exposure.
+     * The mode should be set before the first person enters a location.
+     * @param curve InfectivityCurve; the infectivity curve, or null to switch back to the mode that uses infectPeople
+     * @param exposedPhase DiseasePhase; the disease phase for persons who get exposed
+     * @param rate double; the transmission rate per unit of infectivity-hours per m2, see getInfectionProbability
+     */
+    public void setIncrementalMode(final InfectivityCurve curve, final DiseasePhase exposedPhase, final double rate)
+    {
+        this.infectivityCurve = curve;
+        this.incrementalExposedPhase = exposedPhase;
+        this.transmissionRate = rate;
+        this.pressureMap.clear();
+        this.deferredWindowH = 0.0;
+        this.intervalLogs.clear();
+        this.strainTable = null;
+        this.strainPressureMap.clear();
+        if (curve == null)
+            this.householdKernel = null;
+    }
+
+    /**
+     * @return whether the incremental mode is used
+     */
+    public boolean isIncremental()
+    {
+        return this.infectivityCurve != null && this.deferredWindowH == 0.0;
+    }
+
+    /**
+     * Switch to the multi-strain mode, in which several strains of the disease spread at the same time. The strains, with their
+     * infectivity curves and cross-immunity, are taken from the strain table, which also holds the strain state of the
+     * persons. Persons who are infected outside of the transmission model, e.g., at the start of the simulation, should be
+     * registered with StrainTable.infect. The mode should be set before the first person enters a location. Call
+     * setIncrementalMode to leave the multi-strain mode.
+     * @param strains StrainTable; the strains of the disease, with at least one strain
+     * @param exposedPhase DiseasePhase; the disease phase for persons who get exposed, for all strains
+     * @param rate double; the transmission rate per unit of infectivity-hours per m2, see getInfectionProbability; the
+     *            infectious pressure of each strain is multiplied by the transmissibility of the strain
+     * @throws MedlabsRuntimeException when the strain table has no strains
+     */
+    public void setMultiStrainMode(final StrainTable strains, final DiseasePhase exposedPhase, final double rate)
+    {
+        Throw.whenNull(strains, "strains cannot be null in the multi-strain mode");
+        Throw.when(strains.getNumberOfStrains() == 0, MedlabsRuntimeException.class, "strain table has no strains");
+        setIncrementalMode(null, exposedPhase, rate);
+        this.strainTable = strains;
+    }
+
+    /**
+     * @return whether the multi-strain mode is used
+     */
+    public boolean isMultiStrain()
+    {
+        return this.strainTable != null;
+    }
+
+    /**
+     * @return the strains and the strain state of the persons in the multi-strain mode, or null when the mode is not used
+     */
+    public StrainTable getStrainTable()
+    {
+        return this.strainTable;
+    }
+
+    /**
+     * Switch to the deferred mode, in which enter and leave events are only recorded in an interval log per sublocation, and
+     * the infections are calculated in parallel for all sublocations at the end of each time window. The infectivity of an
+     * infected person follows the given curve, and the probability of infection follows from getInfectionProbability, which
+     * should therefore not change any state. The mode should be set before the first person enters a location. Call
+     * setIncrementalMode to leave the deferred mode.
+     * @param curve InfectivityCurve; the infectivity curve
+     * @param exposedPhase DiseasePhase; the disease phase for persons who get exposed
+     * @param rate double; the transmission rate per unit of infectivity-hours per m2, see getInfectionProbability
+     * @param windowH double; the length of the time window in hours, e.g., 1.0
+     * @throws MedlabsRuntimeException when curve is null or windowH is not positive
+     */
+    public void setDeferredMode(final InfectivityCurve curve, final DiseasePhase exposedPhase, final double rate,
+            final double windowH)
+    {
+        Throw.whenNull(curve, "curve cannot be null in the deferred mode");
+        Throw.when(windowH <= 0.0, MedlabsRuntimeException.class, "windowH should be positive");
+        setIncrementalMode(curve, exposedPhase, rate);
+        this.deferredWindowH = windowH;
+        this.deferredSeed = this.model.getRandomStream().nextLong();
+    }
+
+    /**
+     * @return whether the deferred mode is used
+     */
+    public boolean isDeferred()
+    {
+        return this.deferredWindowH > 0.0;
+    }
+
+    /**
+     * Set the number of threads for the evaluation of the windows in the deferred mode. The results do not depend on it.
+     * @param parallelism int; the number of threads, 1 for an evaluation in the simulation thread
+     * @throws MedlabsRuntimeException when parallelism is less than 1
+     */
+    public void setDeferredParallelism(final int parallelism)
+    {
+        Throw.when(parallelism < 1, MedlabsRuntimeException.class, "parallelism should be at least 1");
+        this.deferredParallelism = parallelism;
+        if (this.deferredPool != null)
+        {
+            this.deferredPool.shutdown();
+            this.deferredPool = null;
+        }
+    }
+
+    /**
+     * Deferred mode: a person enters a sublocation. The interval log is only created when an infected person enters; the
+     * persons who are already present are added to it at that moment.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param key long; the cache key of the sublocation
+     * @param person Person; the person entering
+     */
+    private void enterDeferred(final Location location, final short subLocationIndex, final long key, final Person person)
+    {
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        SublocationIntervalLog log = this.intervalLogs.get(key);
+        if (log == null)
+        {
+            if (!person.getDiseasePhase().isIll())
+                return;
+            log = new SublocationIntervalLog(location, subLocationIndex);
+            this.intervalLogs.put(key, log);
+            TIntObjectMap<Person> personMap = getModel().getPersonMap();
+            for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
+            {
+                Person p = personMap.get(it.next());
+                if (p.getCurrentSubLocationIndex() == subLocationIndex)
+                    log.enter(p.getId(), SublocationArrays.flag(p), p.getExposureTime(), now);
+            }
+            if (!this.windowScheduled)
+            {
+                // evaluate at whole multiples of the window length
+                this.windowScheduled = true;
+                this.windowStart = this.deferredWindowH * Math.floor(now / this.deferredWindowH);
+                this.simulator.scheduleEventAbs(this.windowStart + this.deferredWindowH, this, "evaluateWindow", null);
+            }
+        }
+        log.enter(person.getId(), SublocationArrays.flag(person), person.getExposureTime(), now);
+    }
+
+    /**
+     * Schedulable method that evaluates the interval logs of all sublocations for the window that ends now, applies the
+     * resulting exposures in the order of the sublocation keys, and starts a new window for the sublocations where an infected
+     * person is still present.
+     */
+    protected void evaluateWindow()
+    {
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        long[] keys = this.intervalLogs.keys();
+        Arrays.sort(keys);
+        SublocationIntervalLog[] logs = new SublocationIntervalLog[keys.length];
+        long[] seeds = new long[keys.length];
+        long windowIndex = Math.round(now / this.deferredWindowH);
+        for (int i = 0; i < keys.length; i++)
+        {
+            logs[i] = this.intervalLogs.get(keys[i]);
+            seeds[i] = this.deferredSeed ^ (keys[i] * 0x9E3779B97F4A7C15L) ^ (windowIndex * 0xC2B2AE3D27D4EB4FL);
+        }
+        if (this.deferredParallelism > 1 && logs.length > 1)
+        {
+            if (this.deferredPool == null)
+                this.deferredPool = new ForkJoinPool(this.deferredParallelism);
+            this.deferredPool.invoke(new WindowTask(this, logs, seeds, this.windowStart, now, 0, logs.length));
+        }
+        else
+        {
+            for (int i = 0; i < logs.length; i++)
+            {
+                evaluateLog(logs[i], seeds[i], this.windowStart, now);
+            }
+        }
+
+        TIntObjectMap<Person> personMap = getModel().getPersonMap();
+        for (int i = 0; i < logs.length; i++)
+        {
+            SublocationIntervalLog log = logs[i];
+            this.exposureBatch.start(log.getLocation());
+            for (int k = 0; k < log.getInfected().size(); k++)
+            {
+                Person exposedPerson = personMap.get(log.getInfected().get(k));
+                // the person might have been exposed in another sublocation in the same window
+                if (exposedPerson.getDiseasePhase().isSusceptible())
+                    exposePerson(exposedPerson, personMap.get(log.getInfectors().get(k)), log.getLocation(),
+                            this.incrementalExposedPhase);
+            }
+            reportExposures();
+            TIntList departed = log.getDepartedInfectious();
+            for (int k = 0; k < departed.size(); k++)
+            {
+                int infectiousId = departed.get(k);
+                int nrInfected = this.infectionsPerInfectiousPersonMap.containsKey(infectiousId)
+                        ? this.infectionsPerInfectiousPersonMap.remove(infectiousId) : 0;
+                getModel().getDiseaseMonitor().reportOffspring(personMap.get(infectiousId), log.getLocation(), nrInfected);
+            }
+            log.restart(now, personMap);
+            if (log.getNumberInfectious() == 0)
+                this.intervalLogs.remove(keys[i]);
+        }
+
+        this.windowStart = now;
+        this.windowScheduled = !this.intervalLogs.isEmpty();
+        if (this.windowScheduled)
+            this.simulator.scheduleEventRel(this.deferredWindowH, this, "evaluateWindow", null);
+    }
+
+    /**
+     * Evaluate one interval log of the deferred mode. This method can be called from several threads at the same time.
+     * @param log SublocationIntervalLog; the interval log of a sublocation
+     * @param seed long; the seed for the random generator of the sublocation and window
+     * @param start double; the start of the window
+     * @param end double; the end of the window
+     */
+    private void evaluateLog(final SublocationIntervalLog log, final long seed, final double start, final double end)
+    {
+        log.evaluate(start, end, this.infectivityCurve,
+                dose -> getInfectionProbability(log.getLocation(), log.getSubLocationIndex(), dose),
+                new SplittableRandom(seed));
+    }
+
+    /**
+     * WindowTask evaluates a range of interval logs of the deferred mode, splitting the range over the threads of the pool.
+     */
+    private static final class WindowTask extends RecursiveAction
+    {
+        /** */
+        private static final long serialVersionUID = 20240601L;
+
+        /** the number of logs below which the range is evaluated in the current thread. */
+        private static final int THRESHOLD = 16;
+
+        /** the transmission model. */
+        private final DiseaseTransmission transmission;
+
+        /** the logs to evaluate. */
+        private final SublocationIntervalLog[] logs;
+
+        /** the seeds of the logs. */
+        private final long[] seeds;
+
+        /** the start of the window. */
+        private final double start;
+
+        /** the end of the window. */
+        private final double end;
+
+        /** the first index of the range. */
+        private final int from;
+
+        /** the index after the last index of the range. */
+        private final int to;
+
+        /**
+         * Create a task for a range of logs.
+         * @param transmission DiseaseTransmission; the transmission model
+         * @param logs SublocationIntervalLog[]; the logs to evaluate
+         * @param seeds long[]; the seeds of the logs
+         * @param start double; the start of the window
+         * @param end double; the end of the window
+         * @param from int; the first index of the range
+         * @param to int; the index after the last index of the range
+         */
+        WindowTask(final DiseaseTransmission transmission, final SublocationIntervalLog[] logs, final long[] seeds,
+                final double start, final double end, final int from, final int to)
+        {
+            this.transmission = transmission;
+            this.logs = logs;
+            this.seeds = seeds;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void compute()
+        {
+            if (this.to - this.from <= THRESHOLD)
+            {
+                for (int i = this.from; i < this.to; i++)
+                {
+                    this.transmission.evaluateLog(this.logs[i], this.seeds[i], this.start, this.end);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new WindowTask(this.transmission, this.logs, this.seeds, this.start, this.end, this.from, middle),
+                    new WindowTask(this.transmission, this.logs, this.seeds, this.start, this.end, middle, this.to));
+        }
+    }
+
+    /**
+     * @return the infectivity curve of the incremental mode, or null when the incremental mode is not used
+     */
+    public InfectivityCurve getInfectivityCurve()
+    {
+        return this.infectivityCurve;
+    }
+
+    /**
+     * Incremental mode: a person enters a sublocation. The accumulator is only created when an infected person enters; the
+     * persons who are already present are added to it at that moment.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param key long; the cache key of the sublocation
+     * @param person Person; the person entering
+     */
+    private void enterIncremental(final Location location, final short subLocationIndex, final long key, final Person person)
+    {
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        InfectiousPressure pressure = this.pressureMap.get(key);
+        if (pressure == null)
+        {
+            double age = now - person.getExposureTime();
+            if (!person.getDiseasePhase().isIll() || Double.isNaN(age) || age >= this.infectivityCurve.getEndTimeH())
+                return;
+            pressure = new InfectiousPressure(this.infectivityCurve, now);
+            this.pressureMap.put(key, pressure);
+            TIntObjectMap<Person> personMap = getModel().getPersonMap();
+            for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
+            {
+                Person p = personMap.get(it.next());
+                if (p.getCurrentSubLocationIndex() == subLocationIndex)
+                    addToPressure(pressure, p);
+            }
+        }
+        else
+        {
+            evaluatePressure(location, subLocationIndex, pressure, now);
+        }
+        addToPressure(pressure, person);
+    }
+
+    /**
+     * Incremental mode: a person leaves a sublocation. The accumulator is removed when no infected persons remain.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param key long; the cache key of the sublocation
+     * @param person Person; the person leaving
+     */
+    private void leaveIncremental(final Location location, final short subLocationIndex, final long key, final Person person)
+    {
+        InfectiousPressure pressure = this.pressureMap.get(key);
+        if (pressure == null)
+            return;
+        evaluatePressure(location, subLocationIndex, pressure, this.simulator.getSimulatorTime().doubleValue());
+        if (pressure.removeContributor(person.getId(), person.getExposureTime()))
+        {
+            reportOffspring(person, location);
+            if (pressure.getNumberOfContributors() == 0)
+                this.pressureMap.remove(key);
+        }
+        else
+        {
+            pressure.removeSusceptible(person.getId());
+        }
+    }
+
+    /**
+     * Incremental mode: add a person who is present in the sublocation to the accumulator, as a susceptible person or as an
+     * infected person who contributes to the infectious pressure. Recovered, immune and dead persons are not added.
+     * @param pressure InfectiousPressure; the accumulator of the sublocation
+     * @param person Person; the person to add
+     */
+    private void addToPressure(final InfectiousPressure pressure, final Person person)
+    {
+        if (person.getDiseasePhase().isSusceptible())
+            pressure.addSusceptible(person.getId());
+        else if (person.getDiseasePhase().isIll())
+            pressure.addContributor(person.getId(), person.getExposureTime());
+    }
+
+    /**
+     * Incremental mode: integrate the infectious pressure of the sublocation up to now, and infect susceptible persons with
+     * the probability that follows from the integrated pressure. Newly infected persons start contributing to the pressure.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param pressure InfectiousPressure; the accumulator of the sublocation
+     * @param now double; the current simulation time
+     */
+    private void evaluatePressure(final Location location, final short subLocationIndex, final InfectiousPressure pressure,
+            final double now)
+    {
+        pressure.advance(now);
+        double integral = pressure.takeIntegral();
+        int nrSusceptibles = pressure.getNumberOfSusceptibles();
+        if (integral <= 0.0 || nrSusceptibles == 0 || pressure.getNumberOfContributors() == 0)
+            return;
+        double pInfection = getInfectionProbability(location, subLocationIndex, integral);
+        if (pInfection <= 0.0)
+            return;
+        this.infectedBuffer.resetQuick();
+        sampleInfected(nrSusceptibles, pInfection, this.infectedBuffer);
+        // translate the indices first, since exposing a person changes the order of the susceptible persons
+        for (int i = 0; i < this.infectedBuffer.size(); i++)
+        {
+            this.infectedBuffer.set(i, pressure.getSusceptible(this.infectedBuffer.get(i)));
+        }
+        this.exposureBatch.start(location);
+        for (int i = 0; i < this.infectedBuffer.size(); i++)
+        {
+            Person exposedPerson = getModel().getPersonMap().get(this.infectedBuffer.get(i));
+            int infectiousId = pressure.drawContributor(this.model.getRandomStream().nextDouble());
+            exposePerson(exposedPerson, getModel().getPersonMap().get(infectiousId), location, this.incrementalExposedPhase);
+            pressure.removeSusceptible(exposedPerson.getId());
+            pressure.addContributor(exposedPerson.getId(), exposedPerson.getExposureTime());
+        }
+        reportExposures();
+    }
+
+    /**
+     * Set the kernel that handles the enter and leave events in the home sublocations of the households, in the incremental
+     * or deferred mode. The kernel should be built with HouseholdKernel.build after all persons have been created, and before
+     * the first infected person enters a home.
+     * @param kernel HouseholdKernel; the household kernel, or null to use the generic path for the homes
+     * @throws MedlabsRuntimeException when the kernel is not null and neither the incremental nor the deferred mode is used
+     */
+    public void setHouseholdKernel(final HouseholdKernel kernel)
+    {
+        Throw.when(kernel != null && this.infectivityCurve == null, MedlabsRuntimeException.class,
+                "the household kernel needs the incremental or deferred mode");
+        this.householdKernel = kernel;
+    }
+
+    /**
+     * @return the kernel for the home sublocations, or null when the homes use the generic path
+     */
+    public HouseholdKernel getHouseholdKernel()
+    {
+        return this.householdKernel;
+    }
+
+    /**
+     * Household kernel: calculate the dose in the home of the household since the last evaluation, and infect the present
+     * susceptible persons with the probability that follows from the dose. The infectious person of each exposure is drawn
+     * with a probability proportional to its contribution to the dose.
+     * @param location Location; the home location
+     * @param subLocationIndex short; the home sublocation index
+     * @param household int; the household
+     */
+    private void evaluateHousehold(final Location location, final short subLocationIndex, final int household)
+    {
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        double from = this.householdKernel.swapLastTime(household, now);
+        if (now <= from)
+            return;
+        double dose = this.householdKernel.dose(household, from, now, this.infectivityCurve);
+        if (dose <= 0.0)
+            return;
+        double pInfection = getInfectionProbability(location, subLocationIndex, dose);
+        if (pInfection <= 0.0)
+            return;
+        this.householdBuffer.resetQuick();
+        this.householdKernel.gatherSusceptibles(household, this.householdBuffer);
+        this.exposureBatch.start(location);
+        for (int i = 0; i < this.householdBuffer.size(); i++)
+        {
+            if (this.model.getRandomStream().nextDouble() < pInfection)
+            {
+                Person infectiousPerson = this.householdKernel.pickInfectious(household, from, now, this.infectivityCurve,
+                        this.model.getRandomStream().nextDouble() * dose);
+                exposePerson(getModel().getPersonMap().get(this.householdBuffer.get(i)), infectiousPerson, location,
+                        this.incrementalExposedPhase);
+            }
+        }
+        reportExposures();
+    }
+
+    /**
+     * Household kernel: report the offspring of a person who leaves a home while infectious, as in the incremental mode.
+     * @param location Location; the home location
+     * @param person Person; the person leaving
+     */
+    private void reportHouseholdOffspring(final Location location, final Person person)
+    {
+        if (person.getDiseasePhase().isSusceptible())
+            return;
+        double age = this.simulator.getSimulatorTime().doubleValue() - person.getExposureTime();
+        if (Double.isNaN(age) || age >= this.infectivityCurve.getEndTimeH())
+            return;
+        int nrInfected = this.infectionsPerInfectiousPersonMap.containsKey(person.getId())
+                ? this.infectionsPerInfectiousPersonMap.remove(person.getId()) : 0;
+        getModel().getDiseaseMonitor().reportOffspring(person, location, nrInfected);
+    }
+
+    /**
+     * Multi-strain mode: a person enters a sublocation. The accumulator is only created when an infected person enters; the
+     * persons who are already present are added to it at that moment.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param key long; the cache key of the sublocation
+     * @param person Person; the person entering
+     */
+    private void enterMultiStrain(final Location location, final short subLocationIndex, final long key, final Person person)
+    {
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        MultiStrainPressure pressure = this.strainPressureMap.get(key);
+        if (pressure == null)
+        {
+            int strain = this.strainTable.getCurrentStrain(person.getId());
+            if (strain < 0 || !person.getDiseasePhase().isIll())
+                return;
+            double age = now - person.getExposureTime();
+            if (Double.isNaN(age) || age >= this.strainTable.getStrain(strain).getInfectivityCurve().getEndTimeH())
+                return;
+            pressure = new MultiStrainPressure(this.strainTable, now);
+            this.strainPressureMap.put(key, pressure);
+            TIntObjectMap<Person> personMap = getModel().getPersonMap();
+            for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
+            {
+                Person p = personMap.get(it.next());
+                if (p.getCurrentSubLocationIndex() == subLocationIndex)
+                    addToStrainPressure(pressure, p);
+            }
+        }
+        else
+        {
+            evaluateStrains(location, subLocationIndex, pressure, now);
+        }
+        addToStrainPressure(pressure, person);
+    }
+
+    /**
+     * Multi-strain mode: a person leaves a sublocation. The accumulator is removed when no infected persons remain.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param key long; the cache key of the sublocation
+     * @param person Person; the person leaving
+     */
+    private void leaveMultiStrain(final Location location, final short subLocationIndex, final long key, final Person person)
+    {
+        MultiStrainPressure pressure = this.strainPressureMap.get(key);
+        if (pressure == null)
+            return;
+        evaluateStrains(location, subLocationIndex, pressure, this.simulator.getSimulatorTime().doubleValue());
+        if (pressure.removeContributor(person.getId(), person.getExposureTime()))
+        {
+            reportOffspring(person, location);
+            if (pressure.getNumberOfContributors() == 0)
+                this.strainPressureMap.remove(key);
+        }
+        else
+        {
+            pressure.removeCandidate(person.getId());
+        }
+    }
+
+    /**
+     * Multi-strain mode: add a person who is present in the sublocation to the accumulator, as a contributor to the pressure
+     * of the strain of a current infection while the person is ill, or as a candidate when the person is not infected
+     * (anymore). Dead persons are not added.
+     * @param pressure MultiStrainPressure; the accumulator of the sublocation
+     * @param person Person; the person to add
+     */
+    private void addToStrainPressure(final MultiStrainPressure pressure, final Person person)
+    {
+        if (person.getDiseasePhase().isDead())
+            return;
+        int strain = this.strainTable.getCurrentStrain(person.getId());
+        if (strain < 0 || !person.getDiseasePhase().isIll()
+                || !pressure.addContributor(strain, person.getId(), person.getExposureTime()))
+            pressure.addCandidate(person.getId());
+    }
+
+    /**
+     * Multi-strain mode: integrate the infectious pressure of all strains of the sublocation up to now, and infect candidates
+     * per strain. The candidates are first drawn with the probability for a person without protection, and a drawn person is
+     * then accepted with the ratio between the probability for the susceptibility of the person and that probability. This
+     * gives every candidate exactly the probability for its own susceptibility, with a number of random draws proportional to
+     * the number of infections. The strains are evaluated in the order of their index; a person who is infected by one strain
+     * is no longer a candidate for the next strains. Newly infected persons start contributing to the pressure of their strain.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param pressure MultiStrainPressure; the accumulator of the sublocation
+     * @param now double; the current simulation time
+     */
+    private void evaluateStrains(final Location location, final short subLocationIndex, final MultiStrainPressure pressure,
+            final double now)
+    {
+        pressure.advance(now);
+        TIntObjectMap<Person> personMap = getModel().getPersonMap();
+        this.exposureBatch.start(location);
+        for (int s = 0; s < this.strainTable.getNumberOfStrains(); s++)
+        {
+            double integral = pressure.takeIntegral(s);
+            int nrCandidates = pressure.getNumberOfCandidates();
+            int nrContributors = pressure.getNumberOfContributors(s);
+            if (integral <= 0.0 || nrCandidates == 0 || nrContributors == 0)
+                continue;
+            double pMax = getInfectionProbability(location, subLocationIndex,
+                    this.strainTable.getStrain(s).getTransmissibility() * integral);
+            if (pMax <= 0.0)
+                continue;
+            this.infectedBuffer.resetQuick();
+            sampleInfected(nrCandidates, pMax, this.infectedBuffer);
+            // translate the indices first, since exposing a person changes the order of the candidates
+            for (int i = 0; i < this.infectedBuffer.size(); i++)
+            {
+                this.infectedBuffer.set(i, pressure.getCandidate(this.infectedBuffer.get(i)));
+            }
+            for (int i = 0; i < this.infectedBuffer.size(); i++)
+            {
+                int exposedId = this.infectedBuffer.get(i);
+                double susceptibility = this.strainTable.getSusceptibility(exposedId, s);
+                if (susceptibility <= 0.0)
+                    continue;
+                if (susceptibility < 1.0
+                        && this.model.getRandomStream().nextDouble() * pMax >= 1.0 - Math.pow(1.0 - pMax, susceptibility))
+                    continue;
+                Person exposedPerson = personMap.get(exposedId);
+                int infectiousId = pressure.drawContributor(s, this.model.getRandomStream().nextDouble());
+                this.strainTable.infect(exposedId, s);
+                exposePerson(exposedPerson, personMap.get(infectiousId), location, this.incrementalExposedPhase);
+                pressure.removeCandidate(exposedId);
+                pressure.addContributor(s, exposedId, exposedPerson.getExposureTime());
+            }
+        }
+        reportExposures();
+    }
+
+    /**
+     * Return the probability of infection for a susceptible person in the sublocation, given the integral of the infectious
+     * pressure over the elapsed interval. The default implementation uses 1 - exp(-rate * correctionFactorArea * integral /
+     * area), where area is the surface of the sublocation. Subclasses can override this method for another dose-response
+     * relation.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     * @param pressureIntegral double; the integral of the infectious pressure in infectivity-hours
+     * @return double; the probability of infection for a susceptible person over the interval
+     */
+    protected double getInfectionProbability(final Location location, final short subLocationIndex,
+            final double pressureIntegral)
+    {
+        double area = location.getTotalSurfaceM2() / Math.max(1, location.getNumberOfSubLocations());
+        return 1.0 - Math.exp(-this.transmissionRate * location.getLocationType().getCorrectionFactorArea() * pressureIntegral
+                / Math.max(1.0, area));
+    }
+
+    /**
+     * Draw which of n susceptible persons get infected when each of them is infected independently with probability p. The
+     * draw uses geometric skip-ahead, so the number of random draws is proportional to the number of infections rather than
+     * to the number of susceptible persons. Subclasses should use this method in infectPeople instead of drawing a uniform
+     * number for every susceptible person.
+     * @param nrSusceptibles int; the number of susceptible persons
+     * @param pInfection double; the probability of infection per susceptible person
+     * @param indices TIntList; the list to which the indices (0 to nrSusceptibles-1) of the infected persons are added
+     * @return int; the number of infected persons
+     */
+    protected int sampleInfected(final int nrSusceptibles, final double pInfection, final TIntList indices)
+    {
+        return getInfectionSampler().sampleIndices(nrSusceptibles, pInfection, indices);
+    }
+
+    /**
+     * Draw the number of infections among n susceptible persons, when each of them is infected independently with
+     * probability p, i.e., a draw from a Binomial(n, p) distribution.
+     * @param nrSusceptibles int; the number of susceptible persons
+     * @param pInfection double; the probability of infection per susceptible person
+     * @return int; the number of infected persons
+     */
+    protected int sampleNumberInfected(final int nrSusceptibles, final double pInfection)
+    {
+        return getInfectionSampler().sampleCount(nrSusceptibles, pInfection);
+    }
+
+    /**
+     * Return the sampler for infections. The sampler is created on first use, since the model's stream might not exist yet
+     * when the transmission model is constructed.
+     * @return InfectionSampler; the sampler that draws from the model's stream
+     */
+    public InfectionSampler getInfectionSampler()
+    {
+        if (this.infectionSampler == null)
+            this.infectionSampler = new InfectionSampler(this.model.getRandomStream());
+        return this.infectionSampler;
+    }
+
+    /**
+     * Set the kernel that carries out the inner loops of the transmission calculation over the persons of a (sub)location.
+     * Subclasses that support kernels use it in infectPeople when it is not null.
+     * @param transmissionKernel TransmissionKernel; the kernel, or null to use the loops of the subclass
+     */
+    public void setTransmissionKernel(final TransmissionKernel transmissionKernel)
+    {
+        this.transmissionKernel = transmissionKernel;
+    }
+
+    /**
+     * @return the kernel for the inner loops of the transmission calculation, or null when the subclass uses its own loops
+     */
+    public TransmissionKernel getTransmissionKernel()
+    {
+        return this.transmissionKernel;
+    }
+
+    /**
+     * Gather the persons with the given ids into primitive arrays for the transmission kernel. The returned arrays are reused
+     * by the next call.
+     * @param personIds TIntSet; the ids of the persons in the (sub)location
+     * @return SublocationArrays; the gathered ids, exposure times and phase flags of the persons
+     */
+    protected SublocationArrays gatherPersons(final TIntSet personIds)
+    {
+        this.sublocationArrays.gather(personIds, this.model.getPersonMap());
+        return this.sublocationArrays;
+    }
+
+    /**
+     * Notify the transmission model that the disease phase of a person changed outside of an exposure in a location, e.g.,
+     * through a transition of the disease progression, or when a person loses immunity or gets vaccinated. In the incremental
+     * and multi-strain modes, the accumulator of the sublocation of the person is first evaluated up to now with the old
+     * phase; a contributor who is no longer ill (recovered, immune or dead) then stops contributing and the offspring of the
+     * contributor is reported, and a person who became susceptible is added to the susceptible persons or candidates. The
+     * accumulator is removed when no contributors remain. In the other modes, the method does nothing.
+     * @param person Person; the person whose disease phase changed
+     */
+    public void notifyPhaseChange(final Person person)
+    {
+        Location location = person.getCurrentLocation();
+        if (location == null || (this.strainTable == null && this.infectivityCurve == null))
+            return;
+        short subLocationIndex = person.getCurrentSubLocationIndex();
+        long key = makeCacheKey(location, subLocationIndex);
+        double now = this.simulator.getSimulatorTime().doubleValue();
+        DiseasePhase phase = person.getDiseasePhase();
+        if (this.strainTable != null)
+        {
+            MultiStrainPressure pressure = this.strainPressureMap.get(key);
+            if (pressure == null)
+                return;
+            evaluateStrains(location, subLocationIndex, pressure, now);
+            if (phase.isIll())
+                return;
+            if (pressure.removeContributor(person.getId(), person.getExposureTime()))
+            {
+                reportOffspring(person, location);
+                if (!phase.isDead())
+                    pressure.addCandidate(person.getId());
+                if (pressure.getNumberOfContributors() == 0)
+                    this.strainPressureMap.remove(key);
+            }
+            else if (phase.isDead())
+                pressure.removeCandidate(person.getId());
+            return;
+        }
+        InfectiousPressure pressure = this.pressureMap.get(key);
+        if (pressure == null)
+            return;
+        evaluatePressure(location, subLocationIndex, pressure, now);
+        if (phase.isIll())
+            return;
+        if (pressure.removeContributor(person.getId(), person.getExposureTime()))
+        {
+            reportOffspring(person, location);
+            if (phase.isSusceptible())
+                pressure.addSusceptible(person.getId());
+            if (pressure.getNumberOfContributors() == 0)
+                this.pressureMap.remove(key);
+        }
+        else if (phase.isSusceptible())
+            pressure.addSusceptible(person.getId());
+        else
+            pressure.removeSusceptible(person.getId());
+    }
+
+    /**
+     * Report the number of persons that a contributor infected in the sublocation it stops contributing to, and forget the
+     * count of the contributor.
+     * @param person Person; the contributor
+     * @param location Location; the location of the sublocation
+     */
+    private void reportOffspring(final Person person, final Location location)
+    {
+        int nrInfected = this.infectionsPerInfectiousPersonMap.containsKey(person.getId())
+                ? this.infectionsPerInfectiousPersonMap.remove(person.getId()) : 0;
+        getModel().getDiseaseMonitor().reportOffspring(person, location, nrInfected);
+    }
+
     /**
      * Calculate the disease spread for all persons present in this location during the 'duration' in hours. The method could
      * return quickly when the delta-time is very short (e.g, less than a minute but be aware that spread in public transport
@@ -221,6 +1156,20 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
      */
     public abstract InfectionRecord infectPeople(Location location, TIntSet personsInSublocation, double duration);
 
+    /**
+     * Return the infection record for a new calculation in infectPeople. The record is cleared and reused for every call, so
+     * infectPeople does not allocate a new record and new lists each time a person enters or leaves an infected sublocation.
+     * The record is only valid until the next call; the transmission calculation runs on the simulator thread only.
+     * @param exposedPhase DiseasePhase; the disease phase that the person will get after 'successful' exposure
+     * @param location Location; the location of the calculation
+     * @return InfectionRecord; the cleared infection record
+     */
+    protected InfectionRecord getInfectionRecord(final DiseasePhase exposedPhase, final Location location)
+    {
+        this.reusableInfectionRecord.reset(exposedPhase, location);
+        return this.reusableInfectionRecord;
+    }
+
     /**
      * Carry out the actual exposure as the result of a transmission, and trigger all associated statistics.
      * @param infectionRecord InfectionRecord; information about the infected and infectious persons in the location.
@@ -229,10 +1178,10 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
     {
         TIntList infectedPersons = infectionRecord.getInfectedPersons();
         TIntList infectiousPersons = infectionRecord.getInfectiousPersons();
+        this.exposureBatch.start(infectionRecord.getLocation());
         for (int i = 0; i < infectedPersons.size(); i++)
         {
             Person exposedPerson = getModel().getPersonMap().get(infectedPersons.get(i));
-            exposedPerson.setExposureTime(this.simulator.getSimulatorTime().floatValue());
 
             Person infectiousPerson = null;
             if (infectiousPersons.size() == 1)
@@ -248,13 +1197,48 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
             {
                 System.err.println("Exposure took place, but no infectious person in location!");
             }
-            getModel().getDiseaseMonitor().reportInfection(exposedPerson, infectiousPerson, infectionRecord.getLocation());
-            this.model.getDiseaseProgression().expose(exposedPerson, infectionRecord.getExposedPhase());
-            this.model.getPersonMonitor().reportExposure(exposedPerson, infectionRecord.getLocation(), infectiousPerson);
-            this.infectionsPerInfectiousPersonMap.putIfAbsent(infectiousPerson.getId(), 0);
-            this.infectionsPerInfectiousPersonMap.put(infectiousPerson.getId(),
-                    1 + this.infectionsPerInfectiousPersonMap.get(infectiousPerson.getId()));
+            exposePerson(exposedPerson, infectiousPerson, infectionRecord.getLocation(), infectionRecord.getExposedPhase());
         }
+        reportExposures();
+    }
+
+    /**
+     * Expose one person, and add the exposure to the batch that is reported to the monitors at the end of the evaluation.
+     * @param exposedPerson Person; the person who gets exposed
+     * @param infectiousPerson Person; the infectious person who most likely caused the exposure
+     * @param location Location; the location where the exposure took place
+     * @param exposedPhase DiseasePhase; the disease phase that the person will get
+     */
+    void exposePerson(final Person exposedPerson, final Person infectiousPerson, final Location location,
+            final DiseasePhase exposedPhase)
+    {
+        exposedPerson.setExposureTime(this.simulator.getSimulatorTime().floatValue());
+        this.model.getDiseaseProgression().expose(exposedPerson, exposedPhase);
+        this.exposureBatch.add(exposedPerson.getId(), infectiousPerson.getId());
+        this.infectionsPerInfectiousPersonMap.adjustOrPutValue(infectiousPerson.getId(), 1, 1);
+    }
+
+    /**
+     * Start a new batch of exposures in a location, for exposures that are not the result of an enter or leave event, e.g.,
+     * the exposures of the ContactLayerEngine. The batch is reported with reportExposures.
+     * @param location Location; the location of the exposures
+     */
+    void startExposures(final Location location)
+    {
+        this.exposureBatch.start(location);
+    }
+
+    /**
+     * Report the exposures of the current evaluation as one batch to the DiseaseMonitor and the PersonMonitor, and clear the
+     * batch.
+     */
+    void reportExposures()
+    {
+        if (this.exposureBatch.isEmpty())
+            return;
+        getModel().getDiseaseMonitor().reportInfections(this.exposureBatch);
+        this.model.getPersonMonitor().reportExposures(this.exposureBatch);
+        this.exposureBatch.start(null);
     }
 
     /**
@@ -333,6 +1317,12 @@ public abstract class DiseaseTransmission extends AbstractModelNamed implements
      */
     public int getNrPersonsInSublocation(final Location location, final short subLocationIndex)
     {
+        if (this.householdKernel != null)
+        {
+            int household = this.householdKernel.householdOf(location, subLocationIndex);
+            if (household >= 0)
+                return this.householdKernel.getNumberOfPersons(household);
+        }
         long key = makeCacheKey(location, subLocationIndex);
         return this.nrPersonsInSublocationMap.get(key);
     }
@@ -0,0 +1,126 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.util.Arrays;
+
+import nl.tudelft.simulation.medlabs.location.Location;
+
+/**
+ * ExposureBatch collects the exposures of one transmission evaluation in a location: the ids of the infected persons and the
+ * ids of the infectious persons to whom the infections are attributed, in preallocated primitive arrays. The batch is handed
+ * to the DiseaseMonitor and the PersonMonitor in one call at the end of the evaluation, instead of one call and one event per
+ * exposed person. The batch is reused for every evaluation of a DiseaseTransmission object, and is confined to the simulator
+ * thread. Listeners that receive the batch in an event should therefore process it immediately, and not keep a reference.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ExposureBatch
+{
+    /** the location where the exposures took place. */
+    private Location location = null;
+
+    /** the ids of the infected persons. */
+    private int[] infectedIds;
+
+    /** the ids of the infectious persons to whom the infections are attributed, parallel to infectedIds. */
+    private int[] infectiousIds;
+
+    /** the number of exposures in the batch. */
+    private int size = 0;
+
+    /**
+     * Create an empty batch with the given initial capacity.
+     * @param capacity int; the initial capacity
+     */
+    public ExposureBatch(final int capacity)
+    {
+        int n = Math.max(4, capacity);
+        this.infectedIds = new int[n];
+        this.infectiousIds = new int[n];
+    }
+
+    /**
+     * Start a new batch for the given location, removing the exposures of the previous batch. The arrays are kept.
+     * @param newLocation Location; the location where the exposures of the new batch take place
+     */
+    public void start(final Location newLocation)
+    {
+        this.location = newLocation;
+        this.size = 0;
+    }
+
+    /**
+     * Add an exposure to the batch.
+     * @param infectedId int; the id of the infected person
+     * @param infectiousId int; the id of the infectious person to whom the infection is attributed
+     */
+    public void add(final int infectedId, final int infectiousId)
+    {
+        if (this.size == this.infectedIds.length)
+        {
+            this.infectedIds = Arrays.copyOf(this.infectedIds, 2 * this.size);
+            this.infectiousIds = Arrays.copyOf(this.infectiousIds, 2 * this.size);
+        }
+        this.infectedIds[this.size] = infectedId;
+        this.infectiousIds[this.size] = infectiousId;
+        this.size++;
+    }
+
+    /**
+     * @return the number of exposures in the batch
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return whether the batch contains no exposures
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @param index int; the index of the exposure, between 0 and size() - 1
+     * @return the id of the infected person of the exposure
+     */
+    public int getInfectedId(final int index)
+    {
+        return this.infectedIds[index];
+    }
+
+    /**
+     * @param index int; the index of the exposure, between 0 and size() - 1
+     * @return the id of the infectious person to whom the exposure is attributed
+     */
+    public int getInfectiousId(final int index)
+    {
+        return this.infectiousIds[index];
+    }
+
+    /**
+     * @return the location where the exposures took place
+     */
+    public Location getLocation()
+    {
+        return this.location;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "ExposureBatch [location=" + (this.location == null ? "null" : this.location.getId()) + ", size=" + this.size
+                + "]";
+    }
+
+}
@@ -0,0 +1,493 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * HouseholdKernel handles the transmission in the home sublocations, where most enter and leave events take place. A household
+ * is the group of persons with the same home location and home sublocation index. Households are small and do not change, so
+ * the membership is stored in compressed sparse row (CSR) arrays: the members of household h are members[offsets[h]] to
+ * members[offsets[h + 1] - 1], and each person id maps to its household and its slot in the household with two arrays. The
+ * presence of the members in the home is a bit mask per household, so an enter or leave of a member costs a few array
+ * accesses instead of lookups in the hash maps of the generic path. Other persons who visit the home are kept in a small guest
+ * list per household. Households with more than MAX_MEMBERS members are not included, and use the generic path.<br>
+ * <br>
+ * The dose in a household over an interval is the exact integral of the infectivity curve of every present person who is not
+ * susceptible, as in the incremental mode of the DiseaseTransmission. The presence only changes at the enter and leave events,
+ * at which the household is evaluated, so the presence is constant over the interval.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class HouseholdKernel implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the maximum number of members of a household, i.e., the number of bits of the presence mask. */
+    public static final int MAX_MEMBERS = 64;
+
+    /** the start of the members of each household in the members array; the last entry is the number of members. */
+    private final int[] offsets;
+
+    /** the ids of the members, per household in increasing order. */
+    private final int[] members;
+
+    /** the members as persons, in the same order as the members array. */
+    private final Person[] memberPersons;
+
+    /** the home location id per household. */
+    private final int[] locationIds;
+
+    /** the home sublocation index per household. */
+    private final short[] subLocationIndices;
+
+    /** the household per person id, or -1 when the person does not belong to a household of the kernel. */
+    private final int[] householdOfPerson;
+
+    /** the slot of each person in the presence mask of its household. */
+    private final byte[] slotOfPerson;
+
+    /** the presence mask per household, with bit i for the member in slot i. */
+    private final long[] presence;
+
+    /** the time of the last evaluation per household. */
+    private final double[] lastTime;
+
+    /** the household per sublocation key, only used for guests. */
+    private final TLongIntMap householdOfSublocation;
+
+    /** the guests per household, only for households with guests. */
+    private final TIntObjectMap<TIntArrayList> guests = new TIntObjectHashMap<>();
+
+    /** whether a household has guests, so the guest map is only consulted for those households. */
+    private final boolean[] hasGuests;
+
+    /** the id of the house location type. */
+    private final byte houseTypeId;
+
+    /** the person map of the model, for the guests. */
+    private final TIntObjectMap<Person> personMap;
+
+    /**
+     * Create the kernel from the CSR arrays; use build to create the kernel for a model.
+     * @param model MedlabsModelInterface; the model
+     * @param offsets int[]; the start of the members of each household in the members array
+     * @param members int[]; the ids of the members, per household
+     * @param locationIds int[]; the home location id per household
+     * @param subLocationIndices short[]; the home sublocation index per household
+     */
+    protected HouseholdKernel(final MedlabsModelInterface model, final int[] offsets, final int[] members,
+            final int[] locationIds, final short[] subLocationIndices)
+    {
+        this.personMap = model.getPersonMap();
+        this.houseTypeId = model.getLocationTypeHouse().getLocationTypeId();
+        this.offsets = offsets;
+        this.members = members;
+        this.locationIds = locationIds;
+        this.subLocationIndices = subLocationIndices;
+        int numberOfHouseholds = locationIds.length;
+        this.presence = new long[numberOfHouseholds];
+        this.lastTime = new double[numberOfHouseholds];
+        this.hasGuests = new boolean[numberOfHouseholds];
+        Arrays.fill(this.lastTime, model.getSimulator().getSimulatorTime().doubleValue());
+        this.householdOfSublocation = new TLongIntHashMap(numberOfHouseholds);
+        int maxId = -1;
+        for (int id : members)
+        {
+            maxId = Math.max(maxId, id);
+        }
+        this.householdOfPerson = new int[maxId + 1];
+        Arrays.fill(this.householdOfPerson, -1);
+        this.slotOfPerson = new byte[maxId + 1];
+        this.memberPersons = new Person[members.length];
+        for (int h = 0; h < numberOfHouseholds; h++)
+        {
+            this.householdOfSublocation.put(key(locationIds[h], subLocationIndices[h]), h);
+            for (int i = offsets[h]; i < offsets[h + 1]; i++)
+            {
+                this.householdOfPerson[members[i]] = h;
+                this.slotOfPerson[members[i]] = (byte) (i - offsets[h]);
+                this.memberPersons[i] = this.personMap.get(members[i]);
+            }
+        }
+
+        // register the persons who are already at home, e.g., because they were placed there when they were created
+        for (Person person : this.personMap.valueCollection())
+        {
+            Location location = person.getCurrentLocation();
+            if (location != null)
+            {
+                int h = householdOf(location, person.getCurrentSubLocationIndex(), person);
+                if (h >= 0)
+                    arrive(h, person);
+            }
+        }
+    }
+
+    /**
+     * Build the kernel for all persons of the model, grouping the persons by home location and home sublocation index.
+     * Households with more than MAX_MEMBERS members are left out. The kernel should be built after all persons have been
+     * created.
+     * @param model MedlabsModelInterface; the model
+     * @return HouseholdKernel; the kernel for the households of the model
+     */
+    public static HouseholdKernel build(final MedlabsModelInterface model)
+    {
+        int[] ids = model.getPersonMap().keys();
+        Arrays.sort(ids);
+        TLongIntMap householdIndex = new TLongIntHashMap();
+        int[] householdOfIndex = new int[ids.length];
+        TIntArrayList sizes = new TIntArrayList();
+        TIntArrayList locationIdList = new TIntArrayList();
+        TIntArrayList subLocationList = new TIntArrayList();
+        for (int i = 0; i < ids.length; i++)
+        {
+            Person person = model.getPersonMap().get(ids[i]);
+            Location home = person.getHomeLocation();
+            long key = key(home.getId(), person.getHomeSubLocationIndex());
+            if (!householdIndex.containsKey(key))
+            {
+                householdIndex.put(key, sizes.size());
+                sizes.add(0);
+                locationIdList.add(home.getId());
+                subLocationList.add(person.getHomeSubLocationIndex());
+            }
+            int h = householdIndex.get(key);
+            householdOfIndex[i] = h;
+            sizes.set(h, sizes.get(h) + 1);
+        }
+
+        // renumber the households that fit in a presence mask
+        int[] newIndex = new int[sizes.size()];
+        int numberOfHouseholds = 0;
+        int numberOfMembers = 0;
+        for (int h = 0; h < sizes.size(); h++)
+        {
+            if (sizes.get(h) <= MAX_MEMBERS)
+            {
+                newIndex[h] = numberOfHouseholds++;
+                numberOfMembers += sizes.get(h);
+            }
+            else
+            {
+                newIndex[h] = -1;
+            }
+        }
+        int[] offsets = new int[numberOfHouseholds + 1];
+        int[] locationIds = new int[numberOfHouseholds];
+        short[] subLocationIndices = new short[numberOfHouseholds];
+        for (int h = 0; h < sizes.size(); h++)
+        {
+            int n = newIndex[h];
+            if (n >= 0)
+            {
+                offsets[n + 1] = sizes.get(h);
+                locationIds[n] = locationIdList.get(h);
+                subLocationIndices[n] = (short) subLocationList.get(h);
+            }
+        }
+        for (int n = 0; n < numberOfHouseholds; n++)
+        {
+            offsets[n + 1] += offsets[n];
+        }
+        int[] members = new int[numberOfMembers];
+        int[] fill = Arrays.copyOf(offsets, numberOfHouseholds);
+        for (int i = 0; i < ids.length; i++)
+        {
+            int n = newIndex[householdOfIndex[i]];
+            if (n >= 0)
+                members[fill[n]++] = ids[i];
+        }
+        return new HouseholdKernel(model, offsets, members, locationIds, subLocationIndices);
+    }
+
+    /**
+     * Make the key for a sublocation.
+     * @param locationId int; the location id
+     * @param subLocationIndex int; the sublocation index
+     * @return long; the key of the sublocation
+     */
+    private static long key(final int locationId, final int subLocationIndex)
+    {
+        return (((long) locationId) << 32) + subLocationIndex;
+    }
+
+    /**
+     * Return the household of a sublocation that a person enters or leaves. For a member in its own home, this only takes
+     * array accesses; for a guest in a house, the household is looked up in a map.
+     * @param location Location; the location
+     * @param subLocationIndex short; the sublocation index
+     * @param person Person; the person who enters or leaves
+     * @return int; the household of the sublocation, or -1 when the sublocation is not a home of the kernel
+     */
+    public int householdOf(final Location location, final short subLocationIndex, final Person person)
+    {
+        int id = person.getId();
+        if (id < this.householdOfPerson.length)
+        {
+            int h = this.householdOfPerson[id];
+            if (h >= 0 && this.locationIds[h] == location.getId() && this.subLocationIndices[h] == subLocationIndex)
+                return h;
+        }
+        if (location.getLocationTypeId() != this.houseTypeId)
+            return -1;
+        return householdOf(location, subLocationIndex);
+    }
+
+    /**
+     * Return the household of a home sublocation.
+     * @param location Location; the location
+     * @param subLocationIndex short; the sublocation index
+     * @return int; the household of the sublocation, or -1 when the sublocation is not a home of the kernel
+     */
+    public int householdOf(final Location location, final short subLocationIndex)
+    {
+        long key = key(location.getId(), subLocationIndex);
+        return this.householdOfSublocation.containsKey(key) ? this.householdOfSublocation.get(key) : -1;
+    }
+
+    /**
+     * Register that a person is present in the home of the household.
+     * @param household int; the household
+     * @param person Person; the person, a member or a guest
+     */
+    public void arrive(final int household, final Person person)
+    {
+        int id = person.getId();
+        if (id < this.householdOfPerson.length && this.householdOfPerson[id] == household)
+        {
+            this.presence[household] |= 1L << this.slotOfPerson[id];
+            return;
+        }
+        TIntArrayList guestList = guestsOf(household);
+        if (guestList == null)
+        {
+            guestList = new TIntArrayList(2);
+            this.guests.put(household, guestList);
+        }
+        if (!guestList.contains(id))
+            guestList.add(id);
+        this.hasGuests[household] = true;
+    }
+
+    /**
+     * Register that a person is no longer present in the home of the household.
+     * @param household int; the household
+     * @param person Person; the person, a member or a guest
+     */
+    public void depart(final int household, final Person person)
+    {
+        int id = person.getId();
+        if (id < this.householdOfPerson.length && this.householdOfPerson[id] == household)
+        {
+            this.presence[household] &= ~(1L << this.slotOfPerson[id]);
+            return;
+        }
+        TIntArrayList guestList = guestsOf(household);
+        if (guestList != null)
+        {
+            guestList.remove(id);
+            if (guestList.isEmpty())
+            {
+                this.guests.remove(household);
+                this.hasGuests[household] = false;
+            }
+        }
+    }
+
+    /**
+     * @param household int; the household
+     * @return the list of guests of the household, or null when the household has no guests
+     */
+    private TIntArrayList guestsOf(final int household)
+    {
+        return this.hasGuests[household] ? this.guests.get(household) : null;
+    }
+
+    /**
+     * Return the time of the last evaluation of the household, and set it to the given time.
+     * @param household int; the household
+     * @param now double; the time of the new evaluation
+     * @return double; the time of the last evaluation
+     */
+    public double swapLastTime(final int household, final double now)
+    {
+        double last = this.lastTime[household];
+        this.lastTime[household] = now;
+        return last;
+    }
+
+    /**
+     * Return the dose of the persons in the home of the household over an interval in which the presence did not change: the
+     * sum over the present persons who are not susceptible of the integral of the infectivity curve over the interval.
+     * @param household int; the household
+     * @param from double; the start of the interval
+     * @param to double; the end of the interval
+     * @param curve InfectivityCurve; the infectivity curve
+     * @return double; the dose in infectivity-hours
+     */
+    public double dose(final int household, final double from, final double to, final InfectivityCurve curve)
+    {
+        double dose = 0.0;
+        long mask = this.presence[household];
+        int offset = this.offsets[household];
+        while (mask != 0)
+        {
+            dose += contribution(this.memberPersons[offset + Long.numberOfTrailingZeros(mask)], from, to, curve);
+            mask &= mask - 1;
+        }
+        TIntArrayList guestList = guestsOf(household);
+        if (guestList != null)
+        {
+            for (int i = 0; i < guestList.size(); i++)
+            {
+                dose += contribution(this.personMap.get(guestList.get(i)), from, to, curve);
+            }
+        }
+        return dose;
+    }
+
+    /**
+     * Return the contribution of one person to the dose over an interval.
+     * @param person Person; the person
+     * @param from double; the start of the interval
+     * @param to double; the end of the interval
+     * @param curve InfectivityCurve; the infectivity curve
+     * @return double; the integral of the infectivity of the person over the interval, 0 for a susceptible person
+     */
+    private static double contribution(final Person person, final double from, final double to, final InfectivityCurve curve)
+    {
+        if (person.getDiseasePhase().isSusceptible())
+            return 0.0;
+        double exposureTime = person.getExposureTime();
+        return curve.integral(from - exposureTime, to - exposureTime);
+    }
+
+    /**
+     * Add the ids of the susceptible persons who are present in the home of the household to a list.
+     * @param household int; the household
+     * @param ids TIntArrayList; the list to which the ids are added
+     */
+    public void gatherSusceptibles(final int household, final TIntArrayList ids)
+    {
+        long mask = this.presence[household];
+        int offset = this.offsets[household];
+        while (mask != 0)
+        {
+            Person person = this.memberPersons[offset + Long.numberOfTrailingZeros(mask)];
+            if (person.getDiseasePhase().isSusceptible())
+                ids.add(person.getId());
+            mask &= mask - 1;
+        }
+        TIntArrayList guestList = guestsOf(household);
+        if (guestList != null)
+        {
+            for (int i = 0; i < guestList.size(); i++)
+            {
+                if (this.personMap.get(guestList.get(i)).getDiseasePhase().isSusceptible())
+                    ids.add(guestList.get(i));
+            }
+        }
+    }
+
+    /**
+     * Pick the person who most likely caused an infection, with a probability proportional to the contribution of the person
+     * to the dose over the interval.
+     * @param household int; the household
+     * @param from double; the start of the interval
+     * @param to double; the end of the interval
+     * @param curve InfectivityCurve; the infectivity curve
+     * @param target double; a uniform draw between 0 and the dose of the household over the interval
+     * @return Person; the infectious person, or null when no person contributed to the dose
+     */
+    public Person pickInfectious(final int household, final double from, final double to, final InfectivityCurve curve,
+            final double target)
+    {
+        double sum = 0.0;
+        Person last = null;
+        long mask = this.presence[household];
+        int offset = this.offsets[household];
+        while (mask != 0)
+        {
+            Person person = this.memberPersons[offset + Long.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+            double c = contribution(person, from, to, curve);
+            if (c > 0.0)
+            {
+                sum += c;
+                last = person;
+                if (sum > target)
+                    return person;
+            }
+        }
+        TIntArrayList guestList = guestsOf(household);
+        if (guestList != null)
+        {
+            for (int i = 0; i < guestList.size(); i++)
+            {
+                Person person = this.personMap.get(guestList.get(i));
+                double c = contribution(person, from, to, curve);
+                if (c > 0.0)
+                {
+                    sum += c;
+                    last = person;
+                    if (sum > target)
+                        return person;
+                }
+            }
+        }
+        return last; // rounding
+    }
+
+    /**
+     * @param household int; the household
+     * @return the number of persons, members and guests, who are present in the home of the household
+     */
+    public int getNumberOfPersons(final int household)
+    {
+        TIntArrayList guestList = guestsOf(household);
+        return Long.bitCount(this.presence[household]) + (guestList == null ? 0 : guestList.size());
+    }
+
+    /**
+     * @param household int; the household
+     * @return the number of members of the household
+     */
+    public int getNumberOfMembers(final int household)
+    {
+        return this.offsets[household + 1] - this.offsets[household];
+    }
+
+    /**
+     * @return the number of households in the kernel
+     */
+    public int getNumberOfHouseholds()
+    {
+        return this.locationIds.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "HouseholdKernel [households=" + this.locationIds.length + ", members=" + this.members.length + "]";
+    }
+
+}
@@ -5,7 +5,10 @@ import gnu.trove.list.array.TIntArrayList;
 import nl.tudelft.simulation.medlabs.location.Location;
 
 /**
- * InfectionRecord contains the result of an exposure of uninfected persons to infectious persons over a duration.
+ * InfectionRecord contains the result of an exposure of uninfected persons to infectious persons over a duration. A
+ * DiseaseTransmission reuses one record for all its calculations (see DiseaseTransmission.getInfectionRecord), so the record
+ * is only valid until the next calculation, and callers should not keep a reference to it. Reset clears the record without
+ * releasing the memory of the lists.
  * <p>
  * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -32,19 +35,34 @@ public class InfectionRecord
     }
 
     /** The disease phase associated with the state that the person will get after 'successful' exposure. */
-    private final DiseasePhase exposedPhase;
+    private DiseasePhase exposedPhase;
 
     /** The list of infectious persons currently in the (sub)location. */
-    private TIntList infectiousPersons = new TIntArrayList();
+    private final TIntArrayList infectiousPersons = new TIntArrayList();
 
     /** The list of infected persons in the (sub)location as a result of the exposure. */
-    private TIntList infectedPersons = new TIntArrayList();
+    private final TIntArrayList infectedPersons = new TIntArrayList();
 
     /** Whether a transmission calculation was carried out or not. */
     private boolean calculated = false;
     
     /** The location of the infection(s). */
-    private final Location location;
+    private Location location;
+
+    /**
+     * Clear the record for a new calculation, keeping the memory that the lists have allocated.
+     * @param newExposedPhase DiseasePhase; the disease phase that the person will get after 'successful' exposure
+     * @param newLocation Location; the location of the new calculation
+     */
+    public void reset(final DiseasePhase newExposedPhase, final Location newLocation)
+    {
+        this.exposedPhase = newExposedPhase;
+        this.location = newLocation;
+        this.calculated = false;
+        // resetQuick keeps the arrays, where clear would allocate new ones
+        this.infectiousPersons.resetQuick();
+        this.infectedPersons.resetQuick();
+    }
 
     /**
      * @return infectiousPersons
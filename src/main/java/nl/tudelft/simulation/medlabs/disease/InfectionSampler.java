@@ -0,0 +1,206 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.TIntList;
+import nl.tudelft.simulation.jstats.streams.StreamInterface;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * InfectionSampler draws which of n susceptible persons get infected when each of them is infected independently with
+ * probability p. Instead of drawing a uniform number for every susceptible person, the sampler uses geometric skip-ahead: the
+ * number of persons that is passed until the next infection is drawn directly from a geometric distribution with one uniform
+ * draw. The expected number of draws is therefore n * p + 1 instead of n, which makes a big difference in crowded locations
+ * where the probability of infection is small. For large probabilities the sampler skips over the persons who are
+ * <i>not</i> infected, or falls back on one draw per person, whichever is cheaper.
+ * <p>
+ * The sampler only draws from the stream it is given, so results are reproducible for a given seed of the model's stream.
+ * Note that the sequence of draws differs from drawing one uniform number per person, so the results for a seed are not the
+ * same as those of the per-person method.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public final class InfectionSampler implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** probability above which one draw per person is cheaper than skip-ahead over the non-infected persons. */
+    private static final double DIRECT_LOW = 0.3;
+
+    /** probability above which skip-ahead over the non-infected persons is cheaper than one draw per person. */
+    private static final double DIRECT_HIGH = 0.7;
+
+    /** the random stream to draw from. */
+    private final StreamInterface stream;
+
+    /** the number of uniform draws that were made. */
+    private long numberOfDraws = 0L;
+
+    /**
+     * Create a sampler that draws from the given stream.
+     * @param stream StreamInterface; the random stream, usually the stream of the model
+     */
+    public InfectionSampler(final StreamInterface stream)
+    {
+        Throw.whenNull(stream, "stream cannot be null");
+        this.stream = stream;
+    }
+
+    /**
+     * Draw the number of infections among n susceptible persons, i.e., a draw from a Binomial(n, p) distribution.
+     * @param n int; the number of susceptible persons
+     * @param p double; the probability of infection per person
+     * @return int; the number of infected persons, between 0 and n
+     */
+    public int sampleCount(final int n, final double p)
+    {
+        checkProbability(p);
+        if (n <= 0 || p <= 0.0)
+            return 0;
+        if (p >= 1.0)
+            return n;
+        if (p <= 0.5)
+            return skipCount(n, p);
+        return n - skipCount(n, 1.0 - p);
+    }
+
+    /**
+     * Draw which of n susceptible persons get infected. The indices (0 to n-1) of the infected persons are added to the list
+     * in increasing order; the list is not cleared first.
+     * @param n int; the number of susceptible persons
+     * @param p double; the probability of infection per person
+     * @param indices TIntList; the list to which the indices of the infected persons are added
+     * @return int; the number of infected persons, between 0 and n
+     */
+    public int sampleIndices(final int n, final double p, final TIntList indices)
+    {
+        checkProbability(p);
+        if (n <= 0 || p <= 0.0)
+            return 0;
+        if (p >= 1.0)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                indices.add(i);
+            }
+            return n;
+        }
+        if (p < DIRECT_LOW)
+        {
+            // skip ahead over the persons who are not infected
+            double logQ = Math.log1p(-p);
+            int count = 0;
+            long index = skip(logQ);
+            while (index < n)
+            {
+                indices.add((int) index);
+                count++;
+                index += 1 + skip(logQ);
+            }
+            return count;
+        }
+        if (p <= DIRECT_HIGH)
+        {
+            int count = 0;
+            for (int i = 0; i < n; i++)
+            {
+                this.numberOfDraws++;
+                if (this.stream.nextDouble() < p)
+                {
+                    indices.add(i);
+                    count++;
+                }
+            }
+            return count;
+        }
+        // skip ahead over the persons who are infected, and add the ones in between
+        double logP = Math.log(p);
+        int count = 0;
+        long next = 0;
+        long escape = skip(logP);
+        while (next < n)
+        {
+            long end = Math.min(n, next + escape);
+            for (long i = next; i < end; i++)
+            {
+                indices.add((int) i);
+                count++;
+            }
+            next = end + 1;
+            escape = skip(logP);
+        }
+        return count;
+    }
+
+    /**
+     * Count the number of successes in n trials with probability p by skipping ahead over the failures.
+     * @param n int; the number of trials
+     * @param p double; the probability of success, in (0, 0.5]
+     * @return int; the number of successes
+     */
+    private int skipCount(final int n, final double p)
+    {
+        double logQ = Math.log1p(-p);
+        int count = 0;
+        long index = skip(logQ);
+        while (index < n)
+        {
+            count++;
+            index += 1 + skip(logQ);
+        }
+        return count;
+    }
+
+    /**
+     * Draw the number of failures before the next success from a geometric distribution, using inversion with one uniform draw.
+     * @param logQ double; the natural logarithm of the probability of a failure, negative
+     * @return long; the number of failures before the next success, not negative
+     */
+    private long skip(final double logQ)
+    {
+        this.numberOfDraws++;
+        double u = this.stream.nextDouble();
+        // 1 - u lies in (0, 1], so the logarithm is finite
+        double k = Math.floor(Math.log(1.0 - u) / logQ);
+        return k >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (long) k;
+    }
+
+    /**
+     * Check the probability.
+     * @param p double; the probability to check
+     * @throws MedlabsRuntimeException when p is NaN, or not between 0 and 1
+     */
+    private static void checkProbability(final double p)
+    {
+        Throw.when(Double.isNaN(p) || p < 0.0 || p > 1.0, MedlabsRuntimeException.class,
+                "probability of infection should be between 0 and 1, got %f", p);
+    }
+
+    /**
+     * @return the number of uniform draws that were made by the sampler
+     */
+    public long getNumberOfDraws()
+    {
+        return this.numberOfDraws;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "InfectionSampler [numberOfDraws=" + this.numberOfDraws + "]";
+    }
+
+}
@@ -0,0 +1,437 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * InfectiousPressure is the incremental accumulator of the infectious pressure in one sublocation. It keeps the sum of the
+ * infectivity of all infected persons in the sublocation and its slope, and integrates this piecewise-linear sum over time. The
+ * knots of the infectivity curves of the persons are kept in a small heap, so advancing the accumulator to a later time only
+ * visits the knots that were passed. Persons who leave are removed by subtracting their current contribution; their knots in
+ * the heap are skipped later because the serial number of their entry does not match anymore. The accumulator also keeps the
+ * ids of the susceptible persons in the sublocation in a list, so they can be sampled without visiting all persons. The
+ * infector of a newly infected person is drawn in proportion to the infectivity of each contributor over the window of the
+ * last integral that was taken.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class InfectiousPressure
+{
+    /** the infectivity curve of the disease. */
+    private final InfectivityCurve curve;
+
+    /** the time up to which the pressure has been integrated. */
+    private double time;
+
+    /** the sum of the infectivity of the contributing persons at the current time. */
+    private double value = 0.0;
+
+    /** the slope of the sum of the infectivity at the current time, per hour. */
+    private double slope = 0.0;
+
+    /** the integral of the infectivity since the last call to takeIntegral. */
+    private double integral = 0.0;
+
+    /** the time of the last call to takeIntegral, i.e., the start of the integral that is being accumulated. */
+    private double integralStart;
+
+    /** the start of the window of the integral that was returned by the last call to takeIntegral. */
+    private double windowStart;
+
+    /** the end of the window of the integral that was returned by the last call to takeIntegral. */
+    private double windowEnd;
+
+    /** the ids of the contributing (infected) persons. */
+    private final TIntArrayList contributors = new TIntArrayList(4);
+
+    /** the exposure time of each contributing person, in the order of the contributors list. */
+    private final TDoubleArrayList contributorExposure = new TDoubleArrayList(4);
+
+    /** the position of each contributing person in the contributors list. */
+    private final TIntIntMap contributorPosition = new TIntIntHashMap(4);
+
+    /** the serial number of the entry of each contributing person. */
+    private final TIntIntMap contributorSerial = new TIntIntHashMap(4);
+
+    /** the ids of the susceptible persons. */
+    private final TIntArrayList susceptibles = new TIntArrayList();
+
+    /** the position of each susceptible person in the susceptibles list. */
+    private final TIntIntMap susceptiblePosition = new TIntIntHashMap();
+
+    /** heap with the absolute times of the next knots of the contributing persons. */
+    private double[] heapTime = new double[4];
+
+    /** the person id of each heap entry. */
+    private int[] heapPerson = new int[4];
+
+    /** the serial number of the person entry of each heap entry. */
+    private int[] heapSerial = new int[4];
+
+    /** the knot index of each heap entry. */
+    private int[] heapKnot = new int[4];
+
+    /** buffer for the weights of the contributors when drawing an infector. */
+    private double[] weights = new double[4];
+
+    /** the number of entries in the heap. */
+    private int heapSize = 0;
+
+    /** the last serial number that was handed out. */
+    private int lastSerial = 0;
+
+    /** the number of knots that were processed. */
+    private long numberOfKnots = 0L;
+
+    /**
+     * Create an empty accumulator.
+     * @param curve InfectivityCurve; the infectivity curve of the disease
+     * @param time double; the current simulation time
+     */
+    public InfectiousPressure(final InfectivityCurve curve, final double time)
+    {
+        this.curve = curve;
+        this.time = time;
+        this.integralStart = time;
+        this.windowStart = time;
+        this.windowEnd = time;
+    }
+
+    /**
+     * Integrate the infectious pressure up to the given time, processing the knots of the infectivity curves on the way.
+     * @param now double; the time up to which to integrate, not earlier than the last time
+     */
+    public void advance(final double now)
+    {
+        while (this.heapSize > 0 && this.heapTime[0] <= now)
+        {
+            double knotTime = this.heapTime[0];
+            int personId = this.heapPerson[0];
+            int serial = this.heapSerial[0];
+            int knot = this.heapKnot[0];
+            pop();
+            if (!this.contributorSerial.containsKey(personId) || this.contributorSerial.get(personId) != serial)
+                continue;
+            integrateTo(knotTime);
+            this.value += this.curve.rightValue(knot) - this.curve.leftValue(knot);
+            this.slope += this.curve.rightSlope(knot) - this.curve.leftSlope(knot);
+            this.numberOfKnots++;
+            if (knot + 1 < this.curve.getNumberOfKnots())
+                push(knotTime - this.curve.getKnotTimeH(knot) + this.curve.getKnotTimeH(knot + 1), personId, serial, knot + 1);
+        }
+        integrateTo(now);
+    }
+
+    /**
+     * Integrate the current piecewise-linear segment up to the given time.
+     * @param t double; the end of the integration
+     */
+    private void integrateTo(final double t)
+    {
+        double dt = t - this.time;
+        if (dt > 0.0)
+        {
+            this.integral += this.value * dt + 0.5 * this.slope * dt * dt;
+            this.value += this.slope * dt;
+            this.time = t;
+        }
+    }
+
+    /**
+     * Return the integral of the infectious pressure since the last call, and reset it. Call advance first.
+     * @return double; the integral of the infectious pressure in infectivity-hours, not negative
+     */
+    public double takeIntegral()
+    {
+        double result = Math.max(0.0, this.integral);
+        this.integral = 0.0;
+        this.windowStart = this.integralStart;
+        this.windowEnd = this.time;
+        this.integralStart = this.time;
+        return result;
+    }
+
+    /**
+     * Draw one of the contributors with a probability proportional to the integral of the infectivity of the contributor over
+     * the window of the last integral that was taken, so the draw follows the share of each contributor in the pressure that
+     * caused the infection. Contributors who were added at the end of the window, such as persons who were just infected,
+     * have no share. When no contributor has a share, e.g., due to rounding, the contributor is drawn uniformly.
+     * @param u double; a uniform draw in [0, 1)
+     * @return int; the id of the drawn contributor
+     * @throws IndexOutOfBoundsException when there are no contributors
+     */
+    public int drawContributor(final double u)
+    {
+        int n = this.contributors.size();
+        if (n == 1)
+            return this.contributors.get(0);
+        if (this.weights.length < n)
+            this.weights = new double[Math.max(n, 2 * this.weights.length)];
+        double total = 0.0;
+        for (int i = 0; i < n; i++)
+        {
+            double exposureTime = this.contributorExposure.get(i);
+            double w = this.curve.integral(this.windowStart - exposureTime, this.windowEnd - exposureTime);
+            this.weights[i] = w;
+            total += w;
+        }
+        if (!(total > 0.0))
+            return this.contributors.get(Math.min(n - 1, (int) (u * n)));
+        double target = u * total;
+        for (int i = 0; i < n - 1; i++)
+        {
+            target -= this.weights[i];
+            if (target < 0.0)
+                return this.contributors.get(i);
+        }
+        return this.contributors.get(n - 1);
+    }
+
+    /**
+     * Add an infected person with the given exposure time, who contributes to the pressure from now on. Call advance first.
+     * Persons whose infectivity has already ended are not added.
+     * @param personId int; the id of the person
+     * @param exposureTime double; the time at which the person was exposed
+     * @return boolean; whether the person was added as a contributor
+     */
+    public boolean addContributor(final int personId, final double exposureTime)
+    {
+        double age = this.time - exposureTime;
+        if (Double.isNaN(age) || age >= this.curve.getEndTimeH() || this.contributorSerial.containsKey(personId))
+            return false;
+        int serial = ++this.lastSerial;
+        this.contributorSerial.put(personId, serial);
+        this.contributorPosition.put(personId, this.contributors.size());
+        this.contributors.add(personId);
+        this.contributorExposure.add(exposureTime);
+        int k = this.curve.segment(age);
+        this.value += this.curve.value(age);
+        this.slope += this.curve.slope(age);
+        push(exposureTime + this.curve.getKnotTimeH(k + 1), personId, serial, k + 1);
+        return true;
+    }
+
+    /**
+     * Remove a contributing person, subtracting the current contribution of the person. Call advance first.
+     * @param personId int; the id of the person
+     * @param exposureTime double; the exposure time of the person, which should not have changed since the person was added
+     * @return boolean; whether the person was a contributor
+     */
+    public boolean removeContributor(final int personId, final double exposureTime)
+    {
+        if (!this.contributorSerial.containsKey(personId))
+            return false;
+        this.contributorSerial.remove(personId);
+        int position = this.contributorPosition.get(personId);
+        removeFromList(this.contributors, this.contributorPosition, personId);
+        double lastExposure = this.contributorExposure.removeAt(this.contributorExposure.size() - 1);
+        if (position < this.contributorExposure.size())
+            this.contributorExposure.set(position, lastExposure);
+        if (this.contributors.isEmpty())
+        {
+            // avoid accumulation of rounding errors
+            this.value = 0.0;
+            this.slope = 0.0;
+            this.heapSize = 0;
+            return true;
+        }
+        double age = this.time - exposureTime;
+        this.value -= this.curve.value(age);
+        this.slope -= this.curve.slope(age);
+        return true;
+    }
+
+    /**
+     * @param personId int; the id of the person
+     * @return whether the person is a contributor
+     */
+    public boolean isContributor(final int personId)
+    {
+        return this.contributorSerial.containsKey(personId);
+    }
+
+    /**
+     * Add a susceptible person.
+     * @param personId int; the id of the person
+     */
+    public void addSusceptible(final int personId)
+    {
+        if (!this.susceptiblePosition.containsKey(personId))
+        {
+            this.susceptiblePosition.put(personId, this.susceptibles.size());
+            this.susceptibles.add(personId);
+        }
+    }
+
+    /**
+     * Remove a susceptible person.
+     * @param personId int; the id of the person
+     * @return boolean; whether the person was in the list of susceptible persons
+     */
+    public boolean removeSusceptible(final int personId)
+    {
+        return removeFromList(this.susceptibles, this.susceptiblePosition, personId);
+    }
+
+    /**
+     * Remove an id from a list by moving the last id of the list to its position.
+     * @param list TIntArrayList; the list
+     * @param positions TIntIntMap; the positions of the ids in the list
+     * @param id int; the id to remove
+     * @return boolean; whether the id was in the list
+     */
+    private static boolean removeFromList(final TIntArrayList list, final TIntIntMap positions, final int id)
+    {
+        if (!positions.containsKey(id))
+            return false;
+        int position = positions.remove(id);
+        int last = list.removeAt(list.size() - 1);
+        if (last != id)
+        {
+            list.set(position, last);
+            positions.put(last, position);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of contributing (infected) persons
+     */
+    public int getNumberOfContributors()
+    {
+        return this.contributors.size();
+    }
+
+    /**
+     * @param index int; the index of the contributor
+     * @return the id of the contributor with the given index
+     */
+    public int getContributor(final int index)
+    {
+        return this.contributors.get(index);
+    }
+
+    /**
+     * @return the number of susceptible persons
+     */
+    public int getNumberOfSusceptibles()
+    {
+        return this.susceptibles.size();
+    }
+
+    /**
+     * @param index int; the index of the susceptible person
+     * @return the id of the susceptible person with the given index
+     */
+    public int getSusceptible(final int index)
+    {
+        return this.susceptibles.get(index);
+    }
+
+    /**
+     * @return the current sum of the infectivity of the contributing persons
+     */
+    public double getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * @return the number of knots of infectivity curves that were processed
+     */
+    public long getNumberOfKnots()
+    {
+        return this.numberOfKnots;
+    }
+
+    /**
+     * Add an entry to the heap.
+     * @param t double; the absolute time of the knot
+     * @param personId int; the person id
+     * @param serial int; the serial number of the person entry
+     * @param knot int; the knot index
+     */
+    private void push(final double t, final int personId, final int serial, final int knot)
+    {
+        if (this.heapSize == this.heapTime.length)
+        {
+            int n = 2 * this.heapSize;
+            this.heapTime = Arrays.copyOf(this.heapTime, n);
+            this.heapPerson = Arrays.copyOf(this.heapPerson, n);
+            this.heapSerial = Arrays.copyOf(this.heapSerial, n);
+            this.heapKnot = Arrays.copyOf(this.heapKnot, n);
+        }
+        int i = this.heapSize++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (this.heapTime[parent] <= t)
+                break;
+            copy(parent, i);
+            i = parent;
+        }
+        this.heapTime[i] = t;
+        this.heapPerson[i] = personId;
+        this.heapSerial[i] = serial;
+        this.heapKnot[i] = knot;
+    }
+
+    /**
+     * Remove the first entry of the heap.
+     */
+    private void pop()
+    {
+        int last = --this.heapSize;
+        if (last == 0)
+            return;
+        double t = this.heapTime[last];
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= last)
+                break;
+            if (child + 1 < last && this.heapTime[child + 1] < this.heapTime[child])
+                child++;
+            if (this.heapTime[child] >= t)
+                break;
+            copy(child, i);
+            i = child;
+        }
+        copy(last, i);
+    }
+
+    /**
+     * Copy a heap entry to another position.
+     * @param from int; the source position
+     * @param to int; the target position
+     */
+    private void copy(final int from, final int to)
+    {
+        this.heapTime[to] = this.heapTime[from];
+        this.heapPerson[to] = this.heapPerson[from];
+        this.heapSerial[to] = this.heapSerial[from];
+        this.heapKnot[to] = this.heapKnot[from];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "InfectiousPressure [time=" + this.time + ", value=" + this.value + ", contributors=" + this.contributors.size()
+                + ", susceptibles=" + this.susceptibles.size() + "]";
+    }
+
+}
@@ -0,0 +1,219 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * InfectivityCurve describes the infectivity of an infected person as a piecewise-linear function of the time since exposure.
+ * The curve is defined by knots (time since exposure in hours, infectivity); before the first knot and after the last knot the
+ * infectivity is zero. A triangular curve, which rises linearly from the onset to the peak and falls linearly to the end of the
+ * infectious period, is the most common example.
+ * <p>
+ * Because the curve is piecewise-linear, the sum of the infectivity of all persons in a sublocation is piecewise-linear in time
+ * as well, and its integral over an interval can be calculated exactly by only visiting the knots that fall in the interval.
+ * The methods leftValue, rightValue, leftSlope and rightSlope give the jump in value and slope at each knot for that purpose.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public final class InfectivityCurve implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the times since exposure of the knots in hours, strictly increasing. */
+    private final double[] knotTimesH;
+
+    /** the infectivity at the knots. */
+    private final double[] knotValues;
+
+    /**
+     * Create a piecewise-linear infectivity curve.
+     * @param knotTimesH double[]; the times since exposure of the knots in hours, strictly increasing
+     * @param knotValues double[]; the infectivity at the knots, not negative
+     * @throws MedlabsRuntimeException when the arrays have a different length, less than 2 knots, times that are not
+     *             increasing, or negative values
+     */
+    public InfectivityCurve(final double[] knotTimesH, final double[] knotValues)
+    {
+        Throw.when(knotTimesH.length != knotValues.length, MedlabsRuntimeException.class,
+                "knotTimesH and knotValues should have the same length");
+        Throw.when(knotTimesH.length < 2, MedlabsRuntimeException.class, "infectivity curve should have at least 2 knots");
+        for (int i = 0; i < knotTimesH.length; i++)
+        {
+            Throw.when(i > 0 && knotTimesH[i] <= knotTimesH[i - 1], MedlabsRuntimeException.class,
+                    "knot times of infectivity curve should be strictly increasing");
+            Throw.when(knotValues[i] < 0.0, MedlabsRuntimeException.class, "infectivity cannot be negative");
+        }
+        this.knotTimesH = knotTimesH.clone();
+        this.knotValues = knotValues.clone();
+    }
+
+    /**
+     * Create a triangular infectivity curve that is zero until onsetH, rises linearly to peakValue at peakH, and falls linearly
+     * to zero at endH.
+     * @param onsetH double; the time since exposure in hours at which the person becomes infectious
+     * @param peakH double; the time since exposure in hours at which the infectivity is maximal
+     * @param endH double; the time since exposure in hours at which the person stops being infectious
+     * @param peakValue double; the maximum infectivity
+     * @return InfectivityCurve; a triangular infectivity curve
+     */
+    public static InfectivityCurve triangular(final double onsetH, final double peakH, final double endH,
+            final double peakValue)
+    {
+        return new InfectivityCurve(new double[] {onsetH, peakH, endH}, new double[] {0.0, peakValue, 0.0});
+    }
+
+    /**
+     * @return the number of knots of the curve
+     */
+    public int getNumberOfKnots()
+    {
+        return this.knotTimesH.length;
+    }
+
+    /**
+     * @param knot int; the index of the knot
+     * @return the time since exposure of the knot in hours
+     */
+    public double getKnotTimeH(final int knot)
+    {
+        return this.knotTimesH[knot];
+    }
+
+    /**
+     * @return the time since exposure in hours after which the infectivity is zero
+     */
+    public double getEndTimeH()
+    {
+        return this.knotTimesH[this.knotTimesH.length - 1];
+    }
+
+    /**
+     * Return the index of the segment that contains the given time since exposure, i.e., the last knot with a time that is not
+     * later than ageH. Returns -1 before the first knot and the index of the last knot at or after the end of the curve.
+     * @param ageH double; the time since exposure in hours
+     * @return int; the index of the segment that contains the time since exposure
+     */
+    public int segment(final double ageH)
+    {
+        if (ageH < this.knotTimesH[0])
+            return -1;
+        int n = this.knotTimesH.length;
+        if (ageH >= this.knotTimesH[n - 1])
+            return n - 1;
+        int index = Arrays.binarySearch(this.knotTimesH, ageH);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Return the infectivity at the given time since exposure. The curve is right-continuous at the knots.
+     * @param ageH double; the time since exposure in hours
+     * @return double; the infectivity
+     */
+    public double value(final double ageH)
+    {
+        int k = segment(ageH);
+        if (k < 0 || k == this.knotTimesH.length - 1)
+            return 0.0;
+        return this.knotValues[k] + rightSlope(k) * (ageH - this.knotTimesH[k]);
+    }
+
+    /**
+     * Return the slope of the infectivity at the given time since exposure, in infectivity per hour (right derivative).
+     * @param ageH double; the time since exposure in hours
+     * @return double; the slope of the infectivity
+     */
+    public double slope(final double ageH)
+    {
+        int k = segment(ageH);
+        return k < 0 ? 0.0 : rightSlope(k);
+    }
+
+    /**
+     * Return the exact integral of the infectivity between two times since exposure.
+     * @param fromAgeH double; the start of the interval as time since exposure in hours
+     * @param toAgeH double; the end of the interval as time since exposure in hours
+     * @return double; the integral of the infectivity over the interval in infectivity-hours
+     */
+    public double integral(final double fromAgeH, final double toAgeH)
+    {
+        if (toAgeH <= fromAgeH)
+            return 0.0;
+        double sum = 0.0;
+        double t = fromAgeH;
+        int k = segment(t);
+        while (t < toAgeH && k < this.knotTimesH.length - 1)
+        {
+            double segmentEnd = Math.min(toAgeH, this.knotTimesH[k + 1]);
+            if (k >= 0)
+            {
+                double v0 = value(t);
+                double dt = segmentEnd - t;
+                sum += v0 * dt + 0.5 * rightSlope(k) * dt * dt;
+            }
+            t = segmentEnd;
+            k++;
+        }
+        return sum;
+    }
+
+    /**
+     * @param knot int; the index of the knot
+     * @return the limit of the infectivity when approaching the knot from the left
+     */
+    public double leftValue(final int knot)
+    {
+        return knot == 0 ? 0.0 : this.knotValues[knot];
+    }
+
+    /**
+     * @param knot int; the index of the knot
+     * @return the infectivity at the knot, approached from the right
+     */
+    public double rightValue(final int knot)
+    {
+        return knot == this.knotValues.length - 1 ? 0.0 : this.knotValues[knot];
+    }
+
+    /**
+     * @param knot int; the index of the knot
+     * @return the slope of the infectivity on the segment that ends at the knot
+     */
+    public double leftSlope(final int knot)
+    {
+        return knot == 0 ? 0.0 : rightSlope(knot - 1);
+    }
+
+    /**
+     * @param knot int; the index of the knot
+     * @return the slope of the infectivity on the segment that starts at the knot
+     */
+    public double rightSlope(final int knot)
+    {
+        if (knot < 0 || knot >= this.knotValues.length - 1)
+            return 0.0;
+        return (this.knotValues[knot + 1] - this.knotValues[knot]) / (this.knotTimesH[knot + 1] - this.knotTimesH[knot]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "InfectivityCurve [knotTimesH=" + Arrays.toString(this.knotTimesH) + ", knotValues="
+                + Arrays.toString(this.knotValues) + "]";
+    }
+
+}
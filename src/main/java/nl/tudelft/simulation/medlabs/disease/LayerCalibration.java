@@ -0,0 +1,154 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.rmi.RemoteException;
+
+import org.djutils.event.Event;
+import org.djutils.event.EventListener;
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+
+/**
+ * LayerCalibration counts the infections of a run per contact layer, and calculates the calibration factors of the
+ * ContactLayerEngine from the counts of a run of the full model and a run of the engine. The infections are taken from the
+ * INFECTED_PERSONS_EVENT of the PersonMonitor, and classified with ContactLayers.layerOf, so the full model and the engine
+ * are counted in the same way.
+ * <p>
+ * The calibration procedure is:
+ * <ol>
+ * <li>run the full model for the calibration period, and take the number of infections D per layer;</li>
+ * <li>run the engine with the same population, parameters and seed, with the current factors, and take the number of
+ * infections E per layer;</li>
+ * <li>multiply the factor of each layer with ((D + 1) / (E + 1))^damping, see nextFactors;</li>
+ * <li>repeat steps 2 and 3 until maxRelativeDifference is below the tolerance, or the number of iterations is reached.</li>
+ * </ol>
+ * The infections in one layer seed the infections in the other layers, so the factors are not independent, and a damping
+ * below 1 avoids oscillations. The counts of several replications can be summed to reduce the noise.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LayerCalibration implements EventListener
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the number of infections per layer. */
+    private final long[] infectionsPerLayer = new long[ContactLayers.NUMBER_OF_LAYERS];
+
+    /**
+     * Create a counter of the infections per layer, which listens to the PersonMonitor of the model.
+     * @param model MedlabsModelInterface; the model
+     */
+    public LayerCalibration(final MedlabsModelInterface model)
+    {
+        Throw.whenNull(model, "model cannot be null");
+        this.model = model;
+        model.getPersonMonitor().addListener(this, PersonMonitor.INFECTED_PERSONS_EVENT);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void notify(final Event event) throws RemoteException
+    {
+        if (event.getType().equals(PersonMonitor.INFECTED_PERSONS_EVENT))
+        {
+            ExposureBatch batch = (ExposureBatch) event.getContent();
+            for (int i = 0; i < batch.size(); i++)
+            {
+                this.infectionsPerLayer[ContactLayers.layerOf(this.model,
+                        this.model.getPersonMap().get(batch.getInfectedId(i)), batch.getLocation())]++;
+            }
+        }
+    }
+
+    /**
+     * @param layer int; the layer: ContactLayers.HOUSEHOLD, WORK_SCHOOL or COMMUNITY
+     * @return the number of infections in the layer since the start
+     */
+    public long getNumberOfInfections(final int layer)
+    {
+        return this.infectionsPerLayer[layer];
+    }
+
+    /**
+     * @return a copy of the number of infections per layer since the start
+     */
+    public long[] getInfections()
+    {
+        return this.infectionsPerLayer.clone();
+    }
+
+    /**
+     * Calculate the calibration factors for the next run of the engine. The factor of each layer is multiplied with ((D + 1) /
+     * (E + 1))^damping, where D is the number of infections in the layer in the full model, and E in the engine. Adding 1 to
+     * both counts keeps the factor finite when a layer has no infections in one of the runs.
+     * @param factors double[]; the factors per layer of the last run of the engine
+     * @param fullModelInfections long[]; the infections per layer in the full model
+     * @param engineInfections long[]; the infections per layer in the last run of the engine
+     * @param damping double; the damping, between 0 (exclusive) and 1 (inclusive)
+     * @return double[]; the factors per layer for the next run of the engine
+     * @throws MedlabsRuntimeException when the arrays do not have a value per layer, or the damping is out of range
+     */
+    public static double[] nextFactors(final double[] factors, final long[] fullModelInfections, final long[] engineInfections,
+            final double damping)
+    {
+        Throw.when(factors.length != ContactLayers.NUMBER_OF_LAYERS
+                || fullModelInfections.length != ContactLayers.NUMBER_OF_LAYERS
+                || engineInfections.length != ContactLayers.NUMBER_OF_LAYERS, MedlabsRuntimeException.class,
+                "calibration needs a value for each of the %d layers", ContactLayers.NUMBER_OF_LAYERS);
+        Throw.when(damping <= 0.0 || damping > 1.0, MedlabsRuntimeException.class, "damping %f should be in (0, 1]", damping);
+        double[] next = new double[ContactLayers.NUMBER_OF_LAYERS];
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            double ratio = (fullModelInfections[layer] + 1.0) / (engineInfections[layer] + 1.0);
+            next[layer] = factors[layer] * Math.pow(ratio, damping);
+        }
+        return next;
+    }
+
+    /**
+     * Return the largest difference of the infections per layer between the engine and the full model, relative to the
+     * infections in the full model, with at least 1 infection in the denominator.
+     * @param fullModelInfections long[]; the infections per layer in the full model
+     * @param engineInfections long[]; the infections per layer in the engine
+     * @return double; the largest relative difference over the layers
+     */
+    public static double maxRelativeDifference(final long[] fullModelInfections, final long[] engineInfections)
+    {
+        double max = 0.0;
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            max = Math.max(max,
+                    Math.abs(engineInfections[layer] - fullModelInfections[layer]) / Math.max(1.0, fullModelInfections[layer]));
+        }
+        return max;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder("LayerCalibration [");
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            s.append(layer == 0 ? "" : ", ").append(ContactLayers.getLayerName(layer)).append("=")
+                    .append(this.infectionsPerLayer[layer]);
+        }
+        return s.append("]").toString();
+    }
+
+}
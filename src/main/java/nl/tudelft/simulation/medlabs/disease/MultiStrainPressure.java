@@ -0,0 +1,233 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * MultiStrainPressure is the accumulator of the infectious pressure of a sublocation in the multi-strain mode of the
+ * DiseaseTransmission. It keeps one InfectiousPressure per strain for the persons who are infected with that strain, and one
+ * shared list of candidates: the persons who are present and not infected, who can be infected by any strain depending on
+ * their cross-immunity. The accumulator of a strain is only created when a person with that strain enters, so a sublocation
+ * with one strain costs about the same as in the single-strain incremental mode.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class MultiStrainPressure
+{
+    /** the strains of the disease. */
+    private final StrainTable strainTable;
+
+    /** the accumulator per strain index, or null when no person with the strain has been present. */
+    private final InfectiousPressure[] pressures;
+
+    /** the time up to which the pressure has been integrated. */
+    private double time;
+
+    /** the total number of contributing (infected) persons over all strains. */
+    private int numberOfContributors = 0;
+
+    /** the ids of the candidates. */
+    private final TIntArrayList candidates = new TIntArrayList();
+
+    /** the position of each candidate in the candidates list. */
+    private final TIntIntMap candidatePosition = new TIntIntHashMap();
+
+    /**
+     * Create an empty accumulator.
+     * @param strainTable StrainTable; the strains of the disease
+     * @param time double; the current simulation time
+     */
+    public MultiStrainPressure(final StrainTable strainTable, final double time)
+    {
+        this.strainTable = strainTable;
+        this.pressures = new InfectiousPressure[strainTable.getNumberOfStrains()];
+        this.time = time;
+    }
+
+    /**
+     * Integrate the infectious pressure of all strains up to the given time.
+     * @param now double; the time up to which to integrate, not earlier than the last time
+     */
+    public void advance(final double now)
+    {
+        for (InfectiousPressure pressure : this.pressures)
+        {
+            if (pressure != null)
+                pressure.advance(now);
+        }
+        this.time = now;
+    }
+
+    /**
+     * Return the integral of the infectious pressure of a strain since the last call, and reset it. Call advance first.
+     * @param strainIndex int; the index of the strain
+     * @return double; the integral of the infectious pressure of the strain in infectivity-hours, not negative
+     */
+    public double takeIntegral(final int strainIndex)
+    {
+        InfectiousPressure pressure = this.pressures[strainIndex];
+        return pressure == null ? 0.0 : pressure.takeIntegral();
+    }
+
+    /**
+     * Add a person who is infected with a strain, and who contributes to the pressure of the strain from now on. Call advance
+     * first. Persons whose infectivity has already ended are not added.
+     * @param strainIndex int; the index of the strain
+     * @param personId int; the id of the person
+     * @param exposureTime double; the time at which the person was exposed
+     * @return boolean; whether the person was added as a contributor
+     */
+    public boolean addContributor(final int strainIndex, final int personId, final double exposureTime)
+    {
+        InfectiousPressure pressure = this.pressures[strainIndex];
+        if (pressure == null)
+        {
+            pressure = new InfectiousPressure(this.strainTable.getStrain(strainIndex).getInfectivityCurve(), this.time);
+            this.pressures[strainIndex] = pressure;
+        }
+        if (!pressure.addContributor(personId, exposureTime))
+            return false;
+        this.numberOfContributors++;
+        return true;
+    }
+
+    /**
+     * Remove a contributing person from the accumulator of its strain. Call advance first.
+     * @param personId int; the id of the person
+     * @param exposureTime double; the exposure time of the person, which should not have changed since the person was added
+     * @return boolean; whether the person was a contributor
+     */
+    public boolean removeContributor(final int personId, final double exposureTime)
+    {
+        for (InfectiousPressure pressure : this.pressures)
+        {
+            if (pressure != null && pressure.removeContributor(personId, exposureTime))
+            {
+                this.numberOfContributors--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param personId int; the id of the person
+     * @return whether the person is a contributor for any strain
+     */
+    public boolean isContributor(final int personId)
+    {
+        for (InfectiousPressure pressure : this.pressures)
+        {
+            if (pressure != null && pressure.isContributor(personId))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the total number of contributing (infected) persons over all strains
+     */
+    public int getNumberOfContributors()
+    {
+        return this.numberOfContributors;
+    }
+
+    /**
+     * @param strainIndex int; the index of the strain
+     * @return the number of contributing (infected) persons of the strain
+     */
+    public int getNumberOfContributors(final int strainIndex)
+    {
+        InfectiousPressure pressure = this.pressures[strainIndex];
+        return pressure == null ? 0 : pressure.getNumberOfContributors();
+    }
+
+    /**
+     * @param strainIndex int; the index of the strain
+     * @param index int; the index of the contributor
+     * @return the id of the contributor of the strain with the given index
+     */
+    public int getContributor(final int strainIndex, final int index)
+    {
+        return this.pressures[strainIndex].getContributor(index);
+    }
+
+    /**
+     * Draw one of the contributors of a strain with a probability proportional to the integral of its infectivity over the
+     * window of the last integral that was taken for the strain, see InfectiousPressure.drawContributor.
+     * @param strainIndex int; the index of the strain, which should have contributors
+     * @param u double; a uniform draw in [0, 1)
+     * @return int; the id of the drawn contributor of the strain
+     */
+    public int drawContributor(final int strainIndex, final double u)
+    {
+        return this.pressures[strainIndex].drawContributor(u);
+    }
+
+    /**
+     * Add a candidate, i.e., a person who is present and not infected.
+     * @param personId int; the id of the person
+     */
+    public void addCandidate(final int personId)
+    {
+        if (!this.candidatePosition.containsKey(personId))
+        {
+            this.candidatePosition.put(personId, this.candidates.size());
+            this.candidates.add(personId);
+        }
+    }
+
+    /**
+     * Remove a candidate by moving the last candidate to its position.
+     * @param personId int; the id of the person
+     * @return boolean; whether the person was a candidate
+     */
+    public boolean removeCandidate(final int personId)
+    {
+        if (!this.candidatePosition.containsKey(personId))
+            return false;
+        int position = this.candidatePosition.remove(personId);
+        int last = this.candidates.removeAt(this.candidates.size() - 1);
+        if (last != personId)
+        {
+            this.candidates.set(position, last);
+            this.candidatePosition.put(last, position);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of candidates
+     */
+    public int getNumberOfCandidates()
+    {
+        return this.candidates.size();
+    }
+
+    /**
+     * @param index int; the index of the candidate
+     * @return the id of the candidate with the given index
+     */
+    public int getCandidate(final int index)
+    {
+        return this.candidates.get(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "MultiStrainPressure [time=" + this.time + ", contributors=" + this.numberOfContributors + ", candidates="
+                + this.candidates.size() + "]";
+    }
+
+}
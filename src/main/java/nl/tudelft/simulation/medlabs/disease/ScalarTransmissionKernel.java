@@ -0,0 +1,64 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+/**
+ * ScalarTransmissionKernel is the straightforward implementation of the TransmissionKernel, which evaluates the infectivity
+ * curve for every infectious person. It is the reference for the results of other implementations.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public final class ScalarTransmissionKernel implements TransmissionKernel
+{
+    /** the single instance; the kernel has no state. */
+    public static final ScalarTransmissionKernel INSTANCE = new ScalarTransmissionKernel();
+
+    /** */
+    private ScalarTransmissionKernel()
+    {
+        // use the INSTANCE
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double sumInfectivity(final SublocationArrays persons, final double now, final InfectivityCurve curve)
+    {
+        float[] exposureTimes = persons.getExposureTimes();
+        byte[] flags = persons.getFlags();
+        double sum = 0.0;
+        for (int i = 0; i < persons.size(); i++)
+        {
+            if (flags[i] == SublocationArrays.INFECTIOUS)
+                sum += curve.value(now - exposureTimes[i]);
+        }
+        return sum;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int selectSusceptibles(final SublocationArrays persons, final int[] indices)
+    {
+        byte[] flags = persons.getFlags();
+        int count = 0;
+        for (int i = 0; i < persons.size(); i++)
+        {
+            if (flags[i] == SublocationArrays.SUSCEPTIBLE)
+                indices[count++] = i;
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "ScalarTransmissionKernel";
+    }
+
+}
@@ -0,0 +1,98 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * Strain is one variant of a disease in the multi-strain mode of the DiseaseTransmission. Each strain has its own infectivity
+ * curve as a function of the time since exposure, and a transmissibility that multiplies the infectious pressure of the
+ * strain. All strains share the disease phases of the DiseaseProgression. Strains are created by the StrainTable.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class Strain implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the name of the strain. */
+    private final String name;
+
+    /** the index of the strain in the StrainTable. */
+    private final byte index;
+
+    /** the infectivity curve of the strain. */
+    private final InfectivityCurve infectivityCurve;
+
+    /** the factor with which the infectious pressure of the strain is multiplied. */
+    private final double transmissibility;
+
+    /**
+     * Create a strain; strains are created by the StrainTable.
+     * @param name String; the name of the strain
+     * @param index byte; the index of the strain in the StrainTable
+     * @param infectivityCurve InfectivityCurve; the infectivity curve of the strain
+     * @param transmissibility double; the factor with which the infectious pressure of the strain is multiplied
+     * @throws MedlabsRuntimeException when transmissibility is negative
+     */
+    Strain(final String name, final byte index, final InfectivityCurve infectivityCurve, final double transmissibility)
+    {
+        Throw.whenNull(infectivityCurve, "infectivityCurve cannot be null");
+        Throw.when(transmissibility < 0.0, MedlabsRuntimeException.class, "transmissibility of strain %s is negative", name);
+        this.name = name;
+        this.index = index;
+        this.infectivityCurve = infectivityCurve;
+        this.transmissibility = transmissibility;
+    }
+
+    /**
+     * @return the name of the strain
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the index of the strain in the StrainTable
+     */
+    public byte getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * @return the infectivity curve of the strain
+     */
+    public InfectivityCurve getInfectivityCurve()
+    {
+        return this.infectivityCurve;
+    }
+
+    /**
+     * @return the factor with which the infectious pressure of the strain is multiplied
+     */
+    public double getTransmissibility()
+    {
+        return this.transmissibility;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "Strain [name=" + this.name + ", index=" + this.index + ", transmissibility=" + this.transmissibility + "]";
+    }
+
+}
@@ -0,0 +1,204 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * StrainTable holds the strains of a disease for the multi-strain mode of the DiseaseTransmission, the cross-immunity between
+ * the strains, and the strain state of every person. The strain state of a person is packed in a short, indexed by person id:
+ * the lower 8 bits indicate which strains the person has had, and the next 4 bits hold the index + 1 of the strain of the
+ * current (or last) infection, with 0 meaning that the person has never been infected. This costs 2 bytes per person,
+ * independent of the number of strains.<br>
+ * <br>
+ * The cross-immunity is a small matrix: protection[i][j] is the fraction by which an earlier infection with strain i reduces
+ * the dose of strain j that a person receives. The susceptibility of a person to strain j is the product of (1 -
+ * protection[i][j]) over all strains i that the person has had. By default, an infection gives full protection against the
+ * same strain and no protection against the other strains. The susceptibility per combination of earlier strains is
+ * calculated in advance, so a lookup costs one array access.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class StrainTable implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the maximum number of strains. */
+    public static final int MAX_STRAINS = 8;
+
+    /** the mask for the strains a person has had. */
+    private static final int HISTORY_MASK = 0xFF;
+
+    /** the shift of the index + 1 of the current strain. */
+    private static final int CURRENT_SHIFT = 8;
+
+    /** the strains. */
+    private final List<Strain> strains = new ArrayList<>();
+
+    /** the protection against strain j after an infection with strain i, at [i][j]. */
+    private final double[][] protection = new double[MAX_STRAINS][MAX_STRAINS];
+
+    /** the susceptibility to strain j for the combination of earlier strains h, at [h * MAX_STRAINS + j]. */
+    private final double[] susceptibility = new double[(HISTORY_MASK + 1) * MAX_STRAINS];
+
+    /** the packed strain state per person id. */
+    private short[] state;
+
+    /**
+     * Create an empty strain table.
+     * @param capacity int; the expected largest person id + 1; the table grows when needed
+     */
+    public StrainTable(final int capacity)
+    {
+        this.state = new short[Math.max(1, capacity)];
+        for (int i = 0; i < MAX_STRAINS; i++)
+        {
+            this.protection[i][i] = 1.0;
+        }
+        calculateSusceptibility();
+    }
+
+    /**
+     * Add a strain to the table.
+     * @param name String; the name of the strain
+     * @param infectivityCurve InfectivityCurve; the infectivity curve of the strain
+     * @param transmissibility double; the factor with which the infectious pressure of the strain is multiplied
+     * @return Strain; the new strain
+     * @throws MedlabsRuntimeException when there are already MAX_STRAINS strains
+     */
+    public Strain addStrain(final String name, final InfectivityCurve infectivityCurve, final double transmissibility)
+    {
+        Throw.when(this.strains.size() >= MAX_STRAINS, MedlabsRuntimeException.class, "at most %d strains are supported",
+                MAX_STRAINS);
+        Strain strain = new Strain(name, (byte) this.strains.size(), infectivityCurve, transmissibility);
+        this.strains.add(strain);
+        return strain;
+    }
+
+    /**
+     * Set the protection against a strain after an infection with another (or the same) strain.
+     * @param fromStrain Strain; the strain of the earlier infection
+     * @param toStrain Strain; the strain against which the protection holds
+     * @param fraction double; the fraction by which the dose of toStrain is reduced, between 0 and 1
+     * @throws MedlabsRuntimeException when fraction is not between 0 and 1
+     */
+    public void setCrossImmunity(final Strain fromStrain, final Strain toStrain, final double fraction)
+    {
+        Throw.when(fraction < 0.0 || fraction > 1.0, MedlabsRuntimeException.class, "cross-immunity %f not in [0, 1]",
+                fraction);
+        this.protection[fromStrain.getIndex()][toStrain.getIndex()] = fraction;
+        calculateSusceptibility();
+    }
+
+    /**
+     * Calculate the susceptibility for every combination of earlier strains and every strain.
+     */
+    private void calculateSusceptibility()
+    {
+        for (int h = 0; h <= HISTORY_MASK; h++)
+        {
+            for (int j = 0; j < MAX_STRAINS; j++)
+            {
+                double s = 1.0;
+                for (int i = 0; i < MAX_STRAINS; i++)
+                {
+                    if ((h & (1 << i)) != 0)
+                        s *= 1.0 - this.protection[i][j];
+                }
+                this.susceptibility[h * MAX_STRAINS + j] = s;
+            }
+        }
+    }
+
+    /**
+     * Register the infection of a person with a strain.
+     * @param personId int; the id of the person
+     * @param strainIndex int; the index of the strain
+     */
+    public void infect(final int personId, final int strainIndex)
+    {
+        if (personId >= this.state.length)
+            this.state = Arrays.copyOf(this.state, Math.max(personId + 1, 2 * this.state.length));
+        this.state[personId] =
+                (short) ((this.state[personId] & HISTORY_MASK) | (1 << strainIndex) | ((strainIndex + 1) << CURRENT_SHIFT));
+    }
+
+    /**
+     * Return the strain of the current or last infection of a person. Whether the person is still infectious follows from the
+     * exposure time of the person and the infectivity curve of the strain.
+     * @param personId int; the id of the person
+     * @return int; the index of the strain of the last infection, or -1 when the person has never been infected
+     */
+    public int getCurrentStrain(final int personId)
+    {
+        return personId < this.state.length ? (this.state[personId] >>> CURRENT_SHIFT) - 1 : -1;
+    }
+
+    /**
+     * @param personId int; the id of the person
+     * @return the bit mask of the strains that the person has had, with bit i for strain i
+     */
+    public int getHistory(final int personId)
+    {
+        return personId < this.state.length ? this.state[personId] & HISTORY_MASK : 0;
+    }
+
+    /**
+     * Return the susceptibility of a person to a strain, as a factor on the dose of the strain.
+     * @param personId int; the id of the person
+     * @param strainIndex int; the index of the strain
+     * @return double; the susceptibility between 0 (fully protected) and 1 (no protection)
+     */
+    public double getSusceptibility(final int personId, final int strainIndex)
+    {
+        return this.susceptibility[getHistory(personId) * MAX_STRAINS + strainIndex];
+    }
+
+    /**
+     * @param strainIndex int; the index of the strain
+     * @return the strain with the given index
+     */
+    public Strain getStrain(final int strainIndex)
+    {
+        return this.strains.get(strainIndex);
+    }
+
+    /**
+     * @return the number of strains
+     */
+    public int getNumberOfStrains()
+    {
+        return this.strains.size();
+    }
+
+    /**
+     * @return an unmodifiable list of the strains
+     */
+    public List<Strain> getStrains()
+    {
+        return Collections.unmodifiableList(this.strains);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "StrainTable [strains=" + this.strains + "]";
+    }
+
+}
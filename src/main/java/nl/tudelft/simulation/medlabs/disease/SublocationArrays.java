@@ -0,0 +1,226 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.util.Arrays;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.set.TIntSet;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * SublocationArrays holds the persons of one (sub)location, gathered into primitive arrays of ids, exposure times and phase
+ * flags, so a TransmissionKernel can loop over them without dereferencing Person objects. The arrays grow when needed and are
+ * reused between calculations.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class SublocationArrays
+{
+    /** flag for a person who is neither susceptible nor infectious. */
+    public static final byte OTHER = 0;
+
+    /** flag for a susceptible person. */
+    public static final byte SUSCEPTIBLE = 1;
+
+    /** flag for an infectious (ill) person. */
+    public static final byte INFECTIOUS = 2;
+
+    /** the ids of the persons. */
+    private int[] ids;
+
+    /** the exposure times of the persons; only meaningful for infectious persons. */
+    private float[] exposureTimes;
+
+    /** the phase flags of the persons. */
+    private byte[] flags;
+
+    /** scratch array for the kernels, with the same length as the other arrays. */
+    private double[] scratch;
+
+    /** scratch array for indices, with the same length as the other arrays. */
+    private int[] indexScratch;
+
+    /** the number of persons in the arrays. */
+    private int size = 0;
+
+    /** the number of infectious persons in the arrays. */
+    private int numberInfectious = 0;
+
+    /** the number of susceptible persons in the arrays. */
+    private int numberSusceptible = 0;
+
+    /**
+     * Create empty arrays with the given initial capacity.
+     * @param capacity int; the initial capacity
+     */
+    public SublocationArrays(final int capacity)
+    {
+        int n = Math.max(4, capacity);
+        this.ids = new int[n];
+        this.exposureTimes = new float[n];
+        this.flags = new byte[n];
+        this.scratch = new double[n];
+        this.indexScratch = new int[n];
+    }
+
+    /**
+     * Gather the persons with the given ids into the arrays, replacing the current content.
+     * @param personIds TIntSet; the ids of the persons in the (sub)location
+     * @param personMap TIntObjectMap&lt;Person&gt;; the map of all persons
+     */
+    public void gather(final TIntSet personIds, final TIntObjectMap<Person> personMap)
+    {
+        clear();
+        ensureCapacity(personIds.size());
+        for (TIntIterator it = personIds.iterator(); it.hasNext();)
+        {
+            Person person = personMap.get(it.next());
+            add(person.getId(), person.getExposureTime(), flag(person));
+        }
+    }
+
+    /**
+     * Return the phase flag of a person.
+     * @param person Person; the person
+     * @return byte; SUSCEPTIBLE, INFECTIOUS (ill) or OTHER
+     */
+    public static byte flag(final Person person)
+    {
+        return person.getDiseasePhase().isSusceptible() ? SUSCEPTIBLE : person.getDiseasePhase().isIll() ? INFECTIOUS : OTHER;
+    }
+
+    /**
+     * Add one person to the arrays.
+     * @param id int; the id of the person
+     * @param exposureTime float; the exposure time of the person
+     * @param flag byte; the phase flag of the person: OTHER, SUSCEPTIBLE or INFECTIOUS
+     */
+    public void add(final int id, final float exposureTime, final byte flag)
+    {
+        ensureCapacity(this.size + 1);
+        this.ids[this.size] = id;
+        this.exposureTimes[this.size] = exposureTime;
+        this.flags[this.size] = flag;
+        this.size++;
+        if (flag == INFECTIOUS)
+            this.numberInfectious++;
+        else if (flag == SUSCEPTIBLE)
+            this.numberSusceptible++;
+    }
+
+    /**
+     * Remove all persons from the arrays, keeping the allocated memory.
+     */
+    public void clear()
+    {
+        this.size = 0;
+        this.numberInfectious = 0;
+        this.numberSusceptible = 0;
+    }
+
+    /**
+     * Make sure the arrays can hold the given number of persons.
+     * @param capacity int; the number of persons
+     */
+    private void ensureCapacity(final int capacity)
+    {
+        if (capacity > this.ids.length)
+        {
+            int n = Math.max(capacity, 2 * this.ids.length);
+            this.ids = Arrays.copyOf(this.ids, n);
+            this.exposureTimes = Arrays.copyOf(this.exposureTimes, n);
+            this.flags = Arrays.copyOf(this.flags, n);
+            this.scratch = new double[n];
+            this.indexScratch = new int[n];
+        }
+    }
+
+    /**
+     * @return the number of persons in the arrays
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the number of infectious persons in the arrays
+     */
+    public int getNumberInfectious()
+    {
+        return this.numberInfectious;
+    }
+
+    /**
+     * @return the number of susceptible persons in the arrays
+     */
+    public int getNumberSusceptible()
+    {
+        return this.numberSusceptible;
+    }
+
+    /**
+     * Return the array with the ids. Only the first size() entries are valid. The array is not copied for performance reasons.
+     * @return int[]; the ids of the persons
+     */
+    public int[] getIds()
+    {
+        return this.ids;
+    }
+
+    /**
+     * Return the array with the exposure times. Only the first size() entries are valid. The array is not copied for
+     * performance reasons.
+     * @return float[]; the exposure times of the persons
+     */
+    public float[] getExposureTimes()
+    {
+        return this.exposureTimes;
+    }
+
+    /**
+     * Return the array with the phase flags. Only the first size() entries are valid. The array is not copied for performance
+     * reasons.
+     * @return byte[]; the phase flags of the persons
+     */
+    public byte[] getFlags()
+    {
+        return this.flags;
+    }
+
+    /**
+     * Return a scratch array that the kernels can use, with a length of at least size().
+     * @return double[]; the scratch array
+     */
+    public double[] getScratch()
+    {
+        return this.scratch;
+    }
+
+    /**
+     * Return a scratch array for indices, e.g., for the output of TransmissionKernel.selectSusceptibles, with a length of at
+     * least size().
+     * @return int[]; the scratch array for indices
+     */
+    public int[] getIndexScratch()
+    {
+        return this.indexScratch;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "SublocationArrays [size=" + this.size + ", numberInfectious=" + this.numberInfectious
+                + ", numberSusceptible=" + this.numberSusceptible + "]";
+    }
+
+}
@@ -0,0 +1,513 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+import gnu.trove.list.TByteList;
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TFloatList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TFloatArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * SublocationIntervalLog records the presence intervals of the persons in one sublocation during a time window of the deferred
+ * transmission mode. Enter and leave events only add or close an interval; the infection calculation for the window is carried
+ * out afterwards by evaluate, which computes for every susceptible person the exact integral of the infectivity of the
+ * infectious persons over the time that they were together, in one sweep over the sorted enter and leave times. The
+ * evaluation only uses the data in the log and a random generator that is seeded per sublocation and window, so logs of
+ * different sublocations can be evaluated in parallel with a result that does not depend on the number of threads.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class SublocationIntervalLog
+{
+    /** the location. */
+    private final Location location;
+
+    /** the index of the sublocation. */
+    private final short subLocationIndex;
+
+    /** the person id per interval. */
+    private final TIntList persons = new TIntArrayList();
+
+    /** the enter time per interval. */
+    private final TDoubleList enterTimes = new TDoubleArrayList();
+
+    /** the leave time per interval, NaN when the person is still present. */
+    private final TDoubleList leaveTimes = new TDoubleArrayList();
+
+    /** the phase flag (see SublocationArrays) per interval, determined when the interval started. */
+    private final TByteList flags = new TByteArrayList();
+
+    /** the exposure time of the person per interval. */
+    private final TFloatList exposureTimes = new TFloatArrayList();
+
+    /** the index of the open interval per person id. */
+    private final TIntIntMap openInterval = new TIntIntHashMap();
+
+    /** the number of intervals of infectious persons. */
+    private int numberInfectious = 0;
+
+    /** the ids of the persons infected by the last evaluation. */
+    private final TIntArrayList infected = new TIntArrayList();
+
+    /** the ids of the infectious persons to whom the infections of the last evaluation are attributed. */
+    private final TIntArrayList infectors = new TIntArrayList();
+
+    /** the boundary times of the sweep: index 2i for the start and 2i+1 for the end of interval i within the window. */
+    private double[] sweepTimes = new double[0];
+
+    /** the boundaries of the sweep (2i for the start, 2i+1 for the end of interval i), sorted on time. */
+    private int[] sweepEvents = new int[0];
+
+    /** the buffer of the merge sort of the boundaries. */
+    private int[] sortBuffer = new int[0];
+
+    /** the dose per interval of a susceptible person in the window. */
+    private double[] intervalDose = new double[0];
+
+    /** the next interval of the same susceptible person, or -1 for the last interval of the person. */
+    private int[] nextInterval = new int[0];
+
+    /** the infectious intervals that are open at the current time of the sweep. */
+    private int[] activeInfectious = new int[0];
+
+    /** the position of an open infectious interval in activeInfectious. */
+    private int[] activePosition = new int[0];
+
+    /** the indices of the intervals of infectious persons in the window, in interval order. */
+    private final TIntArrayList infectiousIntervals = new TIntArrayList();
+
+    /** the position in firstIntervals per susceptible person id. */
+    private final TIntIntMap personPosition = new TIntIntHashMap();
+
+    /** the first interval per susceptible person, in the order of the first intervals. */
+    private final TIntArrayList firstIntervals = new TIntArrayList();
+
+    /** the last interval per susceptible person, parallel to firstIntervals. */
+    private final TIntArrayList lastIntervals = new TIntArrayList();
+
+    /** the dose per susceptible person, parallel to firstIntervals. */
+    private final TDoubleArrayList personDoses = new TDoubleArrayList();
+
+    /** the ids of the infectious persons who left the sublocation, returned by getDepartedInfectious. */
+    private final TIntArrayList departed = new TIntArrayList();
+
+    /** the ids in departed, to add each person once. */
+    private final TIntSet departedSeen = new TIntHashSet();
+
+    /**
+     * Create an empty interval log for a sublocation.
+     * @param location Location; the location
+     * @param subLocationIndex short; the index of the sublocation
+     */
+    public SublocationIntervalLog(final Location location, final short subLocationIndex)
+    {
+        this.location = location;
+        this.subLocationIndex = subLocationIndex;
+    }
+
+    /**
+     * Record that a person enters the sublocation. A person who is already present is ignored.
+     * @param personId int; the id of the person
+     * @param flag byte; the phase flag of the person (see SublocationArrays)
+     * @param exposureTime float; the exposure time of the person
+     * @param time double; the time of entering
+     */
+    public void enter(final int personId, final byte flag, final float exposureTime, final double time)
+    {
+        if (this.openInterval.containsKey(personId))
+            return;
+        this.openInterval.put(personId, this.persons.size());
+        this.persons.add(personId);
+        this.enterTimes.add(time);
+        this.leaveTimes.add(Double.NaN);
+        this.flags.add(flag);
+        this.exposureTimes.add(exposureTime);
+        if (flag == SublocationArrays.INFECTIOUS)
+            this.numberInfectious++;
+    }
+
+    /**
+     * Record that a person leaves the sublocation.
+     * @param personId int; the id of the person
+     * @param time double; the time of leaving
+     */
+    public void leave(final int personId, final double time)
+    {
+        if (this.openInterval.containsKey(personId))
+            this.leaveTimes.set(this.openInterval.remove(personId), time);
+    }
+
+    /**
+     * Calculate the infections in the window [windowStart, windowEnd]. For every susceptible person i the dose is the sum over
+     * the infectious persons j of the integral of the infectivity of j over the overlap of the intervals of i and j; the
+     * probability of infection follows from the dose. An infection is attributed to one of the infectious persons with a
+     * probability proportional to their share in the dose. The results are available through getInfected and getInfectors.
+     * <p>
+     * The doses are calculated in one sweep over the enter and leave times of the intervals, sorted on time. The sweep keeps
+     * the cumulative infectivity of the infectious persons who are present, and the dose of a susceptible interval is the
+     * difference of the cumulative infectivity at its leave and enter times. The cost is the sorting of the boundaries plus,
+     * per boundary, the number of infectious persons present at that moment, instead of the number of susceptible intervals
+     * times the number of infectious intervals. Only the infected persons look at their contacts with each infectious person
+     * for the attribution. The buffers of the sweep are kept in the log and reused in the next windows.
+     * </p>
+     * The method does not access any other object than the log, the curve and the probability function, so it can be called
+     * for different logs in parallel.
+     * @param windowStart double; the start of the window
+     * @param windowEnd double; the end of the window
+     * @param curve InfectivityCurve; the infectivity as a function of the time since exposure
+     * @param probability DoubleUnaryOperator; the function that gives the probability of infection for a dose
+     * @param random SplittableRandom; the random generator for this sublocation and window
+     */
+    public void evaluate(final double windowStart, final double windowEnd, final InfectivityCurve curve,
+            final DoubleUnaryOperator probability, final SplittableRandom random)
+    {
+        this.infected.resetQuick();
+        this.infectors.resetQuick();
+        if (this.numberInfectious == 0)
+            return;
+        int n = this.persons.size();
+        ensureCapacity(n);
+
+        // the boundaries of the intervals of the susceptible and infectious persons within the window
+        int nrEvents = 0;
+        this.infectiousIntervals.resetQuick();
+        for (int i = 0; i < n; i++)
+        {
+            byte flag = this.flags.get(i);
+            if (flag != SublocationArrays.SUSCEPTIBLE && flag != SublocationArrays.INFECTIOUS)
+                continue;
+            this.intervalDose[i] = 0.0;
+            double from = Math.max(windowStart, this.enterTimes.get(i));
+            double to = Math.min(windowEnd, end(i, windowEnd));
+            if (to <= from)
+                continue;
+            if (flag == SublocationArrays.INFECTIOUS)
+                this.infectiousIntervals.add(i);
+            this.sweepTimes[2 * i] = from;
+            this.sweepTimes[2 * i + 1] = to;
+            this.sweepEvents[nrEvents++] = 2 * i;
+            this.sweepEvents[nrEvents++] = 2 * i + 1;
+        }
+        sortEvents(nrEvents);
+
+        // sweep: the dose of a susceptible interval is the growth of the cumulative infectivity while it is open
+        double cumulative = 0.0;
+        double last = windowStart;
+        int nrActive = 0;
+        for (int k = 0; k < nrEvents; k++)
+        {
+            int event = this.sweepEvents[k];
+            int i = event >> 1;
+            double time = this.sweepTimes[event];
+            if (nrActive > 0 && time > last)
+            {
+                for (int a = 0; a < nrActive; a++)
+                {
+                    double exposure = this.exposureTimes.get(this.activeInfectious[a]);
+                    cumulative += curve.integral(last - exposure, time - exposure);
+                }
+            }
+            last = time;
+            boolean enter = (event & 1) == 0;
+            if (this.flags.get(i) == SublocationArrays.INFECTIOUS)
+            {
+                if (enter)
+                {
+                    this.activePosition[i] = nrActive;
+                    this.activeInfectious[nrActive++] = i;
+                }
+                else
+                {
+                    int moved = this.activeInfectious[--nrActive];
+                    this.activeInfectious[this.activePosition[i]] = moved;
+                    this.activePosition[moved] = this.activePosition[i];
+                }
+            }
+            else
+            {
+                this.intervalDose[i] = enter ? -cumulative : this.intervalDose[i] + cumulative;
+            }
+        }
+
+        // sum the doses per susceptible person, in the order of their first interval, and link the intervals of each person
+        this.personPosition.clear();
+        this.firstIntervals.resetQuick();
+        this.lastIntervals.resetQuick();
+        this.personDoses.resetQuick();
+        for (int i = 0; i < n; i++)
+        {
+            if (this.flags.get(i) != SublocationArrays.SUSCEPTIBLE)
+                continue;
+            this.nextInterval[i] = -1;
+            int personId = this.persons.get(i);
+            if (this.personPosition.containsKey(personId))
+            {
+                int position = this.personPosition.get(personId);
+                this.nextInterval[this.lastIntervals.get(position)] = i;
+                this.lastIntervals.set(position, i);
+                this.personDoses.set(position, this.personDoses.get(position) + this.intervalDose[i]);
+            }
+            else
+            {
+                this.personPosition.put(personId, this.firstIntervals.size());
+                this.firstIntervals.add(i);
+                this.lastIntervals.add(i);
+                this.personDoses.add(this.intervalDose[i]);
+            }
+        }
+
+        for (int s = 0; s < this.firstIntervals.size(); s++)
+        {
+            double d = this.personDoses.get(s);
+            if (d <= 0.0 || random.nextDouble() >= probability.applyAsDouble(d))
+                continue;
+            int first = this.firstIntervals.get(s);
+            this.infected.add(this.persons.get(first));
+            this.infectors.add(attribute(first, d * random.nextDouble(), windowStart, windowEnd, curve));
+        }
+    }
+
+    /**
+     * Find the infectious person to whom an infection is attributed, by walking through the contributions to the dose of the
+     * intervals of the infected person until the cumulative contribution exceeds the given target.
+     * @param firstInterval int; the index of the first interval of the infected person
+     * @param target double; a uniform draw between 0 and the dose of the infected person
+     * @param windowStart double; the start of the window
+     * @param windowEnd double; the end of the window
+     * @param curve InfectivityCurve; the infectivity curve
+     * @return int; the id of the infectious person
+     */
+    private int attribute(final int firstInterval, final double target, final double windowStart, final double windowEnd,
+            final InfectivityCurve curve)
+    {
+        double cumulative = 0.0;
+        int last = -1;
+        for (int i = firstInterval; i >= 0; i = this.nextInterval[i])
+        {
+            for (int k = 0; k < this.infectiousIntervals.size(); k++)
+            {
+                int j = this.infectiousIntervals.get(k);
+                double contribution = overlapIntegral(i, j, windowStart, windowEnd, curve);
+                if (contribution > 0.0)
+                {
+                    last = this.persons.get(j);
+                    cumulative += contribution;
+                    if (cumulative > target)
+                        return last;
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Make sure that the buffers of the sweep can hold the boundaries of the given number of intervals.
+     * @param n int; the number of intervals
+     */
+    private void ensureCapacity(final int n)
+    {
+        if (this.intervalDose.length >= n)
+            return;
+        int capacity = Math.max(n, 2 * this.intervalDose.length);
+        this.intervalDose = new double[capacity];
+        this.nextInterval = new int[capacity];
+        this.activeInfectious = new int[capacity];
+        this.activePosition = new int[capacity];
+        this.sweepTimes = new double[2 * capacity];
+        this.sweepEvents = new int[2 * capacity];
+        this.sortBuffer = new int[2 * capacity];
+    }
+
+    /**
+     * Sort the boundaries in sweepEvents on their time with a stable bottom-up merge sort, using sortBuffer.
+     * @param nrEvents int; the number of boundaries
+     */
+    private void sortEvents(final int nrEvents)
+    {
+        int[] from = this.sweepEvents;
+        int[] to = this.sortBuffer;
+        for (int width = 1; width < nrEvents; width *= 2)
+        {
+            for (int lo = 0; lo < nrEvents; lo += 2 * width)
+            {
+                int mid = Math.min(lo + width, nrEvents);
+                int hi = Math.min(lo + 2 * width, nrEvents);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi)
+                    to[k++] = this.sweepTimes[from[j]] < this.sweepTimes[from[i]] ? from[j++] : from[i++];
+                while (i < mid)
+                    to[k++] = from[i++];
+                while (j < hi)
+                    to[k++] = from[j++];
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != this.sweepEvents)
+            System.arraycopy(from, 0, this.sweepEvents, 0, nrEvents);
+    }
+
+    /**
+     * Return the integral of the infectivity of the infectious interval j over its overlap with interval i within the window.
+     * @param i int; the index of the interval of the susceptible person
+     * @param j int; the index of the interval of the infectious person
+     * @param windowStart double; the start of the window
+     * @param windowEnd double; the end of the window
+     * @param curve InfectivityCurve; the infectivity curve
+     * @return double; the integral of the infectivity over the overlap, 0 when the intervals do not overlap
+     */
+    private double overlapIntegral(final int i, final int j, final double windowStart, final double windowEnd,
+            final InfectivityCurve curve)
+    {
+        double from = Math.max(windowStart, Math.max(this.enterTimes.get(i), this.enterTimes.get(j)));
+        double to = Math.min(windowEnd, Math.min(end(i, windowEnd), end(j, windowEnd)));
+        if (to <= from)
+            return 0.0;
+        double exposure = this.exposureTimes.get(j);
+        return curve.integral(from - exposure, to - exposure);
+    }
+
+    /**
+     * @param interval int; the index of the interval
+     * @param windowEnd double; the end of the window
+     * @return the leave time of the interval, or the end of the window when the person is still present
+     */
+    private double end(final int interval, final double windowEnd)
+    {
+        double leave = this.leaveTimes.get(interval);
+        return Double.isNaN(leave) ? windowEnd : leave;
+    }
+
+    /**
+     * Start a new window: remove the closed intervals, and restart the open intervals at the given time with the current phase
+     * flag and exposure time of the persons, since their disease phase might have changed.
+     * @param time double; the start of the new window
+     * @param personMap TIntObjectMap&lt;Person&gt;; the map of all persons
+     */
+    public void restart(final double time, final TIntObjectMap<Person> personMap)
+    {
+        int[] present = this.openInterval.keys();
+        Arrays.sort(present);
+        this.persons.clear();
+        this.enterTimes.clear();
+        this.leaveTimes.clear();
+        this.flags.clear();
+        this.exposureTimes.clear();
+        this.openInterval.clear();
+        this.numberInfectious = 0;
+        for (int personId : present)
+        {
+            Person person = personMap.get(personId);
+            enter(personId, SublocationArrays.flag(person), person.getExposureTime(), time);
+        }
+    }
+
+    /**
+     * @return the ids of the persons who are present at the moment, in no particular order
+     */
+    public int[] getPresentPersons()
+    {
+        return this.openInterval.keys();
+    }
+
+    /**
+     * Return the ids of the infectious persons whose last interval in the window has been closed, in interval order. The list
+     * is reused by the next call.
+     * @return the ids of the infectious persons who left the sublocation during the window
+     */
+    public TIntList getDepartedInfectious()
+    {
+        this.departed.resetQuick();
+        this.departedSeen.clear();
+        for (int i = 0; i < this.persons.size(); i++)
+        {
+            int personId = this.persons.get(i);
+            if (this.flags.get(i) == SublocationArrays.INFECTIOUS && !this.openInterval.containsKey(personId)
+                    && this.departedSeen.add(personId))
+                this.departed.add(personId);
+        }
+        return this.departed;
+    }
+
+    /**
+     * @return the number of intervals of infectious persons in the window
+     */
+    public int getNumberInfectious()
+    {
+        return this.numberInfectious;
+    }
+
+    /**
+     * @return the number of intervals in the window
+     */
+    public int getNumberOfIntervals()
+    {
+        return this.persons.size();
+    }
+
+    /**
+     * @return the ids of the persons infected by the last evaluation
+     */
+    public TIntList getInfected()
+    {
+        return this.infected;
+    }
+
+    /**
+     * @return the ids of the infectious persons to whom the infections of the last evaluation are attributed, parallel to
+     *         getInfected
+     */
+    public TIntList getInfectors()
+    {
+        return this.infectors;
+    }
+
+    /**
+     * @return the location
+     */
+    public Location getLocation()
+    {
+        return this.location;
+    }
+
+    /**
+     * @return the index of the sublocation
+     */
+    public short getSubLocationIndex()
+    {
+        return this.subLocationIndex;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "SublocationIntervalLog [location=" + this.location.getId() + ", subLocationIndex=" + this.subLocationIndex
+                + ", intervals=" + this.persons.size() + ", infectious=" + this.numberInfectious + "]";
+    }
+
+}
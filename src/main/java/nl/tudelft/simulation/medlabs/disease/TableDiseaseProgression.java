@@ -0,0 +1,269 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.iterator.TDoubleIterator;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.set.TDoubleSet;
+import gnu.trove.set.hash.TDoubleHashSet;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * TableDiseaseProgression is a disease progression of which the phases and the transitions between the phases are declared as
+ * data: for every phase a list of next phases, each with a probability and a duration distribution. When a person enters a
+ * phase, one of the outgoing transitions is drawn, and stored as a pending transition in a TransitionTimerWheel. All
+ * transitions that are due in the same time bucket (e.g., one hour) are processed in one simulation event at the end of the
+ * bucket, and the number of persons per phase is updated once per phase per bucket. Compared to one scheduled event per
+ * person per phase, with an argument array and a reflective method call, this saves millions of events in large outbreaks, at
+ * the cost of a delay of at most one bucket width for each transition.
+ * <p>
+ * A phase without outgoing transitions is an end phase. When the probabilities of the outgoing transitions of a phase add up to
+ * less than 1, the person stays in the phase with the remaining probability. Subclasses can react on phase changes by
+ * overriding phaseChanged.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public abstract class TableDiseaseProgression extends DiseaseProgression
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the number of slots of the timer wheel. */
+    private static final int WHEEL_SLOTS = 1024;
+
+    /** the next phase indices of the outgoing transitions, per phase index. */
+    private byte[][] transitionTargets = new byte[0][];
+
+    /** the cumulative probabilities of the outgoing transitions, per phase index. */
+    private double[][] transitionCumulative = new double[0][];
+
+    /** the duration distributions of the outgoing transitions, per phase index. */
+    private DurationDistribution[][] transitionDurations = new DurationDistribution[0][];
+
+    /** the pending transitions. */
+    private final TransitionTimerWheel wheel;
+
+    /** the times for which an event to process the transitions has been scheduled. */
+    private final TDoubleSet scheduledTimes = new TDoubleHashSet();
+
+    /** the earliest time for which an event has been scheduled, or infinity when no event has been scheduled. */
+    private double firstScheduledTime = Double.POSITIVE_INFINITY;
+
+    /** the change in the number of persons per phase index during the processing of a bucket. */
+    private int[] phaseDelta = new int[0];
+
+    /**
+     * Create a table-driven disease progression.
+     * @param model MedlabsModelInterface; the model
+     * @param name String; the name of the disease for reporting
+     * @param bucketWidth double; the width of the time buckets in hours in which the transitions are processed together
+     */
+    public TableDiseaseProgression(final MedlabsModelInterface model, final String name, final double bucketWidth)
+    {
+        super(model, name);
+        this.wheel = new TransitionTimerWheel(bucketWidth, WHEEL_SLOTS);
+    }
+
+    /**
+     * Declare a transition from one phase to another phase. The transitions of a phase are drawn in the order in which they are
+     * added.
+     * @param fromPhase DiseasePhase; the phase the person is in
+     * @param toPhase DiseasePhase; the next phase
+     * @param probability double; the probability that the person takes this transition
+     * @param duration DurationDistribution; the distribution of the time the person stays in fromPhase before the transition
+     */
+    protected void addTransition(final DiseasePhase fromPhase, final DiseasePhase toPhase, final double probability,
+            final DurationDistribution duration)
+    {
+        Throw.whenNull(duration, "duration cannot be null");
+        Throw.when(probability < 0.0 || probability > 1.0, MedlabsRuntimeException.class,
+                "transition probability %f not in [0, 1]", probability);
+        int from = fromPhase.getIndex();
+        ensurePhases(Math.max(from, toPhase.getIndex()) + 1);
+        int n = this.transitionTargets[from].length;
+        double cumulative = (n == 0 ? 0.0 : this.transitionCumulative[from][n - 1]) + probability;
+        Throw.when(cumulative > 1.0 + 1E-9, MedlabsRuntimeException.class,
+                "transition probabilities from phase %s add up to more than 1", fromPhase.getName());
+        this.transitionTargets[from] = Arrays.copyOf(this.transitionTargets[from], n + 1);
+        this.transitionTargets[from][n] = toPhase.getIndex();
+        this.transitionCumulative[from] = Arrays.copyOf(this.transitionCumulative[from], n + 1);
+        this.transitionCumulative[from][n] = cumulative;
+        this.transitionDurations[from] = Arrays.copyOf(this.transitionDurations[from], n + 1);
+        this.transitionDurations[from][n] = duration;
+    }
+
+    /**
+     * Make sure the transition tables can hold the given number of phases.
+     * @param numberOfPhases int; the number of phases
+     */
+    private void ensurePhases(final int numberOfPhases)
+    {
+        int old = this.transitionTargets.length;
+        if (numberOfPhases <= old)
+            return;
+        this.transitionTargets = Arrays.copyOf(this.transitionTargets, numberOfPhases);
+        this.transitionCumulative = Arrays.copyOf(this.transitionCumulative, numberOfPhases);
+        this.transitionDurations = Arrays.copyOf(this.transitionDurations, numberOfPhases);
+        for (int i = old; i < numberOfPhases; i++)
+        {
+            this.transitionTargets[i] = new byte[0];
+            this.transitionCumulative[i] = new double[0];
+            this.transitionDurations[i] = new DurationDistribution[0];
+        }
+        this.phaseDelta = new int[numberOfPhases];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void expose(final Person exposedPerson, final DiseasePhase exposurePhase)
+    {
+        DiseasePhase fromPhase = exposedPerson.getDiseasePhase();
+        fromPhase.removePerson();
+        exposedPerson.setDiseasePhase(exposurePhase);
+        exposurePhase.addPerson();
+        phaseChanged(exposedPerson, fromPhase, exposurePhase);
+        scheduleNextTransition(exposedPerson, exposurePhase);
+    }
+
+    /**
+     * Draw the next transition for a person who just entered a phase, and store it in the timer wheel. Nothing is stored for an
+     * end phase, or when the person stays in the phase.
+     * @param person Person; the person
+     * @param phase DiseasePhase; the phase that the person just entered
+     */
+    protected void scheduleNextTransition(final Person person, final DiseasePhase phase)
+    {
+        int from = phase.getIndex();
+        if (from >= this.transitionTargets.length || this.transitionTargets[from].length == 0)
+            return;
+        double[] cumulative = this.transitionCumulative[from];
+        int k = 0;
+        if (cumulative.length > 1 || cumulative[0] < 1.0)
+        {
+            double u = this.model.getRandomStream().nextDouble();
+            while (k < cumulative.length && u >= cumulative[k])
+            {
+                k++;
+            }
+            if (k == cumulative.length)
+                return; // the person stays in the phase
+        }
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        double dueTime = now + this.transitionDurations[from][k].getDuration();
+        this.wheel.add(person.getId(), phase.getIndex(), this.transitionTargets[from][k], dueTime);
+        scheduleProcessing();
+    }
+
+    /**
+     * Make sure an event is scheduled at the end of the first bucket with pending transitions, unless an earlier event has
+     * already been scheduled.
+     */
+    private void scheduleProcessing()
+    {
+        long bucket = this.wheel.nextBucket();
+        if (bucket < 0)
+            return;
+        double time = this.wheel.bucketEnd(bucket);
+        if (this.firstScheduledTime <= time)
+            return;
+        this.firstScheduledTime = time;
+        this.scheduledTimes.add(time);
+        this.model.getSimulator().scheduleEventAbs(time, this, "processTransitions", null);
+    }
+
+    /**
+     * Schedulable method that carries out all transitions that are due in the buckets that ended, in one batch per bucket.
+     * Transitions of persons who are no longer in the expected phase, e.g., because another mechanism changed their phase, are
+     * skipped. The transmission model is notified of each transition, so the accumulator of the sublocation of the person can
+     * be updated. The number of persons per phase is updated once per phase at the end of each bucket.
+     */
+    protected void processTransitions()
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        this.scheduledTimes.remove(now);
+        this.firstScheduledTime = Double.POSITIVE_INFINITY;
+        for (TDoubleIterator it = this.scheduledTimes.iterator(); it.hasNext();)
+        {
+            this.firstScheduledTime = Math.min(this.firstScheduledTime, it.next());
+        }
+        TIntObjectMap<Person> personMap = this.model.getPersonMap();
+        List<DiseasePhase> phases = getDiseasePhases();
+        long bucket = this.wheel.nextBucket();
+        while (bucket >= 0 && this.wheel.bucketEnd(bucket) <= now)
+        {
+            int n = this.wheel.drain(bucket);
+            int[] persons = this.wheel.getDrainedPersons();
+            byte[] fromPhases = this.wheel.getDrainedFromPhases();
+            byte[] toPhases = this.wheel.getDrainedToPhases();
+            for (int i = 0; i < n; i++)
+            {
+                Person person = personMap.get(persons[i]);
+                DiseasePhase fromPhase = person.getDiseasePhase();
+                if (fromPhase.getIndex() != fromPhases[i])
+                    continue;
+                DiseasePhase toPhase = phases.get(toPhases[i]);
+                person.setDiseasePhase(toPhase);
+                this.phaseDelta[fromPhases[i]]--;
+                this.phaseDelta[toPhases[i]]++;
+                phaseChanged(person, fromPhase, toPhase);
+                scheduleNextTransition(person, toPhase);
+                this.model.getDiseaseTransmission().notifyPhaseChange(person);
+            }
+            for (int p = 0; p < this.phaseDelta.length; p++)
+            {
+                if (this.phaseDelta[p] != 0)
+                {
+                    DiseasePhase phase = phases.get(p);
+                    phase.setNumberOfPersons(phase.getNumberOfPersons() + this.phaseDelta[p]);
+                    this.phaseDelta[p] = 0;
+                }
+            }
+            bucket = this.wheel.nextBucket();
+        }
+        scheduleProcessing();
+    }
+
+    /**
+     * Method that is called after a person changed phase, through expose or a transition. The default implementation does
+     * nothing. Note that during the processing of a bucket, the number of persons per phase is only updated at the end of the
+     * bucket.
+     * @param person Person; the person
+     * @param fromPhase DiseasePhase; the previous phase
+     * @param toPhase DiseasePhase; the new phase
+     */
+    protected void phaseChanged(final Person person, final DiseasePhase fromPhase, final DiseasePhase toPhase)
+    {
+        // no action by default
+    }
+
+    /**
+     * @return the number of pending transitions
+     */
+    public int getNumberOfPendingTransitions()
+    {
+        return this.wheel.size();
+    }
+
+    /**
+     * @return the timer wheel with the pending transitions
+     */
+    public TransitionTimerWheel getTimerWheel()
+    {
+        return this.wheel;
+    }
+
+}
@@ -0,0 +1,334 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * TransitionTimerWheel stores the pending disease phase transitions of persons in time buckets of a fixed width, e.g., one
+ * hour. The wheel has a ring of slots, one per bucket, for the buckets in the near future; transitions that are due further
+ * away than the ring covers are kept in an overflow area, and are moved into the ring when the wheel has turned far enough.
+ * Each transition is stored as a person id, the index of the phase the person is expected to be in, and the index of the next
+ * phase, in primitive arrays, so a pending transition costs 6 bytes instead of a scheduled simulation event with an argument
+ * array. The owner drains the buckets in time order, and processes all transitions of a bucket in one batch.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitionTimerWheel implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the width of a bucket in hours. */
+    private final double bucketWidth;
+
+    /** the number of slots in the ring; a power of 2. */
+    private final int numberOfSlots;
+
+    /** the mask to find the slot of a bucket. */
+    private final int mask;
+
+    /** the person ids per slot. */
+    private final int[][] slotPersons;
+
+    /** the expected current phase index per slot. */
+    private final byte[][] slotFromPhases;
+
+    /** the next phase index per slot. */
+    private final byte[][] slotToPhases;
+
+    /** the number of transitions per slot. */
+    private final int[] slotSizes;
+
+    /** the person ids in the overflow area. */
+    private int[] overflowPersons = new int[16];
+
+    /** the expected current phase indices in the overflow area. */
+    private byte[] overflowFromPhases = new byte[16];
+
+    /** the next phase indices in the overflow area. */
+    private byte[] overflowToPhases = new byte[16];
+
+    /** the buckets of the transitions in the overflow area. */
+    private long[] overflowBuckets = new long[16];
+
+    /** the number of transitions in the overflow area. */
+    private int overflowSize = 0;
+
+    /** the smallest bucket in the overflow area, or Long.MAX_VALUE when the overflow area is empty. */
+    private long overflowMinBucket = Long.MAX_VALUE;
+
+    /** the first bucket that has not been drained; the ring holds the buckets [currentBucket, currentBucket+numberOfSlots). */
+    private long currentBucket = 0;
+
+    /** the total number of pending transitions. */
+    private int size = 0;
+
+    /** the person ids of the last drained bucket. */
+    private int[] drainedPersons = new int[16];
+
+    /** the expected current phase indices of the last drained bucket. */
+    private byte[] drainedFromPhases = new byte[16];
+
+    /** the next phase indices of the last drained bucket. */
+    private byte[] drainedToPhases = new byte[16];
+
+    /**
+     * Create an empty timer wheel.
+     * @param bucketWidth double; the width of a bucket in hours
+     * @param numberOfSlots int; the number of slots in the ring, a power of 2; with a bucket width of 1 hour, 1024 slots cover
+     *            about 6 weeks
+     */
+    public TransitionTimerWheel(final double bucketWidth, final int numberOfSlots)
+    {
+        Throw.when(bucketWidth <= 0.0 || Double.isNaN(bucketWidth), MedlabsRuntimeException.class,
+                "bucketWidth should be positive");
+        Throw.when(numberOfSlots <= 0 || Integer.bitCount(numberOfSlots) != 1, MedlabsRuntimeException.class,
+                "numberOfSlots should be a positive power of 2");
+        this.bucketWidth = bucketWidth;
+        this.numberOfSlots = numberOfSlots;
+        this.mask = numberOfSlots - 1;
+        this.slotPersons = new int[numberOfSlots][];
+        this.slotFromPhases = new byte[numberOfSlots][];
+        this.slotToPhases = new byte[numberOfSlots][];
+        this.slotSizes = new int[numberOfSlots];
+    }
+
+    /**
+     * Return the bucket that contains the given time.
+     * @param time double; the time in hours
+     * @return long; the bucket that contains the time
+     */
+    public long bucketOf(final double time)
+    {
+        return (long) Math.floor(time / this.bucketWidth);
+    }
+
+    /**
+     * Return the end time of a bucket, which is the time at which the transitions of the bucket are processed, so no
+     * transition is carried out before its due time.
+     * @param bucket long; the bucket
+     * @return double; the end time of the bucket in hours
+     */
+    public double bucketEnd(final long bucket)
+    {
+        return (bucket + 1) * this.bucketWidth;
+    }
+
+    /**
+     * Add a pending transition. A transition that is due in a bucket that has already been drained is put in the first bucket
+     * that has not been drained.
+     * @param personId int; the id of the person
+     * @param fromPhase byte; the index of the phase that the person is expected to be in at the time of the transition
+     * @param toPhase byte; the index of the next phase
+     * @param dueTime double; the time of the transition in hours
+     */
+    public void add(final int personId, final byte fromPhase, final byte toPhase, final double dueTime)
+    {
+        long bucket = Math.max(bucketOf(dueTime), this.currentBucket);
+        if (bucket < this.currentBucket + this.numberOfSlots)
+            addToSlot((int) (bucket & this.mask), personId, fromPhase, toPhase);
+        else
+            addToOverflow(bucket, personId, fromPhase, toPhase);
+        this.size++;
+    }
+
+    /**
+     * Add a transition to a slot of the ring.
+     * @param slot int; the slot
+     * @param personId int; the id of the person
+     * @param fromPhase byte; the expected current phase index
+     * @param toPhase byte; the next phase index
+     */
+    private void addToSlot(final int slot, final int personId, final byte fromPhase, final byte toPhase)
+    {
+        int n = this.slotSizes[slot];
+        if (this.slotPersons[slot] == null)
+        {
+            this.slotPersons[slot] = new int[8];
+            this.slotFromPhases[slot] = new byte[8];
+            this.slotToPhases[slot] = new byte[8];
+        }
+        else if (n == this.slotPersons[slot].length)
+        {
+            this.slotPersons[slot] = Arrays.copyOf(this.slotPersons[slot], 2 * n);
+            this.slotFromPhases[slot] = Arrays.copyOf(this.slotFromPhases[slot], 2 * n);
+            this.slotToPhases[slot] = Arrays.copyOf(this.slotToPhases[slot], 2 * n);
+        }
+        this.slotPersons[slot][n] = personId;
+        this.slotFromPhases[slot][n] = fromPhase;
+        this.slotToPhases[slot][n] = toPhase;
+        this.slotSizes[slot] = n + 1;
+    }
+
+    /**
+     * Add a transition to the overflow area.
+     * @param bucket long; the bucket of the transition
+     * @param personId int; the id of the person
+     * @param fromPhase byte; the expected current phase index
+     * @param toPhase byte; the next phase index
+     */
+    private void addToOverflow(final long bucket, final int personId, final byte fromPhase, final byte toPhase)
+    {
+        int n = this.overflowSize;
+        if (n == this.overflowPersons.length)
+        {
+            this.overflowPersons = Arrays.copyOf(this.overflowPersons, 2 * n);
+            this.overflowFromPhases = Arrays.copyOf(this.overflowFromPhases, 2 * n);
+            this.overflowToPhases = Arrays.copyOf(this.overflowToPhases, 2 * n);
+            this.overflowBuckets = Arrays.copyOf(this.overflowBuckets, 2 * n);
+        }
+        this.overflowPersons[n] = personId;
+        this.overflowFromPhases[n] = fromPhase;
+        this.overflowToPhases[n] = toPhase;
+        this.overflowBuckets[n] = bucket;
+        this.overflowSize = n + 1;
+        this.overflowMinBucket = Math.min(this.overflowMinBucket, bucket);
+    }
+
+    /**
+     * Move the transitions of the overflow area that fall within the ring into their slots.
+     */
+    private void migrateOverflow()
+    {
+        if (this.overflowMinBucket >= this.currentBucket + this.numberOfSlots)
+            return;
+        int kept = 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < this.overflowSize; i++)
+        {
+            long bucket = this.overflowBuckets[i];
+            if (bucket < this.currentBucket + this.numberOfSlots)
+                addToSlot((int) (bucket & this.mask), this.overflowPersons[i], this.overflowFromPhases[i],
+                        this.overflowToPhases[i]);
+            else
+            {
+                this.overflowPersons[kept] = this.overflowPersons[i];
+                this.overflowFromPhases[kept] = this.overflowFromPhases[i];
+                this.overflowToPhases[kept] = this.overflowToPhases[i];
+                this.overflowBuckets[kept] = bucket;
+                kept++;
+                min = Math.min(min, bucket);
+            }
+        }
+        this.overflowSize = kept;
+        this.overflowMinBucket = min;
+    }
+
+    /**
+     * Return the first bucket with pending transitions.
+     * @return long; the first bucket with pending transitions, or -1 when there are no pending transitions
+     */
+    public long nextBucket()
+    {
+        if (this.size == 0)
+            return -1L;
+        for (long bucket = this.currentBucket; bucket < this.currentBucket + this.numberOfSlots; bucket++)
+        {
+            if (this.slotSizes[(int) (bucket & this.mask)] > 0)
+                return bucket;
+        }
+        return this.overflowMinBucket;
+    }
+
+    /**
+     * Remove all transitions of the given bucket from the wheel, and make them available through getDrainedPersons,
+     * getDrainedFromPhases and getDrainedToPhases until the next call of drain. Transitions that are added while the drained
+     * transitions are processed are stored in the wheel, and do not affect the drained arrays. The bucket should be the one
+     * returned by nextBucket, so the buckets are drained in time order.
+     * @param bucket long; the bucket to drain
+     * @return int; the number of drained transitions
+     */
+    public int drain(final long bucket)
+    {
+        Throw.when(bucket < this.currentBucket, MedlabsRuntimeException.class,
+                "bucket %d has already been drained; first bucket that has not been drained is %d", bucket,
+                this.currentBucket);
+        this.currentBucket = bucket;
+        migrateOverflow();
+        int slot = (int) (bucket & this.mask);
+        int n = this.slotSizes[slot];
+        if (n > this.drainedPersons.length)
+        {
+            int capacity = Math.max(n, 2 * this.drainedPersons.length);
+            this.drainedPersons = new int[capacity];
+            this.drainedFromPhases = new byte[capacity];
+            this.drainedToPhases = new byte[capacity];
+        }
+        if (n > 0)
+        {
+            System.arraycopy(this.slotPersons[slot], 0, this.drainedPersons, 0, n);
+            System.arraycopy(this.slotFromPhases[slot], 0, this.drainedFromPhases, 0, n);
+            System.arraycopy(this.slotToPhases[slot], 0, this.drainedToPhases, 0, n);
+        }
+        this.slotSizes[slot] = 0;
+        this.size -= n;
+        this.currentBucket = bucket + 1;
+        migrateOverflow();
+        return n;
+    }
+
+    /**
+     * Return the person ids of the last drained bucket. Only the first entries, as returned by drain, are valid. The array is
+     * not copied for performance reasons.
+     * @return int[]; the person ids of the last drained bucket
+     */
+    public int[] getDrainedPersons()
+    {
+        return this.drainedPersons;
+    }
+
+    /**
+     * Return the expected current phase indices of the last drained bucket. The array is not copied for performance reasons.
+     * @return byte[]; the expected current phase indices of the last drained bucket
+     */
+    public byte[] getDrainedFromPhases()
+    {
+        return this.drainedFromPhases;
+    }
+
+    /**
+     * Return the next phase indices of the last drained bucket. The array is not copied for performance reasons.
+     * @return byte[]; the next phase indices of the last drained bucket
+     */
+    public byte[] getDrainedToPhases()
+    {
+        return this.drainedToPhases;
+    }
+
+    /**
+     * @return the total number of pending transitions
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the width of a bucket in hours
+     */
+    public double getBucketWidth()
+    {
+        return this.bucketWidth;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "TransitionTimerWheel [bucketWidth=" + this.bucketWidth + ", numberOfSlots=" + this.numberOfSlots
+                + ", currentBucket=" + this.currentBucket + ", size=" + this.size + "]";
+    }
+
+}
@@ -0,0 +1,57 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * TransmissionKernel carries out the inner loops of the transmission calculation over the persons of a (sub)location that are
+ * gathered in SublocationArrays: summing the infectivity of the infectious persons, and selecting the susceptible persons.
+ * Different implementations can be selected at runtime with forName; all implementations give the same result up to the order
+ * of floating point additions.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public interface TransmissionKernel
+{
+    /**
+     * Return the sum of the infectivity of the infectious persons in the arrays at the given time.
+     * @param persons SublocationArrays; the persons in the (sub)location
+     * @param now double; the current simulation time in hours
+     * @param curve InfectivityCurve; the infectivity as a function of the time since exposure
+     * @return double; the sum of the infectivity of the infectious persons
+     */
+    double sumInfectivity(SublocationArrays persons, double now, InfectivityCurve curve);
+
+    /**
+     * Write the indices of the susceptible persons in the arrays to the output array, in increasing order.
+     * @param persons SublocationArrays; the persons in the (sub)location
+     * @param indices int[]; the output array, with a length of at least persons.size()
+     * @return int; the number of susceptible persons that was written
+     */
+    int selectSusceptibles(SublocationArrays persons, int[] indices);
+
+    /**
+     * Return the kernel with the given name: "scalar" for the straightforward loop per person over the arrays.
+     * @param name String; the name of the kernel
+     * @return TransmissionKernel; the kernel with the given name
+     * @throws MedlabsRuntimeException when the name is unknown
+     */
+    static TransmissionKernel forName(final String name)
+    {
+        switch (name.trim().toLowerCase())
+        {
+            case "scalar":
+                return ScalarTransmissionKernel.INSTANCE;
+            default:
+                throw new MedlabsRuntimeException("unknown transmission kernel: " + name);
+        }
+    }
+
+}
@@ -14,6 +14,8 @@ import gnu.trove.set.hash.TIntHashSet;
 import nl.tudelft.simulation.medlabs.common.Coordinate;
 import nl.tudelft.simulation.medlabs.common.ModelLocatable;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
 import nl.tudelft.simulation.medlabs.person.Person;
 
 /**
@@ -68,17 +70,16 @@ public class Location implements ModelLocatable
     @SuppressWarnings("checkstyle:visibilitymodifier")
     protected final float totalSurfaceM2;
 
-    /** Whether the location is closed or not (e.g., as the result of a policy). */
-    @SuppressWarnings("checkstyle:visibilitymodifier")
-    protected boolean closed;
+    /** The index of the location in the closure state of the model, used to look up whether the location is closed. */
+    private final int closureIndex;
 
     /** The ids of the persons in the location. */
     @SuppressWarnings("checkstyle:visibilitymodifier")
     protected TIntSet persons = new TIntHashSet();
 
-    /** The ids of the persons with reservations for this location (persons who are on their way). */
+    /** The number of persons with reservations for this location (persons who are on their way). */
     @SuppressWarnings("checkstyle:visibilitymodifier")
-    protected TIntSet reservations = new TIntHashSet();
+    protected int numberReserved = 0;
 
     /**
      * Create a location.
@@ -100,7 +101,7 @@ public class Location implements ModelLocatable
         setLat(lat);
         this.numberOfSubLocations = numberOfSubLocations;
         this.totalSurfaceM2 = surfaceM2 * (float) this.locationType.getSizeFactor();
-        this.closed = false;
+        this.closureIndex = model.getClosureState().registerLocation();
 
         this.model.getLocationMap().put(locationId, this);
         getLocationType().addLocation(this);
@@ -112,36 +113,59 @@ public class Location implements ModelLocatable
      */
     public void addPerson(final Person person)
     {
+        // an infectious person activates the dormant regions of the hybrid mode that are involved
+        HybridRegions hybridRegions = this.model.getHybridRegions();
+        if (hybridRegions != null && person.getDiseasePhase().isIll())
+            hybridRegions.infectiousEnters(this);
+
         // Calculate the sublocation index
-        short index;
+        short index = getPlannedSubLocationIndex(person);
         LocationType locationType = getLocationType();
-        if (locationType.getLocationTypeId() == this.model.getLocationTypeHouse().getLocationTypeId())
-            index = person.getHomeSubLocationIndex();
-        else if (this.numberOfSubLocations < 2)
-            index = 0;
-        else if (locationType.isReproducible())
-            index = (short) this.model.getReproducibleJava2Random().nextInt(0, this.numberOfSubLocations,
-                    (person.hashCode() * 1000 + this.locationId));
-        else
+        if (index < 0)
             index = (short) this.model.getRandomStream().nextInt(0, this.numberOfSubLocations);
 
         // just to be sure
         if (index >= this.numberOfSubLocations)
             index = (short) (this.numberOfSubLocations - 1);
 
+        // an infectious person materialises the lazy persons who plan to visit the sublocation
+        LazyPersons lazyPersons = this.model.getLazyPersons();
+        if (lazyPersons != null && person.getDiseasePhase().isIll())
+            lazyPersons.infectiousEnters(this, index);
+
         // calculate infection spread in this location (BEFORE this person actually enters)
         getModel().getDiseaseTransmission().calculateTransmissionEnter(this, index, person);
 
         if (this.persons.add(person.getId()))
             locationType.incNumberPersons();
-        if (this.reservations.remove(person.getId()))
-            locationType.decNumberReserved();
+        if (this.numberReserved > 0)
+            this.model.getReservationManager().arrive(person, this);
         person.setCurrentSubLocationIndex(index);
 
         if (this.persons.size() > getCapacity() && locationType.isCapConstrained())
             locationType.reportCapacityProblem(this, this.persons.size());
     }
 
+    /**
+     * Return the sublocation index that a person will get when entering this location, when it is known in advance. This is
+     * the case for homes, for locations with one sublocation, and for reproducible location types. For other locations, the
+     * sublocation is drawn when the person enters.
+     * @param person Person; the person
+     * @return short; the sublocation index that the person will get, or -1 when it is drawn when the person enters
+     */
+    public short getPlannedSubLocationIndex(final Person person)
+    {
+        LocationType locationType = getLocationType();
+        if (locationType.getLocationTypeId() == this.model.getLocationTypeHouse().getLocationTypeId())
+            return person.getHomeSubLocationIndex();
+        if (this.numberOfSubLocations < 2)
+            return 0;
+        if (locationType.isReproducible())
+            return (short) this.model.getReproducibleJava2Random().nextInt(0, this.numberOfSubLocations,
+                    (person.hashCode() * 1000 + this.locationId));
+        return -1;
+    }
+
     /**
      * Remove a person from this location.
      * @param person person to remove
@@ -166,7 +190,7 @@ public class Location implements ModelLocatable
      */
     public boolean belowCapacity()
     {
-        return this.persons.size() + this.reservations.size() < getCapacity() - 1.0;
+        return this.persons.size() + this.numberReserved < getCapacity() - 1.0;
     }
 
     /**
@@ -175,20 +199,57 @@ public class Location implements ModelLocatable
      */
     public boolean aboveCapacity()
     {
-        return this.persons.size() + this.reservations.size() > getCapacity();
+        return this.persons.size() + this.numberReserved > getCapacity();
     }
 
     /**
-     * Add a reservation for this person, who might be on the way to the location.
+     * Add a reservation for this person, who might be on the way to the location. The reservation replaces an earlier
+     * reservation of the person, and expires after the default time to live of the model's ReservationManager.
      * @param person Person; the person to add a reservation for
      */
     public void addReservation(final Person person)
     {
         if (this.getLocationType().isCapConstrained())
-        {
-            if (this.reservations.add(person.getId()))
-                getLocationType().incNumberReserved();
-        }
+            this.model.getReservationManager().reserve(person, this);
+    }
+
+    /**
+     * Add a reservation for this person, who is on the way to the location and expected to arrive at the given time. The
+     * reservation replaces an earlier reservation of the person, and expires when the person has not arrived within the grace
+     * time of the model's ReservationManager after the expected arrival time.
+     * @param person Person; the person to add a reservation for
+     * @param expectedArrivalTime double; the simulation time at which the person is expected to arrive
+     */
+    public void addReservation(final Person person, final double expectedArrivalTime)
+    {
+        if (this.getLocationType().isCapConstrained())
+            this.model.getReservationManager().reserve(person, this, expectedArrivalTime);
+    }
+
+    /**
+     * Increment the number of reservations for this location by 1. Only called by the ReservationManager.
+     */
+    void incNumberReserved()
+    {
+        this.numberReserved++;
+        this.locationType.incNumberReserved();
+    }
+
+    /**
+     * Decrement the number of reservations for this location by 1. Only called by the ReservationManager.
+     */
+    void decNumberReserved()
+    {
+        this.numberReserved--;
+        this.locationType.decNumberReserved();
+    }
+
+    /**
+     * @return the number of persons with a reservation for this location
+     */
+    public int getNumberReserved()
+    {
+        return this.numberReserved;
     }
 
     /**
@@ -382,19 +443,31 @@ public class Location implements ModelLocatable
     }
 
     /**
-     * @return is location closed
+     * Return whether the location is closed, because its location type is closed by a policy, or because of an override for
+     * the location. The locators send a person whose chosen location is closed home, or to the alternative location type.
+     * @return boolean; whether the location is closed
      */
     public boolean isClosed()
     {
-        return this.closed;
+        return this.model.getClosureState().isClosed(this);
     }
 
     /**
+     * Override the closure state of the location type for this location. Use ClosureState.clearOverride to let the location
+     * follow the state of its location type again.
      * @param closed the closed to set
      */
     public void setClosed(final boolean closed)
     {
-        this.closed = closed;
+        this.model.getClosureState().setOverride(this, closed);
+    }
+
+    /**
+     * @return the index of the location in the closure state of the model
+     */
+    public int getClosureIndex()
+    {
+        return this.closureIndex;
     }
 
     /** {@inheritDoc} */
@@ -18,6 +18,7 @@ import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import nl.tudelft.simulation.medlabs.location.animation.LocationAnimation;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
 
 /**
@@ -131,6 +132,18 @@ public class LocationType extends LocalEventProducer
     /** capacity allocation problem event. */
     public static final EventType CAPACITY_ALLOCATION_EVENT = new EventType("CAPACITY_ALLOCATION_EVENT");
 
+    /** offset of the number of persons in the occupancy snapshot entry of a location type. */
+    public static final int OCCUPANCY_PERSONS = 0;
+
+    /** offset of the number of reservations in the occupancy snapshot entry of a location type. */
+    public static final int OCCUPANCY_RESERVED = 1;
+
+    /** offset of the total capacity in the occupancy snapshot entry of a location type. */
+    public static final int OCCUPANCY_CAPACITY = 2;
+
+    /** number of values in the occupancy snapshot entry of a location type. */
+    public static final int OCCUPANCY_FIELDS = 3;
+
     /**
      * Create a new location type.
      * @param model MedlabsModelInterface; the model
@@ -204,15 +217,93 @@ public class LocationType extends LocalEventProducer
     public void addLocation(final Location location)
     {
         this.locationMap.put(location.getId(), location);
-        int key = getModel().gridKeyLatLon(location.getLatitude(), location.getLongitude());
+        addToGrid(location.getGridKey(), location.getId());
+        this.totalCapacity += location.getCapacity();
+    }
+
+    /**
+     * Store a location id in the grid cell with the given key.
+     * @param key int; the grid key of the cell
+     * @param locationId int; the id of the location
+     * @return int; the index (slot) of the location in the list of the grid cell
+     */
+    protected int addToGrid(final int key, final int locationId)
+    {
         TIntList gridLocations = this.gridLocationMap.get(key);
         if (gridLocations == null)
         {
             gridLocations = new TIntArrayList();
             this.gridLocationMap.put(key, gridLocations);
         }
-        gridLocations.add(location.getId());
-        this.totalCapacity += location.getCapacity();
+        gridLocations.add(locationId);
+        return gridLocations.size() - 1;
+    }
+
+    /**
+     * Remove the location id at the given slot from the grid cell with the given key, by moving the last location id of the
+     * cell into the slot. This takes constant time, but changes the order of the location ids in the cell.
+     * @param key int; the grid key of the cell
+     * @param slot int; the index of the location id in the list of the grid cell
+     * @return int; the id of the location that was moved into the slot, or -1 when the slot was the last one
+     */
+    protected int removeFromGrid(final int key, final int slot)
+    {
+        TIntList gridLocations = this.gridLocationMap.get(key);
+        int last = gridLocations.size() - 1;
+        int movedId = -1;
+        if (slot < last)
+        {
+            movedId = gridLocations.get(last);
+            gridLocations.set(slot, movedId);
+        }
+        gridLocations.removeAt(last);
+        if (gridLocations.isEmpty())
+            this.gridLocationMap.remove(key);
+        return movedId;
+    }
+
+    /**
+     * Update the grid for a location that moved from one grid cell to another. The default implementation searches the
+     * location in the old cell and clears all nearest and max-distance caches, since they might contain the moved location.
+     * MovableLocationType overrides this method with a constant-time update that only invalidates the cache entries that
+     * depend on the two cells.
+     * @param location Location; the location that moved
+     * @param oldKey int; the grid key of the old cell
+     * @param newKey int; the grid key of the new cell
+     */
+    public void moveLocation(final Location location, final int oldKey, final int newKey)
+    {
+        if (oldKey == newKey)
+            return;
+        TIntList gridLocations = this.gridLocationMap.get(oldKey);
+        if (gridLocations != null && gridLocations.remove(location.getId()) && gridLocations.isEmpty())
+            this.gridLocationMap.remove(oldKey);
+        addToGrid(newKey, location.getId());
+        this.nearestLocationCache.clear();
+        this.maxDistanceLocationCache.clear();
+    }
+
+    /**
+     * Hook that is called for every grid cell that is scanned when a nearest or max-distance cache entry is filled. The default
+     * implementation does nothing; MovableLocationType uses it to know which cache entries to invalidate when a location moves.
+     * @param startKey int; the grid key of the start cell, which is the key of the cache entry
+     * @param cellKey int; the grid key of the scanned cell
+     */
+    protected void cacheScan(final int startKey, final int cellKey)
+    {
+        // no dependency tracking for static locations
+    }
+
+    /**
+     * Remove the nearest and max-distance cache entries for a start cell.
+     * @param startKey int; the grid key of the start cell
+     * @return boolean; whether there was a cache entry for the start cell
+     */
+    protected boolean invalidateCache(final int startKey)
+    {
+        boolean nearest = this.nearestLocationCache.remove(startKey) != null;
+        boolean maxDistance = this.maxDistanceLocationCache.remove(startKey) != null;
+        return nearest || maxDistance;
     }
 
     /**
@@ -231,6 +322,72 @@ public class LocationType extends LocalEventProducer
         this.numberPersons--;
     }
 
+    /**
+     * @return the number of persons in locations of this location type
+     */
+    public int getNumberPersons()
+    {
+        return this.numberPersons;
+    }
+
+    /**
+     * @return the number of reservations for locations of this location type
+     */
+    public int getNumberReserved()
+    {
+        return this.numberReserved;
+    }
+
+    /**
+     * @return the total capacity of the locations of this location type
+     */
+    public int getTotalCapacity()
+    {
+        return this.totalCapacity;
+    }
+
+    /**
+     * Copy the occupancy of this location type (number of persons, number of reservations, and total capacity) into a
+     * snapshot array, starting at the given offset. The values are kept as counters, so no locations are visited.
+     * @param snapshot int[]; the array to fill
+     * @param offset int; the index of the first value for this location type in the array
+     */
+    public void fillOccupancy(final int[] snapshot, final int offset)
+    {
+        snapshot[offset + OCCUPANCY_PERSONS] = this.numberPersons;
+        snapshot[offset + OCCUPANCY_RESERVED] = this.numberReserved;
+        snapshot[offset + OCCUPANCY_CAPACITY] = this.totalCapacity;
+    }
+
+    /**
+     * Calculate, on demand, the histogram of the number of persons per sublocation for the locations of this type. Entry k of
+     * the result contains the number of sublocations with k persons; the last entry contains the number of sublocations with
+     * maxPersons or more persons. The calculation visits all locations of the type and the persons in them, so it should not
+     * be used for frequent statistics; use the occupancy snapshot for that.
+     * @param maxPersons int; the number of persons for the last entry of the histogram
+     * @return int[]; the histogram with maxPersons + 1 entries
+     */
+    public int[] getSubLocationHistogram(final int maxPersons)
+    {
+        int[] histogram = new int[maxPersons + 1];
+        TIntObjectMap<Person> personMap = this.model.getPersonMap();
+        for (Location location : this.locationMap.valueCollection())
+        {
+            int[] count = new int[Math.max(1, location.getNumberOfSubLocations())];
+            for (TIntIterator it = location.getAllPersonIds().iterator(); it.hasNext();)
+            {
+                short index = personMap.get(it.next()).getCurrentSubLocationIndex();
+                if (index >= 0 && index < count.length)
+                    count[index]++;
+            }
+            for (int c : count)
+            {
+                histogram[Math.min(c, maxPersons)]++;
+            }
+        }
+        return histogram;
+    }
+
     /**
      * Increment the number of reservations for this location type by 1.
      */
@@ -272,6 +429,7 @@ public class LocationType extends LocalEventProducer
                 for (int y = startY - hCells; y <= startY + hCells; y++)
                 {
                     int key = getModel().gridKeyXY(x, y);
+                    cacheScan(startKey, key);
                     if (this.gridLocationMap.containsKey(key))
                         ret.addAll(this.gridLocationMap.get(key));
                 }
@@ -349,6 +507,7 @@ public class LocationType extends LocalEventProducer
         else
         {
             ret = new TIntArrayList();
+            cacheScan(startKey, startKey);
             if (this.gridLocationMap.containsKey(startKey))
                 ret.addAll(this.gridLocationMap.get(startKey));
             else
@@ -360,6 +519,7 @@ public class LocationType extends LocalEventProducer
                         for (int y : new int[] {startY - hCells, startY + hCells})
                         {
                             int key = x * 32768 + y;
+                            cacheScan(startKey, key);
                             if (this.gridLocationMap.containsKey(key))
                                 ret.addAll(this.gridLocationMap.get(key));
                         }
@@ -369,6 +529,7 @@ public class LocationType extends LocalEventProducer
                         for (int x : new int[] {startX - hCells, startX + hCells})
                         {
                             int key = x * 32768 + y;
+                            cacheScan(startKey, key);
                             if (this.gridLocationMap.containsKey(key))
                                 ret.addAll(this.gridLocationMap.get(key));
                         }
@@ -479,12 +640,12 @@ public class LocationType extends LocalEventProducer
     }
 
     /**
-     * Schedulable method to report statistics every 5 minutes.
+     * Schedulable method to report statistics of this location type every 10 minutes. To report the statistics of all location
+     * types at once, take an occupancy snapshot of the model and call fireStatistics for each location type.
      */
     public void reportStatistics()
     {
-        this.fireTimedEvent(
-                new TimedEvent<Double>(STATISTICS_EVENT, this.numberPersons, this.model.getSimulator().getSimulatorTime()));
+        fireStatistics(this.numberPersons);
 
         try
         {
@@ -496,6 +657,16 @@ public class LocationType extends LocalEventProducer
         }
     }
 
+    /**
+     * Fire the statistics event of this location type, e.g., with the number of persons from an occupancy snapshot.
+     * @param numberPersons int; the number of persons in locations of this location type
+     */
+    public void fireStatistics(final int numberPersons)
+    {
+        this.fireTimedEvent(
+                new TimedEvent<Double>(STATISTICS_EVENT, numberPersons, this.model.getSimulator().getSimulatorTime()));
+    }
+
     /**
      * Schedulable method to report activity duration.
      * @param duration double; the duration to report, in hours
@@ -523,6 +694,8 @@ public class LocationType extends LocalEventProducer
         this.fractionActivities = fractionActivities;
         this.alternativeLocationType = alternativeLocationType;
         this.reportAsLocationName = reportAsLocationName;
+        this.model.getClosureState().nextPolicyEpoch();
+        this.model.getLocatorRegistry().resolve(this);
     }
 
     /**
@@ -1,9 +1,15 @@
 package nl.tudelft.simulation.medlabs.location;
 
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 
 /**
  * A MovableLocation is a location that contains Persons that moves between Locations. Examples are a Bus, Metro, Car and Taxi.
+ * The location can follow a scheduled trajectory of way points with a time stamp; the position is linearly interpolated
+ * between the way points. When the trajectory has a period (e.g., 24 hours), it repeats itself. Changes of the position are
+ * passed to the location type, so the spatial index and the location caches stay up to date.
  * <p>
  * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -18,6 +24,21 @@ import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
  */
 public class MovableLocation extends Location
 {
+    /** the times of the way points in hours (relative to the start of the period when the trajectory repeats). */
+    private double[] trajectoryTimes;
+
+    /** the latitudes of the way points. */
+    private float[] trajectoryLats;
+
+    /** the longitudes of the way points. */
+    private float[] trajectoryLons;
+
+    /** the period of the trajectory in hours, or 0 when the trajectory does not repeat. */
+    private double trajectoryPeriodH;
+
+    /** the index of the way point at or before the last update time, to avoid a search for every update. */
+    private int trajectoryIndex;
+
     /**
      * Create a movable location.
      * @param model MedlabsModelInterface; the model for looking up the simulator and other model objects
@@ -34,6 +55,93 @@ public class MovableLocation extends Location
         super(model, id, locationType, lat, lon, numberOfSubLocations, surfaceM2);
     }
 
+    /**
+     * Set the trajectory of this location as a list of way points. The times have to be non-decreasing.
+     * @param times double[]; the times of the way points in hours
+     * @param lats float[]; the latitudes of the way points
+     * @param lons float[]; the longitudes of the way points
+     * @param periodH double; the period of the trajectory in hours, or 0 when the trajectory does not repeat
+     * @throws MedlabsRuntimeException when the arrays are empty or have different lengths, or the times are not sorted
+     */
+    public void setTrajectory(final double[] times, final float[] lats, final float[] lons, final double periodH)
+    {
+        Throw.when(times.length == 0 || times.length != lats.length || times.length != lons.length,
+                MedlabsRuntimeException.class, "trajectory arrays for %s should be non-empty and of equal length", this);
+        for (int i = 1; i < times.length; i++)
+        {
+            Throw.when(times[i] < times[i - 1], MedlabsRuntimeException.class, "trajectory times for %s not sorted", this);
+        }
+        this.trajectoryTimes = times;
+        this.trajectoryLats = lats;
+        this.trajectoryLons = lons;
+        this.trajectoryPeriodH = periodH;
+        this.trajectoryIndex = 0;
+    }
+
+    /**
+     * Update the position of this location to the position on the trajectory at the given time. This method is called for all
+     * locations of a MovableLocationType in one batch per tick.
+     * @param time double; the simulation time in hours
+     */
+    public void updatePosition(final double time)
+    {
+        if (this.trajectoryTimes == null)
+            return;
+        double t = this.trajectoryPeriodH > 0.0 ? time % this.trajectoryPeriodH : time;
+        int last = this.trajectoryTimes.length - 1;
+        if (t <= this.trajectoryTimes[0])
+        {
+            this.trajectoryIndex = 0;
+            setPosition(this.trajectoryLats[0], this.trajectoryLons[0]);
+            return;
+        }
+        if (t >= this.trajectoryTimes[last])
+        {
+            this.trajectoryIndex = last;
+            setPosition(this.trajectoryLats[last], this.trajectoryLons[last]);
+            return;
+        }
+        if (this.trajectoryTimes[this.trajectoryIndex] > t)
+            this.trajectoryIndex = 0; // new period
+        while (this.trajectoryTimes[this.trajectoryIndex + 1] <= t)
+            this.trajectoryIndex++;
+        int i = this.trajectoryIndex;
+        double dt = this.trajectoryTimes[i + 1] - this.trajectoryTimes[i];
+        float f = dt <= 0.0 ? 1.0f : (float) ((t - this.trajectoryTimes[i]) / dt);
+        setPosition(this.trajectoryLats[i] + f * (this.trajectoryLats[i + 1] - this.trajectoryLats[i]),
+                this.trajectoryLons[i] + f * (this.trajectoryLons[i + 1] - this.trajectoryLons[i]));
+    }
+
+    /**
+     * Move the location to a new position, and update the grid of the location type when the grid cell changes.
+     * @param lat float; the new latitude
+     * @param lon float; the new longitude
+     */
+    public void setPosition(final float lat, final float lon)
+    {
+        int oldKey = getGridKey();
+        super.setLat(lat);
+        super.setLon(lon);
+        int newKey = getGridKey();
+        // during construction, the location is not yet registered in the grid of the location type
+        if (oldKey != newKey && getLocationType().getLocationMap().get(getId()) == this)
+            getLocationType().moveLocation(this, oldKey, newKey);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setLat(final float lat)
+    {
+        setPosition(lat, getLongitude());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setLon(final float lon)
+    {
+        setPosition(getLatitude(), lon);
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString()
@@ -1,7 +1,23 @@
 package nl.tudelft.simulation.medlabs.location;
 
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import nl.tudelft.simulation.medlabs.location.animation.LocationAnimation;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+
 /**
- * Placeholder type for movable location types such as cars, buses, metro trains, etc.
+ * Location type for movable locations such as cars, buses, metro trains, and ambulances. The positions of all movable
+ * locations of the type are updated in one batch per tick, based on their trajectories. The spatial index of the type is
+ * updated in constant time per moved location: the slot of each location in the list of its grid cell is stored, so it can be
+ * removed from the old cell by swapping in the last location of that cell. For the nearest and max-distance caches, the type
+ * keeps track of which cache entries scanned which grid cells, so only the entries that depend on the old or the new cell of
+ * a moved location are invalidated.
  * <p>
  * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -14,7 +30,198 @@ package nl.tudelft.simulation.medlabs.location;
  * @author Mingxin Zhang
  * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
  */
-public class MovableLocationType
+public class MovableLocationType extends LocationType
 {
-    // placeholder for later extension
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the slot of each location id in the list of its grid cell. */
+    private final TIntIntMap gridSlotMap = new TIntIntHashMap();
+
+    /** the start keys of the cache entries that scanned a grid cell, per grid cell. */
+    private final TIntObjectMap<TIntSet> cacheDependencyMap = new TIntObjectHashMap<>();
+
+    /** the grid cells that were scanned by a cache entry, per start key of the cache entry. */
+    private final TIntObjectMap<TIntSet> scannedCellMap = new TIntObjectHashMap<>();
+
+    /** the update interval for the positions in hours; 0 means no updates are scheduled. */
+    private double updateIntervalH = 0.0;
+
+    /** the number of cell changes of locations of this type. */
+    private long numberOfCellChanges = 0L;
+
+    /** the number of cache entries that were invalidated because of moves. */
+    private long numberOfInvalidations = 0L;
+
+    /**
+     * Create a new movable location type.
+     * @param model MedlabsModelInterface; the model
+     * @param locationTypeId byte; the id of the location type
+     * @param name String; the name of the location type
+     * @param locationClass Class&lt;? extends MovableLocation&gt;; the class of the location belonging to this type
+     * @param animationClass Class&lt;? extends LocationAnimation&gt;; the class of the location animation belonging to this
+     *            type
+     * @param reproducible boolean; whether the visit to this location by a person should result in the same sublocation or not
+     * @param infectInSublocation boolean; whether the sublocation can cause infections. If not, the total location will be
+     *            used. If no infection needs to take place, set correctionFactorArea to 0.
+     * @param correctionFactorArea double; factor for the rate of contagiousness in this location type, default 1.0.
+     * @param capConstrained boolean; capacity constrained? If false, only warnings will be given when the location is too full
+     * @param capPersonsPerM2 double; capacity as maximum number of persons per square meter
+     * @param sizeFactor double; the factor to apply for the size to make locations 'grow' or 'shrink'
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public MovableLocationType(final MedlabsModelInterface model, final byte locationTypeId, final String name,
+            final Class<? extends MovableLocation> locationClass, final Class<? extends LocationAnimation> animationClass,
+            final boolean reproducible, final boolean infectInSublocation, final double correctionFactorArea,
+            final boolean capConstrained, final double capPersonsPerM2, final double sizeFactor)
+    {
+        super(model, locationTypeId, name, locationClass, animationClass, reproducible, infectInSublocation,
+                correctionFactorArea, capConstrained, capPersonsPerM2, sizeFactor);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int addToGrid(final int key, final int locationId)
+    {
+        int slot = super.addToGrid(key, locationId);
+        this.gridSlotMap.put(locationId, slot);
+        return slot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void moveLocation(final Location location, final int oldKey, final int newKey)
+    {
+        if (oldKey == newKey)
+            return;
+        int movedId = removeFromGrid(oldKey, this.gridSlotMap.get(location.getId()));
+        if (movedId >= 0)
+            this.gridSlotMap.put(movedId, this.gridSlotMap.get(location.getId()));
+        addToGrid(newKey, location.getId());
+        invalidateDependents(oldKey);
+        invalidateDependents(newKey);
+        this.numberOfCellChanges++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void cacheScan(final int startKey, final int cellKey)
+    {
+        TIntSet dependents = this.cacheDependencyMap.get(cellKey);
+        if (dependents == null)
+        {
+            dependents = new TIntHashSet(4);
+            this.cacheDependencyMap.put(cellKey, dependents);
+        }
+        dependents.add(startKey);
+        TIntSet cells = this.scannedCellMap.get(startKey);
+        if (cells == null)
+        {
+            cells = new TIntHashSet(16);
+            this.scannedCellMap.put(startKey, cells);
+        }
+        cells.add(cellKey);
+    }
+
+    /**
+     * Invalidate the cache entries that scanned the given grid cell. The invalidated entries are also removed from the
+     * dependency sets of the other cells they scanned, so an entry that is filled again only depends on the cells of its new
+     * scan.
+     * @param cellKey int; the grid key of the cell that changed
+     */
+    private void invalidateDependents(final int cellKey)
+    {
+        TIntSet dependents = this.cacheDependencyMap.remove(cellKey);
+        if (dependents == null)
+            return;
+        for (TIntIterator it = dependents.iterator(); it.hasNext();)
+        {
+            int startKey = it.next();
+            removeDependencies(startKey);
+            if (invalidateCache(startKey))
+                this.numberOfInvalidations++;
+        }
+    }
+
+    /**
+     * Remove the cache entry with the given start key from the dependency sets of all cells it scanned.
+     * @param startKey int; the grid key of the start cell of the cache entry
+     */
+    private void removeDependencies(final int startKey)
+    {
+        TIntSet cells = this.scannedCellMap.remove(startKey);
+        if (cells == null)
+            return;
+        for (TIntIterator it = cells.iterator(); it.hasNext();)
+        {
+            int cell = it.next();
+            TIntSet dependents = this.cacheDependencyMap.get(cell);
+            if (dependents != null)
+            {
+                dependents.remove(startKey);
+                if (dependents.isEmpty())
+                    this.cacheDependencyMap.remove(cell);
+            }
+        }
+    }
+
+    /**
+     * Start the batched position updates of all movable locations of this type, every updateIntervalH hours. Calling this
+     * method again changes the interval; an interval of 0 stops the updates after the next tick.
+     * @param updateIntervalH double; the update interval for the positions in hours
+     */
+    public void startPositionUpdates(final double updateIntervalH)
+    {
+        boolean running = this.updateIntervalH > 0.0;
+        this.updateIntervalH = updateIntervalH;
+        if (!running && updateIntervalH > 0.0)
+            getModel().getSimulator().scheduleEventNow(this, "updatePositions", null);
+    }
+
+    /**
+     * Schedulable method to update the positions of all movable locations of this type in one batch, and to reschedule itself
+     * after the update interval.
+     */
+    protected void updatePositions()
+    {
+        double time = getModel().getSimulator().getSimulatorTime();
+        for (TIntObjectIterator<Location> it = getLocationMap().iterator(); it.hasNext();)
+        {
+            it.advance();
+            ((MovableLocation) it.value()).updatePosition(time);
+        }
+        if (this.updateIntervalH > 0.0)
+            getModel().getSimulator().scheduleEventRel(this.updateIntervalH, this, "updatePositions", null);
+    }
+
+    /**
+     * @return the number of cell changes of locations of this type
+     */
+    public long getNumberOfCellChanges()
+    {
+        return this.numberOfCellChanges;
+    }
+
+    /**
+     * @return the number of cache entries that were invalidated because of moves
+     */
+    public long getNumberOfInvalidations()
+    {
+        return this.numberOfInvalidations;
+    }
+
+    /**
+     * @return the number of (cache entry, scanned cell) dependencies that are currently tracked
+     */
+    public int getNumberOfDependencies()
+    {
+        int n = 0;
+        for (TIntObjectIterator<TIntSet> it = this.cacheDependencyMap.iterator(); it.hasNext();)
+        {
+            it.advance();
+            n += it.value().size();
+        }
+        return n;
+    }
+
 }
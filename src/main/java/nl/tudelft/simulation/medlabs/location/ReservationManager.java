@@ -0,0 +1,380 @@
+package nl.tudelft.simulation.medlabs.location;
+
+import java.io.Serializable;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * ReservationManager keeps track of the reservations of persons who are on their way to a capacity constrained location. A
+ * person holds at most one reservation: a new reservation replaces the previous one, so persons whose plans change do not
+ * leave stale reservations behind. Every reservation has an expiry time, based on the expected arrival time of the person. The
+ * expiry times are stored in time buckets; at the end of each bucket interval, the reservations in the bucket that have not
+ * been fulfilled by the arrival of the person are removed. The locations only keep a primitive counter of their reservations,
+ * which is used in the capacity checks.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ReservationManager implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the reserved location per person id. */
+    private final TIntObjectMap<Location> reservedLocation = new TIntObjectHashMap<>();
+
+    /** the expiry time of the reservation per person id. */
+    private final TIntDoubleMap expiryTime = new TIntDoubleHashMap();
+
+    /** the person ids of the reservations per time bucket. */
+    private final TIntList[] bucketPersons;
+
+    /** the expiry times of the reservations per time bucket, parallel to bucketPersons. */
+    private final TDoubleList[] bucketExpiryTimes;
+
+    /** the width of a time bucket in hours. */
+    private final double bucketWidthH;
+
+    /** the time in hours after the expected arrival after which a reservation expires. */
+    private double graceTimeH = 0.5;
+
+    /** the time in hours after the reservation after which it expires when no expected arrival time is given. */
+    private double defaultTimeToLiveH = 4.0;
+
+    /** whether the expiry checks have been scheduled. */
+    private boolean scheduled = false;
+
+    /** whether activities are only being planned, e.g., in DayPattern.walk(), so reservations are ignored. */
+    private boolean planning = false;
+
+    /** the number of reservations that were made. */
+    private long numberReservations = 0L;
+
+    /** the number of reservations that were fulfilled by the arrival of the person. */
+    private long numberArrivals = 0L;
+
+    /** the number of reservations that were replaced by a reservation for another location. */
+    private long numberReplaced = 0L;
+
+    /** the number of reservations that were cancelled. */
+    private long numberCancelled = 0L;
+
+    /** the number of reservations that expired. */
+    private long numberExpired = 0L;
+
+    /** the number of expired reservations per location type, indexed by the unsigned location type id. */
+    private final long[] numberExpiredPerType = new long[256];
+
+    /**
+     * Create a reservation manager with time buckets of 15 minutes and room for expiry times up to 12 hours ahead.
+     * @param model MedlabsModelInterface; the model
+     */
+    public ReservationManager(final MedlabsModelInterface model)
+    {
+        this(model, 0.25, 48);
+    }
+
+    /**
+     * Create a reservation manager. Expiry times that lie further ahead than the number of buckets times the bucket width are
+     * kept in a bucket until their time has come, so they are inspected more than once.
+     * @param model MedlabsModelInterface; the model
+     * @param bucketWidthH double; the width of a time bucket in hours
+     * @param numberOfBuckets int; the number of time buckets
+     */
+    public ReservationManager(final MedlabsModelInterface model, final double bucketWidthH, final int numberOfBuckets)
+    {
+        Throw.when(bucketWidthH <= 0.0, MedlabsRuntimeException.class, "bucketWidthH should be positive");
+        Throw.when(numberOfBuckets < 2, MedlabsRuntimeException.class, "numberOfBuckets should be at least 2");
+        this.model = model;
+        this.bucketWidthH = bucketWidthH;
+        this.bucketPersons = new TIntList[numberOfBuckets];
+        this.bucketExpiryTimes = new TDoubleList[numberOfBuckets];
+        for (int i = 0; i < numberOfBuckets; i++)
+        {
+            this.bucketPersons[i] = new TIntArrayList();
+            this.bucketExpiryTimes[i] = new TDoubleArrayList();
+        }
+    }
+
+    /**
+     * Make a reservation for the person at the location, expiring after the default time to live.
+     * @param person Person; the person who is on the way to the location
+     * @param location Location; the location to reserve
+     */
+    public void reserve(final Person person, final Location location)
+    {
+        double now = this.model.getSimulator().getSimulatorTime();
+        reserve(person, location, now + this.defaultTimeToLiveH - this.graceTimeH);
+    }
+
+    /**
+     * Make a reservation for the person at the location, expiring after the grace time when the person has not arrived at the
+     * expected arrival time. An existing reservation of the person for another location is released.
+     * @param person Person; the person who is on the way to the location
+     * @param location Location; the location to reserve
+     * @param expectedArrivalTime double; the simulation time at which the person is expected to arrive
+     */
+    public void reserve(final Person person, final Location location, final double expectedArrivalTime)
+    {
+        if (this.planning)
+            return;
+        int personId = person.getId();
+        Location previous = this.reservedLocation.put(personId, location);
+        if (previous != location)
+        {
+            if (previous != null)
+            {
+                previous.decNumberReserved();
+                this.numberReplaced++;
+            }
+            location.incNumberReserved();
+            this.numberReservations++;
+        }
+        double now = this.model.getSimulator().getSimulatorTime();
+        double expiry = expectedArrivalTime + this.graceTimeH;
+        this.expiryTime.put(personId, expiry);
+        int bucket = (int) (((long) Math.ceil(Math.max(expiry, now) / this.bucketWidthH)) % this.bucketPersons.length);
+        this.bucketPersons[bucket].add(personId);
+        this.bucketExpiryTimes[bucket].add(expiry);
+        if (!this.scheduled)
+        {
+            // check the buckets at whole multiples of the bucket width
+            this.scheduled = true;
+            double firstCheck = this.bucketWidthH * (Math.floor(now / this.bucketWidthH) + 1.0);
+            this.model.getSimulator().scheduleEventAbs(firstCheck, this, "expireReservations", null);
+        }
+    }
+
+    /**
+     * Switch the planning mode on or off. In the planning mode, the locators are called to plan the activities of a person
+     * without carrying them out, and the reservations that they make are ignored, so they do not occupy capacity.
+     * @param planning boolean; whether activities are only being planned
+     */
+    public void setPlanning(final boolean planning)
+    {
+        this.planning = planning;
+    }
+
+    /**
+     * @return whether activities are only being planned, so reservations are ignored
+     */
+    public boolean isPlanning()
+    {
+        return this.planning;
+    }
+
+    /**
+     * Fulfill the reservation of the person when the person arrives at the reserved location. Arrival at another location
+     * (e.g., a travel location on the way) keeps the reservation.
+     * @param person Person; the person who arrives
+     * @param location Location; the location where the person arrives
+     */
+    public void arrive(final Person person, final Location location)
+    {
+        int personId = person.getId();
+        if (this.reservedLocation.get(personId) == location)
+        {
+            this.reservedLocation.remove(personId);
+            this.expiryTime.remove(personId);
+            location.decNumberReserved();
+            this.numberArrivals++;
+        }
+    }
+
+    /**
+     * Cancel the reservation of the person, e.g., because the person died.
+     * @param person Person; the person for whom to cancel the reservation
+     */
+    public void cancel(final Person person)
+    {
+        int personId = person.getId();
+        Location location = this.reservedLocation.remove(personId);
+        if (location != null)
+        {
+            this.expiryTime.remove(personId);
+            location.decNumberReserved();
+            this.numberCancelled++;
+        }
+    }
+
+    /**
+     * @param person Person; the person to check
+     * @return the location that the person reserved, or null when the person holds no reservation
+     */
+    public Location getReservedLocation(final Person person)
+    {
+        return this.reservedLocation.get(person.getId());
+    }
+
+    /**
+     * Schedulable method that removes the reservations in the current time bucket that were not fulfilled before their expiry
+     * time, and reschedules itself after the bucket width as long as reservations are held. The bucket of an expiry time t is
+     * checked at the first multiple of the bucket width that is not before t. Entries of reservations that were fulfilled,
+     * replaced, or renewed are skipped, since their expiry time does not match the current expiry time of the person anymore.
+     */
+    protected void expireReservations()
+    {
+        double now = this.model.getSimulator().getSimulatorTime();
+        int bucket = (int) (Math.round(now / this.bucketWidthH) % this.bucketPersons.length);
+        TIntList persons = this.bucketPersons[bucket];
+        TDoubleList expiries = this.bucketExpiryTimes[bucket];
+        int kept = 0;
+        for (int i = 0; i < persons.size(); i++)
+        {
+            int personId = persons.get(i);
+            double expiry = expiries.get(i);
+            if (!this.expiryTime.containsKey(personId) || this.expiryTime.get(personId) != expiry)
+                continue;
+            if (expiry > now)
+            {
+                // expiry time lies beyond the range of the buckets; keep it for a next round
+                persons.set(kept, personId);
+                expiries.set(kept, expiry);
+                kept++;
+                continue;
+            }
+            Location location = this.reservedLocation.remove(personId);
+            this.expiryTime.remove(personId);
+            location.decNumberReserved();
+            this.numberExpired++;
+            this.numberExpiredPerType[location.getLocationType().getLocationTypeId() & 0xFF]++;
+        }
+        persons.remove(kept, persons.size() - kept);
+        expiries.remove(kept, expiries.size() - kept);
+        if (this.expiryTime.isEmpty())
+        {
+            // no reservations are held; the remaining bucket entries are outdated, and the next reservation restarts the checks
+            for (int i = 0; i < this.bucketPersons.length; i++)
+            {
+                this.bucketPersons[i].clear();
+                this.bucketExpiryTimes[i].clear();
+            }
+            this.scheduled = false;
+            return;
+        }
+        this.model.getSimulator().scheduleEventRel(this.bucketWidthH, this, "expireReservations", null);
+    }
+
+    /**
+     * @return the time in hours after the expected arrival after which a reservation expires
+     */
+    public double getGraceTimeH()
+    {
+        return this.graceTimeH;
+    }
+
+    /**
+     * @param graceTimeH double; the time in hours after the expected arrival after which a reservation expires
+     */
+    public void setGraceTimeH(final double graceTimeH)
+    {
+        Throw.when(graceTimeH < 0.0, MedlabsRuntimeException.class, "graceTimeH should not be negative");
+        this.graceTimeH = graceTimeH;
+    }
+
+    /**
+     * @return the time in hours after which a reservation without expected arrival time expires
+     */
+    public double getDefaultTimeToLiveH()
+    {
+        return this.defaultTimeToLiveH;
+    }
+
+    /**
+     * @param defaultTimeToLiveH double; the time in hours after which a reservation without expected arrival time expires
+     */
+    public void setDefaultTimeToLiveH(final double defaultTimeToLiveH)
+    {
+        Throw.when(defaultTimeToLiveH <= 0.0, MedlabsRuntimeException.class, "defaultTimeToLiveH should be positive");
+        this.defaultTimeToLiveH = defaultTimeToLiveH;
+    }
+
+    /**
+     * @return the number of reservations that are currently held
+     */
+    public int getNumberActive()
+    {
+        return this.reservedLocation.size();
+    }
+
+    /**
+     * @return the number of reservations that were made
+     */
+    public long getNumberReservations()
+    {
+        return this.numberReservations;
+    }
+
+    /**
+     * @return the number of reservations that were fulfilled by the arrival of the person
+     */
+    public long getNumberArrivals()
+    {
+        return this.numberArrivals;
+    }
+
+    /**
+     * @return the number of reservations that were replaced by a reservation for another location
+     */
+    public long getNumberReplaced()
+    {
+        return this.numberReplaced;
+    }
+
+    /**
+     * @return the number of reservations that were cancelled
+     */
+    public long getNumberCancelled()
+    {
+        return this.numberCancelled;
+    }
+
+    /**
+     * @return the number of reservations that expired
+     */
+    public long getNumberExpired()
+    {
+        return this.numberExpired;
+    }
+
+    /**
+     * @param locationType LocationType; the location type
+     * @return the number of expired reservations for locations of the location type
+     */
+    public long getNumberExpired(final LocationType locationType)
+    {
+        return this.numberExpiredPerType[locationType.getLocationTypeId() & 0xFF];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "ReservationManager [active=" + this.reservedLocation.size() + ", reservations=" + this.numberReservations
+                + ", arrivals=" + this.numberArrivals + ", replaced=" + this.numberReplaced + ", cancelled="
+                + this.numberCancelled + ", expired=" + this.numberExpired + "]";
+    }
+
+}
@@ -22,17 +22,25 @@ import nl.tudelft.simulation.jstats.distributions.DistUniform;
 import nl.tudelft.simulation.jstats.streams.MersenneTwister;
 import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorRegistry;
 import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
 import nl.tudelft.simulation.medlabs.common.ReproducibleRandomGenerator;
+import nl.tudelft.simulation.medlabs.disease.ContactLayerEngine;
 import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
 import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
 import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
 import nl.tudelft.simulation.medlabs.output.ResultWriter;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonRelations;
 import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
 import nl.tudelft.simulation.medlabs.policy.Policy;
 import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
 
@@ -72,6 +80,9 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
     /** the family compositions in the model (array of person ids), indexed by home location. */
     protected TIntObjectMap<TIntSet> familyMembersByHomeLocation = new TIntObjectHashMap<>();
 
+    /** the immutable indices of the persons per home, work and school location, built on first use. */
+    protected PersonRelations personRelations = null;
+
     /** the map of person types by id. */
     protected List<PersonType> personTypeList = new ArrayList<>();
 
@@ -108,6 +119,18 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
     /** the location of the infinitely large car area. */
     protected Location locationCar;
 
+    /** the cell-to-cell travel time matrix for the distance based travel activities. */
+    protected TravelTimeMatrix travelTimeMatrix;
+
+    /** the closure state of the locations, maintained by the closure policies. */
+    protected ClosureState closureState = new ClosureState();
+
+    /** the registry of shared locators and the fallback locators of closed location types. */
+    protected LocatorRegistry locatorRegistry = new LocatorRegistry();
+
+    /** the reservations of persons who are on their way to capacity constrained locations. */
+    protected ReservationManager reservationManager = new ReservationManager(this);
+
     /** the person monitor to report changes for statistics. */
     private PersonMonitor personMonitor;
 
@@ -135,6 +158,15 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
     /** the result writer. */
     private ResultWriter resultWriter;
 
+    /** the contact layer engine that replaces the activities of the persons, or null for the full model. */
+    private ContactLayerEngine contactLayerEngine = null;
+
+    /** the regions of the hybrid mode, or null when all persons carry out their activities. */
+    private HybridRegions hybridRegions = null;
+
+    /** the lazy mobility mode, or null when all persons carry out their activities. */
+    private LazyPersons lazyPersons = null;
+
     /**
      * Construct the model and set the simulator.
      * @param simulator SimpleDevsSimulatorInterface; the simulator for this model
@@ -153,6 +185,7 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
         this.locationBike = new Location(this, -2, bikeLT, 0.0f, 0.0f, (short) 1, 1E6f);
         LocationType carLT = new LocationType(this, (byte) -3, "car", Location.class, null, false, false, 0.0, false, 1.0, 1.0);
         this.locationCar = new Location(this, -3, carLT, 0.0f, 0.0f, (short) 1, 1E6f);
+        this.travelTimeMatrix = new TravelTimeMatrix(this);
     }
 
     /** {@inheritDoc} */
@@ -172,12 +205,26 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
 
             constructModelFromSource();
 
-            // initialize persons
-            for (TIntObjectIterator<Person> it = getPersonMap().iterator(); it.hasNext();)
+            // initialize persons, or start the contact layer engine instead of the activities of the persons,
+            // or only the persons in the active regions of the hybrid mode
+            if (this.contactLayerEngine != null)
+            {
+                this.contactLayerEngine.start();
+            }
+            else if (this.hybridRegions != null)
+            {
+                this.hybridRegions.start();
+            }
+            else
             {
-                it.advance();
-                it.value().init();
+                for (TIntObjectIterator<Person> it = getPersonMap().iterator(); it.hasNext();)
+                {
+                    it.advance();
+                    it.value().init();
+                }
             }
+            if (this.lazyPersons != null)
+                this.lazyPersons.start();
 
             // schedule the week pattern changes just before midnight every day
             getSimulator().scheduleEventRel(23.999, this, "checkChangeWeekPattern", null);
@@ -270,6 +317,15 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
         return this.familyMembersByHomeLocation;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public PersonRelations getPersonRelations()
+    {
+        if (this.personRelations == null)
+            this.personRelations = new PersonRelations(this.personMap);
+        return this.personRelations;
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<PersonType> getPersonTypeList()
@@ -466,6 +522,43 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
         return this.activePolicyMap;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public TravelTimeMatrix getTravelTimeMatrix()
+    {
+        return this.travelTimeMatrix;
+    }
+
+    /**
+     * Replace the travel time matrix, e.g., with one that uses another speed model or memory cap.
+     * @param travelTimeMatrix TravelTimeMatrix; the new travel time matrix
+     */
+    public void setTravelTimeMatrix(final TravelTimeMatrix travelTimeMatrix)
+    {
+        this.travelTimeMatrix = travelTimeMatrix;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ClosureState getClosureState()
+    {
+        return this.closureState;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LocatorRegistry getLocatorRegistry()
+    {
+        return this.locatorRegistry;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ReservationManager getReservationManager()
+    {
+        return this.reservationManager;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getPropertyFilename()
@@ -489,4 +582,58 @@ public abstract class AbstractMedlabsModel extends AbstractDsolModel<Double, Sim
         this.resultWriter = resultWriter;
     }
 
+    /**
+     * @return contactLayerEngine, or null when the persons carry out their activities
+     */
+    public ContactLayerEngine getContactLayerEngine()
+    {
+        return this.contactLayerEngine;
+    }
+
+    /**
+     * Set the contact layer engine, which replaces the activities of the persons by steps on static contact layers. The engine
+     * should be set in constructModelFromSource(), and is started instead of the initialization of the persons.
+     * @param contactLayerEngine ContactLayerEngine; the contact layer engine, or null to use the activities of the persons
+     */
+    public void setContactLayerEngine(final ContactLayerEngine contactLayerEngine)
+    {
+        this.contactLayerEngine = contactLayerEngine;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public HybridRegions getHybridRegions()
+    {
+        return this.hybridRegions;
+    }
+
+    /**
+     * Set the regions of the hybrid mode, in which only the persons in regions with infectious persons carry out their
+     * activities. The regions should be set in constructModelFromSource(), and are started instead of the initialization of
+     * all persons.
+     * @param hybridRegions HybridRegions; the regions of the hybrid mode, or null to let all persons carry out their activities
+     */
+    public void setHybridRegions(final HybridRegions hybridRegions)
+    {
+        this.hybridRegions = hybridRegions;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LazyPersons getLazyPersons()
+    {
+        return this.lazyPersons;
+    }
+
+    /**
+     * Set the lazy mobility mode, in which persons whose day only touches sublocations without infectious occupants do not
+     * carry out their activities as events. The mode should be set in constructModelFromSource(), and is started after the
+     * initialization of the persons.
+     * @param lazyPersons LazyPersons; the lazy mobility mode, or null to let all persons carry out their activities
+     */
+    public void setLazyPersons(final LazyPersons lazyPersons)
+    {
+        this.lazyPersons = lazyPersons;
+    }
+
 }
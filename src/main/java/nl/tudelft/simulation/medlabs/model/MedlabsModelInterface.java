@@ -10,7 +10,9 @@ import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterMap;
 import nl.tudelft.simulation.jstats.distributions.DistUniform;
 import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorRegistry;
 import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
 import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
 import nl.tudelft.simulation.medlabs.common.ReproducibleRandomGenerator;
 import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
@@ -18,9 +20,15 @@ import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
 import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonRelations;
 import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.policy.ClosurePolicy;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
 import nl.tudelft.simulation.medlabs.policy.Policy;
 import nl.tudelft.simulation.medlabs.properties.Properties;
 import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
@@ -88,6 +96,32 @@ public interface MedlabsModelInterface extends SimpleModelInterface
     /** @return the family compositions in the model (array of person ids), indexed by home location. */
     TIntObjectMap<TIntSet> getFamilyMembersByHomeLocation();
 
+    /**
+     * @return the immutable indices of the persons per home, work and school location; they are built on the first call, which
+     *         should take place after all persons have been created
+     */
+    PersonRelations getPersonRelations();
+
+    /**
+     * Return the regions of the hybrid mode, in which persons in regions without infectious persons do not carry out their
+     * activities. By default, the hybrid mode is not used.
+     * @return HybridRegions; the regions of the hybrid mode, or null when all persons carry out their activities
+     */
+    default HybridRegions getHybridRegions()
+    {
+        return null;
+    }
+
+    /**
+     * Return the lazy mobility mode, in which persons whose day only touches sublocations without infectious occupants do not
+     * carry out their activities as events. By default, the lazy mobility mode is not used.
+     * @return LazyPersons; the lazy mobility mode, or null when all persons carry out their activities
+     */
+    default LazyPersons getLazyPersons()
+    {
+        return null;
+    }
+
     /** @return the map of person properties. */
     Properties getPersonProperties();
 
@@ -100,6 +134,26 @@ public interface MedlabsModelInterface extends SimpleModelInterface
     /** @return the list of all location types for iteration. */
     List<LocationType> getLocationTypeList();
 
+    /**
+     * Take a snapshot of the occupancy of all location types, in the order of getLocationTypeList(). For the location type at
+     * position i in the list, the number of persons, the number of reservations, and the total capacity are stored at index
+     * i * LocationType.OCCUPANCY_FIELDS + LocationType.OCCUPANCY_PERSONS, OCCUPANCY_RESERVED, and OCCUPANCY_CAPACITY. The
+     * snapshot takes time proportional to the number of location types, since the location types keep counters.
+     * @param snapshot int[]; an array to reuse for the snapshot, or null to allocate a new array
+     * @return int[]; the snapshot, which is a new array when the given array was null or too short
+     */
+    default int[] getOccupancySnapshot(final int[] snapshot)
+    {
+        List<LocationType> locationTypes = getLocationTypeList();
+        int length = locationTypes.size() * LocationType.OCCUPANCY_FIELDS;
+        int[] result = snapshot == null || snapshot.length < length ? new int[length] : snapshot;
+        for (int i = 0; i < locationTypes.size(); i++)
+        {
+            locationTypes.get(i).fillOccupancy(result, i * LocationType.OCCUPANCY_FIELDS);
+        }
+        return result;
+    }
+
     /** @return a map of all locations in the model, based on their original id. */
     TIntObjectMap<Location> getLocationMap();
 
@@ -326,10 +380,16 @@ public interface MedlabsModelInterface extends SimpleModelInterface
         getActivePolicies().put(policy.getName(), policy);
     }
 
-    /** @param policy Policy; the policy to deactivate. */
+    /**
+     * Deactivate the policy. Location types that were closed by a deactivated closure policy are opened again, unless another
+     * active closure policy keeps them closed.
+     * @param policy Policy; the policy to deactivate.
+     */
     default void deactivatePolicy(final Policy policy)
     {
         getActivePolicies().remove(policy.getName());
+        if (policy instanceof ClosurePolicy)
+            ((ClosurePolicy) policy).open();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////
@@ -352,6 +412,18 @@ public interface MedlabsModelInterface extends SimpleModelInterface
     /** @return the location of the infinitely large car area. */
     Location getLocationCar();
 
+    /** @return the cell-to-cell travel time matrix for the distance based travel activities. */
+    TravelTimeMatrix getTravelTimeMatrix();
+
+    /** @return the closure state of the locations, maintained by the closure policies. */
+    ClosureState getClosureState();
+
+    /** @return the registry of shared locators and the fallback locators of closed location types. */
+    LocatorRegistry getLocatorRegistry();
+
+    /** @return the reservations of persons who are on their way to capacity constrained locations. */
+    ReservationManager getReservationManager();
+
     /* @return the properties file to use. */
     String getPropertyFilename();
 
@@ -0,0 +1,463 @@
+package nl.tudelft.simulation.medlabs.output;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * AsyncOutput writes the output files of the ResultWriter on a dedicated I/O thread. The simulation thread writes to the
+ * PrintWriters returned by {@link #open(String)} as before; the text of a record is collected in memory, and a flush() of the
+ * PrintWriter hands the record as one string to a lock-free single-producer, single-consumer ring buffer. The I/O thread takes
+ * the records from the ring buffer in batches, writes them to large buffered file writers, and flushes the files when the
+ * flush interval has passed or when enough characters have been written since the last flush. A flush() on the simulation
+ * thread therefore no longer waits for the disk.
+ * <p>
+ * When the ring buffer is full, the simulation thread waits until the I/O thread has made room (backpressure); the number of
+ * waits is counted. An IOException on the I/O thread is reported as a MedlabsRuntimeException on the simulation thread at the
+ * next record or at close. The records that were handed over are written and the files are flushed and closed by
+ * {@link #close()}, which the ResultWriter calls at the end of the run. A shutdown hook does the same when the JVM exits
+ * without an explicit close, e.g., through System.exit() or an uncaught exception.
+ * </p>
+ * <p>
+ * The ring buffer has a single producer: all records should be written from the same thread at a time, which is the case for
+ * the simulation thread of DSOL and the construction of the model before the run.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class AsyncOutput
+{
+    /** the default number of records in the ring buffer; a power of 2. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** the default maximum time between flushes of the files in milliseconds. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000L;
+
+    /** the default number of characters written after which the files are flushed. */
+    public static final long DEFAULT_FLUSH_CHARS = 1L << 20;
+
+    /** the size of the buffer of each file in characters. */
+    private static final int FILE_BUFFER_SIZE = 256 * 1024;
+
+    /** the time in nanoseconds the I/O thread sleeps when the ring buffer is empty. */
+    private static final long IDLE_PARK_NANOS = 200_000L;
+
+    /** the channel of each record in the ring buffer. */
+    private final Channel[] ringChannels;
+
+    /** the text of each record in the ring buffer. */
+    private final String[] ringRecords;
+
+    /** the mask to compute the position in the ring buffer from a sequence number. */
+    private final int mask;
+
+    /** the sequence number of the next record to write by the producer. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** the sequence number of the next record to take by the I/O thread. */
+    private final AtomicLong head = new AtomicLong();
+
+    /** the maximum time between flushes of the files in nanoseconds. */
+    private final long flushIntervalNanos;
+
+    /** the number of characters written after which the files are flushed. */
+    private final long flushChars;
+
+    /** the channels of the opened files. */
+    private final List<Channel> channels = new ArrayList<>();
+
+    /** the I/O thread. */
+    private final Thread ioThread;
+
+    /** the shutdown hook that writes the remaining records when the JVM exits without a close. */
+    private final Thread shutdownHook;
+
+    /** whether the output is closing; the I/O thread stops when the ring buffer is empty. */
+    private volatile boolean closing = false;
+
+    /** whether the output has been closed. */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /** the first exception of the I/O thread, reported on the simulation thread. */
+    private volatile IOException failure = null;
+
+    /** the number of times the producer had to wait for room in the ring buffer. */
+    private long backpressureWaits = 0L;
+
+    /** the number of records written. */
+    private long nrRecords = 0L;
+
+    /** the number of flushes of the files by the I/O thread. */
+    private volatile long nrFlushes = 0L;
+
+    /**
+     * Create an asynchronous output with the default capacity and flush policy, and start the I/O thread.
+     */
+    public AsyncOutput()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_FLUSH_CHARS);
+    }
+
+    /**
+     * Create an asynchronous output, and start the I/O thread.
+     * @param capacity int; the number of records in the ring buffer, rounded up to a power of 2
+     * @param flushIntervalMs long; the maximum time between flushes of the files in milliseconds
+     * @param flushChars long; the number of characters written after which the files are flushed
+     */
+    public AsyncOutput(final int capacity, final long flushIntervalMs, final long flushChars)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ringChannels = new Channel[size];
+        this.ringRecords = new String[size];
+        this.mask = size - 1;
+        this.flushIntervalNanos = flushIntervalMs * 1_000_000L;
+        this.flushChars = flushChars;
+        this.ioThread = new Thread(this::runIo, "medlabs-output");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+        this.shutdownHook = new Thread(this::drainAtExit, "medlabs-output-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Open a file for asynchronous output. Text printed to the returned PrintWriter is handed to the I/O thread at each flush()
+     * of the PrintWriter, so each flush() marks the end of a record.
+     * @param fileName String; the name of the file
+     * @return PrintWriter; the writer to print the records of the file to
+     * @throws IOException when the file cannot be created
+     */
+    public PrintWriter open(final String fileName) throws IOException
+    {
+        return open(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8),
+                FILE_BUFFER_SIZE));
+    }
+
+    /**
+     * Open a writer for asynchronous output. The writer is only used by the I/O thread, and is closed when the output closes.
+     * @param file Writer; the writer to which the I/O thread writes the records
+     * @return PrintWriter; the writer to print the records of the file to
+     */
+    PrintWriter open(final Writer file)
+    {
+        Channel channel = new Channel(this, file);
+        synchronized (this.channels)
+        {
+            this.channels.add(channel);
+        }
+        return new PrintWriter(channel);
+    }
+
+    /**
+     * Hand a record to the I/O thread; wait when the ring buffer is full.
+     * @param channel Channel; the channel of the file
+     * @param record String; the text of the record
+     * @throws MedlabsRuntimeException when the output has been closed or the I/O thread failed
+     */
+    void put(final Channel channel, final String record)
+    {
+        checkFailure();
+        if (this.closed.get())
+            throw new MedlabsRuntimeException("AsyncOutput: record written after close");
+        long t = this.tail.get();
+        if (t - this.head.get() > this.mask)
+        {
+            this.backpressureWaits++;
+            LockSupport.unpark(this.ioThread);
+            while (t - this.head.get() > this.mask)
+            {
+                checkFailure();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        int position = (int) t & this.mask;
+        this.ringChannels[position] = channel;
+        this.ringRecords[position] = record;
+        this.tail.lazySet(t + 1);
+        this.nrRecords++;
+    }
+
+    /**
+     * The loop of the I/O thread: take the records from the ring buffer in batches and write them, flush according to the
+     * flush policy, and flush and close the files when the output closes.
+     */
+    private void runIo()
+    {
+        long lastFlush = System.nanoTime();
+        long charsSinceFlush = 0L;
+        while (true)
+        {
+            long h = this.head.get();
+            long t = this.tail.get();
+            if (h == t)
+            {
+                if (this.closing && this.tail.get() == h)
+                    break;
+                if (charsSinceFlush > 0L && System.nanoTime() - lastFlush >= this.flushIntervalNanos)
+                {
+                    flushFiles();
+                    lastFlush = System.nanoTime();
+                    charsSinceFlush = 0L;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            for (long s = h; s < t; s++)
+            {
+                int position = (int) s & this.mask;
+                Channel channel = this.ringChannels[position];
+                String record = this.ringRecords[position];
+                this.ringChannels[position] = null;
+                this.ringRecords[position] = null;
+                charsSinceFlush += record.length();
+                if (this.failure == null)
+                {
+                    try
+                    {
+                        channel.file.write(record);
+                    }
+                    catch (IOException ioe)
+                    {
+                        this.failure = ioe;
+                    }
+                }
+            }
+            this.head.lazySet(t);
+            if (charsSinceFlush >= this.flushChars || System.nanoTime() - lastFlush >= this.flushIntervalNanos)
+            {
+                flushFiles();
+                lastFlush = System.nanoTime();
+                charsSinceFlush = 0L;
+            }
+        }
+        synchronized (this.channels)
+        {
+            for (Channel channel : this.channels)
+            {
+                try
+                {
+                    channel.file.close();
+                }
+                catch (IOException ioe)
+                {
+                    if (this.failure == null)
+                        this.failure = ioe;
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush the buffered file writers on the I/O thread.
+     */
+    private void flushFiles()
+    {
+        synchronized (this.channels)
+        {
+            for (Channel channel : this.channels)
+            {
+                try
+                {
+                    channel.file.flush();
+                }
+                catch (IOException ioe)
+                {
+                    if (this.failure == null)
+                        this.failure = ioe;
+                }
+            }
+        }
+        this.nrFlushes++;
+    }
+
+    /**
+     * Hand the records that are still collected in the channels to the I/O thread, write all records, and flush and close the
+     * files. Further records are refused. Closing a closed output has no effect.
+     * @throws MedlabsRuntimeException when the I/O thread failed to write, flush or close a file
+     */
+    public void close()
+    {
+        List<Channel> open;
+        synchronized (this.channels)
+        {
+            open = new ArrayList<>(this.channels);
+        }
+        for (Channel channel : open)
+        {
+            try
+            {
+                channel.handOver();
+            }
+            catch (MedlabsRuntimeException exception)
+            {
+                // the output was closed before, or the I/O thread failed, which is reported after the I/O thread stopped
+            }
+        }
+        if (!this.closed.compareAndSet(false, true))
+            return;
+        stopIo();
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        }
+        catch (IllegalStateException ise)
+        {
+            // the JVM is already shutting down
+        }
+        checkFailure();
+    }
+
+    /**
+     * Write the records that were handed over when the JVM exits without a close. Records that are still collected in a channel
+     * are not handed over, since the simulation thread might still be writing them.
+     */
+    private void drainAtExit()
+    {
+        if (this.closed.compareAndSet(false, true))
+            stopIo();
+    }
+
+    /**
+     * Let the I/O thread write the remaining records and close the files, and wait until it is done.
+     */
+    private void stopIo()
+    {
+        this.closing = true;
+        LockSupport.unpark(this.ioThread);
+        try
+        {
+            this.ioThread.join();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Report a failure of the I/O thread on the calling thread.
+     * @throws MedlabsRuntimeException when the I/O thread failed to write, flush or close a file
+     */
+    private void checkFailure()
+    {
+        if (this.failure != null)
+            throw new MedlabsRuntimeException(this.failure);
+    }
+
+    /**
+     * @return the number of times the producer had to wait for room in the ring buffer
+     */
+    public long getBackpressureWaits()
+    {
+        return this.backpressureWaits;
+    }
+
+    /**
+     * @return the number of records handed to the I/O thread
+     */
+    public long getNrRecords()
+    {
+        return this.nrRecords;
+    }
+
+    /**
+     * @return the number of flushes of the files by the I/O thread
+     */
+    public long getNrFlushes()
+    {
+        return this.nrFlushes;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "AsyncOutput [files=" + this.channels.size() + ", records=" + this.nrRecords + ", flushes=" + this.nrFlushes
+                + ", backpressureWaits=" + this.backpressureWaits + "]";
+    }
+
+    /**
+     * Channel collects the text of one record for a file on the simulation thread, and hands the record to the ring buffer when
+     * the PrintWriter around it is flushed.
+     */
+    static class Channel extends Writer
+    {
+        /** the asynchronous output. */
+        private final AsyncOutput output;
+
+        /** the buffered file writer, only used by the I/O thread. */
+        private final Writer file;
+
+        /** the text of the current record. */
+        private final StringBuilder record = new StringBuilder(256);
+
+        /**
+         * @param output AsyncOutput; the asynchronous output
+         * @param file Writer; the buffered file writer
+         */
+        Channel(final AsyncOutput output, final Writer file)
+        {
+            this.output = output;
+            this.file = file;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+        {
+            this.record.append(cbuf, off, len);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void write(final String str, final int off, final int len)
+        {
+            this.record.append(str, off, off + len);
+        }
+
+        /**
+         * Hand the current record to the ring buffer.
+         */
+        void handOver()
+        {
+            if (this.record.length() > 0)
+            {
+                this.output.put(this, this.record.toString());
+                this.record.setLength(0);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void flush()
+        {
+            handOver();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close()
+        {
+            handOver();
+        }
+    }
+
+}
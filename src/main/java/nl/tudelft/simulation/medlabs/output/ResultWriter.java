@@ -17,21 +17,29 @@ import org.djutils.event.EventListener;
 
 import gnu.trove.map.TIntDoubleMap;
 import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
 import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.disease.ContactLayers;
 import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
 import nl.tudelft.simulation.medlabs.disease.DiseasePhase;
 import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
+import nl.tudelft.simulation.medlabs.disease.DiseaseStateIndex;
+import nl.tudelft.simulation.medlabs.disease.ExposureBatch;
+import nl.tudelft.simulation.medlabs.disease.LayerCalibration;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
 import nl.tudelft.simulation.medlabs.person.PersonType;
 import nl.tudelft.simulation.medlabs.person.Student;
 import nl.tudelft.simulation.medlabs.person.Worker;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
 
 /**
- * ResultWriter writes simulation results to output files periodically.
+ * ResultWriter writes simulation results to output files periodically. The csv files are written by an AsyncOutput on a
+ * separate I/O thread; closeFiles() should be called at the end of the run to write the remaining records.
  * <p>
  * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
  * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
@@ -54,6 +62,9 @@ public class ResultWriter implements EventListener
     /** the model. */
     private final MedlabsModelInterface model;
 
+    /** the asynchronous output that writes the csv files on a separate I/O thread. */
+    private final AsyncOutput output;
+
     /** The locationtype file. */
     private PrintWriter locationTypeWriter;
 
@@ -120,6 +131,24 @@ public class ResultWriter implements EventListener
     /** The file with the capacity allocation problems per location. */
     private PrintWriter capacityAllocationProblemWriter;
 
+    /** The file with the statistics of the reservation manager. */
+    private PrintWriter reservationWriter;
+
+    /** The file with the statistics of the closure decision caches of the locators. */
+    private PrintWriter locatorDecisionWriter;
+
+    /** The file with the cumulative number of infections per contact layer. */
+    private PrintWriter layerInfectionWriter;
+
+    /** The counter of the infections per contact layer. */
+    private LayerCalibration layerCalibration;
+
+    /** The file with the statistics of the travel time matrix, or null when the model has no travel time matrix. */
+    private PrintWriter travelTimeMatrixWriter = null;
+
+    /** The reusable occupancy snapshot of the location types. */
+    private int[] occupancySnapshot = null;
+
     /**
      * Create a writer of results to file.
      * @param model the model
@@ -129,29 +158,30 @@ public class ResultWriter implements EventListener
     {
         this.model = model;
         makeOutputDirectory(outputPath);
+        this.output = new AsyncOutput();
 
         try
         {
-            // logXlsWriter = new PrintWriter(outputPath + "/log.xls");
+            // logXlsWriter = this.output.open(outputPath + "/log.xls");
 
-            this.locationTypeWriter = new PrintWriter(outputPath + "/locationTypeNrs.csv");
+            this.locationTypeWriter = this.output.open(outputPath + "/locationTypeNrs.csv");
             writeLocationTypeHeader();
             writeLocationTypeLine();
 
             DiseaseProgression disease = model.getDiseaseProgression();
-            this.diseasePhaseWriter = new PrintWriter(outputPath + "/diseasePhaseNrs_" + disease.getName() + ".csv");
+            this.diseasePhaseWriter = this.output.open(outputPath + "/diseasePhaseNrs_" + disease.getName() + ".csv");
             writeDiseasePhaseHeader(disease);
             writeDiseasePhaseLine(disease);
 
-            this.infectionLocationWriter = new PrintWriter(outputPath + "/infectionsPerLocation.csv");
+            this.infectionLocationWriter = this.output.open(outputPath + "/infectionsPerLocation.csv");
             writeInfectionLocationHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.INFECT_ALL_LOCATIONTYPES_PER_HOUR_EVENT);
 
-            this.infectionAgeWriter = new PrintWriter(outputPath + "/infectionsPerAge.csv");
+            this.infectionAgeWriter = this.output.open(outputPath + "/infectionsPerAge.csv");
             writeInfectionAgeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.INFECT_AGE_PER_HOUR_EVENT);
 
-            this.deathsAgeWriter = new PrintWriter(outputPath + "/deathsPerAge.csv");
+            this.deathsAgeWriter = this.output.open(outputPath + "/deathsPerAge.csv");
             writeDeathsAgeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.DEATHS_AGE_PER_DAY_EVENT);
 
@@ -167,68 +197,88 @@ public class ResultWriter implements EventListener
                 writePersonDump(personDumpInterval);
             }
 
-            this.infectedPersonWriter = new PrintWriter(outputPath + "/infectedPersons.csv");
+            this.infectedPersonWriter = this.output.open(outputPath + "/infectedPersons.csv");
             writeInfectedPersonHeader();
-            model.getPersonMonitor().addListener(this, PersonMonitor.INFECTED_PERSON_EVENT);
+            model.getPersonMonitor().addListener(this, PersonMonitor.INFECTED_PERSONS_EVENT);
 
-            this.deadPersonWriter = new PrintWriter(outputPath + "/deadPersons.csv");
+            this.deadPersonWriter = this.output.open(outputPath + "/deadPersons.csv");
             writeDeadPersonHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.DEAD_PERSON_EVENT);
 
-            this.dayInfPersonWriter = new PrintWriter(outputPath + "/dayInfPersonType.csv");
+            this.dayInfPersonWriter = this.output.open(outputPath + "/dayInfPersonType.csv");
             writeDayInfPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.DAY_INFECTIONS_PERSON_TYPE);
 
-            this.totInfPersonWriter = new PrintWriter(outputPath + "/totInfPersonType.csv");
+            this.totInfPersonWriter = this.output.open(outputPath + "/totInfPersonType.csv");
             writeTotInfPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.TOT_INFECTIONS_PERSON_TYPE);
 
-            this.dayInfPersonToPersonWriter = new PrintWriter(outputPath + "/dayInfPersonTypeToPersonType.csv");
+            this.dayInfPersonToPersonWriter = this.output.open(outputPath + "/dayInfPersonTypeToPersonType.csv");
             writeDayInfPersonToPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.DAY_INFECTIONS_PERSON_TO_PERSON_TYPE);
 
-            this.totInfPersonToPersonWriter = new PrintWriter(outputPath + "/totInfPersonTypeToPersonType.csv");
+            this.totInfPersonToPersonWriter = this.output.open(outputPath + "/totInfPersonTypeToPersonType.csv");
             writeTotInfPersonToPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.TOT_INFECTIONS_PERSON_TO_PERSON_TYPE);
 
-            this.dayInfLocPersonToPersonWriter = new PrintWriter(outputPath + "/dayInfLocPersonTypeToPersonType.csv");
+            this.dayInfLocPersonToPersonWriter = this.output.open(outputPath + "/dayInfLocPersonTypeToPersonType.csv");
             writeDayInfLocPersonToPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.DAY_INFECTIONS_LOC_PERSON_TO_PERSON_TYPE);
 
-            this.totInfLocPersonToPersonWriter = new PrintWriter(outputPath + "/totInfLocPersonTypeToPersonType.csv");
+            this.totInfLocPersonToPersonWriter = this.output.open(outputPath + "/totInfLocPersonTypeToPersonType.csv");
             writeTotInfLocPersonToPersonTypeHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.TOT_INFECTIONS_LOC_PERSON_TO_PERSON_TYPE);
 
-            this.infByRateWriter = new PrintWriter(outputPath + "/infectionsByRate.csv");
+            this.infByRateWriter = this.output.open(outputPath + "/infectionsByRate.csv");
             writeInfByRateHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.INFECTION_BY_RATE);
 
-            this.infByRateFactorWriter = new PrintWriter(outputPath + "/infectionsByRateFactor.csv");
+            this.infByRateFactorWriter = this.output.open(outputPath + "/infectionsByRateFactor.csv");
             writeInfByRateFactorHeader();
             model.getPersonMonitor().addListener(this, PersonMonitor.INFECTION_BY_RATE_FACTOR);
 
-            this.dayActivityWriter = new PrintWriter(outputPath + "/dayActivityTimes.csv");
+            this.dayActivityWriter = this.output.open(outputPath + "/dayActivityTimes.csv");
             writeDayActivityHeader();
             model.getActivityMonitor().addListener(this, ActivityMonitor.ACTIVITY_DAY_STATISTICS_EVENT);
 
-            this.totActivityWriter = new PrintWriter(outputPath + "/totActivityTimes.csv");
+            this.totActivityWriter = this.output.open(outputPath + "/totActivityTimes.csv");
             writeTotActivityHeader();
             model.getActivityMonitor().addListener(this, ActivityMonitor.ACTIVITY_TOT_STATISTICS_EVENT);
 
-            this.infectionWriter = new PrintWriter(outputPath + "/infections.csv");
+            this.infectionWriter = this.output.open(outputPath + "/infections.csv");
             writeInfectionHeader();
-            model.getDiseaseMonitor().addListener(this, DiseaseMonitor.INFECTION_EVENT);
+            model.getDiseaseMonitor().addListener(this, DiseaseMonitor.INFECTIONS_EVENT);
 
-            this.offspringLocationWriter = new PrintWriter(outputPath + "/offspringLocation.csv");
+            this.offspringLocationWriter = this.output.open(outputPath + "/offspringLocation.csv");
             writeOffspringLocationHeader();
             model.getDiseaseMonitor().addListener(this, DiseaseMonitor.OFFSPRING_EVENT);
 
-            this.capacityViolationWriter = new PrintWriter(outputPath + "/capacityViolations.csv");
+            this.capacityViolationWriter = this.output.open(outputPath + "/capacityViolations.csv");
             writeCapacityViolationHeader();
 
-            this.capacityAllocationProblemWriter = new PrintWriter(outputPath + "/capacityAllocationProblems.csv");
+            this.capacityAllocationProblemWriter = this.output.open(outputPath + "/capacityAllocationProblems.csv");
             writeCapacityAllocationProblemHeader();
 
+            this.reservationWriter = this.output.open(outputPath + "/reservations.csv");
+            writeReservationHeader();
+            this.model.getSimulator().scheduleEventRel(24.0, this, "writeReservationLine", null);
+
+            this.locatorDecisionWriter = this.output.open(outputPath + "/locatorDecisions.csv");
+            writeLocatorDecisionHeader();
+            this.model.getSimulator().scheduleEventRel(24.0, this, "writeLocatorDecisionLine", null);
+
+            this.layerInfectionWriter = this.output.open(outputPath + "/layerInfections.csv");
+            this.layerCalibration = new LayerCalibration(model);
+            writeLayerInfectionHeader();
+            this.model.getSimulator().scheduleEventRel(24.0, this, "writeLayerInfectionLine", null);
+
+            if (model.getTravelTimeMatrix() != null)
+            {
+                this.travelTimeMatrixWriter = this.output.open(outputPath + "/travelTimeMatrix.csv");
+                writeTravelTimeMatrixHeader();
+                this.model.getSimulator().scheduleEventRel(24.0, this, "writeTravelTimeMatrixLine", null);
+            }
+
             for (LocationType locationType : model.getLocationTypeList())
             {
                 locationType.addListener(this, LocationType.CAPACITY_VIOLATION_EVENT);
@@ -242,10 +292,16 @@ public class ResultWriter implements EventListener
     }
 
     /**
-     * Close the GZip files at the end of the run.
+     * Close the GZip files at the end of the run, write the final statistics, and write the remaining records of the csv files
+     * and close them.
      */
     public void closeFiles()
     {
+        printReservationLine();
+        printLocatorDecisionLine();
+        printLayerInfectionLine();
+        if (this.travelTimeMatrixWriter != null)
+            printTravelTimeMatrixLine();
         try
         {
             int personDumpInterval = this.model.getParameterValueInt("generic.PersonDumpIntervalDays");
@@ -258,6 +314,15 @@ public class ResultWriter implements EventListener
         {
             //
         }
+        this.output.close();
+    }
+
+    /**
+     * @return the asynchronous output that writes the csv files
+     */
+    public AsyncOutput getOutput()
+    {
+        return this.output;
     }
 
     /**
@@ -298,7 +363,7 @@ public class ResultWriter implements EventListener
     private void writeLocationTypeHeader()
     {
         this.locationTypeWriter.print("\"Time(h)\"");
-        for (LocationType locationType : this.model.getLocationTypeIndexMap().values())
+        for (LocationType locationType : this.model.getLocationTypeList())
         {
             this.locationTypeWriter.print(",\"" + locationType.getName() + "\"");
         }
@@ -309,14 +374,12 @@ public class ResultWriter implements EventListener
     private void writeLocationTypeLine()
     {
         this.locationTypeWriter.print(this.model.getSimulator().getSimulatorTime());
-        for (LocationType locationType : this.model.getLocationTypeIndexMap().values())
+        this.occupancySnapshot = this.model.getOccupancySnapshot(this.occupancySnapshot);
+        int numberOfTypes = this.model.getLocationTypeList().size();
+        for (int i = 0; i < numberOfTypes; i++)
         {
-            int nr = 0;
-            for (Location location : locationType.getLocationMap().valueCollection())
-            {
-                nr += location.getAllPersonIds().size();
-            }
-            this.locationTypeWriter.print("," + nr);
+            this.locationTypeWriter.print(
+                    "," + this.occupancySnapshot[i * LocationType.OCCUPANCY_FIELDS + LocationType.OCCUPANCY_PERSONS]);
         }
         this.locationTypeWriter.write("\n");
         this.locationTypeWriter.flush();
@@ -336,10 +399,12 @@ public class ResultWriter implements EventListener
 
     private void writeDiseasePhaseLine(final DiseaseProgression disease)
     {
+        // the counts come from the state index, which follows every setDiseasePhase of the persons
+        DiseaseStateIndex stateIndex = disease.getStateIndex();
         this.diseasePhaseWriter.print(this.model.getSimulator().getSimulatorTime());
         for (DiseasePhase diseasePhase : disease.getDiseasePhases())
         {
-            this.diseasePhaseWriter.print("," + diseasePhase.getNumberOfPersons());
+            this.diseasePhaseWriter.print("," + stateIndex.count(diseasePhase));
         }
         this.diseasePhaseWriter.write("\n");
         this.diseasePhaseWriter.flush();
@@ -484,10 +549,16 @@ public class ResultWriter implements EventListener
         this.infectedPersonWriter.flush();
     }
 
-    private void writeInfectedPersonLine(final Object[] content)
+    private void writeInfectedPersonLines(final ExposureBatch batch)
+    {
+        for (int i = 0; i < batch.size(); i++)
+        {
+            writeInfectedPersonLine(this.model.getPersonMap().get(batch.getInfectedId(i)), batch.getLocation());
+        }
+    }
+
+    private void writeInfectedPersonLine(final Person person, final Location infectLocation)
     {
-        Person person = (Person) content[0];
-        Location infectLocation = (Location) content[1];
         double time = this.model.getSimulator().getSimulatorTime();
         this.infectedPersonWriter.print(time + "," + person.getId());
         this.infectedPersonWriter.print(",\"" + person.getClass().getSimpleName() + "\"");
@@ -857,11 +928,17 @@ public class ResultWriter implements EventListener
         this.infectionWriter.flush();
     }
 
-    private void writeInfectionLine(final Object[] content)
+    private void writeInfectionLines(final ExposureBatch batch)
+    {
+        for (int i = 0; i < batch.size(); i++)
+        {
+            writeInfectionLine(this.model.getPersonMap().get(batch.getInfectedId(i)),
+                    this.model.getPersonMap().get(batch.getInfectiousId(i)), batch.getLocation());
+        }
+    }
+
+    private void writeInfectionLine(final Person infectedPerson, final Person infectiousPerson, final Location location)
     {
-        Person infectedPerson = (Person) content[0];
-        Person infectiousPerson = (Person) content[1];
-        Location location = (Location) content[2];
         double time = this.model.getSimulator().getSimulatorTime();
         //@formatter:off
         this.infectionWriter.println(
@@ -971,6 +1048,136 @@ public class ResultWriter implements EventListener
         this.capacityAllocationProblemWriter.flush();
     }
 
+    /* **************************************** RESERVATIONS **************************************** */
+
+    private void writeReservationHeader()
+    {
+        this.reservationWriter
+                .print("\"Time(h)\",\"active\",\"reservations\",\"arrivals\",\"replaced\",\"cancelled\",\"expired\"");
+        for (LocationType locationType : this.model.getLocationTypeList())
+        {
+            this.reservationWriter.print(",\"expired_" + locationType.getName() + "\"");
+        }
+        this.reservationWriter.write("\n");
+        this.reservationWriter.flush();
+    }
+
+    private void writeReservationLine()
+    {
+        printReservationLine();
+        this.model.getSimulator().scheduleEventRel(24.0, this, "writeReservationLine", null);
+    }
+
+    private void printReservationLine()
+    {
+        ReservationManager manager = this.model.getReservationManager();
+        //@formatter:off
+        this.reservationWriter.print(
+                  this.model.getSimulator().getSimulatorTime() + ","
+                + manager.getNumberActive() + ","
+                + manager.getNumberReservations() + ","
+                + manager.getNumberArrivals() + ","
+                + manager.getNumberReplaced() + ","
+                + manager.getNumberCancelled() + ","
+                + manager.getNumberExpired());
+        //@formatter:on
+        for (LocationType locationType : this.model.getLocationTypeList())
+        {
+            this.reservationWriter.print("," + manager.getNumberExpired(locationType));
+        }
+        this.reservationWriter.write("\n");
+        this.reservationWriter.flush();
+    }
+
+    /* ************************************* LOCATOR DECISIONS ************************************* */
+
+    private void writeLocatorDecisionHeader()
+    {
+        this.locatorDecisionWriter.println("\"Time(h)\",\"hits\",\"misses\",\"hitRate\",\"estimatedSavedSeconds\"");
+        this.locatorDecisionWriter.flush();
+    }
+
+    private void writeLocatorDecisionLine()
+    {
+        printLocatorDecisionLine();
+        this.model.getSimulator().scheduleEventRel(24.0, this, "writeLocatorDecisionLine", null);
+    }
+
+    private void printLocatorDecisionLine()
+    {
+        ClosureState closureState = this.model.getClosureState();
+        //@formatter:off
+        this.locatorDecisionWriter.println(
+                  this.model.getSimulator().getSimulatorTime() + ","
+                + closureState.getDecisionHits() + ","
+                + closureState.getDecisionMisses() + ","
+                + closureState.getDecisionHitRate() + ","
+                + closureState.getEstimatedDecisionSavedSeconds());
+        //@formatter:on
+        this.locatorDecisionWriter.flush();
+    }
+
+    /* ************************************** LAYER INFECTIONS ************************************** */
+
+    private void writeLayerInfectionHeader()
+    {
+        this.layerInfectionWriter.print("\"Time(h)\"");
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            this.layerInfectionWriter.print(",\"" + ContactLayers.getLayerName(layer) + "\"");
+        }
+        this.layerInfectionWriter.println();
+        this.layerInfectionWriter.flush();
+    }
+
+    private void writeLayerInfectionLine()
+    {
+        printLayerInfectionLine();
+        this.model.getSimulator().scheduleEventRel(24.0, this, "writeLayerInfectionLine", null);
+    }
+
+    private void printLayerInfectionLine()
+    {
+        this.layerInfectionWriter.print(this.model.getSimulator().getSimulatorTime());
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            this.layerInfectionWriter.print("," + this.layerCalibration.getNumberOfInfections(layer));
+        }
+        this.layerInfectionWriter.println();
+        this.layerInfectionWriter.flush();
+    }
+
+    /* ************************************* TRAVEL TIME MATRIX ************************************* */
+
+    private void writeTravelTimeMatrixHeader()
+    {
+        this.travelTimeMatrixWriter.println("\"Time(h)\",\"hits\",\"misses\",\"uncached\",\"evictions\",\"hitRate\","
+                + "\"memoryBytes\"");
+        this.travelTimeMatrixWriter.flush();
+    }
+
+    private void writeTravelTimeMatrixLine()
+    {
+        printTravelTimeMatrixLine();
+        this.model.getSimulator().scheduleEventRel(24.0, this, "writeTravelTimeMatrixLine", null);
+    }
+
+    private void printTravelTimeMatrixLine()
+    {
+        TravelTimeMatrix matrix = this.model.getTravelTimeMatrix();
+        //@formatter:off
+        this.travelTimeMatrixWriter.println(
+                  this.model.getSimulator().getSimulatorTime() + ","
+                + matrix.getHits() + ","
+                + matrix.getMisses() + ","
+                + matrix.getUncached() + ","
+                + matrix.getEvictions() + ","
+                + matrix.getHitRate() + ","
+                + matrix.getMemoryBytes());
+        //@formatter:on
+        this.travelTimeMatrixWriter.flush();
+    }
+
     /* ****************************************** NOTIFY ******************************************** */
 
     /** {@inheritDoc} */
@@ -990,9 +1197,9 @@ public class ResultWriter implements EventListener
         {
             writeDeathsAgeLine((int[]) event.getContent());
         }
-        else if (event.getType().equals(PersonMonitor.INFECTED_PERSON_EVENT))
+        else if (event.getType().equals(PersonMonitor.INFECTED_PERSONS_EVENT))
         {
-            writeInfectedPersonLine((Object[]) event.getContent());
+            writeInfectedPersonLines((ExposureBatch) event.getContent());
         }
         else if (event.getType().equals(PersonMonitor.DEAD_PERSON_EVENT))
         {
@@ -1038,9 +1245,9 @@ public class ResultWriter implements EventListener
         {
             writeTotActivityLine((Object[]) event.getContent());
         }
-        else if (event.getType().equals(DiseaseMonitor.INFECTION_EVENT))
+        else if (event.getType().equals(DiseaseMonitor.INFECTIONS_EVENT))
         {
-            writeInfectionLine((Object[]) event.getContent());
+            writeInfectionLines((ExposureBatch) event.getContent());
         }
         else if (event.getType().equals(DiseaseMonitor.OFFSPRING_EVENT))
         {
@@ -0,0 +1,516 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.disease.DiseaseState;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+
+/**
+ * HybridRegions implements the hybrid mode, in which only the persons who live in a region with infectious persons carry out
+ * their activities. Early in an outbreak, almost all persons are susceptible and far away from an infection, and moving them
+ * costs most of the run time. A region is a square of grid cells, and a person belongs to the region of the home location.
+ * <ul>
+ * <li>A region is active when an infectious person enters one of its locations, or lives in it. The residents of the region
+ * are then materialised: each resident is placed at the location of the activity that the week pattern plans for the current
+ * time of day, and continues with the week pattern from there.</li>
+ * <li>An active region becomes dormant when it has had no infectious residents or visitors for a number of days. The residents
+ * are parked lazily: at the end of the current activity, a resident who is not in an active region is taken out of the
+ * location and does not start a next activity.</li>
+ * </ul>
+ * The persons in dormant regions are represented by occupancy profiles that are computed once from the week patterns: for
+ * every pair of a visited region and a home region, the number of residents of the home region who are planned to be in the
+ * visited region in each hour of the week. When an infectious person enters a location, the dormant home regions with planned
+ * visitors in the region of the location during the rest of the day are activated as well, so the persons who would meet the
+ * infectious person while it stays, or who arrive later that day, are materialised. The run time therefore scales with the
+ * part of the population around the infections instead of with the population. The profiles are planned days as in
+ * DayPattern.walk(), so changes of the week patterns later in the run are not reflected in the profiles; the materialised
+ * persons do follow their current week pattern.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class HybridRegions implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the number of hours in a week, for the occupancy profiles. */
+    public static final int HOURS_PER_WEEK = 7 * 24;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the length and width of a region in grid cells. */
+    private final int regionSizeCells;
+
+    /** the time in hours without infectious persons after which a region becomes dormant. */
+    private final double dormantAfterH;
+
+    /** the region of each location id; -1 for locations outside the regions, such as the travel locations. */
+    private final TIntIntMap regionOfLocation = new TIntIntHashMap(1024, 0.5f, Integer.MIN_VALUE, -1);
+
+    /** the number of regions. */
+    private int numberOfRegions;
+
+    /** the home region of each person id. */
+    private int[] regionOfPerson;
+
+    /** the residents of each region; the region index is used as the location id of the index. */
+    private LocationPersonIndex residents;
+
+    /** whether each region is active. */
+    private boolean[] active;
+
+    /** the last time that an infectious person was present in each region. */
+    private double[] lastInfectiousTime;
+
+    /** whether each person id carries out activities. */
+    private boolean[] running;
+
+    /** the planned number of persons per hour of the week, per pair of visited region and home region. */
+    private final TLongObjectMap<int[]> occupancy = new TLongObjectHashMap<>();
+
+    /** the home regions of the planned visitors of each region. */
+    private TIntArrayList[] visitorRegions;
+
+    /** the number of active regions. */
+    private int numberActive = 0;
+
+    /** the number of persons who carry out activities. */
+    private int numberRunning = 0;
+
+    /**
+     * Create the regions of the hybrid mode. The regions are built in start(), when all persons and locations exist.
+     * @param model MedlabsModelInterface; the model
+     * @param regionSizeCells int; the length and width of a region in grid cells
+     * @param dormantAfterDays double; the number of days without infectious persons after which a region becomes dormant
+     * @throws MedlabsRuntimeException when the region size is not positive, or the number of days is negative
+     */
+    public HybridRegions(final MedlabsModelInterface model, final int regionSizeCells, final double dormantAfterDays)
+    {
+        Throw.whenNull(model, "model cannot be null");
+        Throw.when(regionSizeCells < 1, MedlabsRuntimeException.class, "region size %d should be at least 1 cell",
+                regionSizeCells);
+        Throw.when(dormantAfterDays < 0.0, MedlabsRuntimeException.class, "dormant period %f should not be negative",
+                dormantAfterDays);
+        this.model = model;
+        this.regionSizeCells = regionSizeCells;
+        this.dormantAfterH = 24.0 * dormantAfterDays;
+    }
+
+    /**
+     * Build the regions and the occupancy profiles, activate the regions with infectious residents, and schedule the daily
+     * check of the regions. This should be called after all persons have been created, instead of the initialization of all
+     * persons.
+     */
+    public void start()
+    {
+        build();
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        this.model.getDiseaseProgression().getStateIndex().getPersons(DiseaseState.ILL).forEach(id ->
+        {
+            int region = this.regionOfPerson[id];
+            this.lastInfectiousTime[region] = now;
+            if (!this.active[region])
+            {
+                this.active[region] = true;
+                this.numberActive++;
+            }
+        });
+        for (int region = 0; region < this.numberOfRegions; region++)
+        {
+            if (this.active[region])
+            {
+                for (int id : this.residents.getPersonIds(region))
+                {
+                    if (!this.running[id])
+                    {
+                        this.running[id] = true;
+                        this.numberRunning++;
+                        this.model.getPersonMap().get(id).init();
+                    }
+                }
+            }
+        }
+        System.out.println("Hybrid mode started: " + this);
+        this.model.getSimulator().scheduleEventRel(24.0, this, "checkRegions", null);
+    }
+
+    /**
+     * Build the regions of the locations and the persons, and the occupancy profiles.
+     */
+    private void build()
+    {
+        for (TIntObjectIterator<Location> it = this.model.getLocationMap().iterator(); it.hasNext();)
+        {
+            it.advance();
+            Location location = it.value();
+            int key = this.model.gridKeyXY(Math.floorDiv(location.getGridX(), this.regionSizeCells),
+                    Math.floorDiv(location.getGridY(), this.regionSizeCells));
+            this.regionOfLocation.put(location.getId(), key);
+        }
+        // renumber the region keys to region indices
+        TIntIntMap regionIndex = new TIntIntHashMap();
+        for (int locationId : this.regionOfLocation.keys())
+        {
+            int key = this.regionOfLocation.get(locationId);
+            if (!regionIndex.containsKey(key))
+                regionIndex.put(key, regionIndex.size());
+            this.regionOfLocation.put(locationId, regionIndex.get(key));
+        }
+        this.numberOfRegions = regionIndex.size();
+        this.active = new boolean[this.numberOfRegions];
+        this.lastInfectiousTime = new double[this.numberOfRegions];
+        Arrays.fill(this.lastInfectiousTime, Double.NEGATIVE_INFINITY);
+        this.visitorRegions = new TIntArrayList[this.numberOfRegions];
+
+        int[] ids = this.model.getPersonMap().keys();
+        Arrays.sort(ids);
+        int maxId = ids.length == 0 ? -1 : ids[ids.length - 1];
+        this.regionOfPerson = new int[maxId + 1];
+        this.running = new boolean[maxId + 1];
+        int[] homeRegions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++)
+        {
+            Person person = this.model.getPersonMap().get(ids[i]);
+            int home = this.regionOfLocation.get(person.getHomeLocation().getId());
+            this.regionOfPerson[ids[i]] = home;
+            homeRegions[i] = home;
+            WeekPattern weekPattern = person.getCurrentWeekPattern();
+            if (weekPattern instanceof WeekDayPattern)
+            {
+                WeekDayPattern weekDayPattern = (WeekDayPattern) weekPattern;
+                for (int weekday = 0; weekday < 7; weekday++)
+                {
+                    int firstHour = 24 * weekday;
+                    weekDayPattern.getDayPattern(weekday).walk(person, (index, location, startH, durationH) ->
+                    {
+                        int visited = this.regionOfLocation.get(location.getId());
+                        if (visited >= 0)
+                            addOccupancy(visited, home, firstHour + (int) Math.floor(startH),
+                                    firstHour + (int) Math.ceil(startH + durationH));
+                    });
+                }
+                person.setCurrentLocation(person.getHomeLocation());
+            }
+        }
+        this.residents = LocationPersonIndex.build(ids, homeRegions);
+    }
+
+    /**
+     * Add a planned visit of a resident of a home region to a visited region to the occupancy profile.
+     * @param visited int; the visited region
+     * @param home int; the home region
+     * @param fromHour int; the first hour of the week of the visit
+     * @param toHour int; the hour of the week after the visit
+     */
+    private void addOccupancy(final int visited, final int home, final int fromHour, final int toHour)
+    {
+        long key = pairKey(visited, home);
+        int[] profile = this.occupancy.get(key);
+        if (profile == null)
+        {
+            profile = new int[HOURS_PER_WEEK];
+            this.occupancy.put(key, profile);
+            if (this.visitorRegions[visited] == null)
+                this.visitorRegions[visited] = new TIntArrayList();
+            this.visitorRegions[visited].add(home);
+        }
+        for (int hour = fromHour; hour < Math.max(toHour, fromHour + 1) && hour < HOURS_PER_WEEK; hour++)
+        {
+            profile[hour]++;
+        }
+    }
+
+    /**
+     * @param visited int; the visited region
+     * @param home int; the home region
+     * @return the key of the occupancy profile of the pair of regions
+     */
+    private static long pairKey(final int visited, final int home)
+    {
+        return ((long) visited << 32) | (home & 0xffffffffL);
+    }
+
+    /**
+     * @return the hour of the week of the current simulation time, where hour 0 is Monday 0:00
+     */
+    private int hourOfWeek()
+    {
+        return ((int) Math.floor(this.model.getSimulator().getSimulatorTime().doubleValue())) % HOURS_PER_WEEK;
+    }
+
+    /**
+     * Register that an infectious person enters a location. The region of the location is activated, as well as the dormant
+     * home regions with planned visitors in the region of the location in any hour from now to the end of the day. The length
+     * of the stay of the infectious person is not known when it enters, and visitors who only arrive later in the stay should
+     * be materialised as well.
+     * @param location Location; the location that the infectious person enters
+     */
+    public void infectiousEnters(final Location location)
+    {
+        int region = this.regionOfLocation.get(location.getId());
+        if (region < 0)
+            return;
+        this.lastInfectiousTime[region] = this.model.getSimulator().getSimulatorTime().doubleValue();
+        activate(region);
+        if (this.numberActive == this.numberOfRegions || this.visitorRegions[region] == null)
+            return;
+        int hour = hourOfWeek();
+        int endOfDay = 24 * (hour / 24 + 1);
+        TIntArrayList homes = this.visitorRegions[region];
+        for (int i = 0; i < homes.size(); i++)
+        {
+            int home = homes.get(i);
+            if (!this.active[home] && hasPlannedVisitors(this.occupancy.get(pairKey(region, home)), hour, endOfDay))
+                activate(home);
+        }
+    }
+
+    /**
+     * @param profile int[]; the occupancy profile of a pair of regions
+     * @param fromHour int; the first hour of the week to check
+     * @param toHour int; the hour of the week after the last hour to check
+     * @return whether the profile has planned visitors in any of the hours
+     */
+    private static boolean hasPlannedVisitors(final int[] profile, final int fromHour, final int toHour)
+    {
+        for (int hour = fromHour; hour < toHour; hour++)
+        {
+            if (profile[hour] > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Activate a region, and materialise the residents who do not carry out activities.
+     * @param region int; the region
+     */
+    private void activate(final int region)
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        this.lastInfectiousTime[region] = Math.max(this.lastInfectiousTime[region], now);
+        if (this.active[region])
+            return;
+        this.active[region] = true;
+        this.numberActive++;
+        for (int id : this.residents.getPersonIds(region))
+        {
+            if (!this.running[id])
+            {
+                this.running[id] = true;
+                this.numberRunning++;
+                materialise(this.model.getPersonMap().get(id), now);
+            }
+        }
+    }
+
+    /**
+     * Place a person at the location of the activity that the week pattern plans for the current time of day, and let the
+     * person continue with the week pattern from there.
+     * @param person Person; the person
+     * @param now double; the current simulation time
+     */
+    private void materialise(final Person person, final double now)
+    {
+        WeekPattern weekPattern = person.getCurrentWeekPattern();
+        if (!(weekPattern instanceof WeekDayPattern))
+        {
+            person.init();
+            return;
+        }
+        int weekday = ((int) Math.floor((now + 0.01) / 24.0)) % 7;
+        double hour = now - 24.0 * Math.floor((now + 0.01) / 24.0);
+        ActivityFinder finder = new ActivityFinder(Math.max(0.0, hour));
+        ((WeekDayPattern) weekPattern).getDayPattern(weekday).walk(person, finder);
+        if (finder.location == null)
+            person.resumeActivity(-1, person.getHomeLocation(), Math.max(0.01, 24.0 - hour));
+        else
+            person.resumeActivity(finder.index < 0 ? -1 : (weekday << 12) | finder.index, finder.location,
+                    Math.max(0.01, finder.remainingH));
+    }
+
+    /**
+     * Park a person at the end of an activity when the home region of the person is dormant, and the person is not in an active
+     * region. The person is taken out of the current location and does not start a next activity, until the home region is
+     * activated again. A person who is ill is not parked; the home region is activated instead.
+     * @param person Person; the person who ends an activity
+     * @return boolean; whether the person has been parked, in which case no next activity should be started
+     */
+    public boolean park(final Person person)
+    {
+        int home = this.regionOfPerson[person.getId()];
+        if (this.active[home])
+            return false;
+        Location location = person.getCurrentLocation();
+        int region = this.regionOfLocation.get(location.getId());
+        if (region >= 0 && this.active[region])
+            return false;
+        if (person.getDiseasePhase().isIll())
+        {
+            activate(home);
+            return false;
+        }
+        location.removePerson(person);
+        person.setCurrentLocation(person.getHomeLocation());
+        this.running[person.getId()] = false;
+        this.numberRunning--;
+        return true;
+    }
+
+    /**
+     * Scheduled method that activates the home regions of the ill persons, and makes the regions dormant that have had no
+     * infectious persons during the dormant period.
+     */
+    protected void checkRegions()
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        // persons who became ill while parked activate their home region as well
+        this.model.getDiseaseProgression().getStateIndex().getPersons(DiseaseState.ILL)
+                .forEach(id -> activate(this.regionOfPerson[id]));
+        for (int region = 0; region < this.numberOfRegions; region++)
+        {
+            if (this.active[region] && now - this.lastInfectiousTime[region] >= this.dormantAfterH)
+            {
+                this.active[region] = false;
+                this.numberActive--;
+            }
+        }
+        this.model.getSimulator().scheduleEventRel(24.0, this, "checkRegions", null);
+    }
+
+    /**
+     * Return the planned number of persons from dormant regions in a region, in an hour of the week. This is the aggregate
+     * occupancy of the persons who do not carry out their activities.
+     * @param location Location; a location in the region
+     * @param hourOfWeek int; the hour of the week, where hour 0 is Monday 0:00
+     * @return int; the planned number of persons from dormant regions in the region of the location in the hour
+     */
+    public int getDormantOccupancy(final Location location, final int hourOfWeek)
+    {
+        int region = this.regionOfLocation.get(location.getId());
+        if (region < 0 || this.visitorRegions[region] == null)
+            return 0;
+        int count = 0;
+        TIntArrayList homes = this.visitorRegions[region];
+        for (int i = 0; i < homes.size(); i++)
+        {
+            if (!this.active[homes.get(i)])
+                count += this.occupancy.get(pairKey(region, homes.get(i)))[hourOfWeek];
+        }
+        return count;
+    }
+
+    /**
+     * @param person Person; the person
+     * @return whether the person carries out activities
+     */
+    public boolean isRunning(final Person person)
+    {
+        return this.running[person.getId()];
+    }
+
+    /**
+     * @param location Location; a location
+     * @return whether the region of the location is active; false for locations outside the regions
+     */
+    public boolean isActive(final Location location)
+    {
+        int region = this.regionOfLocation.get(location.getId());
+        return region >= 0 && this.active[region];
+    }
+
+    /**
+     * @return the number of regions
+     */
+    public int getNumberOfRegions()
+    {
+        return this.numberOfRegions;
+    }
+
+    /**
+     * @return the number of active regions
+     */
+    public int getNumberActive()
+    {
+        return this.numberActive;
+    }
+
+    /**
+     * @return the number of persons who carry out activities
+     */
+    public int getNumberRunning()
+    {
+        return this.numberRunning;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "HybridRegions [regions=" + this.numberOfRegions + ", active=" + this.numberActive + ", running="
+                + this.numberRunning + "]";
+    }
+
+    /**
+     * ActivityFinder finds the planned activity of a day that covers a given hour of the day.
+     */
+    private static class ActivityFinder implements DayPattern.ActivityVisitor
+    {
+        /** the hour of the day to find. */
+        private final double hour;
+
+        /** the index of the activity, -1 for the gap at the end of the day. */
+        private int index = -1;
+
+        /** the location of the activity; null when not found. */
+        private Location location = null;
+
+        /** the remaining duration of the activity after the hour. */
+        private double remainingH = 0.0;
+
+        /**
+         * @param hour double; the hour of the day to find
+         */
+        ActivityFinder(final double hour)
+        {
+            this.hour = hour;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void visit(final int activityIndex, final Location activityLocation, final double startH,
+                final double durationH)
+        {
+            if (this.location == null && this.hour >= startH && this.hour < startH + durationH)
+            {
+                this.index = activityIndex;
+                this.location = activityLocation;
+                this.remainingH = startH + durationH - this.hour;
+            }
+        }
+    }
+
+}
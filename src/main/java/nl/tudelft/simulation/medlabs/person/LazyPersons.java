@@ -0,0 +1,480 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.TLongDoubleMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.disease.DiseaseState;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+
+/**
+ * LazyPersons implements the lazy mobility mode, in which persons whose day only touches sublocations without infectious
+ * occupants do not carry out their activities as events. At the start of the day, the day of a person is resolved with
+ * DayPattern.walk(). When none of the planned sublocations has had an infectious occupant in the last 24 hours, the person is
+ * taken out of the location, the planned hours are added to presence counters per sublocation, and no events are scheduled for
+ * the person until the next midnight. When an infectious person enters a sublocation that a lazy person still plans to visit
+ * that day, the lazy person is materialised at the planned activity for the current time of day, and continues with events
+ * from there.
+ * <p>
+ * The sublocation of a visit is known in advance for homes, for locations with one sublocation, and for reproducible location
+ * types. For other locations the sublocation is drawn on entry, and the visit is checked against all sublocations of the
+ * location. Persons are never lazy on the day that they are ill, and on the first day of the simulation. A lazy person whose
+ * disease phase changes to an ill phase during the day, e.g., at the end of the exposed phase or by a seeded infection, is
+ * materialised at once, so the person is present in the location as an ill person for the rest of the day.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LazyPersons implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the sublocation part of a key that stands for all sublocations of the location. */
+    private static final int ANY_SUBLOCATION = 0xffff;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the last time an infectious person entered or was present, per key of location and sublocation. */
+    private final TLongDoubleMap lastInfectiousTime = new TLongDoubleHashMap();
+
+    /** the resolved day of each lazy person id. */
+    private final TIntObjectMap<LazyDay> lazyDays = new TIntObjectHashMap<>();
+
+    /** the lazy persons per key of location and sublocation, per day. */
+    private final TIntObjectMap<TLongObjectMap<TIntArrayList>> watchersPerDay = new TIntObjectHashMap<>();
+
+    /** the planned person-hours of the lazy persons per key of location and sublocation, per day. */
+    private final TIntObjectMap<TLongDoubleMap> presencePerDay = new TIntObjectHashMap<>();
+
+    /** the last day for which each person id was found not to be lazy; the person is resolved once per day. */
+    private final TIntIntMap activeDay = new TIntIntHashMap(1024, 0.5f, Integer.MIN_VALUE, -1);
+
+    /** the number of days that persons were resolved lazily. */
+    private long numberLazyDays = 0;
+
+    /** the number of lazy persons that were materialised during the day. */
+    private long numberMaterialised = 0;
+
+    /**
+     * Create the lazy mobility mode.
+     * @param model MedlabsModelInterface; the model
+     */
+    public LazyPersons(final MedlabsModelInterface model)
+    {
+        this.model = model;
+    }
+
+    /**
+     * Schedule the first midnight. This should be called after the persons have been initialized.
+     */
+    public void start()
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        this.model.getSimulator().scheduleEventRel(24.0 * Math.floor(now / 24.0) + 24.0 - now, this, "midnight", null);
+    }
+
+    /**
+     * @param locationId int; the location id
+     * @param subLocationIndex int; the sublocation index, or -1 for all sublocations
+     * @return the key of the location and sublocation
+     */
+    private static long key(final int locationId, final int subLocationIndex)
+    {
+        return ((long) locationId << 16) | (subLocationIndex & ANY_SUBLOCATION);
+    }
+
+    /**
+     * @return the day number of the current simulation time, where midnight belongs to the new day
+     */
+    private int today()
+    {
+        return (int) Math.floor((this.model.getSimulator().getSimulatorTime().doubleValue() + 0.01) / 24.0);
+    }
+
+    /**
+     * Try to resolve the day of a person who is at the start of the day. When the person is lazy, the person is taken out of
+     * the current location, and the caller should not start the next activity.
+     * @param person Person; the person at the start of the day
+     * @return boolean; whether the person is lazy for the rest of the day
+     */
+    public boolean resolveDay(final Person person)
+    {
+        return resolveDay(person, true);
+    }
+
+    /**
+     * Try to resolve the day of a person who is at the start of the day.
+     * @param person Person; the person at the start of the day
+     * @param present boolean; whether the person is present in the current location
+     * @return boolean; whether the person is lazy for the rest of the day
+     */
+    private boolean resolveDay(final Person person, final boolean present)
+    {
+        int day = today();
+        // a person with a pending week pattern first has to switch patterns at the start of the day in endActivity
+        if (this.activeDay.get(person.getId()) == day || person.getDiseasePhase().isIll()
+                || person.getPendingWeekPattern() != null)
+            return false;
+        WeekPattern weekPattern = person.getCurrentWeekPattern();
+        if (!(weekPattern instanceof WeekDayPattern))
+            return false;
+        int weekday = day % 7;
+        DayPattern dayPattern = ((WeekDayPattern) weekPattern).getDayPattern(weekday);
+        Location startLocation = person.getCurrentLocation();
+        LazyDay lazyDay = new LazyDay(person, day, weekday);
+        dayPattern.walk(person, lazyDay);
+
+        double since = this.model.getSimulator().getSimulatorTime().doubleValue() - 24.0;
+        for (int i = 0; i < lazyDay.size(); i++)
+        {
+            if (this.lastInfectiousTime.containsKey(lazyDay.keys[i]) && this.lastInfectiousTime.get(lazyDay.keys[i]) >= since)
+            {
+                this.activeDay.put(person.getId(), day);
+                return false;
+            }
+        }
+
+        if (present)
+            startLocation.removePerson(person);
+        person.setCurrentLocation(person.getHomeLocation());
+        this.lazyDays.put(person.getId(), lazyDay);
+        TLongObjectMap<TIntArrayList> watchers = this.watchersPerDay.get(day);
+        if (watchers == null)
+        {
+            watchers = new TLongObjectHashMap<>();
+            this.watchersPerDay.put(day, watchers);
+            this.presencePerDay.put(day, new TLongDoubleHashMap());
+        }
+        TLongDoubleMap presence = this.presencePerDay.get(day);
+        for (int i = 0; i < lazyDay.size(); i++)
+        {
+            TIntArrayList ids = watchers.get(lazyDay.keys[i]);
+            if (ids == null)
+            {
+                ids = new TIntArrayList();
+                watchers.put(lazyDay.keys[i], ids);
+            }
+            if (ids.isEmpty() || ids.get(ids.size() - 1) != person.getId())
+                ids.add(person.getId());
+            presence.adjustOrPutValue(lazyDay.keys[i], lazyDay.durations[i], lazyDay.durations[i]);
+        }
+        this.numberLazyDays++;
+        return true;
+    }
+
+    /**
+     * Register that an infectious person enters a sublocation, and materialise the lazy persons who still plan to visit the
+     * sublocation today. This method should be called before the transmission in the sublocation is calculated.
+     * @param location Location; the location that the infectious person enters
+     * @param subLocationIndex int; the sublocation that the infectious person enters
+     */
+    public void infectiousEnters(final Location location, final int subLocationIndex)
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        long subKey = key(location.getId(), subLocationIndex);
+        long anyKey = key(location.getId(), -1);
+        this.lastInfectiousTime.put(subKey, now);
+        this.lastInfectiousTime.put(anyKey, now);
+        TLongObjectMap<TIntArrayList> watchers = this.watchersPerDay.get(today());
+        if (watchers != null)
+        {
+            materialise(watchers.remove(subKey), subKey, now);
+            materialise(watchers.remove(anyKey), anyKey, now);
+        }
+    }
+
+    /**
+     * Materialise the lazy persons who plan to visit a key after the current time.
+     * @param ids TIntArrayList; the ids of the lazy persons who planned to visit the key today, can be null
+     * @param key long; the key of the location and sublocation
+     * @param now double; the current simulation time
+     */
+    private void materialise(final TIntArrayList ids, final long key, final double now)
+    {
+        if (ids == null)
+            return;
+        int day = today();
+        double hour = now - 24.0 * day;
+        for (int i = 0; i < ids.size(); i++)
+        {
+            LazyDay lazyDay = this.lazyDays.get(ids.get(i));
+            if (lazyDay != null && lazyDay.day == day && lazyDay.visitsAfter(key, hour))
+            {
+                this.lazyDays.remove(ids.get(i));
+                this.activeDay.put(ids.get(i), day);
+                resume(this.model.getPersonMap().get(ids.get(i)), lazyDay, hour);
+                this.numberMaterialised++;
+            }
+        }
+    }
+
+    /**
+     * Materialise a lazy person whose disease phase changed to an ill phase at the planned activity for the current time of
+     * day. The person enters the location as an ill person, which materialises the lazy persons who plan to visit the
+     * sublocation as well. When the person is not lazy, nothing happens.
+     * @param person Person; the person who became ill
+     */
+    public void becomesIll(final Person person)
+    {
+        LazyDay lazyDay = this.lazyDays.remove(person.getId());
+        if (lazyDay == null)
+            return;
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        this.activeDay.put(person.getId(), today());
+        resume(person, lazyDay, Math.min(24.0, now - 24.0 * lazyDay.day));
+        this.numberMaterialised++;
+    }
+
+    /**
+     * Let a lazy person continue with the planned activity at the current hour of the day. The planned hours before the current
+     * hour are reported to the activity monitor, and the planned hours after it are removed from the presence counters.
+     * @param person Person; the lazy person
+     * @param lazyDay LazyDay; the resolved day of the person
+     * @param hour double; the current hour of the day
+     */
+    private void resume(final Person person, final LazyDay lazyDay, final double hour)
+    {
+        TLongDoubleMap presence = this.presencePerDay.get(lazyDay.day);
+        int current = -1;
+        for (int i = 0; i < lazyDay.size(); i++)
+        {
+            double start = lazyDay.starts[i];
+            double end = start + lazyDay.durations[i];
+            if (hour >= end)
+                continue;
+            double remaining = end - Math.max(start, hour);
+            presence.adjustValue(lazyDay.keys[i], -remaining);
+            if (current < 0 && hour >= start)
+                current = i;
+        }
+        reportActivityTime(person, lazyDay, hour);
+        if (current < 0)
+        {
+            person.resumeActivity(-1, person.getHomeLocation(), Math.max(0.01, 24.0 - hour));
+            return;
+        }
+        int index = lazyDay.indices[current];
+        person.resumeActivity(index < 0 ? -1 : (lazyDay.weekday << 12) | index, lazyDay.locations[current],
+                Math.max(0.01, lazyDay.starts[current] + lazyDay.durations[current] - hour));
+    }
+
+    /**
+     * Report the planned hours of a lazy person before an hour of the day to the activity monitor.
+     * @param person Person; the lazy person
+     * @param lazyDay LazyDay; the resolved day of the person
+     * @param untilHour double; the hour of the day until which the planned hours are reported
+     */
+    private void reportActivityTime(final Person person, final LazyDay lazyDay, final double untilHour)
+    {
+        for (int i = 0; i < lazyDay.size() && lazyDay.starts[i] < untilHour; i++)
+        {
+            double hours = Math.min(lazyDay.durations[i], untilHour - lazyDay.starts[i]);
+            this.model.getActivityMonitor().addActivityTime(lazyDay.locations[i].getLocationType().getName(),
+                    person.getClass().getSimpleName(), hours);
+        }
+    }
+
+    /**
+     * Scheduled method at midnight that registers the sublocations of the infectious persons, ends the day of the lazy persons,
+     * and resolves their next day.
+     */
+    protected void midnight()
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        int day = today();
+        this.model.getDiseaseProgression().getStateIndex().getPersons(DiseaseState.ILL).forEach(id ->
+        {
+            Person person = this.model.getPersonMap().get(id);
+            this.lastInfectiousTime.put(key(person.getCurrentLocation().getId(), person.getCurrentSubLocationIndex()), now);
+            this.lastInfectiousTime.put(key(person.getCurrentLocation().getId(), -1), now);
+        });
+        this.watchersPerDay.remove(day - 2);
+        this.presencePerDay.remove(day - 2);
+
+        for (int id : this.lazyDays.keys())
+        {
+            LazyDay lazyDay = this.lazyDays.get(id);
+            if (lazyDay.day >= day)
+                continue;
+            this.lazyDays.remove(id);
+            Person person = this.model.getPersonMap().get(id);
+            reportActivityTime(person, lazyDay, 24.0);
+            if (person.getDiseasePhase().isDead())
+                continue;
+            // when the person is not lazy, start the day with the end of the dummy activity until midnight
+            if (!resolveDay(person, false))
+                person.resumeActivity(-1, person.getHomeLocation(), 0.0);
+        }
+        this.model.getSimulator().scheduleEventRel(24.0, this, "midnight", null);
+    }
+
+    /**
+     * Return the planned person-hours of the lazy persons in a sublocation on a day. The hours of persons who were materialised
+     * during the day are only counted until they were materialised. The counters of the current and the previous day are kept.
+     * @param location Location; the location
+     * @param subLocationIndex int; the sublocation, or -1 for the visits for which the sublocation is drawn on entry
+     * @param day int; the day number
+     * @return double; the planned person-hours of the lazy persons in the sublocation on the day
+     */
+    public double getLazyPresenceHours(final Location location, final int subLocationIndex, final int day)
+    {
+        TLongDoubleMap presence = this.presencePerDay.get(day);
+        return presence == null ? 0.0 : presence.get(key(location.getId(), subLocationIndex));
+    }
+
+    /**
+     * @param person Person; the person
+     * @return whether the person is lazy at the current time
+     */
+    public boolean isLazy(final Person person)
+    {
+        return this.lazyDays.containsKey(person.getId());
+    }
+
+    /**
+     * @return the number of persons who are lazy at the current time
+     */
+    public int getNumberLazy()
+    {
+        return this.lazyDays.size();
+    }
+
+    /**
+     * @return the number of days that persons were resolved lazily
+     */
+    public long getNumberLazyDays()
+    {
+        return this.numberLazyDays;
+    }
+
+    /**
+     * @return the number of lazy persons that were materialised during the day
+     */
+    public long getNumberMaterialised()
+    {
+        return this.numberMaterialised;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "LazyPersons [lazy=" + this.lazyDays.size() + ", lazyDays=" + this.numberLazyDays + ", materialised="
+                + this.numberMaterialised + "]";
+    }
+
+    /**
+     * LazyDay stores the planned visits of a lazy person on one day, as found by DayPattern.walk().
+     */
+    private static class LazyDay implements DayPattern.ActivityVisitor, Serializable
+    {
+        /** */
+        private static final long serialVersionUID = 20240601L;
+
+        /** the person. */
+        private final Person person;
+
+        /** the day number. */
+        private final int day;
+
+        /** the day of the week. */
+        private final int weekday;
+
+        /** the number of visits. */
+        private int size = 0;
+
+        /** the activity index within the day of each visit, -1 for the dummy activity until midnight. */
+        private int[] indices = new int[4];
+
+        /** the location of each visit. */
+        private Location[] locations = new Location[4];
+
+        /** the key of the location and the planned sublocation of each visit. */
+        private long[] keys = new long[4];
+
+        /** the start hour of the day of each visit. */
+        private double[] starts = new double[4];
+
+        /** the duration in hours of each visit. */
+        private double[] durations = new double[4];
+
+        /**
+         * @param person Person; the person
+         * @param day int; the day number
+         * @param weekday int; the day of the week
+         */
+        LazyDay(final Person person, final int day, final int weekday)
+        {
+            this.person = person;
+            this.day = day;
+            this.weekday = weekday;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void visit(final int index, final Location location, final double startH, final double durationH)
+        {
+            if (this.size == this.indices.length)
+            {
+                int length = 2 * this.size;
+                this.indices = Arrays.copyOf(this.indices, length);
+                this.locations = Arrays.copyOf(this.locations, length);
+                this.keys = Arrays.copyOf(this.keys, length);
+                this.starts = Arrays.copyOf(this.starts, length);
+                this.durations = Arrays.copyOf(this.durations, length);
+            }
+            this.indices[this.size] = index;
+            this.locations[this.size] = location;
+            this.keys[this.size] = key(location.getId(), location.getPlannedSubLocationIndex(this.person));
+            this.starts[this.size] = startH;
+            this.durations[this.size] = durationH;
+            this.size++;
+        }
+
+        /**
+         * @return the number of visits
+         */
+        int size()
+        {
+            return this.size;
+        }
+
+        /**
+         * @param key long; the key of a location and sublocation
+         * @param hour double; the hour of the day
+         * @return whether the day has a visit to the key that ends after the hour
+         */
+        boolean visitsAfter(final long key, final double hour)
+        {
+            for (int i = 0; i < this.size; i++)
+            {
+                if (this.keys[i] == key && this.starts[i] + this.durations[i] > hour)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.map.TIntObjectMap;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * LocationPersonIndex is an immutable index from location ids to the ids of the persons with a static relation to the
+ * location, e.g., the members of a household, the workers of a work location, or the students of a school. The index is
+ * stored in compressed sparse row (CSR) form: the persons of location id k are personIds[offsets[k]] to
+ * personIds[offsets[k + 1] - 1], in increasing order. A query costs O(1) to find the row and O(degree) to visit the persons,
+ * without a scan of all persons and without hashing. The index is built once, after all persons have been created, and is
+ * read-only afterwards, so it can be shared between threads. Location ids are assumed to be non-negative and reasonably dense,
+ * as in the MEDLABS location files.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public final class LocationPersonIndex implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the start of the persons of each location id in the personIds array; the last entry is the number of persons. */
+    private final int[] offsets;
+
+    /** the ids of the persons, per location id in increasing order. */
+    private final int[] personIds;
+
+    /**
+     * Create an index from the CSR arrays.
+     * @param offsets int[]; the start of the persons of each location id in the personIds array
+     * @param personIds int[]; the ids of the persons, per location id in increasing order
+     */
+    private LocationPersonIndex(final int[] offsets, final int[] personIds)
+    {
+        this.offsets = offsets;
+        this.personIds = personIds;
+    }
+
+    /**
+     * Build an index for the persons of the model, with the location id of each person given by a function. The function
+     * returns -1 for persons that do not have the relation, e.g., for persons who do not work.
+     * @param personMap TIntObjectMap&lt;Person&gt;; the persons of the model
+     * @param locationIdFunction ToIntFunction&lt;Person&gt;; the location id of a person, or -1 when the person has no such
+     *            location
+     * @return LocationPersonIndex; the immutable index from location id to person ids
+     * @throws MedlabsRuntimeException when the function returns a negative location id other than -1
+     */
+    public static LocationPersonIndex build(final TIntObjectMap<Person> personMap,
+            final ToIntFunction<Person> locationIdFunction)
+    {
+        int[] ids = personMap.keys();
+        int[] locationIds = new int[ids.length];
+        for (int i = 0; i < ids.length; i++)
+        {
+            locationIds[i] = locationIdFunction.applyAsInt(personMap.get(ids[i]));
+        }
+        return build(ids, locationIds);
+    }
+
+    /**
+     * Build an index from pairs of a person id and a location id. A location id of -1 means that the person does not have the
+     * relation. The arrays are not changed.
+     * @param personIds int[]; the person ids, in any order, without duplicates
+     * @param locationIds int[]; the location id for each person id, or -1
+     * @return LocationPersonIndex; the immutable index from location id to person ids
+     * @throws MedlabsRuntimeException when the arrays differ in length, or a location id is negative and not -1
+     */
+    public static LocationPersonIndex build(final int[] personIds, final int[] locationIds)
+    {
+        Throw.when(personIds.length != locationIds.length, MedlabsRuntimeException.class,
+                "%d person ids and %d location ids", personIds.length, locationIds.length);
+        int maxLocationId = -1;
+        for (int i = 0; i < personIds.length; i++)
+        {
+            Throw.when(locationIds[i] < -1, MedlabsRuntimeException.class, "negative location id %d for person %d",
+                    locationIds[i], personIds[i]);
+            maxLocationId = Math.max(maxLocationId, locationIds[i]);
+        }
+
+        // count the persons per location id, and make the offsets
+        int[] offsets = new int[maxLocationId + 2];
+        for (int locationId : locationIds)
+        {
+            if (locationId >= 0)
+                offsets[locationId + 1]++;
+        }
+        for (int k = 0; k <= maxLocationId; k++)
+        {
+            offsets[k + 1] += offsets[k];
+        }
+
+        // fill the rows, and sort each row
+        int[] rows = new int[offsets[maxLocationId + 1]];
+        int[] fill = Arrays.copyOf(offsets, maxLocationId + 1);
+        for (int i = 0; i < personIds.length; i++)
+        {
+            if (locationIds[i] >= 0)
+                rows[fill[locationIds[i]]++] = personIds[i];
+        }
+        for (int k = 0; k <= maxLocationId; k++)
+        {
+            if (offsets[k + 1] - offsets[k] > 1)
+                Arrays.sort(rows, offsets[k], offsets[k + 1]);
+        }
+        return new LocationPersonIndex(offsets, rows);
+    }
+
+    /**
+     * Return the number of persons with a relation to the location.
+     * @param locationId int; the location id
+     * @return int; the number of persons of the location, 0 for an unknown location id
+     */
+    public int getNumberOfPersons(final int locationId)
+    {
+        if (locationId < 0 || locationId >= this.offsets.length - 1)
+            return 0;
+        return this.offsets[locationId + 1] - this.offsets[locationId];
+    }
+
+    /**
+     * Return one of the persons with a relation to the location.
+     * @param locationId int; the location id
+     * @param index int; the index of the person, between 0 and getNumberOfPersons(locationId) - 1
+     * @return int; the id of the person
+     * @throws IndexOutOfBoundsException when the index is out of range
+     */
+    public int getPersonId(final int locationId, final int index)
+    {
+        int n = getNumberOfPersons(locationId);
+        if (index < 0 || index >= n)
+            throw new IndexOutOfBoundsException("index " + index + " for location " + locationId + " with " + n + " persons");
+        return this.personIds[this.offsets[locationId] + index];
+    }
+
+    /**
+     * Call the action for every person with a relation to the location, in increasing order of the person ids.
+     * @param locationId int; the location id
+     * @param action IntConsumer; the action for each person id
+     */
+    public void forEach(final int locationId, final IntConsumer action)
+    {
+        if (locationId < 0 || locationId >= this.offsets.length - 1)
+            return;
+        for (int i = this.offsets[locationId]; i < this.offsets[locationId + 1]; i++)
+        {
+            action.accept(this.personIds[i]);
+        }
+    }
+
+    /**
+     * Return whether a person has a relation to the location, with a binary search in the row of the location.
+     * @param locationId int; the location id
+     * @param personId int; the person id
+     * @return boolean; whether the person has a relation to the location
+     */
+    public boolean contains(final int locationId, final int personId)
+    {
+        if (locationId < 0 || locationId >= this.offsets.length - 1)
+            return false;
+        return Arrays.binarySearch(this.personIds, this.offsets[locationId], this.offsets[locationId + 1], personId) >= 0;
+    }
+
+    /**
+     * @param locationId int; the location id
+     * @return a copy of the ids of the persons with a relation to the location, in increasing order
+     */
+    public int[] getPersonIds(final int locationId)
+    {
+        if (locationId < 0 || locationId >= this.offsets.length - 1)
+            return new int[0];
+        return Arrays.copyOfRange(this.personIds, this.offsets[locationId], this.offsets[locationId + 1]);
+    }
+
+    /**
+     * @return the total number of relations in the index
+     */
+    public int size()
+    {
+        return this.personIds.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "LocationPersonIndex [locations=" + (this.offsets.length - 1) + ", persons=" + this.personIds.length + "]";
+    }
+
+}
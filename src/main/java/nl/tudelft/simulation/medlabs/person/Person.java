@@ -54,6 +54,17 @@ public interface Person extends Locatable, Serializable, PropertiesInterface, Mo
      */
     void endActivity();
 
+    /**
+     * Resume the activity pattern of a person who did not carry out activities, e.g., in a dormant region of the
+     * HybridRegions, in the middle of an activity. The person is added to the location, and the activity ends after the
+     * remaining duration, after which the next activity of the week pattern starts as usual.
+     * @param activityIndex int; the index of the current activity in the current week pattern, or -1 for the gap till the end
+     *            of the day
+     * @param location Location; the location of the current activity
+     * @param remainingH double; the remaining duration of the current activity in hours
+     */
+    void resumeActivity(int activityIndex, Location location, double remainingH);
+
     /** {@inheritDoc} */
     @Override
     default Point3d getLocation() throws RemoteException
@@ -166,8 +177,16 @@ public interface Person extends Locatable, Serializable, PropertiesInterface, Mo
     WeekPattern getCurrentWeekPattern();
 
     /**
+     * Set the week pattern that the person follows. The current activity refers to the current week pattern, so the new week
+     * pattern only becomes the current week pattern at the start of the next day; until then, it is the pending week pattern.
+     * Setting the current week pattern again cancels a pending week pattern.
      * @param currentWeekPattern the current WeekPattern to set
      */
     void setCurrentWeekPattern(WeekPattern currentWeekPattern);
 
+    /**
+     * @return the WeekPattern that becomes the current WeekPattern at the start of the next day, or null when there is none
+     */
+    WeekPattern getPendingWeekPattern();
+
 }
@@ -0,0 +1,324 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * PersonBitSet is a set of person ids, stored as one bit per id in a long[] array. Next to the bits, a summary array holds one
+ * bit per word that indicates whether the word contains any set bit, so iteration over a sparse set, e.g., the few thousand
+ * infectious persons among millions of persons, skips 64 empty words (4096 ids) per summary check. Intersections with other
+ * bit sets, e.g., a bit set of the persons aged 60 and over that is made once with fromPredicate, are carried out word by word.
+ * The cardinality is maintained on every change, so it is available in constant time. Person ids are assumed to be
+ * non-negative and reasonably dense, as in the MEDLABS person files.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class PersonBitSet implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the bits, one per person id. */
+    private long[] words;
+
+    /** one bit per word of the bits array, set when the word is not zero. */
+    private long[] summary;
+
+    /** the number of set bits. */
+    private int cardinality = 0;
+
+    /**
+     * Create an empty bit set with room for the given number of person ids; the set grows when needed.
+     * @param capacity int; the expected largest person id + 1
+     */
+    public PersonBitSet(final int capacity)
+    {
+        this.words = new long[Math.max(1, (capacity + 63) >>> 6)];
+        this.summary = new long[(this.words.length + 63) >>> 6];
+    }
+
+    /**
+     * Create a bit set of the person ids in [0, maxId] for which the predicate is true, e.g., id -&gt;
+     * personMap.get(id).getAge() &gt;= 60. Such a property set is meant to be made once, and then intersected with the
+     * changing disease state sets.
+     * @param maxId int; the largest person id to test
+     * @param predicate IntPredicate; the predicate on the person id
+     * @return PersonBitSet; the bit set of the person ids for which the predicate is true
+     */
+    public static PersonBitSet fromPredicate(final int maxId, final IntPredicate predicate)
+    {
+        PersonBitSet result = new PersonBitSet(maxId + 1);
+        for (int id = 0; id <= maxId; id++)
+        {
+            if (predicate.test(id))
+                result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * Make sure the arrays can hold the given word index.
+     * @param wordIndex int; the word index
+     */
+    private void ensureWord(final int wordIndex)
+    {
+        if (wordIndex >= this.words.length)
+        {
+            this.words = Arrays.copyOf(this.words, Math.max(wordIndex + 1, 2 * this.words.length));
+            this.summary = Arrays.copyOf(this.summary, (this.words.length + 63) >>> 6);
+        }
+    }
+
+    /**
+     * Add a person id to the set.
+     * @param id int; the person id, not negative
+     * @return boolean; whether the id was added, false when it was already in the set
+     */
+    public boolean add(final int id)
+    {
+        int w = id >>> 6;
+        ensureWord(w);
+        long bit = 1L << id;
+        if ((this.words[w] & bit) != 0)
+            return false;
+        this.words[w] |= bit;
+        this.summary[w >>> 6] |= 1L << w;
+        this.cardinality++;
+        return true;
+    }
+
+    /**
+     * Remove a person id from the set.
+     * @param id int; the person id
+     * @return boolean; whether the id was removed, false when it was not in the set
+     */
+    public boolean remove(final int id)
+    {
+        int w = id >>> 6;
+        if (id < 0 || w >= this.words.length)
+            return false;
+        long bit = 1L << id;
+        if ((this.words[w] & bit) == 0)
+            return false;
+        this.words[w] &= ~bit;
+        if (this.words[w] == 0)
+            this.summary[w >>> 6] &= ~(1L << w);
+        this.cardinality--;
+        return true;
+    }
+
+    /**
+     * @param id int; the person id
+     * @return whether the person id is in the set
+     */
+    public boolean contains(final int id)
+    {
+        int w = id >>> 6;
+        return id >= 0 && w < this.words.length && (this.words[w] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return the number of person ids in the set
+     */
+    public int cardinality()
+    {
+        return this.cardinality;
+    }
+
+    /**
+     * @return whether the set is empty
+     */
+    public boolean isEmpty()
+    {
+        return this.cardinality == 0;
+    }
+
+    /**
+     * Return the smallest person id in the set that is at least the given id.
+     * @param fromId int; the id to start the search
+     * @return int; the smallest id &gt;= fromId in the set, or -1 when there is none
+     */
+    public int nextSetBit(final int fromId)
+    {
+        int w = Math.max(0, fromId) >>> 6;
+        if (w >= this.words.length)
+            return -1;
+        long word = this.words[w] & (-1L << Math.max(0, fromId));
+        while (word == 0)
+        {
+            w = nextNonEmptyWord(w + 1);
+            if (w < 0)
+                return -1;
+            word = this.words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Return the index of the first word with a set bit at or after the given word index, using the summary.
+     * @param fromWord int; the word index to start
+     * @return int; the index of the first non-empty word, or -1 when there is none
+     */
+    private int nextNonEmptyWord(final int fromWord)
+    {
+        int s = fromWord >>> 6;
+        if (s >= this.summary.length)
+            return -1;
+        long bits = this.summary[s] & (-1L << fromWord);
+        while (bits == 0)
+        {
+            s++;
+            if (s >= this.summary.length)
+                return -1;
+            bits = this.summary[s];
+        }
+        return (s << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Call the action for every person id in the set, in increasing order. The set should not be changed by the action.
+     * @param action IntConsumer; the action for each person id
+     */
+    public void forEach(final IntConsumer action)
+    {
+        for (int s = 0; s < this.summary.length; s++)
+        {
+            long nonEmpty = this.summary[s];
+            while (nonEmpty != 0)
+            {
+                int w = (s << 6) + Long.numberOfTrailingZeros(nonEmpty);
+                nonEmpty &= nonEmpty - 1;
+                long word = this.words[w];
+                while (word != 0)
+                {
+                    action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of person ids in the set that satisfy the predicate.
+     * @param predicate IntPredicate; the predicate on the person id
+     * @return int; the number of person ids in the set for which the predicate is true
+     */
+    public int count(final IntPredicate predicate)
+    {
+        int[] count = new int[1];
+        forEach(id ->
+        {
+            if (predicate.test(id))
+                count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Return the number of person ids that are in both this set and the other set, without creating a new set.
+     * @param other PersonBitSet; the other set
+     * @return int; the cardinality of the intersection
+     */
+    public int andCardinality(final PersonBitSet other)
+    {
+        int n = Math.min(this.summary.length, other.summary.length);
+        int count = 0;
+        for (int s = 0; s < n; s++)
+        {
+            long nonEmpty = this.summary[s] & other.summary[s];
+            while (nonEmpty != 0)
+            {
+                int w = (s << 6) + Long.numberOfTrailingZeros(nonEmpty);
+                nonEmpty &= nonEmpty - 1;
+                count += Long.bitCount(this.words[w] & other.words[w]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Store the intersection of this set and the other set in the target set, replacing its contents.
+     * @param other PersonBitSet; the other set
+     * @param target PersonBitSet; the set that receives the intersection; may be this set or the other set
+     * @return PersonBitSet; the target set
+     */
+    public PersonBitSet and(final PersonBitSet other, final PersonBitSet target)
+    {
+        int n = Math.min(this.words.length, other.words.length);
+        target.ensureWord(n - 1);
+        int count = 0;
+        for (int s = 0; s < target.summary.length; s++)
+        {
+            long candidates = s < this.summary.length && s < other.summary.length ? this.summary[s] & other.summary[s] : 0L;
+            long targetSummary = 0L;
+            long stale = target.summary[s] & ~candidates;
+            while (stale != 0)
+            {
+                target.words[(s << 6) + Long.numberOfTrailingZeros(stale)] = 0L;
+                stale &= stale - 1;
+            }
+            while (candidates != 0)
+            {
+                int w = (s << 6) + Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                long word = this.words[w] & other.words[w];
+                target.words[w] = word;
+                if (word != 0)
+                {
+                    targetSummary |= 1L << w;
+                    count += Long.bitCount(word);
+                }
+            }
+            target.summary[s] = targetSummary;
+        }
+        target.cardinality = count;
+        return target;
+    }
+
+    /**
+     * Remove all person ids from the set, keeping the allocated memory.
+     */
+    public void clear()
+    {
+        for (int s = 0; s < this.summary.length; s++)
+        {
+            long nonEmpty = this.summary[s];
+            while (nonEmpty != 0)
+            {
+                this.words[(s << 6) + Long.numberOfTrailingZeros(nonEmpty)] = 0L;
+                nonEmpty &= nonEmpty - 1;
+            }
+            this.summary[s] = 0L;
+        }
+        this.cardinality = 0;
+    }
+
+    /**
+     * @return the person ids in the set, in increasing order
+     */
+    public int[] toArray()
+    {
+        int[] result = new int[this.cardinality];
+        int[] index = new int[1];
+        forEach(id -> result[index[0]++] = id);
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "PersonBitSet [cardinality=" + this.cardinality + "]";
+    }
+
+}
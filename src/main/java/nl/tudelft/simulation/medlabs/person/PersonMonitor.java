@@ -12,7 +12,9 @@ import org.djutils.metadata.MetaData;
 import org.djutils.metadata.ObjectDescriptor;
 
 import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntIntHashMap;
+import nl.tudelft.simulation.medlabs.disease.ExposureBatch;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
@@ -95,6 +97,11 @@ public class PersonMonitor extends LocalEventProducer
     /** event for infected person. */
     public static final EventType INFECTED_PERSON_EVENT = new EventType("INFECTED_PERSON_EVENT");
 
+    /** event for the persons infected in one transmission evaluation; the batch is reused, so process it immediately. */
+    public static final EventType INFECTED_PERSONS_EVENT = new EventType("INFECTED_PERSONS_EVENT",
+            new MetaData("infected persons", "persons infected in one transmission evaluation",
+                    new ObjectDescriptor("exposure batch", "batch of exposures", ExposureBatch.class)));
+
     /** event for person who died. */
     public static final EventType DEAD_PERSON_EVENT = new EventType("DEAD_PERSON_EVENT",
             new MetaData("dead person", "dead person", new ObjectDescriptor("dead person", "dead person", Person.class)));
@@ -166,6 +173,9 @@ public class PersonMonitor extends LocalEventProducer
      */
     private TIntIntMap totInfectionsLocPersonPerson = new TIntIntHashMap();
 
+    /** the batch for the exposures that are reported one at a time, reused for every call of reportExposure. */
+    private final ExposureBatch singleExposure = new ExposureBatch(1);
+
     /** the model. */
     private final MedlabsModelInterface model;
 
@@ -228,8 +238,9 @@ public class PersonMonitor extends LocalEventProducer
         int ageBracket = (int) Math.floor(person.getAge() / 10.0);
         this.infectionsPerAgeBracketPerDay[ageBracket]++;
         this.infectionsPerAgeBracketPerHour[ageBracket]++;
-        fireTimedEvent(new TimedEvent<Double>(INFECTED_PERSON_EVENT, new Object[] {person, infectLocation},
-                this.model.getSimulator().getSimulatorTime()));
+        if (numberOfListeners(INFECTED_PERSON_EVENT) > 0)
+            fireTimedEvent(new TimedEvent<Double>(INFECTED_PERSON_EVENT, new Object[] {person, infectLocation},
+                    this.model.getSimulator().getSimulatorTime()));
     }
 
     /**
@@ -244,12 +255,51 @@ public class PersonMonitor extends LocalEventProducer
     }
 
     /**
-     * Report exposure of a person to disease, where the exposed person does get infected.
+     * Report exposure of a person to disease, where the exposed person does get infected. The listeners for
+     * INFECTED_PERSONS_EVENT receive a batch with one exposure; the batch is reused, so listeners should process it
+     * immediately.
      * @param exposedPerson Person; the exposed person
      * @param infectLocation Location; the location where the exposure took place
      * @param infectingPerson Person; the most likely infecting person
      */
     public void reportExposure(final Person exposedPerson, final Location infectLocation, final Person infectingPerson)
+    {
+        reportExposureStatistics(exposedPerson, infectLocation, infectingPerson);
+        if (numberOfListeners(INFECTED_PERSONS_EVENT) > 0)
+        {
+            this.singleExposure.start(infectLocation);
+            this.singleExposure.add(exposedPerson.getId(), infectingPerson.getId());
+            fireTimedEvent(new TimedEvent<Double>(INFECTED_PERSONS_EVENT, this.singleExposure,
+                    this.model.getSimulator().getSimulatorTime()));
+        }
+    }
+
+    /**
+     * Report the exposures of one transmission evaluation, where the exposed persons do get infected. The statistics are
+     * updated per person, and the listeners for INFECTED_PERSONS_EVENT receive the batch in one event. The batch is reused by
+     * the caller, so listeners should process it immediately.
+     * @param batch ExposureBatch; the exposures of one transmission evaluation
+     */
+    public void reportExposures(final ExposureBatch batch)
+    {
+        TIntObjectMap<Person> personMap = this.model.getPersonMap();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            reportExposureStatistics(personMap.get(batch.getInfectedId(i)), batch.getLocation(),
+                    personMap.get(batch.getInfectiousId(i)));
+        }
+        if (numberOfListeners(INFECTED_PERSONS_EVENT) > 0)
+            fireTimedEvent(new TimedEvent<Double>(INFECTED_PERSONS_EVENT, batch, this.model.getSimulator().getSimulatorTime()));
+    }
+
+    /**
+     * Update the statistics for the exposure of a person to disease, where the exposed person does get infected.
+     * @param exposedPerson Person; the exposed person
+     * @param infectLocation Location; the location where the exposure took place
+     * @param infectingPerson Person; the most likely infecting person
+     */
+    private void reportExposureStatistics(final Person exposedPerson, final Location infectLocation,
+            final Person infectingPerson)
     {
         reportInfectPerson(exposedPerson, infectLocation);
         reportInfectionAtLocationType(infectLocation.getLocationTypeId());
@@ -0,0 +1,92 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import java.io.Serializable;
+
+import gnu.trove.map.TIntObjectMap;
+import nl.tudelft.simulation.medlabs.location.Location;
+
+/**
+ * PersonRelations holds the immutable indices of the static relations between persons and locations: the members of each
+ * home, the workers of each work location, and the students of each school. The indices are built once when the model has been
+ * constructed, and are shared and read-only afterwards. Questions such as "who works here" or "who lives here" cost
+ * O(degree) instead of a scan of all persons, so policies that act on such a group, e.g., household quarantine, contact
+ * tracing or the closure of a workplace, take time proportional to the affected persons.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class PersonRelations implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the persons per home location id. */
+    private final LocationPersonIndex homeIndex;
+
+    /** the workers per work location id. */
+    private final LocationPersonIndex workIndex;
+
+    /** the students per school location id. */
+    private final LocationPersonIndex schoolIndex;
+
+    /**
+     * Build the indices for the persons of the model. This should be done after all persons have been created.
+     * @param personMap TIntObjectMap&lt;Person&gt;; the persons of the model
+     */
+    public PersonRelations(final TIntObjectMap<Person> personMap)
+    {
+        this.homeIndex = LocationPersonIndex.build(personMap, p -> locationId(p.getHomeLocation()));
+        this.workIndex = LocationPersonIndex.build(personMap,
+                p -> p instanceof Worker ? locationId(((Worker) p).getWorkLocation()) : -1);
+        this.schoolIndex = LocationPersonIndex.build(personMap,
+                p -> p instanceof Student ? locationId(((Student) p).getSchoolLocation()) : -1);
+    }
+
+    /**
+     * @param location Location; a location, or null
+     * @return the id of the location, or -1 when the location is null
+     */
+    private static int locationId(final Location location)
+    {
+        return location == null ? -1 : location.getId();
+    }
+
+    /**
+     * @return the index of the persons per home location id
+     */
+    public LocationPersonIndex getHomeIndex()
+    {
+        return this.homeIndex;
+    }
+
+    /**
+     * @return the index of the workers per work location id
+     */
+    public LocationPersonIndex getWorkIndex()
+    {
+        return this.workIndex;
+    }
+
+    /**
+     * @return the index of the students per school location id
+     */
+    public LocationPersonIndex getSchoolIndex()
+    {
+        return this.schoolIndex;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "PersonRelations [homes=" + this.homeIndex + ", work=" + this.workIndex + ", school=" + this.schoolIndex + "]";
+    }
+
+}
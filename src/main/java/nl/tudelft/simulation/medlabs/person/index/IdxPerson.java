@@ -7,6 +7,8 @@ import nl.tudelft.simulation.medlabs.disease.DiseasePhase;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.AbstractPerson;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
 import nl.tudelft.simulation.medlabs.person.PersonType;
 import nl.tudelft.simulation.medlabs.simulation.TinySimEvent;
 
@@ -38,6 +40,10 @@ public class IdxPerson extends AbstractPerson
     @SuppressWarnings("checkstyle:visibilitymodifier")
     protected short standardWeekPatternIndex;
 
+    /** index of the week pattern that becomes the current week pattern at the start of the next day, or -1 when none. */
+    @SuppressWarnings("checkstyle:visibilitymodifier")
+    protected short pendingWeekPatternIndex = -1;
+
     /** index of the current activity in the week pattern. -1 means dummy activity till the end of the day. */
     @SuppressWarnings("checkstyle:visibilitymodifier")
     protected short activityIndex = 0;
@@ -144,6 +150,7 @@ public class IdxPerson extends AbstractPerson
         if (getDiseasePhase().isDead())
         {
             getCurrentLocation().removePerson(this);
+            this.model.getReservationManager().cancel(this);
             // TODO: PersonType pt = this.model.getPersonTypeClassMap().get(getClass());
             // TODO: pt.decNumberPersons();
             return;
@@ -153,13 +160,59 @@ public class IdxPerson extends AbstractPerson
         this.activityStartTime = now;
         this.model.getActivityMonitor().addActivityTime(getCurrentLocation().getLocationType().getName(),
                 getClass().getSimpleName(), activityHours);
+        HybridRegions hybridRegions = this.model.getHybridRegions();
+        if (hybridRegions != null && hybridRegions.park(this))
+            return;
+        if (this.pendingWeekPatternIndex >= 0 && this.activityIndex == -1)
+            switchWeekPattern();
+        LazyPersons lazyPersons = this.model.getLazyPersons();
+        if (lazyPersons != null && this.activityIndex == -1 && lazyPersons.resolveDay(this))
+            return;
         WeekPattern currentWeekPattern = getCurrentWeekPattern();
-        this.activityIndex = (short) currentWeekPattern.getNextActivityIndex(this, this.activityIndex);
+        int nextIndex = currentWeekPattern.getNextActivityIndex(this, this.activityIndex);
+        if (this.pendingWeekPatternIndex >= 0 && nextIndex != -1 && (nextIndex >> 12) != (this.activityIndex >> 12))
+        {
+            // the last activity of the day ended after midnight: the new day starts with the first activity of the new pattern
+            switchWeekPattern();
+            currentWeekPattern = getCurrentWeekPattern();
+            nextIndex = currentWeekPattern.getNextActivityIndex(this, -1);
+        }
+        this.activityIndex = (short) nextIndex;
         // NOTE: the startActivity() method SHOULD be the last statement of endActivity()
         // A dummy travel activity, or a void activity calls endActivity AGAIN
         currentWeekPattern.getActivity(this.activityIndex).startActivity(this);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void resumeActivity(final int activityIndex, final Location location, final double remainingH)
+    {
+        this.activityIndex = (short) activityIndex;
+        setCurrentLocation(location);
+        location.addPerson(this);
+        this.activityStartTime = this.model.getSimulator().getSimulatorTime().floatValue();
+        try
+        {
+            this.model.getSimulator().scheduleEvent(new TinySimEvent(
+                    this.model.getSimulator().getSimulatorTime() + remainingH, this, "endActivity", null));
+        }
+        catch (Exception exception)
+        {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Make the pending week pattern the current week pattern at the start of a new day. The activity index is reset, so the
+     * next activity is the first activity of the day in the new week pattern.
+     */
+    protected void switchWeekPattern()
+    {
+        this.currentWeekPatternIndex = this.pendingWeekPatternIndex;
+        this.pendingWeekPatternIndex = -1;
+        this.activityIndex = -1;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString()
@@ -230,12 +283,18 @@ public class IdxPerson extends AbstractPerson
     }
 
     /**
+     * Set the disease phase, and update the index of the persons per disease phase and state of the disease. A lazy person who
+     * becomes ill is materialised, so the person does not spend the rest of the day outside the locations.
      * @param diseasePhase DiseasePhase; the diseasePhase to set
      */
     @Override
     public void setDiseasePhase(final DiseasePhase diseasePhase)
     {
+        this.model.getDiseaseProgression().getStateIndex().move(getId(), this.diseasePhaseIndex, diseasePhase.getIndex());
         this.diseasePhaseIndex = diseasePhase.getIndex();
+        LazyPersons lazyPersons = this.model.getLazyPersons();
+        if (lazyPersons != null && diseasePhase.isIll())
+            lazyPersons.becomesIll(this);
     }
 
     /** {@inheritDoc} */
@@ -284,10 +343,16 @@ public class IdxPerson extends AbstractPerson
     @Override
     public void setCurrentWeekPattern(final WeekPattern currentWeekPattern)
     {
-        // TODO: set the activity to -1 to avoid problems with retrieving the previous activity
-        // This does not work...
-        // getCurrentLocation().removePerson(this);
-        this.currentWeekPatternIndex = (short) currentWeekPattern.getId();
+        // the activity index points into the current week pattern, so the pattern is only switched at the start of a day
+        short index = (short) currentWeekPattern.getId();
+        this.pendingWeekPatternIndex = index == this.currentWeekPatternIndex ? -1 : index;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public WeekPattern getPendingWeekPattern()
+    {
+        return this.pendingWeekPatternIndex < 0 ? null : this.model.getWeekPatternList().get(this.pendingWeekPatternIndex);
     }
 
 }
@@ -2,7 +2,6 @@ package nl.tudelft.simulation.medlabs.policy;
 
 import java.util.Collection;
 
-import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
 import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 
@@ -38,28 +37,38 @@ public class ClosurePolicy extends Policy
         this.closureLocations = closureLocations;
     }
 
-    /** close the locations, i.e., enforce the policy. */
+    /**
+     * Close the locations, i.e., enforce the policy. The closure is registered per location type in the model's ClosureState,
+     * so the time needed does not depend on the number of locations. Closing an already closed policy has no effect.
+     */
     public void close()
     {
-        for (LocationType locationType : this.closureLocations)
-        {
-            for (Location location : locationType.getLocationMap().valueCollection())
-            {
-                location.setClosed(true);
-            }
-        }
+        this.model.getClosureState().closeTypes(this);
     }
 
-    /** open the locations again, e.g., when the the policy is lifted. */
+    /**
+     * Open the locations again, e.g., when the the policy is lifted. Location types that are also closed by another closure
+     * policy stay closed until that policy is lifted as well.
+     */
     public void open()
     {
-        for (LocationType locationType : this.closureLocations)
-        {
-            for (Location location : locationType.getLocationMap().valueCollection())
-            {
-                location.setClosed(false);
-            }
-        }
+        this.model.getClosureState().openTypes(this);
+    }
+
+    /**
+     * @return whether this policy currently closes its location types
+     */
+    public boolean isClosed()
+    {
+        return this.model.getClosureState().isClosing(this);
+    }
+
+    /**
+     * @return the location types that this policy closes
+     */
+    public Collection<LocationType> getClosureLocations()
+    {
+        return this.closureLocations;
     }
 
 }
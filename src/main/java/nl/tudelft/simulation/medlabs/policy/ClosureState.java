@@ -0,0 +1,424 @@
+package nl.tudelft.simulation.medlabs.policy;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.djutils.exceptions.Throw;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+
+/**
+ * ClosureState keeps track of which locations are closed, without storing a flag in every location. Closure policies close
+ * and open complete location types: per location type, the number of closure policies that currently close the type is
+ * counted, so several policies with overlapping location types can be combined, and a type only opens again when the last
+ * policy that closes it is lifted. Individual locations can override the state of their type (e.g., an essential shop that
+ * stays open, or a single school that is closed because of an outbreak); the overrides are stored in two bitmaps, indexed by
+ * the closure index that every location receives when it is created.
+ * <p>
+ * For every location type, the state contains one byte that tells whether the type is open, closed, or whether overrides
+ * exist for locations of the type. Checking whether a location is closed is therefore a single array lookup, unless overrides
+ * exist for the type, in which case one extra bitmap lookup is needed. Closing or opening a type by a policy takes time
+ * proportional to the number of location types of the policy, and not to the number of locations.
+ * </p>
+ * <p>
+ * Copyright (c) 2014-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ClosureState implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** type state: all locations of the type are open. */
+    private static final byte OPEN = 0;
+
+    /** type state: all locations of the type are closed. */
+    private static final byte CLOSED = 1;
+
+    /** type state: the type is open, but some locations have an override. */
+    private static final byte OPEN_WITH_OVERRIDES = 2;
+
+    /** type state: the type is closed, but some locations have an override. */
+    private static final byte CLOSED_WITH_OVERRIDES = 3;
+
+    /** the state per location type, indexed by the unsigned location type id. */
+    private final byte[] typeState = new byte[256];
+
+    /** the number of closure policies that close the location type, indexed by the unsigned location type id. */
+    private final int[] typeClosureCount = new int[256];
+
+    /** the number of locations with an override, indexed by the unsigned location type id. */
+    private final int[] typeOverrideCount = new int[256];
+
+    /** bitmap with a bit for every location that has an override, indexed by the closure index of the location. */
+    private long[] overridden = new long[64];
+
+    /** bitmap with a bit for every location whose override closes the location, indexed by the closure index. */
+    private long[] overrideClosed = new long[64];
+
+    /** the policy epoch, which changes with every change of a closure; cached policy decisions of older epochs are stale. */
+    private int policyEpoch = 0;
+
+    /** the closure policies that currently close their location types. */
+    private final Set<ClosurePolicy> closingPolicies = new LinkedHashSet<>();
+
+    /** the number of closure indices that have been handed out. */
+    private int numberOfLocations = 0;
+
+    /** the number of closure decisions of the locators that were answered from a LocatorDecisionCache. */
+    private long decisionHits = 0L;
+
+    /** the number of closure decisions of the locators that had to be drawn. */
+    private long decisionMisses = 0L;
+
+    /** the time in nanoseconds spent on drawing the closure decisions of the locators. */
+    private long decisionMissNanos = 0L;
+
+    /**
+     * Hand out the closure index for a new location. The index is used to look up the override of the location in the bitmaps.
+     * @return int; the closure index for the new location
+     */
+    public int registerLocation()
+    {
+        return this.numberOfLocations++;
+    }
+
+    /**
+     * Register that a closure policy closes its location types. Closing the types of a policy that already closes them has no
+     * effect, so the policy is counted once per location type.
+     * @param policy ClosurePolicy; the policy that closes its location types
+     * @return boolean; whether the policy was not yet closing its location types
+     */
+    public boolean closeTypes(final ClosurePolicy policy)
+    {
+        if (!this.closingPolicies.add(policy))
+            return false;
+        for (LocationType locationType : policy.getClosureLocations())
+        {
+            closeType(locationType.getLocationTypeId());
+        }
+        return true;
+    }
+
+    /**
+     * Register that a closure policy opens its location types again. A location type only opens when no other policy closes
+     * the type anymore.
+     * @param policy ClosurePolicy; the policy that opens its location types
+     * @return boolean; whether the policy was closing its location types
+     */
+    public boolean openTypes(final ClosurePolicy policy)
+    {
+        if (!this.closingPolicies.remove(policy))
+            return false;
+        for (LocationType locationType : policy.getClosureLocations())
+        {
+            openType(locationType.getLocationTypeId());
+        }
+        return true;
+    }
+
+    /**
+     * Open the location types of the closing policies that are not in the given collection of policies anymore, e.g., the
+     * policies that were deactivated. The collection is typically the set of values of model.getActivePolicies().
+     * @param activePolicies Collection&lt;Policy&gt;; the policies that are still active
+     */
+    public void retainPolicies(final Collection<Policy> activePolicies)
+    {
+        for (ClosurePolicy policy : this.closingPolicies.toArray(new ClosurePolicy[0]))
+        {
+            if (!activePolicies.contains(policy))
+                policy.open();
+        }
+    }
+
+    /**
+     * Add one closure to the closure count of a location type.
+     * @param locationTypeId byte; the id of the location type
+     */
+    public void closeType(final byte locationTypeId)
+    {
+        int t = locationTypeId & 0xFF;
+        this.typeClosureCount[t]++;
+        updateTypeState(t);
+    }
+
+    /**
+     * Remove one closure from the closure count of a location type.
+     * @param locationTypeId byte; the id of the location type
+     * @throws MedlabsRuntimeException when the location type is not closed
+     */
+    public void openType(final byte locationTypeId)
+    {
+        int t = locationTypeId & 0xFF;
+        Throw.when(this.typeClosureCount[t] == 0, MedlabsRuntimeException.class, "location type %d is not closed",
+                locationTypeId);
+        this.typeClosureCount[t]--;
+        updateTypeState(t);
+    }
+
+    /**
+     * Override the state of the location type for one location.
+     * @param location Location; the location to override
+     * @param closed boolean; whether the location is closed, regardless of the state of its location type
+     */
+    public void setOverride(final Location location, final boolean closed)
+    {
+        setOverride(location.getLocationType().getLocationTypeId(), location.getClosureIndex(), closed);
+    }
+
+    /**
+     * Override the state of the location type for one location, identified by its location type id and closure index.
+     * @param locationTypeId byte; the id of the location type of the location
+     * @param index int; the closure index of the location
+     * @param closed boolean; whether the location is closed, regardless of the state of its location type
+     */
+    public void setOverride(final byte locationTypeId, final int index, final boolean closed)
+    {
+        Throw.when(index < 0, MedlabsRuntimeException.class, "closure index %d is negative", index);
+        ensureCapacity(index);
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if ((this.overridden[word] & bit) == 0L)
+        {
+            this.overridden[word] |= bit;
+            int t = locationTypeId & 0xFF;
+            this.typeOverrideCount[t]++;
+            updateTypeState(t);
+        }
+        if (closed)
+            this.overrideClosed[word] |= bit;
+        else
+            this.overrideClosed[word] &= ~bit;
+        this.policyEpoch++;
+    }
+
+    /**
+     * Remove the override for one location, so it follows the state of its location type again.
+     * @param location Location; the location for which to remove the override
+     */
+    public void clearOverride(final Location location)
+    {
+        clearOverride(location.getLocationType().getLocationTypeId(), location.getClosureIndex());
+    }
+
+    /**
+     * Remove the override for one location, identified by its location type id and closure index.
+     * @param locationTypeId byte; the id of the location type of the location
+     * @param index int; the closure index of the location
+     */
+    public void clearOverride(final byte locationTypeId, final int index)
+    {
+        int word = index >>> 6;
+        if (index < 0 || word >= this.overridden.length)
+            return;
+        long bit = 1L << index;
+        if ((this.overridden[word] & bit) != 0L)
+        {
+            this.overridden[word] &= ~bit;
+            this.overrideClosed[word] &= ~bit;
+            int t = locationTypeId & 0xFF;
+            this.typeOverrideCount[t]--;
+            updateTypeState(t);
+        }
+    }
+
+    /**
+     * Return whether the location is closed, taking into account the closure of its type and its override.
+     * @param location Location; the location to check
+     * @return boolean; whether the location is closed
+     */
+    public boolean isClosed(final Location location)
+    {
+        return isClosed(location.getLocationType().getLocationTypeId(), location.getClosureIndex());
+    }
+
+    /**
+     * Return whether a location, identified by its location type id and closure index, is closed. When no location of the
+     * type has an override, the answer is found with one lookup in the type state array.
+     * @param locationTypeId byte; the id of the location type of the location
+     * @param index int; the closure index of the location
+     * @return boolean; whether the location is closed
+     */
+    public boolean isClosed(final byte locationTypeId, final int index)
+    {
+        byte state = this.typeState[locationTypeId & 0xFF];
+        if (state < OPEN_WITH_OVERRIDES)
+            return state == CLOSED;
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if (word < this.overridden.length && (this.overridden[word] & bit) != 0L)
+            return (this.overrideClosed[word] & bit) != 0L;
+        return state == CLOSED_WITH_OVERRIDES;
+    }
+
+    /**
+     * Return whether the location type is closed by at least one closure policy. Overrides of individual locations are not
+     * taken into account.
+     * @param locationType LocationType; the location type to check
+     * @return boolean; whether the location type is closed
+     */
+    public boolean isClosed(final LocationType locationType)
+    {
+        return this.typeClosureCount[locationType.getLocationTypeId() & 0xFF] > 0;
+    }
+
+    /**
+     * Return whether all locations of the location type are open: the type is not closed by a closure policy, and no location
+     * of the type has an override.
+     * @param locationType LocationType; the location type to check
+     * @return boolean; whether all locations of the location type are open
+     */
+    public boolean isFullyOpen(final LocationType locationType)
+    {
+        return this.typeState[locationType.getLocationTypeId() & 0xFF] == OPEN;
+    }
+
+    /**
+     * Return the number of closure policies that close the location type.
+     * @param locationType LocationType; the location type to check
+     * @return int; the number of closure policies that close the location type
+     */
+    public int getClosureCount(final LocationType locationType)
+    {
+        return this.typeClosureCount[locationType.getLocationTypeId() & 0xFF];
+    }
+
+    /**
+     * @param policy ClosurePolicy; the policy to check
+     * @return whether the closure policy currently closes its location types
+     */
+    public boolean isClosing(final ClosurePolicy policy)
+    {
+        return this.closingPolicies.contains(policy);
+    }
+
+    /**
+     * @return the number of closure policies that currently close their location types
+     */
+    public int getNumberOfClosingPolicies()
+    {
+        return this.closingPolicies.size();
+    }
+
+    /**
+     * Return the policy epoch. The epoch changes whenever a closure policy, a closure override, or the closure settings of a
+     * location type change, so decisions that depend on these policies can be cached until the epoch changes.
+     * @return int; the policy epoch
+     */
+    public int getPolicyEpoch()
+    {
+        return this.policyEpoch;
+    }
+
+    /**
+     * Start a new policy epoch, e.g., after a change of the closure settings of a location type. Cached policy decisions of the
+     * previous epochs become stale.
+     */
+    public void nextPolicyEpoch()
+    {
+        this.policyEpoch++;
+    }
+
+    /**
+     * Count a closure decision of a locator that was answered from its LocatorDecisionCache.
+     */
+    public void countDecisionHit()
+    {
+        this.decisionHits++;
+    }
+
+    /**
+     * Count a closure decision of a locator that had to be drawn, with the time it took to draw the decision.
+     * @param nanos long; the time in nanoseconds spent on drawing the decision
+     */
+    public void countDecisionMiss(final long nanos)
+    {
+        this.decisionMisses++;
+        this.decisionMissNanos += nanos;
+    }
+
+    /**
+     * @return the number of closure decisions of the locators that were answered from a cache
+     */
+    public long getDecisionHits()
+    {
+        return this.decisionHits;
+    }
+
+    /**
+     * @return the number of closure decisions of the locators that had to be drawn
+     */
+    public long getDecisionMisses()
+    {
+        return this.decisionMisses;
+    }
+
+    /**
+     * @return the fraction of the closure decisions of the locators that was answered from a cache, or 0 when there were no
+     *         decisions
+     */
+    public double getDecisionHitRate()
+    {
+        long total = this.decisionHits + this.decisionMisses;
+        return total == 0L ? 0.0 : (double) this.decisionHits / total;
+    }
+
+    /**
+     * Return the estimated time saved by the decision caches of the locators: the number of hits times the average time to
+     * draw a decision.
+     * @return double; the estimated time saved by the decision caches in seconds
+     */
+    public double getEstimatedDecisionSavedSeconds()
+    {
+        return this.decisionMisses == 0L ? 0.0 : 1.0E-9 * this.decisionHits * this.decisionMissNanos / this.decisionMisses;
+    }
+
+    /**
+     * Recalculate the state byte of a location type after a change of its closure count or override count.
+     * @param t int; the unsigned location type id
+     */
+    private void updateTypeState(final int t)
+    {
+        this.policyEpoch++;
+        boolean closed = this.typeClosureCount[t] > 0;
+        if (this.typeOverrideCount[t] > 0)
+            this.typeState[t] = closed ? CLOSED_WITH_OVERRIDES : OPEN_WITH_OVERRIDES;
+        else
+            this.typeState[t] = closed ? CLOSED : OPEN;
+    }
+
+    /**
+     * Grow the bitmaps when needed, so the bit for the given closure index exists.
+     * @param index int; the closure index that needs a bit
+     */
+    private void ensureCapacity(final int index)
+    {
+        int words = (index >>> 6) + 1;
+        if (words > this.overridden.length)
+        {
+            int newLength = Math.max(words, 2 * this.overridden.length);
+            this.overridden = Arrays.copyOf(this.overridden, newLength);
+            this.overrideClosed = Arrays.copyOf(this.overrideClosed, newLength);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "ClosureState [locations=" + this.numberOfLocations + ", closingPolicies=" + this.closingPolicies.size() + "]";
+    }
+
+}
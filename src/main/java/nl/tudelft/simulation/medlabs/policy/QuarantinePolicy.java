@@ -0,0 +1,192 @@
+package nl.tudelft.simulation.medlabs.policy;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntDoubleMap;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.LocationPersonIndex;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonRelations;
+import nl.tudelft.simulation.medlabs.person.Student;
+import nl.tudelft.simulation.medlabs.person.Worker;
+
+/**
+ * QuarantinePolicy sends groups of persons into quarantine for a fixed duration: the persons follow the quarantine week
+ * pattern (e.g., staying at home) instead of their standard week pattern, and return to their standard week pattern when the
+ * quarantine ends. The persons finish the day that they are in, and switch week patterns at the start of the next day, since
+ * the activity that they are carrying out belongs to the week pattern that they followed. The groups are found with the
+ * PersonRelations of the model: the members of a household, the contacts of a person at home, work and school for contact
+ * tracing, or the workers of a workplace that is closed after an outbreak. The time needed is therefore proportional to the
+ * number of persons who are sent into quarantine, and not to the population. A person who is sent into quarantine again while
+ * in quarantine gets the later end time.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class QuarantinePolicy extends Policy
+{
+    /** the week pattern that persons follow during the quarantine. */
+    private final WeekPattern quarantinePattern;
+
+    /** the duration of the quarantine in hours. */
+    private final double durationH;
+
+    /** the end time of the quarantine per person in quarantine. */
+    private final TIntDoubleMap quarantineEnd = new TIntDoubleHashMap();
+
+    /**
+     * Create a quarantine policy.
+     * @param model MedlabsModelInterface; the model
+     * @param name String; the policy name
+     * @param quarantinePattern WeekPattern; the week pattern that persons follow during the quarantine
+     * @param durationH double; the duration of the quarantine in hours
+     * @throws MedlabsRuntimeException when durationH is not positive
+     */
+    public QuarantinePolicy(final MedlabsModelInterface model, final String name, final WeekPattern quarantinePattern,
+            final double durationH)
+    {
+        super(model, name);
+        Throw.whenNull(quarantinePattern, "quarantinePattern cannot be null");
+        Throw.when(durationH <= 0.0, MedlabsRuntimeException.class, "quarantine duration should be positive");
+        this.quarantinePattern = quarantinePattern;
+        this.durationH = durationH;
+    }
+
+    /**
+     * Send the household of a person into quarantine, including the person.
+     * @param person Person; the person, e.g., a person who tested positive
+     * @return int; the number of persons who were sent into quarantine
+     */
+    public int quarantineHousehold(final Person person)
+    {
+        TIntArrayList ids = new TIntArrayList();
+        addAll(this.model.getPersonRelations().getHomeIndex(), person.getHomeLocation(), ids);
+        return quarantine(ids);
+    }
+
+    /**
+     * Trace the contacts of a person at home, at work and at school, and send them into quarantine, including the person.
+     * @param person Person; the person, e.g., a person who tested positive
+     * @return int; the number of persons who were sent into quarantine
+     */
+    public int traceContacts(final Person person)
+    {
+        PersonRelations relations = this.model.getPersonRelations();
+        TIntArrayList ids = new TIntArrayList();
+        addAll(relations.getHomeIndex(), person.getHomeLocation(), ids);
+        if (person instanceof Worker)
+            addAll(relations.getWorkIndex(), ((Worker) person).getWorkLocation(), ids);
+        if (person instanceof Student)
+            addAll(relations.getSchoolIndex(), ((Student) person).getSchoolLocation(), ids);
+        return quarantine(ids);
+    }
+
+    /**
+     * Send all workers of a work location into quarantine, e.g., when the workplace is closed after an outbreak.
+     * @param workLocation Location; the work location
+     * @return int; the number of persons who were sent into quarantine
+     */
+    public int quarantineWorkers(final Location workLocation)
+    {
+        TIntArrayList ids = new TIntArrayList();
+        addAll(this.model.getPersonRelations().getWorkIndex(), workLocation, ids);
+        return quarantine(ids);
+    }
+
+    /**
+     * Send all students of a school into quarantine, e.g., when the school is closed after an outbreak.
+     * @param school Location; the school location
+     * @return int; the number of persons who were sent into quarantine
+     */
+    public int quarantineStudents(final Location school)
+    {
+        TIntArrayList ids = new TIntArrayList();
+        addAll(this.model.getPersonRelations().getSchoolIndex(), school, ids);
+        return quarantine(ids);
+    }
+
+    /**
+     * Add the persons of a location in an index to a list.
+     * @param index LocationPersonIndex; the index
+     * @param location Location; the location, may be null
+     * @param ids TIntArrayList; the list to which the person ids are added
+     */
+    private static void addAll(final LocationPersonIndex index, final Location location, final TIntArrayList ids)
+    {
+        if (location != null)
+            index.forEach(location.getId(), ids::add);
+    }
+
+    /**
+     * Send the persons into quarantine, and schedule the end of the quarantine. The persons follow the quarantine pattern from
+     * the start of the next day.
+     * @param ids TIntArrayList; the ids of the persons; duplicates are allowed
+     * @return int; the number of persons who were sent into quarantine
+     */
+    private int quarantine(final TIntArrayList ids)
+    {
+        double end = this.model.getSimulator().getSimulatorTime().doubleValue() + this.durationH;
+        TIntArrayList quarantined = new TIntArrayList(ids.size());
+        for (int i = 0; i < ids.size(); i++)
+        {
+            int id = ids.get(i);
+            if (this.quarantineEnd.containsKey(id) && this.quarantineEnd.get(id) == end)
+                continue;
+            this.quarantineEnd.put(id, end);
+            this.model.getPersonMap().get(id).setCurrentWeekPattern(this.quarantinePattern);
+            quarantined.add(id);
+        }
+        if (!quarantined.isEmpty())
+            this.model.getSimulator().scheduleEventAbs(end, this, "release", new Object[] {quarantined.toArray()});
+        return quarantined.size();
+    }
+
+    /**
+     * Scheduled method that ends the quarantine of the persons, unless they were sent into quarantine again later. The persons
+     * follow their standard week pattern again from the start of the next day.
+     * @param ids int[]; the ids of the persons whose quarantine might end now
+     */
+    protected void release(final int[] ids)
+    {
+        double now = this.model.getSimulator().getSimulatorTime().doubleValue();
+        for (int id : ids)
+        {
+            if (this.quarantineEnd.containsKey(id) && this.quarantineEnd.get(id) <= now)
+            {
+                this.quarantineEnd.remove(id);
+                Person person = this.model.getPersonMap().get(id);
+                person.setCurrentWeekPattern(person.getStandardWeekPattern());
+            }
+        }
+    }
+
+    /**
+     * @param person Person; the person
+     * @return whether the person is in quarantine because of this policy
+     */
+    public boolean isQuarantined(final Person person)
+    {
+        return this.quarantineEnd.containsKey(person.getId());
+    }
+
+    /**
+     * @return the number of persons who are in quarantine because of this policy
+     */
+    public int getNumberQuarantined()
+    {
+        return this.quarantineEnd.size();
+    }
+
+}
@@ -7,6 +7,7 @@ import javax.naming.NamingException;
 import nl.tudelft.simulation.dsol.SimRuntimeException;
 import nl.tudelft.simulation.dsol.simulators.DevsSimulator;
 import nl.tudelft.simulation.dsol.simulators.ErrorStrategy;
+import nl.tudelft.simulation.medlabs.model.AbstractMedlabsModel;
 
 /**
  * SimpleDevsSimulator is a simulator that is aimed at executing TinySimEvents where time is stored as a double, with a unit
@@ -44,6 +45,8 @@ public class SimpleDevsSimulator extends DevsSimulator<Double> implements Simple
     public void endReplication()
     {
         super.endReplication();
+        if (getModel() instanceof AbstractMedlabsModel && ((AbstractMedlabsModel) getModel()).getResultWriter() != null)
+            ((AbstractMedlabsModel) getModel()).getResultWriter().closeFiles();
         System.exit(0);
     }
 
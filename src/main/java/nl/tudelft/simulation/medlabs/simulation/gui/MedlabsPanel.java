@@ -24,6 +24,7 @@ import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
 import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
+import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
 import nl.tudelft.simulation.medlabs.simulation.gui.chart.HistogramDouble;
 import nl.tudelft.simulation.medlabs.simulation.gui.chart.HistogramInt;
 import nl.tudelft.simulation.medlabs.simulation.gui.chart.LineChart;
@@ -49,6 +50,9 @@ public class MedlabsPanel extends DsolPanel
     /** the model. */
     private final MedlabsModelInterface model;
 
+    /** the reusable occupancy snapshot of the location types for the statistics. */
+    private int[] occupancySnapshot = null;
+
     /**
      * @param controlPanel the control panel
      * @param model the model
@@ -148,8 +152,6 @@ public class MedlabsPanel extends DsolPanel
                 chart.getSeries().setMarker(SeriesMarkers.NONE);
                 locationCharts.setCell(chart.getSwingPanel(), col, row);
 
-                // make sure every LocationType reports about its status every 5 minutes
-                simulator.scheduleEventRel(0.0, locationType, "reportStatistics", null);
                 // make sure every locationType reports on its capacity problems
                 simulator.scheduleEventRel(0.0, locationType, "reportCapacityProblems", null);
 
@@ -186,6 +188,27 @@ public class MedlabsPanel extends DsolPanel
                 col = 0;
             }
         }
+
+        // make sure all location types report about their status every 10 minutes, based on one occupancy snapshot
+        simulator.scheduleEventRel(0.0, this, "reportLocationStatistics", null);
+    }
+
+    /**
+     * Schedulable method to report the number of persons of all location types every 10 minutes, using one occupancy snapshot
+     * of the model instead of a separate event per location type.
+     */
+    protected void reportLocationStatistics()
+    {
+        this.occupancySnapshot = getModel().getOccupancySnapshot(this.occupancySnapshot);
+        int i = 0;
+        for (LocationType locationType : getModel().getLocationTypeList())
+        {
+            locationType.fireStatistics(
+                    this.occupancySnapshot[i * LocationType.OCCUPANCY_FIELDS + LocationType.OCCUPANCY_PERSONS]);
+            i++;
+        }
+        getModel().getSimulator().scheduleEventRel(TimeUnit.convert(10.0, TimeUnit.MINUTE), this, "reportLocationStatistics",
+                null);
     }
 
     private void addDiseaseStatistics(final DiseaseProgression disease)
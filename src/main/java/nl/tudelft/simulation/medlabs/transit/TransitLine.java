@@ -0,0 +1,323 @@
+package nl.tudelft.simulation.medlabs.transit;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.MovableLocationType;
+
+/**
+ * TransitLine is a directed public transport line: an ordered list of stops, the running time between the stops, and the
+ * departure times from the first stop for every day. Persons who wait for the line are stored per stop position in primitive
+ * lists (person id, alighting position, destination, and the time they are ready to board), so boarding at a stop is handled
+ * in one batch for all waiting riders. Vehicles are reused between trips; a new vehicle is only created when all vehicles of
+ * the line are on the road.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitLine implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the network to which the line belongs. */
+    private final TransitNetwork network;
+
+    /** the index of the line in the network. */
+    private final int index;
+
+    /** the name of the line. */
+    private final String name;
+
+    /** the stops of the line in order. */
+    private final Location[] stops;
+
+    /** the time in hours after departure from the first stop at which the vehicle arrives at each stop. */
+    private final double[] arrivalOffsetH;
+
+    /** the sorted departure times from the first stop in hours after midnight. */
+    private final double[] departuresH;
+
+    /** the location type of the vehicles. */
+    private final MovableLocationType vehicleType;
+
+    /** the number of sublocations of a vehicle. */
+    private final short vehicleSubLocations;
+
+    /** the surface of a vehicle in m2, which determines its capacity. */
+    private final float vehicleSurfaceM2;
+
+    /** the waiting person ids per stop position. */
+    private final TIntList[] waitingPersons;
+
+    /** the alighting positions of the waiting persons per stop position. */
+    private final TIntList[] waitingAlightPositions;
+
+    /** the destination location ids of the waiting persons per stop position. */
+    private final TIntList[] waitingDestinations;
+
+    /** the times at which the waiting persons are at the stop, per stop position. */
+    private final TDoubleList[] waitingReadyTimes;
+
+    /** the vehicles that are not on a trip. */
+    private final Deque<TransitVehicle> idleVehicles = new ArrayDeque<>();
+
+    /** the index of the next departure of the day. */
+    private int nextDeparture = 0;
+
+    /** the number of vehicles that were created for this line. */
+    private int numberOfVehicles = 0;
+
+    /**
+     * Create a transit line. Use TransitNetwork.addLine to create a line, so it is registered in the network.
+     * @param network TransitNetwork; the network to which the line belongs
+     * @param index int; the index of the line in the network
+     * @param name String; the name of the line
+     * @param stops Location[]; the stops of the line in order
+     * @param runTimesH double[]; the running times in hours between consecutive stops (length: number of stops - 1)
+     * @param departuresH double[]; the departure times from the first stop in hours after midnight
+     * @param vehicleType MovableLocationType; the location type of the vehicles
+     * @param vehicleSubLocations short; the number of sublocations of a vehicle
+     * @param vehicleSurfaceM2 float; the surface of a vehicle in m2, which determines its capacity
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    TransitLine(final TransitNetwork network, final int index, final String name, final Location[] stops,
+            final double[] runTimesH, final double[] departuresH, final MovableLocationType vehicleType,
+            final short vehicleSubLocations, final float vehicleSurfaceM2)
+    {
+        Throw.when(stops.length < 2, MedlabsRuntimeException.class, "line %s should have at least 2 stops", name);
+        Throw.when(runTimesH.length != stops.length - 1, MedlabsRuntimeException.class,
+                "line %s should have one run time less than the number of stops", name);
+        this.network = network;
+        this.index = index;
+        this.name = name;
+        this.stops = stops;
+        this.arrivalOffsetH = new double[stops.length];
+        for (int i = 1; i < stops.length; i++)
+        {
+            this.arrivalOffsetH[i] = this.arrivalOffsetH[i - 1] + runTimesH[i - 1];
+        }
+        this.departuresH = departuresH.clone();
+        Arrays.sort(this.departuresH);
+        this.vehicleType = vehicleType;
+        this.vehicleSubLocations = vehicleSubLocations;
+        this.vehicleSurfaceM2 = vehicleSurfaceM2;
+        this.waitingPersons = new TIntList[stops.length];
+        this.waitingAlightPositions = new TIntList[stops.length];
+        this.waitingDestinations = new TIntList[stops.length];
+        this.waitingReadyTimes = new TDoubleList[stops.length];
+        for (int i = 0; i < stops.length; i++)
+        {
+            this.waitingPersons[i] = new TIntArrayList();
+            this.waitingAlightPositions[i] = new TIntArrayList();
+            this.waitingDestinations[i] = new TIntArrayList();
+            this.waitingReadyTimes[i] = new TDoubleArrayList();
+        }
+    }
+
+    /**
+     * Add a person to the waiting list of a stop.
+     * @param position int; the stop position where the person boards
+     * @param personId int; the id of the person
+     * @param alightPosition int; the stop position where the person alights
+     * @param destinationId int; the id of the destination location of the person
+     * @param readyTime double; the simulation time at which the person is at the stop
+     */
+    void enqueue(final int position, final int personId, final int alightPosition, final int destinationId,
+            final double readyTime)
+    {
+        this.waitingPersons[position].add(personId);
+        this.waitingAlightPositions[position].add(alightPosition);
+        this.waitingDestinations[position].add(destinationId);
+        this.waitingReadyTimes[position].add(readyTime);
+    }
+
+    /**
+     * Return the next simulation time at which a vehicle of this line departs from the given stop position, not earlier than
+     * the given time, on the same day.
+     * @param position int; the stop position
+     * @param time double; the earliest simulation time
+     * @return double; the simulation time of the departure, or NaN when no vehicle passes the stop anymore on this day
+     */
+    public double nextDepartureAt(final int position, final double time)
+    {
+        double midnight = 24.0 * Math.floor(time / 24.0);
+        double timeOfDay = time - midnight;
+        for (double departure : this.departuresH)
+        {
+            double atStop = departure + this.arrivalOffsetH[position];
+            if (atStop >= timeOfDay)
+                return midnight + atStop;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Return an idle vehicle for a new trip, or create a new vehicle when all vehicles are on the road.
+     * @return TransitVehicle; the vehicle for the trip
+     */
+    TransitVehicle takeVehicle()
+    {
+        TransitVehicle vehicle = this.idleVehicles.poll();
+        if (vehicle == null)
+        {
+            vehicle = new TransitVehicle(this.network.getModel(), this.network.nextVehicleId(), this, this.vehicleType,
+                    this.vehicleSubLocations, this.vehicleSurfaceM2);
+            this.numberOfVehicles++;
+        }
+        return vehicle;
+    }
+
+    /**
+     * Return a vehicle to the pool of idle vehicles at the end of a trip.
+     * @param vehicle TransitVehicle; the vehicle that finished its trip
+     */
+    void releaseVehicle(final TransitVehicle vehicle)
+    {
+        this.idleVehicles.push(vehicle);
+    }
+
+    /**
+     * Return the index of the next departure of the day, and advance the index.
+     * @return int; the index of the departure
+     */
+    int advanceDeparture()
+    {
+        return this.nextDeparture++;
+    }
+
+    /**
+     * Reset the departure index at the start of a new day.
+     */
+    void resetDepartures()
+    {
+        this.nextDeparture = 0;
+    }
+
+    /**
+     * @return the network to which the line belongs
+     */
+    public TransitNetwork getNetwork()
+    {
+        return this.network;
+    }
+
+    /**
+     * @return the index of the line in the network
+     */
+    public int getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * @return the name of the line
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the number of stops of the line
+     */
+    public int getNumberOfStops()
+    {
+        return this.stops.length;
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the stop at the given position
+     */
+    public Location getStop(final int position)
+    {
+        return this.stops[position];
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the time in hours after departure from the first stop at which the vehicle arrives at the stop
+     */
+    public double getArrivalOffsetH(final int position)
+    {
+        return this.arrivalOffsetH[position];
+    }
+
+    /**
+     * @return the departure times from the first stop in hours after midnight
+     */
+    public double[] getDeparturesH()
+    {
+        return this.departuresH;
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the waiting person ids at the stop position
+     */
+    TIntList getWaitingPersons(final int position)
+    {
+        return this.waitingPersons[position];
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the alighting positions of the waiting persons at the stop position
+     */
+    TIntList getWaitingAlightPositions(final int position)
+    {
+        return this.waitingAlightPositions[position];
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the destination ids of the waiting persons at the stop position
+     */
+    TIntList getWaitingDestinations(final int position)
+    {
+        return this.waitingDestinations[position];
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the ready times of the waiting persons at the stop position
+     */
+    TDoubleList getWaitingReadyTimes(final int position)
+    {
+        return this.waitingReadyTimes[position];
+    }
+
+    /**
+     * @return the number of vehicles that were created for this line
+     */
+    public int getNumberOfVehicles()
+    {
+        return this.numberOfVehicles;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "TransitLine [" + this.name + ", stops=" + this.stops.length + ", departures=" + this.departuresH.length + "]";
+    }
+
+}
@@ -0,0 +1,496 @@
+package nl.tudelft.simulation.medlabs.transit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.djutils.exceptions.Throw;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import nl.tudelft.simulation.medlabs.activity.travel.SpeedModel;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.MovableLocationType;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.simulation.TinySimEvent;
+
+/**
+ * TransitNetwork is the public transport subsystem of the model: a set of lines over a set of stops, and the vehicles that run
+ * the trips of the lines. Riders do not get simulation events for every stop. A rider walks to the boarding stop (in the walk
+ * location of the model) and is put on the waiting list of the line at that stop. Each vehicle has one event per stop, in
+ * which all riders for that stop alight in one batch and all waiting riders that fit in the vehicle board in one batch. A rider
+ * gets one more event at the end of the walk from the alighting stop to the destination. Vehicles are capacity-constrained
+ * Locations, so disease transmission in the vehicle is calculated per segment between the stops where riders board or
+ * alight.
+ * <p>
+ * Trips use a single line; the route is the combination of boarding and alighting stop within the maximum access distance of
+ * the origin and the destination that gives the shortest walking plus riding time. When no route exists, or when no vehicle
+ * passes the boarding stop anymore on that day, the TravelActivityTransit falls back to its travel locator.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitNetwork implements Serializable
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the model. */
+    private final MedlabsModelInterface model;
+
+    /** the location type of the stops. */
+    private final LocationType stopType;
+
+    /** the maximum walking distance in meters to and from a stop. */
+    private final double maxAccessM;
+
+    /** the lines of the network. */
+    private final List<TransitLine> lines = new ArrayList<>();
+
+    /** the lines that serve a stop, per stop location id; the value is (line index &lt;&lt; 12 | stop position). */
+    private final TIntObjectMap<TIntList> stopLineMap = new TIntObjectHashMap<>();
+
+    /** the next location id for a vehicle. */
+    private int nextVehicleId;
+
+    /** the number of boardings. */
+    private long numberOfBoardings = 0L;
+
+    /** the number of times a waiting rider could not board because the vehicle was full. */
+    private long numberOfDeniedBoardings = 0L;
+
+    /** the number of riders that had to use the fallback because the last vehicle of the day was full. */
+    private long numberOfFallbackTrips = 0L;
+
+    /** the number of vehicle trips. */
+    private long numberOfVehicleTrips = 0L;
+
+    /**
+     * Create a public transport network.
+     * @param model MedlabsModelInterface; the model
+     * @param stopType LocationType; the location type of the stops
+     * @param maxAccessM double; the maximum walking distance in meters to and from a stop
+     * @param firstVehicleId int; the first location id for the vehicles, which are numbered consecutively from here
+     */
+    public TransitNetwork(final MedlabsModelInterface model, final LocationType stopType, final double maxAccessM,
+            final int firstVehicleId)
+    {
+        Throw.whenNull(model, "model cannot be null");
+        Throw.whenNull(stopType, "stopType cannot be null");
+        this.model = model;
+        this.stopType = stopType;
+        this.maxAccessM = maxAccessM;
+        this.nextVehicleId = firstVehicleId;
+    }
+
+    /**
+     * Add a line to the network. All stops should be locations of the stop type of the network.
+     * @param name String; the name of the line
+     * @param stops Location[]; the stops of the line in order
+     * @param runTimesH double[]; the running times in hours between consecutive stops (length: number of stops - 1)
+     * @param departuresH double[]; the departure times from the first stop in hours after midnight
+     * @param vehicleType MovableLocationType; the location type of the vehicles
+     * @param vehicleSubLocations short; the number of sublocations of a vehicle
+     * @param vehicleSurfaceM2 float; the surface of a vehicle in m2, which determines its capacity
+     * @return TransitLine; the new line
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public TransitLine addLine(final String name, final Location[] stops, final double[] runTimesH, final double[] departuresH,
+            final MovableLocationType vehicleType, final short vehicleSubLocations, final float vehicleSurfaceM2)
+    {
+        TransitLine line = new TransitLine(this, this.lines.size(), name, stops, runTimesH, departuresH, vehicleType,
+                vehicleSubLocations, vehicleSurfaceM2);
+        this.lines.add(line);
+        for (int pos = 0; pos < stops.length; pos++)
+        {
+            TIntList served = this.stopLineMap.get(stops[pos].getId());
+            if (served == null)
+            {
+                served = new TIntArrayList(2);
+                this.stopLineMap.put(stops[pos].getId(), served);
+            }
+            served.add(line.getIndex() << 12 | pos);
+        }
+        return line;
+    }
+
+    /**
+     * Start the daily schedules of all lines. This method should be called once, after all lines have been added.
+     */
+    public void start()
+    {
+        this.model.getSimulator().scheduleEventRel(0.0, this, "startDay", null);
+    }
+
+    /**
+     * Schedulable method that schedules the departures of all lines for the rest of the day, and reschedules itself at the
+     * next midnight.
+     */
+    protected void startDay()
+    {
+        double now = this.model.getSimulator().getSimulatorTime();
+        double timeOfDay = now - 24.0 * Math.floor(now / 24.0);
+        for (TransitLine line : this.lines)
+        {
+            line.resetDepartures();
+            for (double departure : line.getDeparturesH())
+            {
+                if (departure >= timeOfDay)
+                    this.model.getSimulator().scheduleEventRel(departure - timeOfDay, this, "departure", new Object[] {line});
+                else
+                    line.advanceDeparture();
+            }
+        }
+        this.model.getSimulator().scheduleEventRel(24.0 - timeOfDay, this, "startDay", null);
+    }
+
+    /**
+     * Schedulable method for the departure of a vehicle from the first stop of a line.
+     * @param line TransitLine; the line
+     */
+    protected void departure(final TransitLine line)
+    {
+        int departureIndex = line.advanceDeparture();
+        TransitVehicle vehicle = line.takeVehicle();
+        vehicle.setLastTrip(departureIndex == line.getDeparturesH().length - 1);
+        vehicle.setStopPosition(0);
+        this.numberOfVehicleTrips++;
+        vehicleArrival(vehicle);
+    }
+
+    /**
+     * Schedulable method for the arrival of a vehicle at its current stop position. All riders for this stop alight, and all
+     * waiting riders that are at the stop and fit in the vehicle board, after which the vehicle moves to the next stop.
+     * @param vehicle TransitVehicle; the vehicle
+     */
+    protected void vehicleArrival(final TransitVehicle vehicle)
+    {
+        TransitLine line = vehicle.getLine();
+        int pos = vehicle.getStopPosition();
+        Location stop = line.getStop(pos);
+        double now = this.model.getSimulator().getSimulatorTime();
+        vehicle.setPosition(stop.getLatitude(), stop.getLongitude());
+
+        // alight in one batch
+        TIntList alighting = vehicle.getRidersAlightingAt(pos);
+        if (!alighting.isEmpty())
+        {
+            int[] personIds = alighting.toArray();
+            int[] destinationIds = vehicle.getDestinationsAlightingAt(pos).toArray();
+            alighting.clear();
+            vehicle.getDestinationsAlightingAt(pos).clear();
+            for (int i = 0; i < personIds.length; i++)
+            {
+                Person person = this.model.getPersonMap().get(personIds[i]);
+                Location destination = this.model.getLocationMap().get(destinationIds[i]);
+                vehicle.removePerson(person);
+                travelTo(person, destination, now, walkDurationH(stop.distanceM(destination)));
+            }
+        }
+
+        // board in one batch
+        if (pos < line.getNumberOfStops() - 1)
+        {
+            board(vehicle, line, pos, now);
+            vehicle.setStopPosition(pos + 1);
+            double runTime = line.getArrivalOffsetH(pos + 1) - line.getArrivalOffsetH(pos);
+            this.model.getSimulator().scheduleEvent(new TinySimEvent(now + runTime, this, "vehicleArrival",
+                    new Object[] {vehicle}));
+        }
+        else
+        {
+            line.releaseVehicle(vehicle);
+        }
+    }
+
+    /**
+     * Board the waiting riders at a stop that are ready and fit in the vehicle. Riders who are not yet at the stop stay in the
+     * waiting list. When this is the last trip of the day, riders who are left behind use the fallback.
+     * @param vehicle TransitVehicle; the vehicle
+     * @param line TransitLine; the line
+     * @param pos int; the stop position
+     * @param now double; the current simulation time
+     */
+    private void board(final TransitVehicle vehicle, final TransitLine line, final int pos, final double now)
+    {
+        TIntList persons = line.getWaitingPersons(pos);
+        if (persons.isEmpty())
+            return;
+        TIntList alightPositions = line.getWaitingAlightPositions(pos);
+        TIntList destinations = line.getWaitingDestinations(pos);
+        TDoubleList readyTimes = line.getWaitingReadyTimes(pos);
+        int free = vehicle.getCapacity() - vehicle.getAllPersonIds().size();
+        int keep = 0;
+        Location walk = this.model.getLocationWalk();
+        for (int i = 0; i < persons.size(); i++)
+        {
+            int personId = persons.get(i);
+            if (readyTimes.get(i) <= now && free > 0)
+            {
+                Person person = this.model.getPersonMap().get(personId);
+                walk.removePerson(person);
+                vehicle.addPerson(person);
+                person.setCurrentLocation(vehicle);
+                vehicle.addRider(personId, alightPositions.get(i), destinations.get(i));
+                free--;
+                this.numberOfBoardings++;
+            }
+            else if (readyTimes.get(i) <= now && vehicle.isLastTrip())
+            {
+                this.numberOfFallbackTrips++;
+                this.numberOfDeniedBoardings++;
+                Location destination = this.model.getLocationMap().get(destinations.get(i));
+                travelTo(this.model.getPersonMap().get(personId), destination, now,
+                        this.model.getTravelTimeMatrix().getDuration(line.getStop(pos), destination));
+            }
+            else
+            {
+                if (readyTimes.get(i) <= now)
+                    this.numberOfDeniedBoardings++;
+                persons.set(keep, personId);
+                alightPositions.set(keep, alightPositions.get(i));
+                destinations.set(keep, destinations.get(i));
+                readyTimes.set(keep, readyTimes.get(i));
+                keep++;
+            }
+        }
+        int removed = persons.size() - keep;
+        if (removed > 0)
+        {
+            persons.remove(keep, removed);
+            alightPositions.remove(keep, removed);
+            destinations.remove(keep, removed);
+            readyTimes.remove(keep, removed);
+        }
+    }
+
+    /**
+     * Start a public transport trip for a person: the person walks to the boarding stop and is put on the waiting list.
+     * @param person Person; the person
+     * @param origin Location; the current location of the person
+     * @param destination Location; the destination of the trip
+     * @param route long; the route as returned by findRoute
+     */
+    public void startTrip(final Person person, final Location origin, final Location destination, final long route)
+    {
+        TransitLine line = this.lines.get(routeLine(route));
+        int boardPos = routeBoardPosition(route);
+        double now = this.model.getSimulator().getSimulatorTime();
+        double accessH = walkDurationH(origin.distanceM(line.getStop(boardPos)));
+        Location walk = this.model.getLocationWalk();
+        if (origin.getId() != walk.getId())
+        {
+            origin.removePerson(person);
+            walk.addPerson(person);
+            person.setCurrentLocation(walk);
+        }
+        line.enqueue(boardPos, person.getId(), routeAlightPosition(route), destination.getId(), now + accessH);
+    }
+
+    /**
+     * Let a person travel from a stop to the destination in the walk location, and schedule the end of the trip.
+     * @param person Person; the person
+     * @param destination Location; the destination of the trip
+     * @param now double; the current simulation time
+     * @param durationH double; the travel time from the stop to the destination in hours
+     */
+    private void travelTo(final Person person, final Location destination, final double now, final double durationH)
+    {
+        Location walk = this.model.getLocationWalk();
+        if (person.getCurrentLocation().getId() != walk.getId())
+        {
+            walk.addPerson(person);
+            person.setCurrentLocation(walk);
+        }
+        this.model.getSimulator()
+                .scheduleEvent(new TinySimEvent(now + durationH, this, "finishTrip", new Object[] {person, destination}));
+    }
+
+    /**
+     * Schedulable method for the end of a trip: the person arrives at the destination and ends the travel activity.
+     * @param person Person; the person
+     * @param destination Location; the destination of the trip
+     */
+    protected void finishTrip(final Person person, final Location destination)
+    {
+        person.getCurrentLocation().removePerson(person);
+        destination.addPerson(person);
+        person.setCurrentLocation(destination);
+        person.endActivity();
+    }
+
+    /**
+     * Find the best single-line route between two locations: the boarding and alighting stop within the maximum access
+     * distance that minimize the walking plus riding time, for a line that still passes the boarding stop today.
+     * @param origin Location; the origin of the trip
+     * @param destination Location; the destination of the trip
+     * @return long; the route as (line &lt;&lt; 32 | boarding position &lt;&lt; 16 | alighting position), or -1 when there
+     *         is no route
+     */
+    public long findRoute(final Location origin, final Location destination)
+    {
+        if (origin.distanceM(destination) <= this.maxAccessM)
+            return -1L;
+        TIntList originStops = this.stopType.getLocationListMaxDistanceM(origin, this.maxAccessM);
+        TIntList destinationStops = this.stopType.getLocationListMaxDistanceM(destination, this.maxAccessM);
+        if (originStops.isEmpty() || destinationStops.isEmpty())
+            return -1L;
+        double now = this.model.getSimulator().getSimulatorTime();
+        long bestRoute = -1L;
+        double bestTime = Double.MAX_VALUE;
+        for (int i = 0; i < originStops.size(); i++)
+        {
+            TIntList boardLines = this.stopLineMap.get(originStops.get(i));
+            if (boardLines == null)
+                continue;
+            Location boardStop = this.model.getLocationMap().get(originStops.get(i));
+            double accessH = walkDurationH(origin.distanceM(boardStop));
+            for (int j = 0; j < destinationStops.size(); j++)
+            {
+                TIntList alightLines = this.stopLineMap.get(destinationStops.get(j));
+                if (alightLines == null)
+                    continue;
+                for (int b = 0; b < boardLines.size(); b++)
+                {
+                    int lineIndex = boardLines.get(b) >>> 12;
+                    int boardPos = boardLines.get(b) & 0xFFF;
+                    for (int a = 0; a < alightLines.size(); a++)
+                    {
+                        if (alightLines.get(a) >>> 12 != lineIndex || (alightLines.get(a) & 0xFFF) <= boardPos)
+                            continue;
+                        int alightPos = alightLines.get(a) & 0xFFF;
+                        TransitLine line = this.lines.get(lineIndex);
+                        double nextDeparture = line.nextDepartureAt(boardPos, now + accessH);
+                        if (Double.isNaN(nextDeparture))
+                            continue;
+                        double time = nextDeparture - now + line.getArrivalOffsetH(alightPos)
+                                - line.getArrivalOffsetH(boardPos)
+                                + walkDurationH(line.getStop(alightPos).distanceM(destination));
+                        if (time < bestTime)
+                        {
+                            bestTime = time;
+                            bestRoute = ((long) lineIndex << 32) | ((long) boardPos << 16) | alightPos;
+                        }
+                    }
+                }
+            }
+        }
+        return bestRoute;
+    }
+
+    /**
+     * @param route long; the route as returned by findRoute
+     * @return the line index of the route
+     */
+    public static int routeLine(final long route)
+    {
+        return (int) (route >>> 32);
+    }
+
+    /**
+     * @param route long; the route as returned by findRoute
+     * @return the boarding position of the route
+     */
+    public static int routeBoardPosition(final long route)
+    {
+        return (int) ((route >>> 16) & 0xFFFF);
+    }
+
+    /**
+     * @param route long; the route as returned by findRoute
+     * @return the alighting position of the route
+     */
+    public static int routeAlightPosition(final long route)
+    {
+        return (int) (route & 0xFFFF);
+    }
+
+    /**
+     * Return the walking time for a distance, using the speed model of the model's travel time matrix.
+     * @param distanceM double; the distance in meters
+     * @return double; the walking time in hours
+     */
+    private double walkDurationH(final double distanceM)
+    {
+        return this.model.getTravelTimeMatrix().getSpeedModel().getDurationH(SpeedModel.WALK, distanceM);
+    }
+
+    /**
+     * Return a new location id for a vehicle.
+     * @return int; a new location id for a vehicle
+     */
+    int nextVehicleId()
+    {
+        return this.nextVehicleId++;
+    }
+
+    /**
+     * @return the model
+     */
+    public MedlabsModelInterface getModel()
+    {
+        return this.model;
+    }
+
+    /**
+     * @return the lines of the network
+     */
+    public List<TransitLine> getLines()
+    {
+        return this.lines;
+    }
+
+    /**
+     * @return the location type of the stops
+     */
+    public LocationType getStopType()
+    {
+        return this.stopType;
+    }
+
+    /**
+     * @return the number of boardings
+     */
+    public long getNumberOfBoardings()
+    {
+        return this.numberOfBoardings;
+    }
+
+    /**
+     * @return the number of times a waiting rider could not board because the vehicle was full
+     */
+    public long getNumberOfDeniedBoardings()
+    {
+        return this.numberOfDeniedBoardings;
+    }
+
+    /**
+     * @return the number of riders that had to use the fallback because the last vehicle of the day was full
+     */
+    public long getNumberOfFallbackTrips()
+    {
+        return this.numberOfFallbackTrips;
+    }
+
+    /**
+     * @return the number of vehicle trips
+     */
+    public long getNumberOfVehicleTrips()
+    {
+        return this.numberOfVehicleTrips;
+    }
+
+}
@@ -0,0 +1,144 @@
+package nl.tudelft.simulation.medlabs.transit;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.location.MovableLocation;
+import nl.tudelft.simulation.medlabs.location.MovableLocationType;
+import nl.tudelft.simulation.medlabs.model.MedlabsModelInterface;
+
+/**
+ * TransitVehicle is a capacity-constrained, movable location (bus, tram, metro train) that runs trips on a TransitLine. The
+ * riders on board are grouped by the stop position where they will alight, so alighting at a stop only touches the riders for
+ * that stop. Since the vehicle is a normal Location, disease transmission takes place in the vehicle; as riders only board and
+ * alight at stop events, the transmission is calculated per segment between stops.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitVehicle extends MovableLocation
+{
+    /** the line on which the vehicle runs. */
+    private final TransitLine line;
+
+    /** the person ids of the riders, per stop position where they alight. */
+    private final TIntList[] ridersByAlightPosition;
+
+    /** the destination location ids of the riders, parallel to ridersByAlightPosition. */
+    private final TIntList[] destinationsByAlightPosition;
+
+    /** the stop position of the vehicle on the line during the current trip. */
+    private int stopPosition;
+
+    /** whether the current trip is the last trip of the day for the line. */
+    private boolean lastTrip;
+
+    /**
+     * Create a vehicle for a transit line.
+     * @param model MedlabsModelInterface; the model for looking up the simulator and other model objects
+     * @param id int; the location id of the vehicle
+     * @param line TransitLine; the line on which the vehicle runs
+     * @param vehicleType MovableLocationType; the location type of the vehicle
+     * @param numberOfSubLocations short; number of sub locations (e.g., carriages)
+     * @param surfaceM2 float; total surface in m2, which determines the capacity
+     */
+    public TransitVehicle(final MedlabsModelInterface model, final int id, final TransitLine line,
+            final MovableLocationType vehicleType, final short numberOfSubLocations, final float surfaceM2)
+    {
+        super(model, id, vehicleType, line.getStop(0).getLatitude(), line.getStop(0).getLongitude(), numberOfSubLocations,
+                surfaceM2);
+        this.line = line;
+        int n = line.getNumberOfStops();
+        this.ridersByAlightPosition = new TIntList[n];
+        this.destinationsByAlightPosition = new TIntList[n];
+        for (int i = 0; i < n; i++)
+        {
+            this.ridersByAlightPosition[i] = new TIntArrayList(4);
+            this.destinationsByAlightPosition[i] = new TIntArrayList(4);
+        }
+    }
+
+    /**
+     * Register a rider who boarded the vehicle.
+     * @param personId int; the id of the rider
+     * @param alightPosition int; the stop position where the rider will alight
+     * @param destinationId int; the id of the destination location of the rider
+     */
+    void addRider(final int personId, final int alightPosition, final int destinationId)
+    {
+        this.ridersByAlightPosition[alightPosition].add(personId);
+        this.destinationsByAlightPosition[alightPosition].add(destinationId);
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the person ids of the riders that alight at the stop position
+     */
+    TIntList getRidersAlightingAt(final int position)
+    {
+        return this.ridersByAlightPosition[position];
+    }
+
+    /**
+     * @param position int; the stop position
+     * @return the destination location ids of the riders that alight at the stop position
+     */
+    TIntList getDestinationsAlightingAt(final int position)
+    {
+        return this.destinationsByAlightPosition[position];
+    }
+
+    /**
+     * @return the line on which the vehicle runs
+     */
+    public TransitLine getLine()
+    {
+        return this.line;
+    }
+
+    /**
+     * @return the stop position of the vehicle on the line during the current trip
+     */
+    public int getStopPosition()
+    {
+        return this.stopPosition;
+    }
+
+    /**
+     * @param stopPosition int; the new stop position of the vehicle
+     */
+    void setStopPosition(final int stopPosition)
+    {
+        this.stopPosition = stopPosition;
+    }
+
+    /**
+     * @return whether the current trip is the last trip of the day for the line
+     */
+    public boolean isLastTrip()
+    {
+        return this.lastTrip;
+    }
+
+    /**
+     * @param lastTrip boolean; whether the current trip is the last trip of the day for the line
+     */
+    void setLastTrip(final boolean lastTrip)
+    {
+        this.lastTrip = lastTrip;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+    {
+        return "[VEHICLE " + this.line.getName() + "]." + this.getId();
+    }
+
+}
@@ -0,0 +1,172 @@
+package nl.tudelft.simulation.medlabs.activity.locator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
+
+/**
+ * LocatorDecisionCacheTest checks that the LocatorDecisionCache answers a repeated decision from the cache, draws the decision
+ * again for another location or in a new policy epoch, gives the same decisions as an uncached draw, and counts its hits and
+ * misses in the ClosureState of its own model.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LocatorDecisionCacheTest
+{
+    /** the number of locations. */
+    private static final int LOCATIONS = 20;
+
+    /** the number of persons. */
+    private static final int PERSONS = 50;
+
+    /**
+     * Create a model with a house type, one partially closed location type with a number of locations, and a number of
+     * persons.
+     * @param model TestModel; the model to fill
+     * @return Person[]; the persons
+     */
+    private Person[] setup(final TestModel model)
+    {
+        LocationType house =
+                new LocationType(model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        model.setLocationTypeHouse(house);
+        LocationType shop = new LocationType(model, (byte) 1, "shop", Location.class, null, false, false, 1.0, false, 0.5, 1.0);
+        for (int i = 0; i < LOCATIONS; i++)
+        {
+            new Location(model, i, shop, 52.0f, 4.3f, (short) 1, 100.0f);
+        }
+        shop.setClosurePolicy(0.5, 0.5, house, "house");
+        model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(model, 0, IdxPerson.class));
+        Person[] persons = new Person[PERSONS];
+        for (int i = 0; i < PERSONS; i++)
+        {
+            persons[i] = new IdxPerson(model, i, false, (byte) 30, 0, (short) 0);
+        }
+        return persons;
+    }
+
+    @Test
+    public void testHitsAndLocationCheck()
+    {
+        TestModel model = new TestModel();
+        Person[] persons = setup(model);
+        ClosureState closureState = model.getClosureState();
+        LocatorDecisionCache cache = new LocatorDecisionCache("RandomLocator");
+        Location a = model.getLocationMap().get(3);
+        Location b = model.getLocationMap().get(4);
+
+        boolean visitA = cache.mayVisit(persons[7], a);
+        assertEquals(0L, closureState.getDecisionHits());
+        assertEquals(1L, closureState.getDecisionMisses());
+        assertEquals(visitA, cache.mayVisit(persons[7], a));
+        assertEquals(visitA, cache.mayVisit(persons[7], a));
+        assertEquals(2L, closureState.getDecisionHits());
+        assertEquals(1L, closureState.getDecisionMisses());
+
+        // one decision is cached per person, so another location is drawn, and the first location is drawn again
+        boolean visitB = cache.mayVisit(persons[7], b);
+        assertEquals(2L, closureState.getDecisionMisses());
+        assertEquals(visitB, cache.mayVisit(persons[7], b));
+        assertEquals(visitA, cache.mayVisit(persons[7], a));
+        assertEquals(3L, closureState.getDecisionHits());
+        assertEquals(3L, closureState.getDecisionMisses());
+        assertEquals(0.5, closureState.getDecisionHitRate(), 1E-12);
+
+        // another person is not answered from the entry of person 7
+        cache.mayVisit(persons[8], a);
+        assertEquals(4L, closureState.getDecisionMisses());
+    }
+
+    @Test
+    public void testEpochInvalidation()
+    {
+        TestModel model = new TestModel();
+        Person[] persons = setup(model);
+        ClosureState closureState = model.getClosureState();
+        LocatorDecisionCache cache = new LocatorDecisionCache("RandomLocator");
+        Location a = model.getLocationMap().get(3);
+
+        cache.mayVisit(persons[1], a);
+        cache.mayVisit(persons[1], a);
+        assertEquals(1L, closureState.getDecisionMisses());
+        closureState.nextPolicyEpoch();
+        cache.mayVisit(persons[1], a);
+        assertEquals(2L, closureState.getDecisionMisses());
+        assertEquals(1L, closureState.getDecisionHits());
+
+        // a new closure policy of the location type changes the decisions, and starts a new epoch
+        LocationType shop = a.getLocationType();
+        shop.setClosurePolicy(0.0, 1.0, model.getLocationTypeHouse(), "house");
+        for (Person person : persons)
+        {
+            assertFalse(cache.mayVisit(person, a));
+        }
+        shop.setClosurePolicy(1.0, 1.0, model.getLocationTypeHouse(), "house");
+        for (Person person : persons)
+        {
+            assertTrue(cache.mayVisit(person, a));
+        }
+        assertEquals(2L + 2L * PERSONS, closureState.getDecisionMisses());
+    }
+
+    @Test
+    public void testEquivalenceAndPerModelStatistics()
+    {
+        TestModel model = new TestModel();
+        Person[] persons = setup(model);
+        LocatorDecisionCache cache = new LocatorDecisionCache("RandomLocator");
+        boolean[][] decisions = new boolean[PERSONS][LOCATIONS];
+        int visits = 0;
+        for (int p = 0; p < PERSONS; p++)
+        {
+            for (int l = 0; l < LOCATIONS; l++)
+            {
+                decisions[p][l] = cache.mayVisit(persons[p], model.getLocationMap().get(l));
+                visits += decisions[p][l] ? 1 : 0;
+            }
+        }
+        // about half of the locations is open, and in these locations about half of the persons may visit
+        assertTrue(visits > 0 && visits < PERSONS * LOCATIONS, "visits = " + visits);
+
+        // the decisions only depend on the location id and the person id, so a fresh cache and a cached answer agree
+        LocatorDecisionCache fresh = new LocatorDecisionCache("RandomLocator");
+        for (int p = PERSONS - 1; p >= 0; p--)
+        {
+            for (int l = LOCATIONS - 1; l >= 0; l--)
+            {
+                Location location = model.getLocationMap().get(l);
+                assertEquals(decisions[p][l], fresh.mayVisit(persons[p], location));
+                assertEquals(decisions[p][l], fresh.mayVisit(persons[p], location));
+            }
+        }
+
+        // the statistics belong to the model of the persons
+        assertEquals(2L * PERSONS * LOCATIONS, model.getClosureState().getDecisionMisses());
+        assertEquals((long) PERSONS * LOCATIONS, model.getClosureState().getDecisionHits());
+        TestModel other = new TestModel();
+        Person[] otherPersons = setup(other);
+        cache.mayVisit(otherPersons[0], other.getLocationMap().get(0));
+        assertEquals(1L, other.getClosureState().getDecisionMisses());
+        assertEquals(0L, other.getClosureState().getDecisionHits());
+        assertEquals(2L * PERSONS * LOCATIONS, model.getClosureState().getDecisionMisses());
+    }
+
+}
@@ -0,0 +1,153 @@
+package nl.tudelft.simulation.medlabs.activity.locator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+import nl.tudelft.simulation.medlabs.policy.ClosurePolicy;
+
+/**
+ * LocatorRegistryTest checks the fallback locators of the LocatorRegistry, and the way the locators handle locations that are
+ * closed in the ClosureState of the model.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LocatorRegistryTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the house type. */
+    private LocationType house;
+
+    /** the shop type. */
+    private LocationType shop;
+
+    /** the market type. */
+    private LocationType market;
+
+    /**
+     * Create a model with a house, a shop, and a market, and one person who lives in the house.
+     * @return Person; the person
+     */
+    private Person setup()
+    {
+        this.model = new TestModel();
+        this.house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        this.model.setLocationTypeHouse(this.house);
+        this.shop = new LocationType(this.model, (byte) 1, "shop", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        this.market =
+                new LocationType(this.model, (byte) 2, "market", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        new Location(this.model, 1, this.house, 52.06f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 2, this.shop, 52.061f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 3, this.market, 52.062f, 4.3f, (short) 1, 100.0f);
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        return new IdxPerson(this.model, 0, false, (byte) 30, 1, (short) 0);
+    }
+
+    @Test
+    public void testClosedLocations()
+    {
+        Person person = setup();
+        LocatorRegistry registry = this.model.getLocatorRegistry();
+        Location home = this.model.getLocationMap().get(1);
+        Location shopLocation = this.model.getLocationMap().get(2);
+        Location marketLocation = this.model.getLocationMap().get(3);
+        NearestLocator shopLocator = registry.getNearestLocator(this.shop);
+        assertEquals(shopLocation, shopLocator.getLocation(person));
+
+        // the shops are closed by a policy, and the shop type has no alternative type: the person stays at home
+        ClosurePolicy closure = new ClosurePolicy(this.model, "close shops", List.of(this.shop));
+        closure.close();
+        assertTrue(shopLocation.isClosed());
+        assertEquals(registry.getHomeLocator(), registry.getClosedLocator(this.shop));
+        assertEquals(home, shopLocator.getLocation(person));
+
+        // with the market as the alternative type, the person goes to the nearest market
+        this.shop.setClosurePolicy(1.0, 1.0, this.market, "market");
+        assertEquals(registry.getNearestLocator(this.market), registry.getClosedLocator(this.shop));
+        assertEquals(marketLocation, shopLocator.getLocation(person));
+
+        // a market that is closed by an override makes the market type not fully open, so the person stays at home
+        marketLocation.setClosed(true);
+        assertFalse(this.model.getClosureState().isFullyOpen(this.market));
+        assertEquals(home, shopLocator.getLocation(person));
+        assertEquals(home, registry.getNearestLocator(this.market).getLocation(person));
+
+        // a shop that is opened by an override can be visited again, while the other shops stay closed
+        shopLocation.setClosed(false);
+        assertEquals(shopLocation, shopLocator.getLocation(person));
+
+        // when the policy is lifted and the overrides are removed, everything is open again
+        closure.open();
+        this.model.getClosureState().clearOverride(shopLocation);
+        this.model.getClosureState().clearOverride(marketLocation);
+        assertTrue(this.model.getClosureState().isFullyOpen(this.shop));
+        assertTrue(this.model.getClosureState().isFullyOpen(this.market));
+        assertEquals(shopLocation, shopLocator.getLocation(person));
+        assertEquals(marketLocation, registry.getNearestLocator(this.market).getLocation(person));
+    }
+
+    @Test
+    public void testPartlyClosedAlternative()
+    {
+        Person person = setup();
+        LocatorRegistry registry = this.model.getLocatorRegistry();
+        Location home = this.model.getLocationMap().get(1);
+        Location shopLocation = this.model.getLocationMap().get(2);
+
+        // the alternative type is partly closed itself, so a closed shop sends the person home instead of to the market
+        this.shop.setClosurePolicy(1.0, 1.0, this.market, "market");
+        this.market.setClosurePolicy(0.5, 1.0, this.house, "house");
+        shopLocation.setClosed(true);
+        assertEquals(registry.getHomeLocator(), registry.getClosedLocator(this.shop));
+        assertEquals(registry.getHomeLocator(), registry.getClosedLocatorCap(this.shop));
+        assertEquals(home, registry.getNearestLocator(this.shop).getLocation(person));
+        assertEquals(home, registry.getNearestLocatorCap(this.shop).getLocation(person));
+    }
+
+    @Test
+    public void testCycleDetection()
+    {
+        setup();
+        LocatorRegistry registry = this.model.getLocatorRegistry();
+
+        // a fully open location type can be its own alternative, as in the default closure policy
+        this.shop.setClosurePolicy(1.0, 1.0, this.shop, "shop");
+        assertEquals(registry.getHomeLocator(), registry.getClosedLocator(this.shop));
+
+        // a partly closed location type cannot be its own alternative
+        assertThrows(MedlabsRuntimeException.class, () -> this.shop.setClosurePolicy(0.5, 1.0, this.shop, "shop"));
+        assertThrows(MedlabsRuntimeException.class, () -> this.shop.setClosurePolicy(1.0, 0.5, this.shop, "shop"));
+
+        // a chain of partly closed location types that ends in the house type is allowed
+        this.shop.setClosurePolicy(0.5, 1.0, this.market, "market");
+        this.market.setClosurePolicy(0.5, 1.0, this.house, "house");
+        assertEquals(registry.getNearestLocator(this.market), registry.getFallbackLocator(this.shop));
+        assertEquals(registry.getHomeLocator(), registry.getFallbackLocator(this.market));
+
+        // two partly closed location types that are each other's alternative form a cycle
+        assertThrows(MedlabsRuntimeException.class, () -> this.market.setClosurePolicy(0.5, 1.0, this.shop, "shop"));
+    }
+
+}
@@ -0,0 +1,191 @@
+package nl.tudelft.simulation.medlabs.activity.pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.FixedDurationActivity;
+import nl.tudelft.simulation.medlabs.activity.TravelActivity;
+import nl.tudelft.simulation.medlabs.activity.TravelActivityWalk;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.locator.CurrentLocator;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * WeekDayPatternTest checks that the compiled schedule of a WeekDayPattern gives the same next activity index, and the same
+ * location of the person at the midnight rollover, as walking the lists of the day patterns did before the schedule was
+ * compiled. The test covers a day that ends with a travel activity, a day with an activity that starts after midnight, and a
+ * day with a single activity.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class WeekDayPatternTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the day patterns, starting with Monday. */
+    private DayPattern[] days;
+
+    /** the location where the person is put before each call, to see whether the call moved the person. */
+    private Location elsewhere;
+
+    /**
+     * Create a model with a week pattern and one person. Monday to Thursday and Sunday end with a walk to the shop, Friday has
+     * a night shift that starts after midnight, and Saturday has one activity.
+     * @return Person; the person
+     */
+    private Person setup()
+    {
+        this.model = new TestModel();
+        LocationType house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType other = new LocationType(this.model, (byte) 1, "other", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        Location home = new Location(this.model, 1, house, 52.06f, 4.3f, (short) 1, 100.0f);
+        Location work = new Location(this.model, 2, other, 52.07f, 4.3f, (short) 1, 100.0f);
+        Location shop = new Location(this.model, 3, other, 52.08f, 4.3f, (short) 1, 100.0f);
+        Location street = new Location(this.model, 4, other, 52.09f, 4.3f, (short) 1, 100.0f);
+        this.elsewhere = new Location(this.model, 5, other, 52.10f, 4.3f, (short) 1, 100.0f);
+
+        Activity working = new FixedDurationActivity(this.model, "work", p -> work, 8.0);
+        Activity shopping = new FixedDurationActivity(this.model, "shop", p -> shop, 1.0);
+        Activity walking = new TravelActivityWalk(this.model, "walk", p -> street, new CurrentLocator(), p -> shop);
+        Activity nightShift = new FixedDurationActivity(this.model, "night shift", p -> work, 6.0);
+        nightShift.setStartAfterMidnight(true);
+        Activity sleeping = new UntilFixedTimeActivity(this.model, "sleep", p -> home, 24.0);
+        DayPattern weekday = new DayPattern(this.model, List.of(working, walking));
+        DayPattern friday = new DayPattern(this.model, List.of(working, shopping, nightShift, sleeping));
+        DayPattern saturday = new DayPattern(this.model, List.of(sleeping));
+        this.days = new DayPattern[] {weekday, weekday, weekday, weekday, friday, saturday, weekday};
+        new WeekDayPattern(this.model, "week", this.days);
+
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        return new IdxPerson(this.model, 0, false, (byte) 30, 1, (short) 0);
+    }
+
+    /**
+     * The getNextActivityIndex method of the WeekDayPattern before the schedule was compiled, which walked the lists of the day
+     * patterns.
+     * @param person Person; the person
+     * @param prevActivityIndex int; the previous activity index
+     * @return int; the next activity index
+     */
+    private int oldNextActivityIndex(final Person person, final int prevActivityIndex)
+    {
+        int weekDay = ((int) Math.floor((this.model.getSimulator().getSimulatorTime() + 0.01) / 24)) % 7;
+        if (prevActivityIndex == -1)
+            return weekDay << 12;
+        int newIndex = prevActivityIndex + 1;
+        int prevWeekDay = prevActivityIndex >> 12;
+        int prevSize = this.days[prevWeekDay].size();
+        if (prevWeekDay == weekDay && (newIndex & 0xfff) >= prevSize)
+            return -1;
+        if (prevWeekDay != weekDay)
+        {
+            if ((newIndex & 0xfff) == prevSize)
+                return weekDay << 12;
+            int dayIndex = newIndex & 0xfff;
+            if (dayIndex < this.days[prevWeekDay].size() && this.days[prevWeekDay].get(dayIndex).isStartAfterMidnight())
+                return newIndex;
+            Activity lastDayActivity = this.days[prevWeekDay].getLast();
+            if (lastDayActivity instanceof TravelActivity)
+                person.setCurrentLocation(((TravelActivity) lastDayActivity).getEndLocation(person));
+            else
+                person.setCurrentLocation(lastDayActivity.getActivityLocation(person));
+            return weekDay << 12;
+        }
+        return newIndex;
+    }
+
+    @Test
+    public void testRolloverAsBefore() throws SimRuntimeException
+    {
+        Person person = setup();
+        WeekDayPattern pattern = (WeekDayPattern) this.model.getWeekPatternList().get(0);
+        int checks = 0;
+        for (int day = 0; day <= 7; day++)
+        {
+            for (double hour : new double[] {0.0, 12.0, 23.995})
+            {
+                this.model.getTestSimulator().runUntil(24.0 * day + hour);
+                for (int prevDay = -1; prevDay < 7; prevDay++)
+                {
+                    int lastIndex = prevDay < 0 ? 0 : this.days[prevDay].size() + 1;
+                    for (int i = 0; i <= lastIndex; i++)
+                    {
+                        int prevActivityIndex = prevDay < 0 ? -1 : (prevDay << 12) | i;
+                        person.setCurrentLocation(this.elsewhere);
+                        int expected = oldNextActivityIndex(person, prevActivityIndex);
+                        Location expectedLocation = person.getCurrentLocation();
+                        person.setCurrentLocation(this.elsewhere);
+                        int actual = pattern.getNextActivityIndex(person, prevActivityIndex);
+                        String message = "time " + (24.0 * day + hour) + ", previous index " + prevActivityIndex;
+                        assertEquals(expected, actual, message);
+                        assertEquals(expectedLocation, person.getCurrentLocation(), message);
+                        assertSame(pattern.getActivity(expected), pattern.getActivity(actual));
+                        checks++;
+                    }
+                }
+            }
+        }
+        assertEquals(24 * (1 + 5 * 4 + 6 + 3), checks);
+    }
+
+    @Test
+    public void testRolloverCases() throws SimRuntimeException
+    {
+        Person person = setup();
+        WeekDayPattern pattern = (WeekDayPattern) this.model.getWeekPatternList().get(0);
+        Location home = this.model.getLocationMap().get(1);
+        Location shop = this.model.getLocationMap().get(3);
+
+        // just before midnight on Monday, the weekday is already Tuesday
+        this.model.getTestSimulator().runUntil(23.995);
+        assertEquals(1 << 12, pattern.getNextActivityIndex(person, 1));
+
+        // the walk of Monday is skipped at the rollover, and the person is put at the end location of the walk
+        person.setCurrentLocation(this.elsewhere);
+        assertEquals(1 << 12, pattern.getNextActivityIndex(person, 0));
+        assertEquals(shop, person.getCurrentLocation());
+
+        // the night shift on Friday still starts after midnight; the shopping trip does not, and the person goes home
+        this.model.getTestSimulator().runUntil(4 * 24.0 + 23.995);
+        assertEquals(4 << 12 | 2, pattern.getNextActivityIndex(person, 4 << 12 | 1));
+        person.setCurrentLocation(this.elsewhere);
+        assertEquals(5 << 12, pattern.getNextActivityIndex(person, 4 << 12));
+        assertEquals(home, person.getCurrentLocation());
+
+        // at the end of the day, the rest of the day is filled with the activity till midnight
+        this.model.getTestSimulator().runUntil(5 * 24.0 + 12.0);
+        assertEquals(-1, pattern.getNextActivityIndex(person, 5 << 12));
+        assertSame(pattern.getNoActivityUntilMidnight(), pattern.getActivity(-1));
+
+        // the copy of the day pattern array cannot change the week pattern
+        DayPattern[] copy = pattern.getDayPatternArray();
+        assertNotSame(copy, pattern.getDayPatternArray());
+        copy[0] = this.days[5];
+        assertSame(this.days[0], pattern.getDayPattern(0));
+    }
+
+}
@@ -0,0 +1,76 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * RoadGraphBuilderTest tests the construction of the compact CSR road graph.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class RoadGraphBuilderTest
+{
+    @Test
+    public void testBuild()
+    {
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        int a = builder.addNode(100L, 52.0f, 4.30f);
+        int unused = builder.addNode(200L, 52.0f, 4.31f);
+        int b = builder.addNode(300L, 52.0f, 4.32f);
+        int c = builder.addNode(400L, 52.01f, 4.32f);
+        assertEquals(a, builder.addNode(100L, 52.0f, 4.30f));
+        assertEquals(unused, builder.getNodeIndex(200L));
+        assertEquals(-1, builder.getNodeIndex(999L));
+
+        byte all = (byte) ((1 << SpeedModel.WALK) | (1 << SpeedModel.BIKE) | (1 << SpeedModel.CAR));
+        byte walk = (byte) (1 << SpeedModel.WALK);
+        builder.addEdge(c, b, all, 10.0f);
+        builder.addEdge(a, b, all, 10.0f);
+        builder.addEdge(b, a, walk, 10.0f);
+        builder.addEdge(b, c, 100.0f, all, 20.0f);
+        builder.addEdge(a, a, all, 10.0f); // ignored: loop
+        builder.addEdge(a, c, (byte) 0, 10.0f); // ignored: no modes
+
+        RoadGraph graph = builder.build();
+        assertEquals(3, graph.getNumberOfNodes()); // unused node is removed
+        assertEquals(4, graph.getNumberOfEdges());
+
+        // nodes keep their order: a=0, b=1, c=2
+        assertEquals(1, graph.getEndEdge(0) - graph.getFirstEdge(0));
+        assertEquals(2, graph.getEndEdge(1) - graph.getFirstEdge(1));
+        assertEquals(1, graph.getEndEdge(2) - graph.getFirstEdge(2));
+        int ab = graph.getFirstEdge(0);
+        assertEquals(1, graph.getEdgeTarget(ab));
+        assertTrue(graph.isEdgeAllowed(ab, SpeedModel.CAR));
+        // 0.02 degree longitude at 52 degrees latitude is about 1370 m
+        assertEquals(1370.0, graph.getEdgeLengthM(ab), 10.0);
+        for (int e = graph.getFirstEdge(1); e < graph.getEndEdge(1); e++)
+        {
+            if (graph.getEdgeTarget(e) == 0)
+            {
+                assertTrue(graph.isEdgeAllowed(e, SpeedModel.WALK));
+                assertFalse(graph.isEdgeAllowed(e, SpeedModel.CAR));
+            }
+            else
+            {
+                assertEquals(2, graph.getEdgeTarget(e));
+                assertEquals(100.0f, graph.getEdgeLengthM(e), 1E-6);
+                assertEquals(20.0f, graph.getEdgeCarSpeedMps(e), 1E-6);
+            }
+        }
+        assertTrue(graph.isNodeAllowed(0, SpeedModel.BIKE));
+        assertEquals(52.01f, graph.getNodeLat(2), 1E-6);
+    }
+
+}
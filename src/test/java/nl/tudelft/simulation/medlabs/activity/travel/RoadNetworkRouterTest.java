@@ -0,0 +1,161 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.Coordinate;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+
+/**
+ * RoadNetworkRouterTest checks the clustering of the locations, the shortest paths per mode in the precomputed tables, the
+ * access distances per mode to the access nodes of the clusters, and the straight-line fallback for trips within a cluster,
+ * for locations that were not known when the tables were calculated, and for clusters that are not connected.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class RoadNetworkRouterTest
+{
+    /** the speed model: walk 1 m/s, bike 4 m/s, car 10 m/s for access and fallback trips. */
+    private static final SpeedModel SPEEDS = new DistanceThresholdSpeedModel(1000.0, 5000.0, 1.0, 4.0, 10.0);
+
+    /** the detour factor. */
+    private static final double DETOUR = 1.3;
+
+    /** the model. */
+    private TestModel model;
+
+    /**
+     * Create a model with location 1 (A) in the center of the map, location 4 in the same grid cell as A, location 2 (B) about
+     * 2 km east of A, and location 3 (C) about 4 km east of A. The road graph has:
+     * <ul>
+     * <li>a walk and bike road of 3000 m between A and B, and a footpath from A to B via a node halfway of 2 x 1000 m;</li>
+     * <li>a car road of 4000 m with 20 m/s between two nodes about 111 m north of A and B;</li>
+     * <li>a footpath of 500 m at C that is not connected to the rest of the graph.</li>
+     * </ul>
+     * @return RoadNetworkRouter; the router, with clusters of one grid cell
+     */
+    private RoadNetworkRouter setup()
+    {
+        this.model = new TestModel();
+        LocationType shop = new LocationType(this.model, (byte) 1, "shop", Location.class, null, false, false, 1.0, false, 1.0,
+                1.0);
+        new Location(this.model, 1, shop, 52.06f, 4.30f, (short) 1, 100.0f);
+        new Location(this.model, 2, shop, 52.06f, 4.33f, (short) 1, 100.0f);
+        new Location(this.model, 3, shop, 52.06f, 4.36f, (short) 1, 100.0f);
+        new Location(this.model, 4, shop, 52.0602f, 4.30f, (short) 1, 100.0f);
+
+        byte walk = (byte) (1 << SpeedModel.WALK);
+        byte walkBike = (byte) ((1 << SpeedModel.WALK) | (1 << SpeedModel.BIKE));
+        byte car = (byte) (1 << SpeedModel.CAR);
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        int wa = builder.addNode(1L, 52.06f, 4.30f);
+        int wm = builder.addNode(2L, 52.06f, 4.315f);
+        int wb = builder.addNode(3L, 52.06f, 4.33f);
+        int ca = builder.addNode(4L, 52.061f, 4.30f);
+        int cb = builder.addNode(5L, 52.061f, 4.33f);
+        int wc = builder.addNode(6L, 52.06f, 4.36f);
+        int wd = builder.addNode(7L, 52.065f, 4.36f);
+        builder.addEdge(wa, wb, 3000.0f, walkBike, 0.0f);
+        builder.addEdge(wb, wa, 3000.0f, walkBike, 0.0f);
+        builder.addEdge(wa, wm, 1000.0f, walk, 0.0f);
+        builder.addEdge(wm, wb, 1000.0f, walk, 0.0f);
+        builder.addEdge(wb, wm, 1000.0f, walk, 0.0f);
+        builder.addEdge(wm, wa, 1000.0f, walk, 0.0f);
+        builder.addEdge(ca, cb, 4000.0f, car, 20.0f);
+        builder.addEdge(cb, ca, 4000.0f, car, 20.0f);
+        builder.addEdge(wc, wd, 500.0f, walk, 0.0f);
+        builder.addEdge(wd, wc, 500.0f, walk, 0.0f);
+        return new RoadNetworkRouter(this.model, builder.build(), SPEEDS, 1, DETOUR, 3.0);
+    }
+
+    /**
+     * Return the straight-line duration of a trip between two locations, corrected with the detour factor.
+     * @param mode byte; the mode
+     * @param origin Location; the origin
+     * @param destination Location; the destination
+     * @return double; the duration in hours
+     */
+    private double straightLine(final byte mode, final Location origin, final Location destination)
+    {
+        return SPEEDS.getDurationH(mode, origin.distanceM(destination) * DETOUR);
+    }
+
+    @Test
+    public void testNetworkDurations()
+    {
+        RoadNetworkRouter router = setup();
+        router.precompute();
+        Location a = this.model.getLocationMap().get(1);
+        Location b = this.model.getLocationMap().get(2);
+        assertEquals(3, router.getNumberOfClusters());
+
+        // walk and bike have their access nodes on the locations; walking takes the footpath of 2000 m via the middle node
+        assertEquals(0.0, router.getAccessDistanceM(SpeedModel.WALK, a), 1E-3);
+        assertEquals(0.0, router.getAccessDistanceM(SpeedModel.BIKE, b), 1E-3);
+        assertEquals(2000.0 / 3600.0, router.getDuration(SpeedModel.WALK, a, b), 1E-6);
+        assertEquals(2000.0 / 3600.0, router.getDuration(SpeedModel.WALK, b, a), 1E-6);
+        assertEquals(3000.0 / 4.0 / 3600.0, router.getDuration(SpeedModel.BIKE, a, b), 1E-6);
+
+        // the car uses its own access nodes north of the locations, and the access distance is measured to these nodes
+        double accessA = Coordinate.distanceMprecise(52.06f, 4.30f, 52.061f, 4.30f);
+        double accessB = Coordinate.distanceMprecise(52.06f, 4.33f, 52.061f, 4.33f);
+        assertEquals(111.0, accessA, 1.0);
+        assertEquals(accessA, router.getAccessDistanceM(SpeedModel.CAR, a), 1E-3);
+        assertEquals(accessB, router.getAccessDistanceM(SpeedModel.CAR, b), 1E-3);
+        double expectedCarH = 4000.0 / 20.0 / 3600.0 + SPEEDS.getDurationH(SpeedModel.CAR, (accessA + accessB) * DETOUR);
+        assertEquals(expectedCarH, router.getDuration(SpeedModel.CAR, a, b), 1E-6);
+    }
+
+    @Test
+    public void testFallback()
+    {
+        RoadNetworkRouter router = setup();
+        Location a = this.model.getLocationMap().get(1);
+        Location b = this.model.getLocationMap().get(2);
+        Location c = this.model.getLocationMap().get(3);
+        Location sameCell = this.model.getLocationMap().get(4);
+
+        // before the tables are calculated, every trip is a straight-line trip
+        assertEquals(straightLine(SpeedModel.WALK, a, b), router.getDuration(SpeedModel.WALK, a, b), 1E-9);
+        router.precompute();
+
+        // a trip within one cluster is a straight-line trip
+        assertEquals(a.getGridKey(), sameCell.getGridKey());
+        assertEquals(straightLine(SpeedModel.CAR, a, sameCell), router.getDuration(SpeedModel.CAR, a, sameCell), 1E-9);
+
+        // the footpath at C is not connected to A, so walking to C is a straight-line trip
+        assertEquals(straightLine(SpeedModel.WALK, a, c), router.getDuration(SpeedModel.WALK, a, c), 1E-9);
+
+        // there is no bike road at C, so biking from C uses the nearest bike node at B, about 2 km away
+        double accessC = Coordinate.distanceMprecise(52.06f, 4.36f, 52.06f, 4.33f);
+        assertEquals(accessC, router.getAccessDistanceM(SpeedModel.BIKE, c), 1E-3);
+        assertEquals(0.0, router.getAccessDistanceM(SpeedModel.WALK, c), 1E-3);
+        assertEquals(3000.0 / 4.0 / 3600.0 + SPEEDS.getDurationH(SpeedModel.BIKE, accessC * DETOUR),
+                router.getDuration(SpeedModel.BIKE, c, a), 1E-6);
+        assertNotEquals(straightLine(SpeedModel.WALK, a, b), router.getDuration(SpeedModel.WALK, a, b), 1E-6);
+
+        // a location that is created after the tables were calculated uses a straight line until precompute is called again;
+        // it is about 350 m east of B, in its own cluster, and walks from the access node of B
+        Location d = new Location(this.model, 5, a.getLocationType(), 52.06f, 4.335f, (short) 1, 100.0f);
+        assertEquals(straightLine(SpeedModel.WALK, a, d), router.getDuration(SpeedModel.WALK, a, d), 1E-9);
+        router.precompute();
+        assertEquals(4, router.getNumberOfClusters());
+        double accessD = Coordinate.distanceMprecise(52.06f, 4.335f, 52.06f, 4.33f);
+        assertEquals(accessD, router.getAccessDistanceM(SpeedModel.WALK, d), 1E-3);
+        assertEquals(2000.0 / 3600.0 + SPEEDS.getDurationH(SpeedModel.WALK, accessD * DETOUR),
+                router.getDuration(SpeedModel.WALK, a, d), 1E-6);
+    }
+
+}
@@ -0,0 +1,166 @@
+package nl.tudelft.simulation.medlabs.activity.travel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+
+/**
+ * TravelTimeMatrixTest checks the hits, misses and uncached lookups of the TravelTimeMatrix for dense and sparse pairs of grid
+ * cells, the eviction of the sparse map and the uncached lookups when the memory cap is reached, and that the cached mode and
+ * duration are equal to the values of a matrix that does not cache anything.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TravelTimeMatrixTest
+{
+    /** the bytes of a dense block with radius 10. */
+    private static final long BLOCK_BYTES = 4L * 21 * 21 + 16L;
+
+    /** the bytes of an entry in the sparse map. */
+    private static final long SPARSE_BYTES = 26L;
+
+    /**
+     * Create a model with an origin, a location in the same grid cell, a location about 3 grid cells away, and locations about
+     * 30, 40, 50 and 60 grid cells away, with the default grid size of 100 m.
+     * @return TestModel; the model with locations 0 (origin), 1 (same cell), 2 (near), and 3-6 (far)
+     */
+    private TestModel setup()
+    {
+        TestModel model = new TestModel();
+        LocationType shop = new LocationType(model, (byte) 1, "shop", Location.class, null, false, false, 1.0, false, 0.5, 1.0);
+        new Location(model, 0, shop, 52.06f, 4.3f, (short) 1, 100.0f);
+        new Location(model, 1, shop, 52.06f, 4.3f, (short) 1, 100.0f);
+        new Location(model, 2, shop, 52.063f, 4.3f, (short) 1, 100.0f);
+        for (int i = 3; i <= 6; i++)
+        {
+            new Location(model, i, shop, 52.06f + 0.009f * i, 4.3f, (short) 1, 100.0f);
+        }
+        return model;
+    }
+
+    @Test
+    public void testHits()
+    {
+        TestModel model = setup();
+        TravelTimeMatrix matrix = new TravelTimeMatrix(model);
+        Location origin = model.getLocationMap().get(0);
+        Location same = model.getLocationMap().get(1);
+        Location near = model.getLocationMap().get(2);
+        Location far = model.getLocationMap().get(3);
+        assertEquals(origin.getGridKey(), same.getGridKey());
+        assertNotEquals(origin.getGridKey(), near.getGridKey());
+
+        // same cell: always calculated
+        matrix.getDuration(origin, same);
+        matrix.getDuration(origin, same);
+        assertEquals(2L, matrix.getUncached());
+        assertEquals(0L, matrix.getMisses());
+
+        // dense pair: calculated once, then answered from the block
+        matrix.getDuration(origin, near);
+        assertEquals(1L, matrix.getMisses());
+        matrix.getDuration(origin, near);
+        matrix.getMode(origin, near);
+        assertEquals(2L, matrix.getHits());
+        assertEquals(BLOCK_BYTES, matrix.getMemoryBytes());
+
+        // sparse pair: calculated once, then answered from the map; the reverse direction is another pair
+        matrix.getDuration(origin, far);
+        matrix.getDuration(origin, far);
+        matrix.getDuration(far, origin);
+        assertEquals(3L, matrix.getMisses());
+        assertEquals(3L, matrix.getHits());
+        assertEquals(BLOCK_BYTES + 2L * SPARSE_BYTES, matrix.getMemoryBytes());
+        assertEquals(3.0 / 8.0, matrix.getHitRate(), 1E-12);
+        assertEquals(0L, matrix.getEvictions());
+
+        // clearing keeps the statistics, and the next lookups are calculated again
+        matrix.clear();
+        assertEquals(0L, matrix.getMemoryBytes());
+        matrix.getDuration(origin, far);
+        assertEquals(4L, matrix.getMisses());
+        matrix.resetStatistics();
+        assertEquals(0L, matrix.getHits() + matrix.getMisses() + matrix.getUncached() + matrix.getEvictions());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        TestModel model = setup();
+        // room for one dense block and two sparse entries
+        TravelTimeMatrix matrix =
+                new TravelTimeMatrix(model, new DistanceThresholdSpeedModel(), 10, BLOCK_BYTES + 2L * SPARSE_BYTES);
+        Location origin = model.getLocationMap().get(0);
+        matrix.getDuration(origin, model.getLocationMap().get(2));
+        matrix.getDuration(origin, model.getLocationMap().get(3));
+        matrix.getDuration(origin, model.getLocationMap().get(4));
+        assertEquals(3L, matrix.getMisses());
+        assertEquals(0L, matrix.getEvictions());
+
+        // the third far pair does not fit, so the sparse map is cleared before it is stored
+        matrix.getDuration(origin, model.getLocationMap().get(5));
+        assertEquals(1L, matrix.getEvictions());
+        assertEquals(4L, matrix.getMisses());
+        assertEquals(BLOCK_BYTES + SPARSE_BYTES, matrix.getMemoryBytes());
+        matrix.getDuration(origin, model.getLocationMap().get(5));
+        assertEquals(1L, matrix.getHits());
+
+        // an evicted pair is calculated again; the dense block is not evicted
+        matrix.getDuration(origin, model.getLocationMap().get(3));
+        assertEquals(5L, matrix.getMisses());
+        matrix.getDuration(origin, model.getLocationMap().get(2));
+        assertEquals(2L, matrix.getHits());
+
+        // a dense block for another origin does not fit, so its pairs are calculated without caching or evicting
+        Location near = model.getLocationMap().get(2);
+        matrix.getDuration(near, origin);
+        matrix.getDuration(near, origin);
+        assertEquals(2L, matrix.getUncached());
+        assertEquals(1L, matrix.getEvictions());
+        assertEquals(BLOCK_BYTES + 2L * SPARSE_BYTES, matrix.getMemoryBytes());
+    }
+
+    @Test
+    public void testEquivalence()
+    {
+        TestModel model = setup();
+        TravelTimeMatrix matrix = new TravelTimeMatrix(model);
+        TravelTimeMatrix uncached = new TravelTimeMatrix(model, new DistanceThresholdSpeedModel(), 10, 0L);
+        for (int repeat = 0; repeat < 2; repeat++)
+        {
+            for (int o = 0; o <= 6; o++)
+            {
+                for (int d = 0; d <= 6; d++)
+                {
+                    Location origin = model.getLocationMap().get(o);
+                    Location destination = model.getLocationMap().get(d);
+                    assertEquals(uncached.getDuration(origin, destination), matrix.getDuration(origin, destination), 0.0);
+                    assertEquals(uncached.getMode(origin, destination), matrix.getMode(origin, destination));
+                }
+            }
+        }
+        assertEquals(0L, uncached.getHits() + uncached.getMisses());
+        assertEquals(0L, uncached.getMemoryBytes());
+
+        // the duration is stored in tenths of a second
+        Location origin = model.getLocationMap().get(0);
+        Location far = model.getLocationMap().get(6);
+        byte mode = matrix.getMode(origin, far);
+        double exact = matrix.getSpeedModel().getDurationH(mode, origin.distanceM(far));
+        assertEquals(exact, matrix.getDuration(origin, far), 0.1 / 3600.0);
+    }
+
+}
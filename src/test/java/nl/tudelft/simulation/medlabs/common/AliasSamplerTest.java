@@ -0,0 +1,87 @@
+package nl.tudelft.simulation.medlabs.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AliasSamplerTest checks the frequencies of the draws of the AliasSampler against the cumulative probabilities, the
+ * reproducibility of a draw, and the rebuild after a change of the probabilities.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class AliasSamplerTest
+{
+    @Test
+    public void testFrequencies()
+    {
+        SortedMap<Double, String> map = new TreeMap<>();
+        map.put(0.1, "a");
+        map.put(0.15, "b");
+        map.put(0.6, "c");
+        map.put(1.0, "d");
+        AliasSampler<String> sampler = new AliasSampler<>(map);
+        assertEquals(4, sampler.size());
+        double[] expected = new double[] {0.1, 0.05, 0.45, 0.4};
+        int[] count = new int[4];
+        Random random = new Random(5L);
+        int n = 400_000;
+        for (int i = 0; i < n; i++)
+        {
+            count[sampler.drawIndex(random.nextDouble())]++;
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(expected[i], (double) count[i] / n, 0.005);
+        }
+
+        // the same uniform draw gives the same item
+        for (int i = 0; i < 1000; i++)
+        {
+            double u = random.nextDouble();
+            assertEquals(sampler.draw(u), sampler.draw(u));
+        }
+        assertEquals(sampler.getItem(sampler.drawIndex(0.9999999999)), sampler.draw(0.9999999999));
+    }
+
+    @Test
+    public void testRebuildAndErrors()
+    {
+        SortedMap<Double, String> map = new TreeMap<>();
+        map.put(0.5, "a");
+        map.put(1.0, "b");
+        AliasSampler<String> sampler = new AliasSampler<>(map);
+        map.clear();
+        map.put(0.0, "a");
+        map.put(1.0, "b");
+        sampler.rebuild(map);
+        Random random = new Random(7L);
+        for (int i = 0; i < 10_000; i++)
+        {
+            assertEquals("b", sampler.draw(random.nextDouble()));
+        }
+
+        AliasSampler<String> weighted = new AliasSampler<>(new String[] {"x", "y"}, new double[] {3.0, 0.0});
+        assertEquals("x", weighted.draw(0.75));
+
+        map.put(0.7, "c");
+        map.remove(1.0);
+        assertThrows(MedlabsRuntimeException.class, () -> sampler.rebuild(map));
+        assertThrows(MedlabsRuntimeException.class, () -> new AliasSampler<>(new String[] {"x"}, new double[] {-1.0}));
+        assertThrows(MedlabsRuntimeException.class, () -> new AliasSampler<>(new String[0], new double[0]));
+    }
+
+}
@@ -0,0 +1,68 @@
+package nl.tudelft.simulation.medlabs.demo.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.jstats.streams.MersenneTwister;
+import nl.tudelft.simulation.medlabs.disease.InfectionSampler;
+
+/**
+ * SEIRTransmissionTest checks the factor and the probability of infection of the SEIR formula, for the area of a sublocation
+ * and for the area of a whole location with several sublocations. The probability of the whole-location calculation used to
+ * be negative, which made the InfectionSampler throw an exception.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class SEIRTransmissionTest
+{
+    @Test
+    public void testExampleOfFormula()
+    {
+        // 1 infectious and 1 susceptible person for 1 hour in 10 m2 at peak infectiousness: p = 1 - e^(-p_B / 10)
+        double factor = SEIRTransmission.exposureFactor(1.0, 0.51, 1.0, 1.0, 10.0);
+        assertEquals(-0.051, factor, 1E-12);
+        assertEquals(1.0 - Math.exp(-0.051), SEIRTransmission.infectionProbability(factor, 1.0), 1E-12);
+        assertEquals(0.0, SEIRTransmission.infectionProbability(factor, 0.0), 0.0);
+    }
+
+    @Test
+    public void testWholeLocation()
+    {
+        // a location of 400 m2 with 4 sublocations; whole-location area 400 m2, sublocation area 100 m2
+        double subFactor = SEIRTransmission.exposureFactor(0.8, 0.51, 2.0, 0.7, 400.0 / 4);
+        double wholeFactor = SEIRTransmission.exposureFactor(0.8, 0.51, 2.0, 0.7, 400.0);
+        assertTrue(subFactor < 0.0);
+        assertTrue(wholeFactor < 0.0);
+        assertEquals(subFactor / 4.0, wholeFactor, 1E-12);
+
+        InfectionSampler sampler = new InfectionSampler(new MersenneTwister(17L));
+        TIntList indices = new TIntArrayList();
+        double sumTij = 3.5;
+        double p = SEIRTransmission.infectionProbability(wholeFactor, sumTij);
+        assertTrue(p > 0.0 && p < 1.0, "p = " + p);
+        int n = 200;
+        int runs = 20_000;
+        double sum = 0.0;
+        for (int r = 0; r < runs; r++)
+        {
+            indices.clear();
+            // this call threw a MedlabsRuntimeException when the factor was positive
+            sum += sampler.sampleIndices(n, p, indices);
+        }
+        double tolerance = 5.0 * Math.sqrt(n * p * (1.0 - p) / runs);
+        assertEquals(n * p, sum / runs, tolerance);
+    }
+
+}
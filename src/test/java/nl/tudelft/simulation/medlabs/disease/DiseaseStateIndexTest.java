@@ -0,0 +1,115 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * DiseaseStateIndexTest checks that the index of the persons per disease phase and per disease state follows the transitions
+ * of the persons through setDiseasePhase, by comparing the sets and counts of the index with a scan of the person map.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class DiseaseStateIndexTest
+{
+    /** the number of persons. */
+    private static final int PERSONS = 500;
+
+    /**
+     * Assert that the index contains exactly the persons of the person map who are in the phase.
+     * @param model TestModel; the model
+     * @param phase DiseasePhase; the phase
+     */
+    private static void assertPhase(final TestModel model, final DiseasePhase phase)
+    {
+        DiseaseStateIndex index = model.getDiseaseProgression().getStateIndex();
+        TIntArrayList expected = new TIntArrayList();
+        for (int id = 0; id < PERSONS; id++)
+        {
+            if (model.getPersonMap().get(id).getDiseasePhase() == phase)
+                expected.add(id);
+        }
+        assertArrayEquals(expected.toArray(), index.getPersons(phase).toArray(), phase.getName());
+        assertArrayEquals(expected.toArray(), index.getPersons(phase.getDiseaseState()).toArray(), phase.getName());
+        assertEquals(expected.size(), index.count(phase), phase.getName());
+        assertEquals(expected.size(), index.count(phase.getDiseaseState()), phase.getName());
+    }
+
+    @Test
+    public void testTransitions()
+    {
+        TestModel model = new TestModel();
+        LocationType house =
+                new LocationType(model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        model.setLocationTypeHouse(house);
+        new Location(model, 1, house, 52.06f, 4.30f, (short) 1, 100.0f);
+        TestDisease disease = new TestDisease(model);
+        model.setDiseaseProgression(disease);
+        model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(model, 0, IdxPerson.class));
+        DiseaseStateIndex index = disease.getStateIndex();
+        DiseasePhase susceptible = disease.getSusceptible();
+        DiseasePhase infectious = disease.getInfectious();
+
+        // a person enters the index with its first phase
+        for (int id = 0; id < PERSONS; id++)
+        {
+            Person person = new IdxPerson(model, id, id % 2 == 0, (byte) 30, 1, (short) 0);
+            person.setDiseasePhase(susceptible);
+        }
+        assertPhase(model, susceptible);
+        assertPhase(model, infectious);
+        assertEquals(PERSONS, index.count(DiseaseState.SUSCEPTIBLE));
+        assertEquals(0, index.count(DiseaseState.ILL));
+
+        // random transitions in both directions, including a set of the phase that the person already has
+        Random random = new Random(11L);
+        for (int step = 0; step < 5_000; step++)
+        {
+            Person person = model.getPersonMap().get(random.nextInt(PERSONS));
+            person.setDiseasePhase(random.nextBoolean() ? infectious : susceptible);
+            if (step % 500 == 0)
+            {
+                assertPhase(model, susceptible);
+                assertPhase(model, infectious);
+            }
+        }
+        assertPhase(model, susceptible);
+        assertPhase(model, infectious);
+        assertEquals(PERSONS, index.count(DiseaseState.SUSCEPTIBLE) + index.count(DiseaseState.ILL));
+
+        // a transition moves exactly one person between the phases and the states
+        Person person = model.getPersonMap().get(7);
+        person.setDiseasePhase(susceptible);
+        int ill = index.count(DiseaseState.ILL);
+        person.setDiseasePhase(infectious);
+        assertTrue(index.getPersons(infectious).contains(7));
+        assertFalse(index.getPersons(DiseaseState.SUSCEPTIBLE).contains(7));
+        assertEquals(ill + 1, index.count(DiseaseState.ILL));
+        person.setDiseasePhase(susceptible);
+        assertFalse(index.getPersons(DiseaseState.ILL).contains(7));
+        assertEquals(ill, index.count(infectious));
+    }
+
+}
@@ -0,0 +1,319 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.djutils.event.Event;
+import org.djutils.event.EventListener;
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterBoolean;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterDouble;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterException;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterInteger;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterMap;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterString;
+import nl.tudelft.simulation.medlabs.demo.disease.SEIRProgression;
+import nl.tudelft.simulation.medlabs.demo.disease.SEIRTransmission;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * ExposurePipelineAllocationTest drives the exposure pipeline through the real path on the TestModel: persons enter and leave
+ * a location, which calls DiseaseTransmission.calculateTransmissionEnter and calculateTransmissionLeave, which evaluate the
+ * sublocation with SEIRTransmission.infectPeople in the reused InfectionRecord, expose the infected persons in the reused
+ * ExposureBatch, and report the batch to the DiseaseMonitor and the PersonMonitor. The test checks that an evaluation does not
+ * allocate the record or the batch again, by measuring the allocated bytes per thread with the HotSpot ThreadMXBean, and that
+ * the exposures reach the listeners of the PersonMonitor in one reused batch per evaluation.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ExposurePipelineAllocationTest
+{
+    /** the number of evaluations that is measured; each enter and each leave of the visitor is one evaluation. */
+    private static final int EVALUATIONS = 100_000;
+
+    /**
+     * The allowed number of bytes per evaluation. An iterator over the persons of the sublocation may be allocated when it is
+     * not scalar-replaced, but a new InfectionRecord or ExposureBatch per evaluation takes more than 150 bytes.
+     */
+    private static final long ALLOWED_BYTES_PER_EVALUATION = 96;
+
+    /** the time between two evaluations in hours. */
+    private static final double STEP = 0.001;
+
+    /** the number of infectious persons in the office. */
+    private static final int INFECTIOUS = 5;
+
+    /** the number of susceptible persons in the office. */
+    private static final int SUSCEPTIBLE = 45;
+
+    /** the model. */
+    private TestModel model;
+
+    /** the office in which all persons are present. */
+    private Location office;
+
+    /** the visitor who enters and leaves the office. */
+    private Person visitor;
+
+    /**
+     * Make the parameters of SEIRTransmission for the mode that calls infectPeople for every enter and leave, with the loop
+     * over the persons. The persons are contagious from the moment of exposure, with a peak after a day.
+     * @param contagiousness double; the contagiousness p_B
+     * @return InputParameterMap; the root map with the SEIR parameters
+     * @throws InputParameterException on error in the parameters
+     */
+    private static InputParameterMap seirParameters(final double contagiousness) throws InputParameterException
+    {
+        InputParameterMap root = new InputParameterMap("model", "Model", "Model parameters", 1.0);
+        InputParameterMap seir = new InputParameterMap("SEIR", "SEIR Transmission", "SEIR Transmission parameters", 1.0);
+        seir.add(new InputParameterDouble("contagiousness", "contagiousness", "p_B", contagiousness, 0.0, 1.0, true, true,
+                "%f", 1.0));
+        seir.add(new InputParameterDouble("beta", "beta", "protection", 1.0, 0.0, 1.0, true, true, "%f", 2.0));
+        seir.add(new InputParameterDouble("t_e_min", "t_e_min", "days", 0.0, 0.0, 60.0, true, true, "%f", 3.0));
+        seir.add(new InputParameterDouble("t_e_mode", "t_e_mode", "days", 1.0, 0.0, 60.0, true, true, "%f", 4.0));
+        seir.add(new InputParameterDouble("t_e_max", "t_e_max", "days", 30.0, 0.0, 60.0, true, true, "%f", 5.0));
+        seir.add(new InputParameterDouble("calculation_threshold", "threshold", "seconds", 0.0, 0.0, 3600.0, true, true,
+                "%f", 6.0));
+        seir.add(new InputParameterBoolean("incremental", "incremental", "incremental", false, 7.0));
+        seir.add(new InputParameterString("kernel", "kernel", "kernel", "loop", 8.0));
+        seir.add(new InputParameterDouble("deferred_window", "window", "hours", 0.0, 0.0, 24.0, true, true, "%f", 9.0));
+        seir.add(new InputParameterInteger("strains", "strains", "strains", 1, 1, 8, "%d", 10.0));
+        seir.add(new InputParameterDouble("variant_transmissibility", "variant", "variant", 1.0, 0.0, 10.0, true, true, "%f",
+                11.0));
+        seir.add(new InputParameterDouble("cross_immunity", "cross", "cross", 0.0, 0.0, 1.0, true, true, "%f", 12.0));
+        root.add(seir);
+        return root;
+    }
+
+    /**
+     * Create an office of the given size with 5 infectious and 45 susceptible persons, and a susceptible visitor at home. The
+     * infectious persons were exposed at time 0, and the simulation runs until their peak of contagiousness after one day.
+     * @param contagiousness double; the contagiousness p_B
+     * @param areaM2 float; the area of the office
+     * @throws InputParameterException on error in the parameters
+     * @throws SimRuntimeException on simulation error
+     */
+    private void setup(final double contagiousness, final float areaM2) throws InputParameterException, SimRuntimeException
+    {
+        this.model = new TestModel();
+        this.model.setInputParameterMap(seirParameters(contagiousness));
+        LocationType house =
+                new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType work = new LocationType(this.model, (byte) 1, "work", Location.class, null, false, false, 1.0, false, 1.0,
+                1.0);
+        Location home = new Location(this.model, 1, house, 52.06f, 4.3f, (short) 1, 100.0f);
+        this.office = new Location(this.model, 2, work, 52.07f, 4.3f, (short) 1, areaM2);
+        SEIRProgression progression = new SEIRProgression(this.model);
+        this.model.setDiseaseProgression(progression);
+        this.model.setDiseaseTransmission(new SEIRTransmission(this.model));
+        this.model.setPersonMonitor(new PersonMonitor(this.model));
+        this.model.setDiseaseMonitor(new DiseaseMonitor(this.model, progression, 24.0));
+
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        for (int i = 0; i < INFECTIOUS + SUSCEPTIBLE; i++)
+        {
+            Person person = new IdxPerson(this.model, i, false, (byte) 30, home.getId(), (short) 0);
+            person.setDiseasePhase(i < INFECTIOUS ? SEIRProgression.infected : SEIRProgression.susceptible);
+            person.setExposureTime(i < INFECTIOUS ? 0.0f : Float.NaN);
+            person.setCurrentLocation(this.office);
+            this.office.addPerson(person);
+        }
+        this.visitor = new IdxPerson(this.model, INFECTIOUS + SUSCEPTIBLE, false, (byte) 30, home.getId(), (short) 0);
+        this.visitor.setDiseasePhase(SEIRProgression.susceptible);
+        this.model.getTestSimulator().runUntil(24.0);
+    }
+
+    /**
+     * Let the visitor enter and leave the office, one evaluation per step of the simulation clock.
+     * @param evaluations int; the number of evaluations
+     * @throws SimRuntimeException on simulation error
+     */
+    private void runEvaluations(final int evaluations) throws SimRuntimeException
+    {
+        for (int e = 0; e < evaluations; e++)
+        {
+            this.model.getTestSimulator().runUntil(this.model.getTestSimulator().getTime() + STEP);
+            if (this.office.getAllPersonIds().contains(this.visitor.getId()))
+            {
+                this.office.removePerson(this.visitor);
+            }
+            else
+            {
+                this.visitor.setCurrentLocation(this.office);
+                this.office.addPerson(this.visitor);
+            }
+        }
+    }
+
+    @Test
+    public void testNoAllocationPerEvaluation() throws InputParameterException, SimRuntimeException
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "allocation measurement not supported");
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled(),
+                "allocation measurement not enabled");
+
+        // a very low contagiousness, so every evaluation samples the susceptible persons, but hardly anyone gets infected
+        setup(1E-6, 100.0f);
+        Recorder recorder = new Recorder();
+        this.model.getPersonMonitor().addListener(recorder, PersonMonitor.INFECTED_PERSONS_EVENT);
+
+        // warm up, so the buffers reach their working size and the loops are compiled
+        runEvaluations(EVALUATIONS);
+        long id = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(id);
+        runEvaluations(EVALUATIONS);
+        long allocated = threadBean.getThreadAllocatedBytes(id) - before;
+        assertTrue(allocated < ALLOWED_BYTES_PER_EVALUATION * EVALUATIONS,
+                "exposure pipeline allocated " + allocated + " bytes for " + EVALUATIONS + " evaluations");
+        assertTrue(recorder.exposures < 10, "contagiousness too high for the allocation test");
+    }
+
+    @Test
+    public void testExposuresReachTheMonitor() throws InputParameterException, SimRuntimeException
+    {
+        // p = 1 - e^(-5 / 10) = 0.39 per hour for each susceptible person in an office of 10 m2
+        setup(1.0, 10.0f);
+        Recorder recorder = new Recorder();
+        this.model.getPersonMonitor().addListener(recorder, PersonMonitor.INFECTED_PERSONS_EVENT);
+        for (int hour = 0; hour < 6; hour++)
+        {
+            this.model.getTestSimulator().runUntil(25.0 + hour);
+            if (this.office.getAllPersonIds().contains(this.visitor.getId()))
+            {
+                this.office.removePerson(this.visitor);
+            }
+            else
+            {
+                this.visitor.setCurrentLocation(this.office);
+                this.office.addPerson(this.visitor);
+            }
+        }
+        assertTrue(recorder.exposures > 0);
+
+        // every evaluation with infections delivers the same batch, for the office, with infections attributed to ill persons
+        for (int i = 0; i < recorder.batches.size(); i++)
+        {
+            assertSame(recorder.batches.get(0), recorder.batches.get(i));
+        }
+        int exposed = 0;
+        for (int id = 0; id <= INFECTIOUS + SUSCEPTIBLE; id++)
+        {
+            Person person = this.model.getPersonMap().get(id);
+            if (id < INFECTIOUS)
+                assertEquals(SEIRProgression.infected, person.getDiseasePhase());
+            else if (!person.getDiseasePhase().isSusceptible())
+            {
+                assertEquals(SEIRProgression.exposed, person.getDiseasePhase());
+                assertFalse(Float.isNaN(person.getExposureTime()));
+                exposed++;
+            }
+        }
+        assertEquals(exposed, recorder.exposures);
+        assertTrue(recorder.allInOffice);
+        for (int i = 0; i < recorder.infectiousIds.size(); i++)
+        {
+            assertTrue(this.model.getPersonMap().get(recorder.infectiousIds.get(i)).getDiseasePhase().isIll());
+        }
+
+        // a single exposure is reported in a reused batch with one exposure as well
+        PersonMonitor monitor = this.model.getPersonMonitor();
+        recorder.batches.clear();
+        monitor.reportExposure(this.visitor, this.office, this.model.getPersonMap().get(0));
+        monitor.reportExposure(this.model.getPersonMap().get(INFECTIOUS), this.office, this.model.getPersonMap().get(1));
+        assertEquals(2, recorder.batches.size());
+        assertSame(recorder.batches.get(0), recorder.batches.get(1));
+        assertEquals(1, recorder.batches.get(1).size());
+        assertEquals(INFECTIOUS, recorder.batches.get(1).getInfectedId(0));
+        assertEquals(1, recorder.batches.get(1).getInfectiousId(0));
+    }
+
+    @Test
+    public void testBatchReuse()
+    {
+        ExposureBatch batch = new ExposureBatch(1);
+        batch.start(null);
+        for (int i = 0; i < 100; i++)
+        {
+            batch.add(i, 1000 + i);
+        }
+        assertEquals(100, batch.size());
+        assertEquals(42, batch.getInfectedId(42));
+        assertEquals(1042, batch.getInfectiousId(42));
+        batch.start(null);
+        assertTrue(batch.isEmpty());
+
+        InfectionRecord record = new InfectionRecord(null, null);
+        record.addInfectedPerson(1);
+        record.addInfectiousPerson(2);
+        record.setCalculated(true);
+        record.reset(null, null);
+        assertEquals(0, record.getInfectedPersons().size());
+        assertEquals(0, record.getInfectiousPersons().size());
+        assertFalse(record.isCalculated());
+    }
+
+    /**
+     * Recorder of the batches that the PersonMonitor fires.
+     */
+    private class Recorder implements EventListener
+    {
+        /** */
+        private static final long serialVersionUID = 20240601L;
+
+        /** the batches in the order of the events. */
+        private final List<ExposureBatch> batches = new ArrayList<>();
+
+        /** the number of exposures in the batches. */
+        private int exposures = 0;
+
+        /** the ids of the persons to whom the exposures were attributed. */
+        private final TIntList infectiousIds = new TIntArrayList();
+
+        /** whether all exposures took place in the office. */
+        private boolean allInOffice = true;
+
+        /** {@inheritDoc} */
+        @Override
+        public void notify(final Event event) throws RemoteException
+        {
+            ExposureBatch batch = (ExposureBatch) event.getContent();
+            this.batches.add(batch);
+            this.exposures += batch.size();
+            this.allInOffice &= batch.getLocation() == ExposurePipelineAllocationTest.this.office;
+            for (int i = 0; i < batch.size(); i++)
+            {
+                this.infectiousIds.add(batch.getInfectiousId(i));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,303 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * HouseholdKernelTest checks the households that the HouseholdKernel builds from the persons of a model, the presence masks of
+ * the members, the guest lists, the integration of the dose against the exact integral of the infectivity curves of the
+ * persons present, and the choice of the infectious person in pickInfectious. The benchmark of the kernel against the generic
+ * path of the DiseaseTransmission is ITHouseholdKernel.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class HouseholdKernelTest
+{
+    /** the infectivity curve. */
+    private static final InfectivityCurve CURVE = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+
+    /** the model. */
+    private TestModel model;
+
+    /** the disease with a susceptible and an infectious phase. */
+    private TestDisease disease;
+
+    /**
+     * Create a model with a house type, a test disease and the person type, without locations and persons.
+     */
+    private void setupModel()
+    {
+        this.model = new TestModel();
+        LocationType house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        this.disease = new TestDisease(this.model);
+        this.model.setDiseaseProgression(this.disease);
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+    }
+
+    /**
+     * Create a susceptible person who is at home.
+     * @param id int; the person id
+     * @param homeId int; the id of the home location
+     * @param homeSubLocationIndex int; the home sublocation index
+     * @return Person; the person
+     */
+    private Person person(final int id, final int homeId, final int homeSubLocationIndex)
+    {
+        IdxPerson person = new IdxPerson(this.model, id, false, (byte) 30, homeId, (short) 0);
+        person.setHomeSubLocationIndex((short) homeSubLocationIndex);
+        person.setCurrentSubLocationIndex((short) homeSubLocationIndex);
+        person.setDiseasePhase(this.disease.getSusceptible());
+        return person;
+    }
+
+    /**
+     * Make a person infectious.
+     * @param person Person; the person
+     * @param exposureTime double; the time of exposure
+     */
+    private void infect(final Person person, final double exposureTime)
+    {
+        person.setDiseasePhase(this.disease.getInfectious());
+        person.setExposureTime((float) exposureTime);
+    }
+
+    /**
+     * Create a model with three households that fit in the kernel and one household that is too large. Household A lives in
+     * sublocation 0 of house 1 (persons 0, 1, 2), household B in sublocation 1 of house 1 (persons 3, 4), household C in house
+     * 2 (person 5), and the large household in house 4 (persons 10 to 10 + MAX_MEMBERS). House 3 is a shop. Persons 1, 4 and 5
+     * are infectious, exposed at time 0, 20 and 10.
+     * @return Person[]; the persons 0 to 5
+     */
+    private Person[] setup()
+    {
+        setupModel();
+        LocationType shop = new LocationType(this.model, (byte) 1, "shop", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        LocationType house = this.model.getLocationTypeHouse();
+        new Location(this.model, 1, house, 52.06f, 4.3f, (short) 2, 100.0f);
+        new Location(this.model, 2, house, 52.07f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 3, shop, 52.08f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 4, house, 52.09f, 4.3f, (short) 1, 100.0f);
+        Person[] persons = new Person[] {person(0, 1, 0), person(1, 1, 0), person(2, 1, 0), person(3, 1, 1), person(4, 1, 1),
+                person(5, 2, 0)};
+        for (int i = 0; i <= HouseholdKernel.MAX_MEMBERS; i++)
+        {
+            person(10 + i, 4, 0);
+        }
+        infect(persons[1], 0.0);
+        infect(persons[4], 20.0);
+        infect(persons[5], 10.0);
+        return persons;
+    }
+
+    @Test
+    public void testHouseholdsAndPresence()
+    {
+        Person[] p = setup();
+        HouseholdKernel kernel = HouseholdKernel.build(this.model);
+        Location house1 = this.model.getLocationMap().get(1);
+        int a = kernel.householdOf(house1, (short) 0);
+        int b = kernel.householdOf(house1, (short) 1);
+        int c = kernel.householdOf(this.model.getLocationMap().get(2), (short) 0);
+
+        // the large household and the shop are not in the kernel
+        assertEquals(3, kernel.getNumberOfHouseholds());
+        assertEquals(-1, kernel.householdOf(this.model.getLocationMap().get(4), (short) 0));
+        assertEquals(-1, kernel.householdOf(this.model.getLocationMap().get(3), (short) 0, p[0]));
+        assertEquals(-1, kernel.householdOf(this.model.getLocationMap().get(4), (short) 0, this.model.getPersonMap().get(10)));
+        assertNotEquals(a, b);
+        assertNotEquals(b, c);
+        assertEquals(3, kernel.getNumberOfMembers(a));
+        assertEquals(2, kernel.getNumberOfMembers(b));
+        assertEquals(1, kernel.getNumberOfMembers(c));
+
+        // a member finds its own household, and a guest finds the household of the sublocation
+        assertEquals(a, kernel.householdOf(house1, (short) 0, p[0]));
+        assertEquals(a, kernel.householdOf(house1, (short) 0, p[3]));
+        assertEquals(b, kernel.householdOf(house1, (short) 1, p[0]));
+
+        // the persons who were at home when the kernel was built are present
+        assertEquals(3, kernel.getNumberOfPersons(a));
+        assertEquals(2, kernel.getNumberOfPersons(b));
+        assertEquals(1, kernel.getNumberOfPersons(c));
+
+        // leaving and arriving twice only changes the presence once
+        kernel.depart(a, p[0]);
+        kernel.depart(a, p[0]);
+        assertEquals(2, kernel.getNumberOfPersons(a));
+        kernel.depart(a, p[2]);
+        assertEquals(1, kernel.getNumberOfPersons(a));
+        kernel.arrive(a, p[0]);
+        kernel.arrive(a, p[0]);
+        kernel.arrive(a, p[2]);
+        assertEquals(3, kernel.getNumberOfPersons(a));
+
+        // the time of the last evaluation starts at the time the kernel was built
+        assertEquals(0.0, kernel.swapLastTime(a, 5.0), 0.0);
+        assertEquals(5.0, kernel.swapLastTime(a, 7.0), 0.0);
+        assertEquals(0.0, kernel.swapLastTime(b, 7.0), 0.0);
+    }
+
+    @Test
+    public void testGuests()
+    {
+        Person[] p = setup();
+        HouseholdKernel kernel = HouseholdKernel.build(this.model);
+        Location house1 = this.model.getLocationMap().get(1);
+        int a = kernel.householdOf(house1, (short) 0);
+        Person outsider = this.model.getPersonMap().get(10);
+
+        // a member of another household and a person outside the kernel visit household A, each counted once
+        kernel.arrive(a, p[3]);
+        kernel.arrive(a, p[3]);
+        kernel.arrive(a, outsider);
+        assertEquals(5, kernel.getNumberOfPersons(a));
+        TIntArrayList ids = new TIntArrayList();
+        kernel.gatherSusceptibles(a, ids);
+        assertEquals(new TIntArrayList(new int[] {0, 2, 3, 10}), ids);
+
+        // the leave of a person who is not a guest does not change the guests
+        kernel.depart(a, p[5]);
+        assertEquals(5, kernel.getNumberOfPersons(a));
+        kernel.depart(a, p[3]);
+        kernel.depart(a, outsider);
+        assertEquals(3, kernel.getNumberOfPersons(a));
+        ids.clear();
+        kernel.gatherSusceptibles(a, ids);
+        assertEquals(new TIntArrayList(new int[] {0, 2}), ids);
+
+        // a member of household A who visits household B is a guest there, and is no longer present in A
+        kernel.depart(a, p[0]);
+        kernel.arrive(kernel.householdOf(house1, (short) 1), p[0]);
+        assertEquals(2, kernel.getNumberOfPersons(a));
+        assertEquals(3, kernel.getNumberOfPersons(kernel.householdOf(house1, (short) 1)));
+    }
+
+    @Test
+    public void testDose()
+    {
+        Person[] p = setup();
+        HouseholdKernel kernel = HouseholdKernel.build(this.model);
+        Location house1 = this.model.getLocationMap().get(1);
+        int a = kernel.householdOf(house1, (short) 0);
+        int b = kernel.householdOf(house1, (short) 1);
+        int c = kernel.householdOf(this.model.getLocationMap().get(2), (short) 0);
+
+        // only the infectious member of household A contributes, and not before its infectivity starts
+        assertEquals(CURVE.integral(48.0, 50.0), kernel.dose(a, 48.0, 50.0, CURVE), 1E-12);
+        assertEquals(0.0, kernel.dose(a, 0.0, 10.0, CURVE), 0.0);
+
+        // an infectious guest adds its own integral, shifted by its exposure time
+        kernel.arrive(a, p[5]);
+        assertEquals(CURVE.integral(48.0, 50.0) + CURVE.integral(38.0, 40.0), kernel.dose(a, 48.0, 50.0, CURVE), 1E-12);
+        kernel.depart(a, p[1]);
+        assertEquals(CURVE.integral(38.0, 40.0), kernel.dose(a, 48.0, 50.0, CURVE), 1E-12);
+
+        // random enters and leaves of all persons in all households, checked against the sum over the persons present
+        int[] households = new int[] {a, b, c};
+        boolean[][] present = new boolean[p.length][3];
+        for (int i = 0; i < p.length; i++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                kernel.depart(households[k], p[i]);
+            }
+        }
+        Random random = new Random(11L);
+        double time = 20.0;
+        for (int step = 0; step < 500; step++)
+        {
+            double next = time + random.nextDouble() * 2.0;
+            for (int k = 0; k < 3; k++)
+            {
+                double expected = 0.0;
+                int count = 0;
+                for (int i = 0; i < p.length; i++)
+                {
+                    if (present[i][k])
+                    {
+                        count++;
+                        if (!p[i].getDiseasePhase().isSusceptible())
+                            expected += CURVE.integral(time - p[i].getExposureTime(), next - p[i].getExposureTime());
+                    }
+                }
+                assertEquals(expected, kernel.dose(households[k], time, next, CURVE), 1E-9, "step " + step);
+                assertEquals(count, kernel.getNumberOfPersons(households[k]), "step " + step);
+            }
+            time = next;
+            int i = random.nextInt(p.length);
+            int k = random.nextInt(3);
+            if (present[i][k])
+                kernel.depart(households[k], p[i]);
+            else
+                kernel.arrive(households[k], p[i]);
+            present[i][k] = !present[i][k];
+        }
+    }
+
+    @Test
+    public void testPickInfectious()
+    {
+        Person[] p = setup();
+        HouseholdKernel kernel = HouseholdKernel.build(this.model);
+        Location house1 = this.model.getLocationMap().get(1);
+        int a = kernel.householdOf(house1, (short) 0);
+        int b = kernel.householdOf(house1, (short) 1);
+
+        // with one infectious person, every draw picks that person
+        double c1 = CURVE.integral(48.0, 50.0);
+        assertSame(p[1], kernel.pickInfectious(a, 48.0, 50.0, CURVE, 0.0));
+        assertSame(p[1], kernel.pickInfectious(a, 48.0, 50.0, CURVE, 0.99 * c1));
+
+        // members come before guests, in proportion to their contribution; a draw beyond the dose returns the last one
+        kernel.arrive(a, p[5]);
+        double c5 = CURVE.integral(38.0, 40.0);
+        assertSame(p[1], kernel.pickInfectious(a, 48.0, 50.0, CURVE, 0.99 * c1));
+        assertSame(p[5], kernel.pickInfectious(a, 48.0, 50.0, CURVE, 1.01 * c1));
+        assertSame(p[5], kernel.pickInfectious(a, 48.0, 50.0, CURVE, c1 + c5));
+
+        // with uniform draws, the persons are picked with a probability proportional to their contribution
+        Random random = new Random(5L);
+        int runs = 10_000;
+        int picks1 = 0;
+        double dose = kernel.dose(a, 48.0, 50.0, CURVE);
+        for (int r = 0; r < runs; r++)
+        {
+            if (kernel.pickInfectious(a, 48.0, 50.0, CURVE, random.nextDouble() * dose) == p[1])
+                picks1++;
+        }
+        double f = c1 / (c1 + c5);
+        assertEquals(f, (double) picks1 / runs, 5.0 * Math.sqrt(f * (1.0 - f) / runs));
+
+        // no contribution when the infectious persons are not infectious yet, or not present
+        assertNull(kernel.pickInfectious(a, 0.0, 5.0, CURVE, 0.0));
+        kernel.depart(b, p[4]);
+        assertNull(kernel.pickInfectious(b, 48.0, 50.0, CURVE, 0.0));
+    }
+
+}
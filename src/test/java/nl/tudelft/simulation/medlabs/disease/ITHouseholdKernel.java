@@ -0,0 +1,187 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * ITHouseholdKernel is a benchmark of the HouseholdKernel that is not part of the unit tests: it is excluded from surefire, and
+ * is run by failsafe with <code>mvn verify</code>. It runs a day and night cycle for 1,000,000 persons in households of 1 to 5
+ * persons through Location.removePerson and Location.addPerson, so every event takes the real path of the DiseaseTransmission
+ * in the incremental mode: once on the generic path with the accumulators per sublocation, and once with the household
+ * kernel. The two runs use identical models, one after the other, and report the time per enter or leave event.
+ * <p>
+ * One in ten persons is infected, with exposure times spread over the run, so every day there are households with infectious
+ * persons. The transmission rate is 0, so the dose is calculated at every event, but nobody is infected, and both runs see the
+ * same persons in the same disease phases every day.
+ * </p>
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ITHouseholdKernel
+{
+    /** the infectivity curve. */
+    private static final InfectivityCurve CURVE = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+
+    /** the number of persons. */
+    private static final int PERSONS = 1_000_000;
+
+    /** the number of days to warm up. */
+    private static final int WARMUP_DAYS = 5;
+
+    /** the number of measured days. */
+    private static final int DAYS = 10;
+
+    /**
+     * Create the model with the households, and place every person in the home.
+     * @param kernel boolean; whether the transmission uses the household kernel for the homes
+     * @return TestModel; the model
+     */
+    private static TestModel setup(final boolean kernel)
+    {
+        TestModel model = new TestModel(17L);
+        LocationType house =
+                new LocationType(model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        model.setLocationTypeHouse(house);
+        TestDisease disease = new TestDisease(model);
+        model.setDiseaseProgression(disease);
+        TestTransmission transmission = new TestTransmission(model);
+        transmission.setIncrementalMode(CURVE, disease.getInfectious(), 0.0);
+        model.setDiseaseTransmission(transmission);
+        model.setPersonMonitor(new PersonMonitor(model));
+        model.setDiseaseMonitor(new DiseaseMonitor(model, disease, 24.0));
+        model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(model, 0, IdxPerson.class));
+
+        Random random = new Random(23L);
+        int id = 0;
+        int houseId = 0;
+        while (id < PERSONS)
+        {
+            Location home = new Location(model, houseId, house, 52.0f + 0.0001f * (houseId % 1000),
+                    4.3f + 0.0001f * (houseId / 1000), (short) 1, 100.0f);
+            int size = Math.min(PERSONS - id, 1 + random.nextInt(5));
+            for (int i = 0; i < size; i++)
+            {
+                Person person = new IdxPerson(model, id++, i % 2 == 0, (byte) 30, houseId, (short) 0);
+                if (random.nextDouble() < 0.1)
+                {
+                    person.setDiseasePhase(disease.getInfectious());
+                    person.setExposureTime((float) (24.0 * (WARMUP_DAYS + DAYS + 6) * random.nextDouble() - 144.0));
+                }
+                else
+                {
+                    person.setDiseasePhase(disease.getSusceptible());
+                }
+                home.addPerson(person);
+            }
+            houseId++;
+        }
+        if (kernel)
+        {
+            // start without the accumulators of the placement, and let the kernel register the persons who are at home
+            transmission.setIncrementalMode(CURVE, disease.getInfectious(), 0.0);
+            transmission.setHouseholdKernel(HouseholdKernel.build(model));
+        }
+        return model;
+    }
+
+    /**
+     * Run the day and night cycle: every person leaves home at 8:00 and comes back at 18:00.
+     * @param model TestModel; the model
+     * @param persons Person[]; the persons
+     * @param fromDay int; the first day
+     * @param toDay int; the day after the last day
+     * @throws SimRuntimeException on simulation error
+     */
+    private static void runDays(final TestModel model, final Person[] persons, final int fromDay, final int toDay)
+            throws SimRuntimeException
+    {
+        for (int day = fromDay; day < toDay; day++)
+        {
+            model.getTestSimulator().runUntil(24.0 * day + 8.0);
+            for (Person person : persons)
+            {
+                person.getHomeLocation().removePerson(person);
+            }
+            model.getTestSimulator().runUntil(24.0 * day + 18.0);
+            for (Person person : persons)
+            {
+                person.getHomeLocation().addPerson(person);
+            }
+        }
+    }
+
+    /**
+     * Run the benchmark on one model.
+     * @param kernel boolean; whether the transmission uses the household kernel for the homes
+     * @return double; the time per enter or leave event in nanoseconds
+     * @throws SimRuntimeException on simulation error
+     */
+    private static double benchmark(final boolean kernel) throws SimRuntimeException
+    {
+        TestModel model = setup(kernel);
+        Person[] persons = new Person[PERSONS];
+        int susceptible = 0;
+        for (int i = 0; i < PERSONS; i++)
+        {
+            persons[i] = model.getPersonMap().get(i);
+            if (persons[i].getDiseasePhase().isSusceptible())
+                susceptible++;
+        }
+        runDays(model, persons, 0, WARMUP_DAYS);
+        long t0 = System.nanoTime();
+        runDays(model, persons, WARMUP_DAYS, WARMUP_DAYS + DAYS);
+        long nanos = System.nanoTime() - t0;
+
+        // everybody is at home again, and nobody was infected
+        DiseaseTransmission transmission = model.getDiseaseTransmission();
+        for (int i = 0; i < PERSONS; i += 997)
+        {
+            Location home = persons[i].getHomeLocation();
+            assertEquals(home.getAllPersonIds().size(), transmission.getNrPersonsInSublocation(home, (short) 0));
+        }
+        int stillSusceptible = 0;
+        for (Person person : persons)
+        {
+            if (person.getDiseasePhase().isSusceptible())
+                stillSusceptible++;
+        }
+        assertEquals(susceptible, stillSusceptible);
+        return nanos / (2.0 * PERSONS * DAYS);
+    }
+
+    @Test
+    public void testDayNight() throws SimRuntimeException
+    {
+        double nanosGeneric = benchmark(false);
+        double nanosKernel = benchmark(true);
+        System.out.println(String.format(
+                "HouseholdKernel benchmark, %d persons, %d days (ns per enter or leave event)%n"
+                        + "  generic path %8.1f   household kernel %8.1f   speedup %5.2f",
+                PERSONS, DAYS, nanosGeneric, nanosKernel, nanosGeneric / nanosKernel));
+        assertTrue(nanosGeneric > 0.0 && nanosKernel > 0.0);
+    }
+
+}
@@ -0,0 +1,60 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ITTransmissionKernel is a benchmark of the ScalarTransmissionKernel that is not part of the unit tests: it is excluded from
+ * surefire, and is run by failsafe with <code>mvn verify</code>. It reports the time of a calculation, the sum of the
+ * infectivity plus the selection of the susceptible persons, for sublocations with 10, 100 and 10,000 persons, of whom 10% is
+ * infectious. The kernel is warmed up first, so the JIT compiler has compiled the loops.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ITTransmissionKernel
+{
+    @Test
+    public void testKernelTiming()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(48.0, 168.0, 288.0, 1.0);
+        Random random = new Random(17L);
+        TransmissionKernel kernel = TransmissionKernel.forName("scalar");
+        StringBuilder sb = new StringBuilder("TransmissionKernel benchmark of " + kernel + "\n");
+        for (int n : new int[] {10, 100, 10_000})
+        {
+            SublocationArrays persons = TransmissionKernelTest.fill(new SublocationArrays(n), n, 0.1, random);
+            int[] indices = new int[n];
+            int repetitions = Math.max(200, 2_000_000 / n);
+            double check = 0.0;
+            for (int r = 0; r < repetitions; r++)
+            {
+                check += kernel.sumInfectivity(persons, 400.0 + r * 1E-3, curve);
+                check += kernel.selectSusceptibles(persons, indices);
+            }
+            long t0 = System.nanoTime();
+            for (int r = 0; r < repetitions; r++)
+            {
+                check += kernel.sumInfectivity(persons, 400.0 + r * 1E-3, curve);
+                check += kernel.selectSusceptibles(persons, indices);
+            }
+            long nanos = System.nanoTime() - t0;
+            sb.append(String.format("  occupancy %6d: %10.1f ns per calculation, %6.2f ns per person%n", n,
+                    (double) nanos / repetitions, (double) nanos / repetitions / n));
+            // use the result, so the loops cannot be removed
+            assertFalse(Double.isNaN(check));
+        }
+        System.out.print(sb.toString());
+    }
+
+}
@@ -0,0 +1,80 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.jstats.streams.MersenneTwister;
+
+/**
+ * InfectionSamplerTest checks the mean and the variance of the number of infections drawn by the InfectionSampler, and the
+ * validity of the drawn indices, for small, medium and large probabilities of infection.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class InfectionSamplerTest
+{
+    @Test
+    public void testBinomialMoments()
+    {
+        InfectionSampler sampler = new InfectionSampler(new MersenneTwister(11L));
+        int n = 500;
+        int runs = 20_000;
+        TIntList indices = new TIntArrayList();
+        for (double p : new double[] {0.001, 0.05, 0.5, 0.9, 0.999})
+        {
+            double sumCount = 0.0;
+            double sumIndices = 0.0;
+            double sumSquares = 0.0;
+            for (int r = 0; r < runs; r++)
+            {
+                sumCount += sampler.sampleCount(n, p);
+                indices.clear();
+                int k = sampler.sampleIndices(n, p, indices);
+                assertEquals(k, indices.size());
+                for (int i = 0; i < indices.size(); i++)
+                {
+                    assertTrue(indices.get(i) >= 0 && indices.get(i) < n);
+                    assertTrue(i == 0 || indices.get(i) > indices.get(i - 1), "indices should be increasing");
+                }
+                sumIndices += k;
+                sumSquares += (double) k * k;
+            }
+            double mean = n * p;
+            double variance = n * p * (1.0 - p);
+            // 5 standard errors of the mean
+            double tolerance = 5.0 * Math.sqrt(variance / runs) + 1E-9;
+            assertEquals(mean, sumCount / runs, tolerance, "count, p=" + p);
+            assertEquals(mean, sumIndices / runs, tolerance, "indices, p=" + p);
+            double sampleVariance = sumSquares / runs - (sumIndices / runs) * (sumIndices / runs);
+            assertEquals(variance, sampleVariance, 0.1 * variance + 0.01, "variance, p=" + p);
+        }
+        assertEquals(0, sampler.sampleCount(n, 0.0));
+        assertEquals(n, sampler.sampleCount(n, 1.0));
+    }
+
+    @Test
+    public void testNumberOfDraws()
+    {
+        InfectionSampler sampler = new InfectionSampler(new MersenneTwister(3L));
+        TIntList indices = new TIntArrayList();
+        for (int r = 0; r < 1000; r++)
+        {
+            sampler.sampleIndices(10_000, 1E-4, indices);
+        }
+        // expected n * p + 1 = 2 draws per call instead of 10,000
+        assertTrue(sampler.getNumberOfDraws() < 4000, "draws: " + sampler.getNumberOfDraws());
+    }
+
+}
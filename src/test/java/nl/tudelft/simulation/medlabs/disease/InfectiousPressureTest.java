@@ -0,0 +1,148 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * InfectiousPressureTest checks the piecewise-linear integration of the incremental infectious pressure against the exact
+ * integral of the infectivity curves of the persons present.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class InfectiousPressureTest
+{
+    @Test
+    public void testCurve()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+        assertEquals(0.0, curve.value(10.0), 1E-12);
+        assertEquals(1.0, curve.value(48.0), 1E-12);
+        assertEquals(2.0, curve.value(72.0), 1E-12);
+        assertEquals(0.0, curve.value(200.0), 1E-12);
+        // area of the triangle: 0.5 * 144 * 2
+        assertEquals(144.0, curve.integral(0.0, 500.0), 1E-9);
+        assertEquals(12.0, curve.integral(24.0, 48.0), 1E-9);
+    }
+
+    @Test
+    public void testIncrementalIntegral()
+    {
+        // curve with a jump at the start and the end
+        InfectivityCurve curve = new InfectivityCurve(new double[] {2.0, 5.0, 9.0}, new double[] {1.0, 3.0, 0.5});
+        Random random = new Random(7L);
+        int n = 20;
+        double[] exposure = new double[n];
+        boolean[] present = new boolean[n];
+        for (int i = 0; i < n; i++)
+        {
+            exposure[i] = random.nextDouble() * 10.0;
+        }
+        InfectiousPressure pressure = new InfectiousPressure(curve, 0.0);
+        double time = 0.0;
+        for (int step = 0; step < 500; step++)
+        {
+            double next = time + random.nextDouble() * 0.5;
+            double expected = 0.0;
+            for (int i = 0; i < n; i++)
+            {
+                if (present[i] && pressure.isContributor(i))
+                    expected += curve.integral(time - exposure[i], next - exposure[i]);
+            }
+            pressure.advance(next);
+            assertEquals(expected, pressure.takeIntegral(), 1E-9, "step " + step);
+            time = next;
+
+            int i = random.nextInt(n);
+            if (present[i])
+            {
+                pressure.removeContributor(i, exposure[i]);
+                present[i] = false;
+            }
+            else
+            {
+                pressure.addContributor(i, exposure[i]);
+                present[i] = true;
+            }
+        }
+    }
+
+    @Test
+    public void testSusceptibles()
+    {
+        InfectiousPressure pressure = new InfectiousPressure(InfectivityCurve.triangular(0.0, 1.0, 2.0, 1.0), 0.0);
+        pressure.addSusceptible(3);
+        pressure.addSusceptible(5);
+        pressure.addSusceptible(7);
+        pressure.addSusceptible(5);
+        assertEquals(3, pressure.getNumberOfSusceptibles());
+        assertTrue(pressure.removeSusceptible(3));
+        assertFalse(pressure.removeSusceptible(3));
+        assertEquals(2, pressure.getNumberOfSusceptibles());
+        int sum = pressure.getSusceptible(0) + pressure.getSusceptible(1);
+        assertEquals(12, sum);
+        // a person whose infectivity has ended does not contribute
+        assertFalse(pressure.addContributor(9, -5.0));
+        assertTrue(pressure.addContributor(9, 0.0));
+        assertEquals(1, pressure.getNumberOfContributors());
+    }
+
+    @Test
+    public void testDrawContributor()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+        InfectiousPressure pressure = new InfectiousPressure(curve, 60.0);
+        double[] exposure = new double[] {0.0, 10.0, 48.0, 30.0};
+        for (int i = 0; i < exposure.length; i++)
+        {
+            assertTrue(pressure.addContributor(i, exposure[i]));
+        }
+        // remove a contributor in the middle, so the last contributor moves to its position
+        assertTrue(pressure.removeContributor(1, exposure[1]));
+        pressure.advance(80.0);
+        pressure.takeIntegral();
+        // a person who is infected at the end of the window has no share in the pressure of the window
+        assertTrue(pressure.addContributor(4, 80.0));
+
+        double[] weight = new double[5];
+        double total = 0.0;
+        for (int i : new int[] {0, 2, 3})
+        {
+            weight[i] = curve.integral(60.0 - exposure[i], 80.0 - exposure[i]);
+            total += weight[i];
+        }
+        int[] count = new int[5];
+        Random random = new Random(11L);
+        int n = 200_000;
+        for (int k = 0; k < n; k++)
+        {
+            count[pressure.drawContributor(random.nextDouble())]++;
+        }
+        assertEquals(0, count[1]);
+        assertEquals(0, count[4]);
+        for (int i : new int[] {0, 2, 3})
+        {
+            assertEquals(weight[i] / total, (double) count[i] / n, 0.005, "contributor " + i);
+        }
+
+        // a single contributor is always drawn
+        InfectiousPressure single = new InfectiousPressure(curve, 0.0);
+        single.addContributor(7, 0.0);
+        single.advance(1.0);
+        single.takeIntegral();
+        assertEquals(7, single.drawContributor(0.99));
+    }
+
+}
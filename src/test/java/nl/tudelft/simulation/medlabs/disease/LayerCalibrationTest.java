@@ -0,0 +1,295 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.FixedDurationActivity;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxWorker;
+
+/**
+ * LayerCalibrationTest checks the calculation of the calibration factors, the convergence of the calibration, the
+ * classification and counting of the infections per contact layer, and compares the infections per layer of the full model with
+ * those of the ContactLayerEngine on the same synthetic population, before and after a number of calibration iterations. The
+ * runs of both models are reproducible with the same seed, so the comparison gives the same outcome every time.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LayerCalibrationTest
+{
+    /** the infectivity curve. */
+    private static final InfectivityCurve CURVE = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+
+    /** the transmission rate. */
+    private static final double RATE = 0.2;
+
+    /** the seed of the runs. */
+    private static final long SEED = 111L;
+
+    /** the number of homes, with 4 persons per home. */
+    private static final int HOMES = 100;
+
+    /** the number of workplaces. */
+    private static final int WORKPLACES = 10;
+
+    /** the number of shops, each in its own grid cell. */
+    private static final int SHOPS = 5;
+
+    /** the number of simulated days. */
+    private static final int DAYS = 40;
+
+    /** the disease of the last model that was set up. */
+    private TestDisease disease;
+
+    /**
+     * Create a population of 4 workers per home, who are at home until 8:00, work for 8 hours, visit a shop for an hour, and
+     * are at home for the rest of the day. The homes have ids 0 to 99, the workplaces 100 to 109, and the shops 110 to 114. The
+     * persons of 4 homes are infectious from the start. The persons are not initialized.
+     * @param model TestModel; the model to fill
+     * @return Person[]; the persons
+     */
+    private Person[] setup(final TestModel model)
+    {
+        LocationType house =
+                new LocationType(model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        model.setLocationTypeHouse(house);
+        LocationType work = new LocationType(model, (byte) 1, "work", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        LocationType shop = new LocationType(model, (byte) 2, "shop", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        for (int h = 0; h < HOMES; h++)
+        {
+            new Location(model, h, house, 52.0f + 0.001f * (h % 10), 4.3f + 0.001f * (h / 10), (short) 1, 100.0f);
+        }
+        for (int w = 0; w < WORKPLACES; w++)
+        {
+            new Location(model, 100 + w, work, 52.02f, 4.3f + 0.002f * w, (short) 1, 400.0f);
+        }
+        Location[] shops = new Location[SHOPS];
+        for (int s = 0; s < SHOPS; s++)
+        {
+            shops[s] = new Location(model, 110 + s, shop, 52.05f + 0.05f * s, 4.35f, (short) 1, 200.0f);
+        }
+
+        this.disease = new TestDisease(model);
+        model.setDiseaseProgression(this.disease);
+        DiseaseTransmission transmission = new TestTransmission(model);
+        transmission.setIncrementalMode(CURVE, this.disease.getInfectious(), RATE);
+        model.setDiseaseTransmission(transmission);
+        model.setActivityMonitor(new ActivityMonitor(model));
+        model.setPersonMonitor(new PersonMonitor(model));
+        model.setDiseaseMonitor(new DiseaseMonitor(model, this.disease, 24.0));
+
+        Activity sleeping = new UntilFixedTimeActivity(model, "sleep", p -> p.getHomeLocation(), 8.0);
+        Activity working = new FixedDurationActivity(model, "work", p -> ((IdxWorker) p).getWorkLocation(), 8.0);
+        Activity shopping = new FixedDurationActivity(model, "shop", p -> shops[p.getHomeLocation().getId() % SHOPS], 1.0);
+        Activity relaxing = new UntilFixedTimeActivity(model, "relax", p -> p.getHomeLocation(), 24.0);
+        new WeekDayPattern(model, "week", new DayPattern(model, List.of(sleeping, working, shopping, relaxing)));
+
+        model.getPersonTypeClassMap().put(IdxWorker.class, new PersonType(model, 0, IdxWorker.class));
+        Person[] persons = new Person[4 * HOMES];
+        for (int i = 0; i < persons.length; i++)
+        {
+            persons[i] = new IdxWorker(model, i, i % 2 == 0, (byte) 30, i / 4, (short) 0, 100 + i % WORKPLACES);
+            if (i % 4 == 0 && i / 4 % 25 == 0)
+            {
+                persons[i].setDiseasePhase(this.disease.getInfectious());
+                persons[i].setExposureTime(0.0f);
+            }
+            else
+            {
+                persons[i].setDiseasePhase(this.disease.getSusceptible());
+            }
+        }
+        return persons;
+    }
+
+    /**
+     * Run the full model on the synthetic population.
+     * @return long[]; the infections per layer
+     * @throws SimRuntimeException on simulation error
+     */
+    private long[] runFullModel() throws SimRuntimeException
+    {
+        TestModel model = new TestModel(SEED);
+        Person[] persons = setup(model);
+        LayerCalibration counter = new LayerCalibration(model);
+        for (Person person : persons)
+        {
+            person.init();
+        }
+        model.getTestSimulator().runUntil(24.0 * DAYS);
+        return counter.getInfections();
+    }
+
+    /**
+     * Run the contact layer engine on the synthetic population.
+     * @param factors double[]; the factors per layer
+     * @return long[]; the infections per layer
+     * @throws SimRuntimeException on simulation error
+     */
+    private long[] runEngine(final double[] factors) throws SimRuntimeException
+    {
+        TestModel model = new TestModel(SEED);
+        setup(model);
+        LayerCalibration counter = new LayerCalibration(model);
+        ContactLayerEngine engine = new ContactLayerEngine(model, CURVE, this.disease.getInfectious(), 24.0);
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            engine.setLayerFactor(layer, factors[layer]);
+        }
+        engine.start();
+        model.getTestSimulator().runUntil(24.0 * DAYS);
+        // the engine counts its own infections in the same way
+        for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+        {
+            assertEquals(engine.getNumberOfInfections(layer), counter.getNumberOfInfections(layer));
+        }
+        return counter.getInfections();
+    }
+
+    @Test
+    public void testNextFactors()
+    {
+        double[] factors = new double[] {1.0, 2.0, 0.5};
+        double[] next = LayerCalibration.nextFactors(factors, new long[] {99, 9, 0}, new long[] {99, 39, 3}, 1.0);
+        assertArrayEquals(new double[] {1.0, 0.5, 0.125}, next, 1E-12);
+
+        // the damping takes a root of the correction, and a layer without infections in both runs keeps its factor
+        next = LayerCalibration.nextFactors(factors, new long[] {80, 0, 0}, new long[] {19, 0, 0}, 0.5);
+        assertArrayEquals(new double[] {Math.sqrt(81.0 / 20.0), 2.0, 0.5}, next, 1E-12);
+
+        assertEquals(0.0, LayerCalibration.maxRelativeDifference(new long[] {5, 0, 2}, new long[] {5, 0, 2}), 0.0);
+        assertEquals(0.5, LayerCalibration.maxRelativeDifference(new long[] {10, 4, 0}, new long[] {5, 3, 0}), 1E-12);
+        assertEquals(3.0, LayerCalibration.maxRelativeDifference(new long[] {10, 4, 0}, new long[] {10, 4, 3}), 1E-12);
+
+        assertThrows(MedlabsRuntimeException.class,
+                () -> LayerCalibration.nextFactors(new double[2], new long[3], new long[3], 0.5));
+        assertThrows(MedlabsRuntimeException.class,
+                () -> LayerCalibration.nextFactors(new double[3], new long[3], new long[4], 0.5));
+        assertThrows(MedlabsRuntimeException.class,
+                () -> LayerCalibration.nextFactors(new double[3], new long[3], new long[3], 0.0));
+        assertThrows(MedlabsRuntimeException.class,
+                () -> LayerCalibration.nextFactors(new double[3], new long[3], new long[3], 1.5));
+    }
+
+    @Test
+    public void testCountPerLayer()
+    {
+        TestModel model = new TestModel(SEED);
+        Person[] persons = setup(model);
+        LayerCalibration counter = new LayerCalibration(model);
+        Location home = model.getLocationMap().get(0);
+        Location office = model.getLocationMap().get(100);
+        Location otherOffice = model.getLocationMap().get(101);
+        Location shop = model.getLocationMap().get(110);
+
+        // person 0 lives in home 0 and works in workplace 100; the workplace of another worker is community for person 0, and
+        // every home, also the home of another person, is household
+        assertEquals(ContactLayers.HOUSEHOLD, ContactLayers.layerOf(model, persons[0], home));
+        assertEquals(ContactLayers.WORK_SCHOOL, ContactLayers.layerOf(model, persons[0], office));
+        assertEquals(ContactLayers.COMMUNITY, ContactLayers.layerOf(model, persons[0], otherOffice));
+        assertEquals(ContactLayers.COMMUNITY, ContactLayers.layerOf(model, persons[0], shop));
+        assertEquals(ContactLayers.HOUSEHOLD, ContactLayers.layerOf(model, persons[5], home));
+
+        // the infections are classified with the infected person and the location of the batch
+        ExposureBatch batch = new ExposureBatch(4);
+        batch.start(office);
+        batch.add(10, 0);
+        batch.add(11, 0);
+        batch.add(20, 0);
+        model.getPersonMonitor().reportExposures(batch);
+        batch.start(home);
+        batch.add(1, 0);
+        model.getPersonMonitor().reportExposures(batch);
+        assertArrayEquals(new long[] {1, 2, 1}, counter.getInfections());
+        assertEquals(2L, counter.getNumberOfInfections(ContactLayers.WORK_SCHOOL));
+
+        // the returned array is a copy
+        counter.getInfections()[0] = 100;
+        assertEquals(1L, counter.getNumberOfInfections(ContactLayers.HOUSEHOLD));
+    }
+
+    @Test
+    public void testConvergence()
+    {
+        // when the infections of the engine are proportional to the factor of a layer, the damped iteration halves the
+        // logarithm of the ratio between the engine and the full model in every iteration
+        long[] full = new long[] {9000, 3000, 1200};
+        double[] perUnitFactor = new double[] {3000.0, 6000.0, 400.0};
+        double[] factors = new double[] {1.0, 1.0, 1.0};
+        double previous = Double.MAX_VALUE;
+        for (int iteration = 0; iteration < 6; iteration++)
+        {
+            long[] engine = new long[ContactLayers.NUMBER_OF_LAYERS];
+            for (int layer = 0; layer < ContactLayers.NUMBER_OF_LAYERS; layer++)
+            {
+                engine[layer] = Math.round(factors[layer] * perUnitFactor[layer]);
+            }
+            double difference = LayerCalibration.maxRelativeDifference(full, engine);
+            assertTrue(difference < previous, "iteration " + iteration + ": " + difference + " >= " + previous);
+            previous = difference;
+            factors = LayerCalibration.nextFactors(factors, full, engine, 0.5);
+        }
+        assertTrue(previous < 0.05, "difference after the iterations " + previous);
+        assertArrayEquals(new double[] {3.0, 0.5, 3.0}, factors, 0.1);
+    }
+
+    @Test
+    public void testCompareWithFullModel() throws SimRuntimeException
+    {
+        long[] full = runFullModel();
+        assertTrue(full[0] + full[1] + full[2] > 0, "no infections in the full model");
+        assertArrayEquals(full, runFullModel(), "the full model is not reproducible");
+
+        // the calibration brings the infections per layer of the engine closer to those of the full model
+        int iterations = 4;
+        double[] differences = new double[iterations + 1];
+        double[] factors = new double[] {1.0, 1.0, 1.0};
+        long[] first = null;
+        for (int iteration = 0; iteration <= iterations; iteration++)
+        {
+            long[] engine = runEngine(factors);
+            assertTrue(engine[0] + engine[1] + engine[2] > 0, "no infections in the engine");
+            if (first == null)
+                first = engine;
+            differences[iteration] = LayerCalibration.maxRelativeDifference(full, engine);
+            factors = LayerCalibration.nextFactors(factors, full, engine, 0.5);
+            for (double factor : factors)
+            {
+                assertTrue(factor >= 0.0 && Double.isFinite(factor), "factor " + factor);
+            }
+        }
+        assertTrue(differences[iterations] < differences[0],
+                "calibration does not converge: " + Arrays.toString(differences));
+        assertArrayEquals(first, runEngine(new double[] {1.0, 1.0, 1.0}), "the engine is not reproducible");
+    }
+
+}
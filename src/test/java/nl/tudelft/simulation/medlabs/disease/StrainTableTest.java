@@ -0,0 +1,104 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * StrainTableTest checks the packed strain state of the persons and the susceptibility that follows from the cross-immunity
+ * matrix.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class StrainTableTest
+{
+    @Test
+    public void testStrainState()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(48.0, 168.0, 336.0, 1.0);
+        StrainTable table = new StrainTable(10);
+        Strain alpha = table.addStrain("alpha", curve, 1.0);
+        Strain delta = table.addStrain("delta", curve, 1.6);
+        Strain omicron = table.addStrain("omicron", curve, 2.5);
+        assertEquals(3, table.getNumberOfStrains());
+        assertEquals(2, omicron.getIndex());
+        assertThrows(MedlabsRuntimeException.class, () -> table.setCrossImmunity(alpha, delta, 1.5));
+
+        // by default full protection against the same strain, none against the others
+        assertEquals(-1, table.getCurrentStrain(3));
+        assertEquals(1.0, table.getSusceptibility(3, 0), 1E-12);
+        table.infect(3, alpha.getIndex());
+        assertEquals(0, table.getCurrentStrain(3));
+        assertEquals(0.0, table.getSusceptibility(3, 0), 1E-12);
+        assertEquals(1.0, table.getSusceptibility(3, 1), 1E-12);
+
+        // the protection of several earlier infections multiplies
+        table.setCrossImmunity(alpha, omicron, 0.5);
+        table.setCrossImmunity(delta, omicron, 0.4);
+        table.infect(3, delta.getIndex());
+        assertEquals(1, table.getCurrentStrain(3));
+        assertEquals(0b011, table.getHistory(3));
+        assertEquals(0.5 * 0.6, table.getSusceptibility(3, 2), 1E-12);
+
+        // the table grows for large person ids
+        table.infect(1_000_000, omicron.getIndex());
+        assertEquals(2, table.getCurrentStrain(1_000_000));
+        assertEquals(0b100, table.getHistory(1_000_000));
+        assertEquals(1, table.getCurrentStrain(3));
+        assertEquals(-1, table.getCurrentStrain(2_000_000));
+
+        for (int i = 3; i < StrainTable.MAX_STRAINS; i++)
+        {
+            table.addStrain("variant" + i, curve, 1.0);
+        }
+        assertThrows(MedlabsRuntimeException.class, () -> table.addStrain("too many", curve, 1.0));
+        table.infect(5, StrainTable.MAX_STRAINS - 1);
+        assertEquals(StrainTable.MAX_STRAINS - 1, table.getCurrentStrain(5));
+    }
+
+    @Test
+    public void testDrawContributorPerStrain()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(24.0, 72.0, 168.0, 2.0);
+        StrainTable table = new StrainTable(10);
+        Strain alpha = table.addStrain("alpha", curve, 1.0);
+        Strain delta = table.addStrain("delta", curve, 1.6);
+        MultiStrainPressure pressure = new MultiStrainPressure(table, 60.0);
+        assertTrue(pressure.addContributor(alpha.getIndex(), 1, 0.0));
+        assertTrue(pressure.addContributor(alpha.getIndex(), 2, 48.0));
+        assertTrue(pressure.addContributor(delta.getIndex(), 3, 30.0));
+        pressure.advance(80.0);
+        pressure.takeIntegral(alpha.getIndex());
+
+        // the draw only returns contributors of the strain, in proportion to their infectivity over the window
+        double w1 = curve.integral(60.0, 80.0);
+        double w2 = curve.integral(12.0, 32.0);
+        int count1 = 0;
+        Random random = new Random(3L);
+        int n = 100_000;
+        for (int k = 0; k < n; k++)
+        {
+            int id = pressure.drawContributor(alpha.getIndex(), random.nextDouble());
+            assertTrue(id == 1 || id == 2);
+            if (id == 1)
+                count1++;
+        }
+        assertEquals(w1 / (w1 + w2), (double) count1 / n, 0.005);
+        assertEquals(3, pressure.drawContributor(delta.getIndex(), 0.7));
+    }
+
+}
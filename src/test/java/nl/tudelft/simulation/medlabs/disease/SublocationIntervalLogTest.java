@@ -0,0 +1,190 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+
+/**
+ * SublocationIntervalLogTest checks the exact exposure doses that the interval log of the deferred transmission mode computes
+ * from the presence intervals, compares the sweep over the interval boundaries with a calculation per pair of intervals, and
+ * checks the reproducibility of its evaluation.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class SublocationIntervalLogTest
+{
+    @Test
+    public void testDoses()
+    {
+        // constant infectivity 1.0 from exposure onwards, so the dose equals the hours spent together
+        InfectivityCurve curve = new InfectivityCurve(new double[] {0.0, 1000.0}, new double[] {1.0, 1.0});
+        SublocationIntervalLog log = new SublocationIntervalLog(null, (short) 0);
+        log.enter(1, SublocationArrays.INFECTIOUS, -10.0f, 10.0);
+        log.enter(2, SublocationArrays.SUSCEPTIBLE, Float.NaN, 10.25);
+        log.enter(3, SublocationArrays.SUSCEPTIBLE, Float.NaN, 10.0);
+        log.leave(1, 10.5);
+        log.leave(3, 10.1);
+        log.enter(1, SublocationArrays.INFECTIOUS, -10.0f, 10.75);
+        log.enter(4, SublocationArrays.OTHER, Float.NaN, 10.0);
+
+        TDoubleList doses = new TDoubleArrayList();
+        log.evaluate(10.0, 11.0, curve, d ->
+        {
+            doses.add(d);
+            return 0.0;
+        }, new SplittableRandom(1L));
+        assertEquals(2, doses.size());
+        // person 2: 10.25-10.5 and 10.75-11.0 with person 1
+        assertEquals(0.5, doses.get(0), 1E-9);
+        // person 3: 10.0-10.1 with person 1
+        assertEquals(0.1, doses.get(1), 1E-9);
+        assertEquals(0, log.getInfected().size());
+        // person 1 is present again at the end of the window
+        assertEquals(0, log.getDepartedInfectious().size());
+    }
+
+    @Test
+    public void testSweepMatchesPairs()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(0.0, 24.0, 72.0, 1.0);
+        SplittableRandom random = new SplittableRandom(7L);
+        SublocationIntervalLog log = new SublocationIntervalLog(null, (short) 0);
+        int nrPersons = 60;
+        int nrInfectious = 8;
+        double windowStart = 100.0;
+        double windowEnd = 110.0;
+
+        // every person has up to 3 intervals in and around the window; the last interval of some persons stays open
+        double[][] enters = new double[nrPersons][];
+        double[][] leaves = new double[nrPersons][];
+        float[] exposures = new float[nrPersons];
+        for (int p = 0; p < nrPersons; p++)
+        {
+            boolean infectious = p >= nrPersons - nrInfectious;
+            exposures[p] = infectious ? (float) (50.0 + random.nextDouble(40.0)) : Float.NaN;
+            int nrIntervals = 1 + random.nextInt(3);
+            double[] times = new double[2 * nrIntervals];
+            for (int t = 0; t < times.length; t++)
+            {
+                times[t] = Math.round(4.0 * (windowStart - 1.0 + random.nextDouble(12.0))) / 4.0;
+            }
+            Arrays.sort(times);
+            enters[p] = new double[nrIntervals];
+            leaves[p] = new double[nrIntervals];
+            for (int k = 0; k < nrIntervals; k++)
+            {
+                enters[p][k] = times[2 * k];
+                leaves[p][k] = k == nrIntervals - 1 && random.nextInt(3) == 0 ? Double.NaN : times[2 * k + 1];
+                log.enter(p, infectious ? SublocationArrays.INFECTIOUS : SublocationArrays.SUSCEPTIBLE, exposures[p],
+                        enters[p][k]);
+                if (!Double.isNaN(leaves[p][k]))
+                    log.leave(p, leaves[p][k]);
+            }
+        }
+
+        // the dose of every susceptible person as the sum over all pairs of its intervals with the infectious intervals
+        TDoubleList expected = new TDoubleArrayList();
+        for (int p = 0; p < nrPersons - nrInfectious; p++)
+        {
+            double dose = 0.0;
+            for (int k = 0; k < enters[p].length; k++)
+            {
+                for (int q = nrPersons - nrInfectious; q < nrPersons; q++)
+                {
+                    for (int m = 0; m < enters[q].length; m++)
+                    {
+                        double from = Math.max(windowStart, Math.max(enters[p][k], enters[q][m]));
+                        double to = Math.min(windowEnd, Math.min(Double.isNaN(leaves[p][k]) ? windowEnd : leaves[p][k],
+                                Double.isNaN(leaves[q][m]) ? windowEnd : leaves[q][m]));
+                        if (to > from)
+                            dose += curve.integral(from - exposures[q], to - exposures[q]);
+                    }
+                }
+            }
+            if (dose > 0.0)
+                expected.add(dose);
+        }
+        assertTrue(expected.size() > 10);
+
+        // the buffers are reused, so a second evaluation of the same log gives the same doses
+        for (int run = 0; run < 2; run++)
+        {
+            TDoubleList doses = new TDoubleArrayList();
+            log.evaluate(windowStart, windowEnd, curve, d ->
+            {
+                if (d > 0.0)
+                    doses.add(d);
+                return 0.0;
+            }, new SplittableRandom(1L));
+            assertEquals(expected.size(), doses.size());
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(expected.get(i), doses.get(i), 1E-9);
+            }
+        }
+    }
+
+    @Test
+    public void testDepartedInfectious()
+    {
+        SublocationIntervalLog log = new SublocationIntervalLog(null, (short) 0);
+        log.enter(1, SublocationArrays.INFECTIOUS, 0.0f, 10.0);
+        log.leave(1, 10.2);
+        log.enter(2, SublocationArrays.INFECTIOUS, 0.0f, 10.1);
+        log.enter(1, SublocationArrays.INFECTIOUS, 0.0f, 10.4);
+        log.leave(1, 10.6);
+        log.enter(3, SublocationArrays.SUSCEPTIBLE, Float.NaN, 10.0);
+        log.leave(3, 10.5);
+
+        // person 1 left twice and is reported once; person 2 is still present, and person 3 is not infectious
+        assertArrayEquals(new int[] {1}, log.getDepartedInfectious().toArray());
+        log.leave(2, 10.8);
+        assertArrayEquals(new int[] {1, 2}, log.getDepartedInfectious().toArray());
+    }
+
+    @Test
+    public void testReproducible()
+    {
+        InfectivityCurve curve = InfectivityCurve.triangular(0.0, 24.0, 72.0, 1.0);
+        int[] first = null;
+        for (int run = 0; run < 2; run++)
+        {
+            SublocationIntervalLog log = new SublocationIntervalLog(null, (short) 0);
+            log.enter(100, SublocationArrays.INFECTIOUS, 0.0f, 24.0);
+            log.enter(101, SublocationArrays.INFECTIOUS, 10.0f, 24.0);
+            for (int i = 0; i < 200; i++)
+            {
+                log.enter(i, SublocationArrays.SUSCEPTIBLE, Float.NaN, 24.0 + i * 0.001);
+            }
+            log.evaluate(24.0, 25.0, curve, d -> 1.0 - Math.exp(-d), new SplittableRandom(42L));
+            assertTrue(log.getInfected().size() > 0);
+            assertEquals(log.getInfected().size(), log.getInfectors().size());
+            for (int k = 0; k < log.getInfectors().size(); k++)
+            {
+                int infector = log.getInfectors().get(k);
+                assertTrue(infector == 100 || infector == 101);
+            }
+            if (first == null)
+                first = log.getInfected().toArray();
+            else
+                assertArrayEquals(first, log.getInfected().toArray());
+        }
+    }
+
+}
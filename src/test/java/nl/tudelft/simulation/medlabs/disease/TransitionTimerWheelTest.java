@@ -0,0 +1,75 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * TransitionTimerWheelTest checks that the timer wheel returns every pending transition exactly once, in the bucket of its due
+ * time and in time order, also for transitions that are due beyond the range of the ring.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitionTimerWheelTest
+{
+    @Test
+    public void testDrainOrder()
+    {
+        assertThrows(MedlabsRuntimeException.class, () -> new TransitionTimerWheel(1.0, 1000));
+        assertThrows(MedlabsRuntimeException.class, () -> new TransitionTimerWheel(0.0, 1024));
+
+        // a small ring of 16 hours, so many transitions go through the overflow area
+        TransitionTimerWheel wheel = new TransitionTimerWheel(1.0, 16);
+        Random random = new Random(3L);
+        int n = 5000;
+        double[] due = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            due[i] = 200.0 * random.nextDouble();
+            wheel.add(i, (byte) 1, (byte) 2, due[i]);
+        }
+        assertEquals(n, wheel.size());
+
+        boolean[] seen = new boolean[n + 1];
+        long previous = -1;
+        int drained = 0;
+        for (long bucket = wheel.nextBucket(); bucket >= 0; bucket = wheel.nextBucket())
+        {
+            assertTrue(bucket > previous, "buckets should be drained in time order");
+            previous = bucket;
+            int count = wheel.drain(bucket);
+            for (int k = 0; k < count; k++)
+            {
+                int id = wheel.getDrainedPersons()[k];
+                assertFalse(seen[id], "transition drained twice");
+                seen[id] = true;
+                assertEquals(bucket, id < n ? wheel.bucketOf(due[id]) : 51L);
+                assertEquals(1, wheel.getDrainedFromPhases()[k]);
+                assertEquals(2, wheel.getDrainedToPhases()[k]);
+            }
+            drained += count;
+            // a transition added while processing, due in a bucket that was already drained, goes to the next bucket
+            if (bucket == 50)
+                wheel.add(n, (byte) 1, (byte) 2, 10.0);
+        }
+        assertEquals(n + 1, drained);
+        assertEquals(0, wheel.size());
+        assertThrows(MedlabsRuntimeException.class, () -> wheel.drain(10));
+    }
+
+}
@@ -0,0 +1,94 @@
+package nl.tudelft.simulation.medlabs.disease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * TransmissionKernelTest checks the selection of a kernel by name, and the sum of the infectivity and the selection of the
+ * susceptible persons of the scalar kernel against a calculation per person. The benchmark of the kernel is
+ * ITTransmissionKernel.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransmissionKernelTest
+{
+    @Test
+    public void testScalarKernel()
+    {
+        assertSame(ScalarTransmissionKernel.INSTANCE, TransmissionKernel.forName("scalar"));
+        assertSame(ScalarTransmissionKernel.INSTANCE, TransmissionKernel.forName(" Scalar "));
+        assertThrows(MedlabsRuntimeException.class, () -> TransmissionKernel.forName("blocked"));
+        assertThrows(MedlabsRuntimeException.class, () -> TransmissionKernel.forName("vector"));
+
+        Random random = new Random(5L);
+        InfectivityCurve[] curves = new InfectivityCurve[] {InfectivityCurve.triangular(48.0, 168.0, 288.0, 1.0),
+                new InfectivityCurve(new double[] {10.0, 50.0, 60.0, 200.0}, new double[] {0.5, 2.0, 1.0, 0.25})};
+        for (InfectivityCurve curve : curves)
+        {
+            for (int n : new int[] {0, 1, 3, 10, 101, 1000})
+            {
+                SublocationArrays persons = fill(new SublocationArrays(4), n, 0.3, random);
+                double now = 400.0;
+                double expected = 0.0;
+                int[] expectedIndices = new int[n];
+                int expectedCount = 0;
+                for (int i = 0; i < n; i++)
+                {
+                    if (persons.getFlags()[i] == SublocationArrays.INFECTIOUS)
+                        expected += curve.value(now - persons.getExposureTimes()[i]);
+                    else if (persons.getFlags()[i] == SublocationArrays.SUSCEPTIBLE)
+                        expectedIndices[expectedCount++] = i;
+                }
+                assertEquals(expected, ScalarTransmissionKernel.INSTANCE.sumInfectivity(persons, now, curve),
+                        1E-12 * Math.max(1.0, expected), "n=" + n);
+
+                int[] indices = new int[n];
+                int count = ScalarTransmissionKernel.INSTANCE.selectSusceptibles(persons, indices);
+                assertEquals(expectedCount, count);
+                assertEquals(persons.getNumberSusceptible(), count);
+                for (int i = 0; i < count; i++)
+                {
+                    assertEquals(expectedIndices[i], indices[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the arrays with random persons, of whom a fraction is infectious, and the rest mostly susceptible.
+     * @param persons SublocationArrays; the arrays to fill
+     * @param n int; the number of persons
+     * @param fractionInfectious double; the fraction of infectious persons
+     * @param random Random; the random generator
+     * @return SublocationArrays; the filled arrays
+     */
+    static SublocationArrays fill(final SublocationArrays persons, final int n, final double fractionInfectious,
+            final Random random)
+    {
+        persons.clear();
+        for (int i = 0; i < n; i++)
+        {
+            double u = random.nextDouble();
+            byte flag = u < fractionInfectious ? SublocationArrays.INFECTIOUS
+                    : u < 0.9 ? SublocationArrays.SUSCEPTIBLE : SublocationArrays.OTHER;
+            persons.add(1000 + i, (float) (400.0 * random.nextDouble()), flag);
+        }
+        return persons;
+    }
+
+}
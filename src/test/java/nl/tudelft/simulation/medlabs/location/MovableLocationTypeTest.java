@@ -0,0 +1,111 @@
+package nl.tudelft.simulation.medlabs.location;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.model.TestModel;
+
+/**
+ * MovableLocationTypeTest checks that moving a movable location to another grid cell updates the grid of its location type,
+ * invalidates only the nearest and max-distance cache entries that scanned the old or the new cell, and removes the
+ * invalidated entries from the dependencies of all cells they scanned, so the dependencies do not grow with the moves.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class MovableLocationTypeTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the start location of the lookups. */
+    private Location start;
+
+    /** the movable location type. */
+    private MovableLocationType busType;
+
+    /**
+     * Create a model with a start location, and a movable location type with a bus about 11 grid cells north of the start
+     * location, and a bus more than 100 grid cells away.
+     * @return MovableLocation[]; the two buses
+     */
+    private MovableLocation[] setup()
+    {
+        this.model = new TestModel();
+        LocationType home = new LocationType(this.model, (byte) 1, "home", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.start = new Location(this.model, 1, home, 52.06f, 4.3f, (short) 1, 100.0f);
+        this.busType = new MovableLocationType(this.model, (byte) 2, "bus", MovableLocation.class, null, false, false, 1.0,
+                false, 1.0, 1.0);
+        MovableLocation near = new MovableLocation(this.model, 10, this.busType, 52.07f, 4.3f, (short) 1, 20.0f);
+        MovableLocation far = new MovableLocation(this.model, 11, this.busType, 53.06f, 4.3f, (short) 1, 20.0f);
+        return new MovableLocation[] {near, far};
+    }
+
+    @Test
+    public void testMoveLocation()
+    {
+        MovableLocation[] buses = setup();
+        MovableLocation bus = buses[0];
+        int oldKey = bus.getGridKey();
+        assertEquals(bus, this.busType.getNearestLocation(this.start));
+        assertEquals(0, this.busType.getLocationListMaxDistanceM(this.start, 500.0).size());
+        assertTrue(this.busType.getNumberOfDependencies() > 0);
+
+        // moving within the same cell does not change the grid or the caches
+        bus.setPosition(52.07f, 4.3001f);
+        assertEquals(oldKey, bus.getGridKey());
+        assertEquals(0L, this.busType.getNumberOfCellChanges());
+
+        // moving the far bus through cells that no cache entry scanned invalidates nothing
+        buses[1].setPosition(53.16f, 4.3f);
+        assertEquals(1L, this.busType.getNumberOfCellChanges());
+        assertEquals(0L, this.busType.getNumberOfInvalidations());
+
+        // moving the near bus next to the start location invalidates the entries of the start cell, for both caches
+        bus.setPosition(52.061f, 4.3f);
+        assertEquals(2L, this.busType.getNumberOfCellChanges());
+        assertEquals(1L, this.busType.getNumberOfInvalidations());
+        assertEquals(0, this.busType.getNumberOfDependencies());
+        assertEquals(1, this.busType.getLocationListMaxDistanceM(this.start, 500.0).size());
+        assertEquals(bus, this.busType.getNearestLocation(this.start));
+        assertEquals(bus.getId(), this.busType.getLocationListMaxDistanceM(this.start, 500.0).get(0));
+    }
+
+    @Test
+    public void testDependenciesDoNotGrow()
+    {
+        MovableLocation bus = setup()[0];
+        this.busType.getNearestLocation(this.start);
+        int dependenciesNear = this.busType.getNumberOfDependencies();
+
+        // a bus further away makes the nearest lookup scan more cells
+        bus.setPosition(52.08f, 4.3f);
+        this.busType.getNearestLocation(this.start);
+        int dependenciesFar = this.busType.getNumberOfDependencies();
+        assertTrue(dependenciesFar > dependenciesNear, dependenciesFar + " <= " + dependenciesNear);
+
+        // moving back and forth leaves exactly the dependencies of the last scan
+        for (int i = 0; i < 10; i++)
+        {
+            bus.setPosition(52.07f, 4.3f);
+            assertEquals(bus, this.busType.getNearestLocation(this.start));
+            assertEquals(dependenciesNear, this.busType.getNumberOfDependencies());
+            bus.setPosition(52.08f, 4.3f);
+            assertEquals(bus, this.busType.getNearestLocation(this.start));
+            assertEquals(dependenciesFar, this.busType.getNumberOfDependencies());
+        }
+        assertEquals(21L, this.busType.getNumberOfInvalidations());
+        assertEquals(21L, this.busType.getNumberOfCellChanges());
+    }
+
+}
@@ -0,0 +1,156 @@
+package nl.tudelft.simulation.medlabs.location;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * ReservationManagerTest checks the bookkeeping of the reservations in the ReservationManager: reserving, arriving at the
+ * reserved location or at another location, replacing a reservation, cancelling, the expiry in the time buckets, and the end
+ * of the expiry checks when no reservations are held.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ReservationManagerTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the location type with capacity constraints. */
+    private LocationType shop;
+
+    /**
+     * Create a model with one location type, two shops and a number of persons.
+     * @param numberOfPersons int; the number of persons
+     * @return Person[]; the persons
+     */
+    private Person[] setup(final int numberOfPersons)
+    {
+        this.model = new TestModel();
+        this.shop = new LocationType(this.model, (byte) 1, "shop", Location.class, null, false, false, 1.0, true, 0.5, 1.0);
+        new Location(this.model, 1, this.shop, 52.0f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 2, this.shop, 52.0f, 4.3f, (short) 1, 100.0f);
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        Person[] persons = new Person[numberOfPersons];
+        for (int i = 0; i < numberOfPersons; i++)
+        {
+            persons[i] = new IdxPerson(this.model, i, false, (byte) 30, 1, (short) 0);
+        }
+        return persons;
+    }
+
+    @Test
+    public void testReserveArriveReplace()
+    {
+        Person[] persons = setup(3);
+        ReservationManager manager = this.model.getReservationManager();
+        Location a = this.model.getLocationMap().get(1);
+        Location b = this.model.getLocationMap().get(2);
+
+        manager.reserve(persons[0], a);
+        manager.reserve(persons[1], a);
+        assertEquals(2, a.getNumberReserved());
+        assertEquals(2, manager.getNumberActive());
+        assertEquals(a, manager.getReservedLocation(persons[0]));
+
+        // renewing the reservation for the same location is not a new reservation
+        manager.reserve(persons[0], a, 1.0);
+        assertEquals(2, a.getNumberReserved());
+        assertEquals(2, manager.getNumberReservations());
+
+        // a reservation for another location replaces the earlier one
+        manager.reserve(persons[1], b);
+        assertEquals(1, a.getNumberReserved());
+        assertEquals(1, b.getNumberReserved());
+        assertEquals(1, manager.getNumberReplaced());
+        assertEquals(3, manager.getNumberReservations());
+
+        // arrival at another location keeps the reservation, arrival at the reserved location fulfills it
+        manager.arrive(persons[0], b);
+        assertEquals(1, a.getNumberReserved());
+        manager.arrive(persons[0], a);
+        assertEquals(0, a.getNumberReserved());
+        assertNull(manager.getReservedLocation(persons[0]));
+        assertEquals(1, manager.getNumberArrivals());
+
+        manager.cancel(persons[1]);
+        manager.cancel(persons[2]);
+        assertEquals(0, b.getNumberReserved());
+        assertEquals(1, manager.getNumberCancelled());
+        assertEquals(0, manager.getNumberActive());
+
+        // in the planning mode, reservations are ignored
+        manager.setPlanning(true);
+        manager.reserve(persons[2], a);
+        manager.setPlanning(false);
+        assertEquals(0, a.getNumberReserved());
+        assertNull(manager.getReservedLocation(persons[2]));
+        assertEquals(3, manager.getNumberReservations());
+    }
+
+    @Test
+    public void testExpire() throws SimRuntimeException
+    {
+        Person[] persons = setup(4);
+        ReservationManager manager = this.model.getReservationManager();
+        manager.setGraceTimeH(0.5);
+        Location a = this.model.getLocationMap().get(1);
+        Location b = this.model.getLocationMap().get(2);
+
+        // expected arrival at 1.0 expires at 1.5; expected arrival at 20.0, beyond the 12 hours of the buckets, at 20.5
+        manager.reserve(persons[0], a, 1.0);
+        manager.reserve(persons[1], a, 1.0);
+        manager.reserve(persons[2], b, 20.0);
+        manager.reserve(persons[3], b, 3.0);
+        manager.arrive(persons[1], a);
+        assertEquals(1, this.model.getTestSimulator().getNumberOfEvents());
+
+        this.model.getTestSimulator().runUntil(1.4);
+        assertEquals(0, manager.getNumberExpired());
+        this.model.getTestSimulator().runUntil(1.5);
+        assertEquals(1, manager.getNumberExpired());
+        assertEquals(0, a.getNumberReserved());
+        assertNull(manager.getReservedLocation(persons[0]));
+
+        // a renewed reservation does not expire at its old expiry time
+        manager.reserve(persons[3], b, 5.0);
+        this.model.getTestSimulator().runUntil(4.0);
+        assertEquals(1, manager.getNumberExpired());
+        this.model.getTestSimulator().runUntil(5.5);
+        assertEquals(2, manager.getNumberExpired());
+
+        // the expiry time beyond the range of the buckets is kept until its time has come
+        this.model.getTestSimulator().runUntil(20.25);
+        assertEquals(2, manager.getNumberExpired());
+        assertEquals(1, b.getNumberReserved());
+        this.model.getTestSimulator().runUntil(20.5);
+        assertEquals(3, manager.getNumberExpired());
+        assertEquals(3, manager.getNumberExpired(this.shop));
+        assertEquals(0, b.getNumberReserved());
+
+        // no reservations are held anymore, so the checks stop, and restart with the next reservation
+        assertEquals(0, manager.getNumberActive());
+        assertEquals(0, this.model.getTestSimulator().getNumberOfEvents());
+        manager.reserve(persons[0], a, 21.0);
+        assertEquals(1, this.model.getTestSimulator().getNumberOfEvents());
+        this.model.getTestSimulator().runUntil(21.5);
+        assertEquals(4, manager.getNumberExpired());
+        assertEquals(0, this.model.getTestSimulator().getNumberOfEvents());
+    }
+
+}
@@ -17,16 +17,21 @@ import nl.tudelft.simulation.dsol.statistics.SimulationStatistic;
 import nl.tudelft.simulation.jstats.distributions.DistUniform;
 import nl.tudelft.simulation.jstats.streams.StreamInterface;
 import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorRegistry;
 import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
 import nl.tudelft.simulation.medlabs.common.ReproducibleRandomGenerator;
 import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
 import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
 import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
 import nl.tudelft.simulation.medlabs.location.Location;
 import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
 import nl.tudelft.simulation.medlabs.person.Person;
 import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonRelations;
 import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
 import nl.tudelft.simulation.medlabs.policy.Policy;
 import nl.tudelft.simulation.medlabs.properties.Properties;
 import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
@@ -391,6 +396,41 @@ public class GridTest
             return null;
         }
 
+        /** {@inheritDoc} */
+        @Override
+        public TravelTimeMatrix getTravelTimeMatrix()
+        {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ClosureState getClosureState()
+        {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public LocatorRegistry getLocatorRegistry()
+        {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public PersonRelations getPersonRelations()
+        {
+            return null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ReservationManager getReservationManager()
+        {
+            return null;
+        }
+
         /** {@inheritDoc} */
         @Override
         public String getPropertyFilename()
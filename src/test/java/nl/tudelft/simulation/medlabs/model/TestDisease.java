@@ -0,0 +1,67 @@
+package nl.tudelft.simulation.medlabs.model;
+
+import nl.tudelft.simulation.medlabs.disease.DiseasePhase;
+import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
+import nl.tudelft.simulation.medlabs.disease.DiseaseState;
+import nl.tudelft.simulation.medlabs.person.Person;
+
+/**
+ * TestDisease is a disease progression for unit tests with a susceptible and an infectious phase. An exposure puts the person
+ * in the exposure phase; there are no scheduled transitions to other phases.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TestDisease extends DiseaseProgression
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /** the susceptible phase. */
+    private final DiseasePhase susceptible;
+
+    /** the infectious phase. */
+    private final DiseasePhase infectious;
+
+    /**
+     * Create the test disease with its two phases.
+     * @param model MedlabsModelInterface; the model
+     */
+    public TestDisease(final MedlabsModelInterface model)
+    {
+        super(model, "test");
+        this.susceptible = addDiseasePhase("susceptible", DiseaseState.SUSCEPTIBLE);
+        this.infectious = addDiseasePhase("infectious", DiseaseState.ILL);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void expose(final Person exposedPerson, final DiseasePhase exposurePhase)
+    {
+        exposedPerson.setDiseasePhase(exposurePhase);
+    }
+
+    /**
+     * @return the susceptible phase
+     */
+    public DiseasePhase getSusceptible()
+    {
+        return this.susceptible;
+    }
+
+    /**
+     * @return the infectious phase
+     */
+    public DiseasePhase getInfectious()
+    {
+        return this.infectious;
+    }
+
+}
@@ -0,0 +1,573 @@
+package nl.tudelft.simulation.medlabs.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.djutils.draw.bounds.Bounds2d;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.dsol.experiment.StreamInformation;
+import nl.tudelft.simulation.dsol.model.inputparameters.InputParameterMap;
+import nl.tudelft.simulation.dsol.statistics.SimulationStatistic;
+import nl.tudelft.simulation.jstats.distributions.DistUniform;
+import nl.tudelft.simulation.jstats.streams.MersenneTwister;
+import nl.tudelft.simulation.jstats.streams.StreamInterface;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.locator.LocatorRegistry;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
+import nl.tudelft.simulation.medlabs.common.ReproducibleRandomGenerator;
+import nl.tudelft.simulation.medlabs.disease.DiseaseMonitor;
+import nl.tudelft.simulation.medlabs.disease.DiseaseProgression;
+import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.ReservationManager;
+import nl.tudelft.simulation.medlabs.person.HybridRegions;
+import nl.tudelft.simulation.medlabs.person.LazyPersons;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonMonitor;
+import nl.tudelft.simulation.medlabs.person.PersonRelations;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.policy.ClosureState;
+import nl.tudelft.simulation.medlabs.policy.Policy;
+import nl.tudelft.simulation.medlabs.properties.Properties;
+import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
+
+/**
+ * TestModel is a model for unit tests with real maps of persons, locations and location types, a closure state, a reservation
+ * manager, a locator registry and seeded random streams, running on a TestSimulator instead of a DSOL replication. The
+ * monitors, the input parameters and the properties are not available. Components that a test needs, such as a disease
+ * progression, a travel time matrix or the hybrid regions, can be set.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TestModel implements MedlabsModelInterface
+{
+    /** */
+    private static final long serialVersionUID = 1L;
+
+    /** the event list. */
+    private final TestSimulator testSimulator = new TestSimulator();
+
+    /** the stream information with the default stream. */
+    private StreamInformation streamInformation;
+
+    /** the random stream. */
+    private final StreamInterface randomStream;
+
+    /** the uniform distribution on the random stream. */
+    private final DistUniform u01;
+
+    /** the reproducible random generator. */
+    private final ReproducibleRandomGenerator reproducibleJava2Random;
+
+    /** the persons. */
+    private final TIntObjectMap<Person> personMap = new TIntObjectHashMap<>();
+
+    /** the person types. */
+    private final List<PersonType> personTypeList = new ArrayList<>();
+
+    /** the person types per class. */
+    private final Map<Class<? extends Person>, PersonType> personTypeClassMap = new HashMap<>();
+
+    /** the family members per home location. */
+    private final TIntObjectMap<TIntSet> familyMembersByHomeLocation = new TIntObjectHashMap<>();
+
+    /** the person relations, built on the first call. */
+    private PersonRelations personRelations = null;
+
+    /** the location types per name. */
+    private final Map<String, LocationType> locationTypeNameMap = new LinkedHashMap<>();
+
+    /** the location types per id. */
+    private final Map<Byte, LocationType> locationTypeIndexMap = new HashMap<>();
+
+    /** the location types. */
+    private final List<LocationType> locationTypeList = new ArrayList<>();
+
+    /** the locations. */
+    private final TIntObjectMap<Location> locationMap = new TIntObjectHashMap<>();
+
+    /** the week patterns per name. */
+    private final Map<String, WeekPattern> weekPatternMap = new LinkedHashMap<>();
+
+    /** the week patterns. */
+    private final List<WeekPattern> weekPatternList = new ArrayList<>();
+
+    /** all policies. */
+    private final Map<String, Policy> allPolicies = new LinkedHashMap<>();
+
+    /** the active policies. */
+    private final Map<String, Policy> activePolicies = new LinkedHashMap<>();
+
+    /** the closure state. */
+    private final ClosureState closureState = new ClosureState();
+
+    /** the locator registry. */
+    private final LocatorRegistry locatorRegistry = new LocatorRegistry();
+
+    /** the reservation manager. */
+    private final ReservationManager reservationManager;
+
+    /** the location type of the homes. */
+    private LocationType locationTypeHouse = null;
+
+    /** the disease progression. */
+    private DiseaseProgression diseaseProgression = null;
+
+    /** the disease transmission. */
+    private DiseaseTransmission diseaseTransmission = null;
+
+    /** the travel time matrix. */
+    private TravelTimeMatrix travelTimeMatrix = null;
+
+    /** the location for walking, or null. */
+    private Location locationWalk = null;
+
+    /** the regions of the hybrid mode. */
+    private HybridRegions hybridRegions = null;
+
+    /** the lazy mobility mode. */
+    private LazyPersons lazyPersons = null;
+
+    /** the activity monitor. */
+    private ActivityMonitor activityMonitor = null;
+
+    /** the person monitor. */
+    private PersonMonitor personMonitor = null;
+
+    /** the disease monitor. */
+    private DiseaseMonitor diseaseMonitor = null;
+
+    /** the input parameters, or null. */
+    private InputParameterMap inputParameterMap = null;
+
+    /**
+     * Create a test model with seed 1.
+     */
+    public TestModel()
+    {
+        this(1L);
+    }
+
+    /**
+     * Create a test model.
+     * @param seed long; the seed of the random stream
+     */
+    public TestModel(final long seed)
+    {
+        this.streamInformation = new StreamInformation();
+        this.streamInformation.addStream("default", new MersenneTwister(seed));
+        this.randomStream = new MersenneTwister(seed + 1L);
+        this.u01 = new DistUniform(this.randomStream, 0.0, 1.0);
+        this.reproducibleJava2Random = new ReproducibleRandomGenerator(seed + 2L);
+        this.reservationManager = new ReservationManager(this);
+    }
+
+    /**
+     * @return the event list of the simulator of the model
+     */
+    public TestSimulator getTestSimulator()
+    {
+        return this.testSimulator;
+    }
+
+    /**
+     * @param locationTypeHouse LocationType; the location type of the homes
+     */
+    public void setLocationTypeHouse(final LocationType locationTypeHouse)
+    {
+        this.locationTypeHouse = locationTypeHouse;
+    }
+
+    /**
+     * @param locationWalk Location; the location for walking
+     */
+    public void setLocationWalk(final Location locationWalk)
+    {
+        this.locationWalk = locationWalk;
+    }
+
+    /**
+     * @param travelTimeMatrix TravelTimeMatrix; the travel time matrix
+     */
+    public void setTravelTimeMatrix(final TravelTimeMatrix travelTimeMatrix)
+    {
+        this.travelTimeMatrix = travelTimeMatrix;
+    }
+
+    /**
+     * @param hybridRegions HybridRegions; the regions of the hybrid mode, or null
+     */
+    public void setHybridRegions(final HybridRegions hybridRegions)
+    {
+        this.hybridRegions = hybridRegions;
+    }
+
+    /**
+     * @param lazyPersons LazyPersons; the lazy mobility mode, or null
+     */
+    public void setLazyPersons(final LazyPersons lazyPersons)
+    {
+        this.lazyPersons = lazyPersons;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Bounds2d getExtent()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void constructModel() throws SimRuntimeException
+    {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<SimulationStatistic<Double>> getOutputStatistics()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setStreamInformation(final StreamInformation streamInformation)
+    {
+        this.streamInformation = streamInformation;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public StreamInformation getStreamInformation()
+    {
+        return this.streamInformation;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SimpleDevsSimulatorInterface getSimulator()
+    {
+        return this.testSimulator.getSimulator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isInteractive()
+    {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setInteractive(final boolean interactive)
+    {
+    }
+
+    /**
+     * @param inputParameterMap InputParameterMap; the input parameters, e.g., for a disease model that reads its parameters
+     */
+    public void setInputParameterMap(final InputParameterMap inputParameterMap)
+    {
+        this.inputParameterMap = inputParameterMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputParameterMap getInputParameterMap()
+    {
+        return this.inputParameterMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public StreamInterface getRandomStream()
+    {
+        return this.randomStream;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DistUniform getU01()
+    {
+        return this.u01;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ReproducibleRandomGenerator getReproducibleJava2Random()
+    {
+        return this.reproducibleJava2Random;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TIntObjectMap<Person> getPersonMap()
+    {
+        return this.personMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<PersonType> getPersonTypeList()
+    {
+        return this.personTypeList;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<Class<? extends Person>, PersonType> getPersonTypeClassMap()
+    {
+        return this.personTypeClassMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TIntObjectMap<TIntSet> getFamilyMembersByHomeLocation()
+    {
+        return this.familyMembersByHomeLocation;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PersonRelations getPersonRelations()
+    {
+        if (this.personRelations == null)
+            this.personRelations = new PersonRelations(this.personMap);
+        return this.personRelations;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public HybridRegions getHybridRegions()
+    {
+        return this.hybridRegions;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LazyPersons getLazyPersons()
+    {
+        return this.lazyPersons;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Properties getPersonProperties()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, LocationType> getLocationTypeNameMap()
+    {
+        return this.locationTypeNameMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<Byte, LocationType> getLocationTypeIndexMap()
+    {
+        return this.locationTypeIndexMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<LocationType> getLocationTypeList()
+    {
+        return this.locationTypeList;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TIntObjectMap<Location> getLocationMap()
+    {
+        return this.locationMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, WeekPattern> getWeekPatternMap()
+    {
+        return this.weekPatternMap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<WeekPattern> getWeekPatternList()
+    {
+        return this.weekPatternList;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void checkChangeActivityPattern(final Person person)
+    {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setActivityMonitor(final ActivityMonitor activityMonitor)
+    {
+        this.activityMonitor = activityMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public PersonMonitor getPersonMonitor()
+    {
+        return this.personMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setPersonMonitor(final PersonMonitor personMonitor)
+    {
+        this.personMonitor = personMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ActivityMonitor getActivityMonitor()
+    {
+        return this.activityMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setDiseaseProgression(final DiseaseProgression diseaseProgression)
+    {
+        this.diseaseProgression = diseaseProgression;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DiseaseProgression getDiseaseProgression()
+    {
+        return this.diseaseProgression;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setDiseaseTransmission(final DiseaseTransmission diseaseTransmission)
+    {
+        this.diseaseTransmission = diseaseTransmission;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DiseaseTransmission getDiseaseTransmission()
+    {
+        return this.diseaseTransmission;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setDiseaseMonitor(final DiseaseMonitor diseaseMonitor)
+    {
+        this.diseaseMonitor = diseaseMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DiseaseMonitor getDiseaseMonitor()
+    {
+        return this.diseaseMonitor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Policy> getAllPolicies()
+    {
+        return this.allPolicies;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Policy> getActivePolicies()
+    {
+        return this.activePolicies;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LocationType getLocationTypeHouse()
+    {
+        return this.locationTypeHouse;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Location getLocationWalk()
+    {
+        return this.locationWalk;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Location getLocationBike()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Location getLocationCar()
+    {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TravelTimeMatrix getTravelTimeMatrix()
+    {
+        return this.travelTimeMatrix;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ClosureState getClosureState()
+    {
+        return this.closureState;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public LocatorRegistry getLocatorRegistry()
+    {
+        return this.locatorRegistry;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ReservationManager getReservationManager()
+    {
+        return this.reservationManager;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getPropertyFilename()
+    {
+        return null;
+    }
+
+}
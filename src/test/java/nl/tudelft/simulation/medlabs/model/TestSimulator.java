@@ -0,0 +1,209 @@
+package nl.tudelft.simulation.medlabs.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.PriorityQueue;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.dsol.formalisms.eventscheduling.SimEventInterface;
+import nl.tudelft.simulation.medlabs.simulation.SimpleDevsSimulatorInterface;
+import nl.tudelft.simulation.medlabs.simulation.TimeUnit;
+import nl.tudelft.simulation.medlabs.simulation.TinySimEvent;
+
+/**
+ * TestSimulator is a minimal event list for unit tests that need a simulator, without a DSOL replication. It implements the
+ * scheduling methods and the simulator time of SimpleDevsSimulatorInterface through a dynamic proxy; the events are executed
+ * in time order by runUntil(). Other methods of the interface throw an UnsupportedOperationException.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TestSimulator implements InvocationHandler
+{
+    /** the current simulation time in hours. */
+    private double time = 0.0;
+
+    /** the boxed current simulation time, returned by getSimulatorTime without allocating a new Double for each call. */
+    private Double boxedTime = 0.0;
+
+    /** the sequence number of the next event, to execute events with the same time in the order of scheduling. */
+    private long sequence = 0L;
+
+    /** the scheduled events. */
+    private final PriorityQueue<Entry> eventList = new PriorityQueue<>();
+
+    /** the proxy that implements the simulator interface. */
+    private final SimpleDevsSimulatorInterface simulator;
+
+    /**
+     * Create an empty event list at time 0.
+     */
+    public TestSimulator()
+    {
+        this.simulator = (SimpleDevsSimulatorInterface) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {SimpleDevsSimulatorInterface.class}, this);
+    }
+
+    /**
+     * @return the simulator interface that schedules on this event list
+     */
+    public SimpleDevsSimulatorInterface getSimulator()
+    {
+        return this.simulator;
+    }
+
+    /**
+     * @return the current simulation time in hours
+     */
+    public double getTime()
+    {
+        return this.time;
+    }
+
+    /**
+     * @return the number of scheduled events
+     */
+    public int getNumberOfEvents()
+    {
+        return this.eventList.size();
+    }
+
+    /**
+     * Execute the scheduled events up to and including the given time, and set the simulation time to that time.
+     * @param until double; the time in hours up to which to execute the events
+     * @throws SimRuntimeException when the execution of an event fails
+     */
+    public void runUntil(final double until) throws SimRuntimeException
+    {
+        while (!this.eventList.isEmpty() && this.eventList.peek().time <= until)
+        {
+            Entry entry = this.eventList.poll();
+            setTime(entry.time);
+            entry.event.execute();
+        }
+        setTime(Math.max(this.time, until));
+    }
+
+    /**
+     * Set the simulation time, and box it once for getSimulatorTime.
+     * @param newTime double; the new simulation time in hours
+     */
+    private void setTime(final double newTime)
+    {
+        if (newTime != this.time)
+        {
+            this.time = newTime;
+            this.boxedTime = newTime;
+        }
+    }
+
+    /**
+     * Add an event to the event list.
+     * @param eventTime double; the absolute time of the event
+     * @param event SimEventInterface&lt;Double&gt;; the event
+     */
+    private void schedule(final double eventTime, final SimEventInterface<Double> event)
+    {
+        this.eventList.add(new Entry(Math.max(eventTime, this.time), this.sequence++, event));
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+    {
+        int n = args == null ? 0 : args.length;
+        switch (method.getName())
+        {
+            case "getSimulatorTime":
+                return this.boxedTime;
+
+            case "getWeekDay":
+                return (byte) (((int) Math.floor(this.time / 24.0)) % 7);
+
+            case "scheduleEvent":
+            {
+                SimEventInterface<Double> event = (SimEventInterface<Double>) args[0];
+                schedule(event.getAbsoluteExecutionTime(), event);
+                return event;
+            }
+
+            case "scheduleEventRel":
+            case "scheduleEventAbs":
+            {
+                // (time, target, method, args) or (time, unit, target, method, args)
+                double t = ((Number) args[0]).doubleValue();
+                if (n == 5)
+                    t = TimeUnit.convert(t, (TimeUnit) args[1]);
+                if (method.getName().equals("scheduleEventRel"))
+                    t += this.time;
+                TinySimEvent event = new TinySimEvent(t, args[n - 3], (String) args[n - 2], (Object[]) args[n - 1]);
+                schedule(t, event);
+                return method.getReturnType().equals(void.class) ? null : event;
+            }
+
+            case "scheduleEventNow":
+            {
+                TinySimEvent event = new TinySimEvent(this.time, args[0], (String) args[1], (Object[]) args[2]);
+                schedule(this.time, event);
+                return event;
+            }
+
+            case "hashCode":
+                return System.identityHashCode(proxy);
+
+            case "equals":
+                return proxy == args[0];
+
+            case "toString":
+                return "TestSimulator [time=" + this.time + ", events=" + this.eventList.size() + "]";
+
+            default:
+                throw new UnsupportedOperationException("TestSimulator does not implement " + method.getName());
+        }
+    }
+
+    /**
+     * Entry of the event list.
+     */
+    private static class Entry implements Comparable<Entry>
+    {
+        /** the absolute time of the event. */
+        private final double time;
+
+        /** the sequence number of the event. */
+        private final long sequence;
+
+        /** the event. */
+        private final SimEventInterface<Double> event;
+
+        /**
+         * @param time double; the absolute time of the event
+         * @param sequence long; the sequence number of the event
+         * @param event SimEventInterface&lt;Double&gt;; the event
+         */
+        Entry(final double time, final long sequence, final SimEventInterface<Double> event)
+        {
+            this.time = time;
+            this.sequence = sequence;
+            this.event = event;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int compareTo(final Entry other)
+        {
+            int c = Double.compare(this.time, other.time);
+            return c != 0 ? c : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+}
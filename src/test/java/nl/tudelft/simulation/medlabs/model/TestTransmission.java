@@ -0,0 +1,51 @@
+package nl.tudelft.simulation.medlabs.model;
+
+import gnu.trove.set.TIntSet;
+import nl.tudelft.simulation.medlabs.disease.DiseaseTransmission;
+import nl.tudelft.simulation.medlabs.disease.InfectionRecord;
+import nl.tudelft.simulation.medlabs.location.Location;
+
+/**
+ * TestTransmission is a disease transmission for unit tests in which persons enter and leave locations without being infected.
+ * The bookkeeping of the infected sublocations in DiseaseTransmission still takes place, but infectPeople never calculates an
+ * exposure.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TestTransmission extends DiseaseTransmission
+{
+    /** */
+    private static final long serialVersionUID = 20240601L;
+
+    /**
+     * Create the test transmission.
+     * @param model MedlabsModelInterface; the model
+     */
+    public TestTransmission(final MedlabsModelInterface model)
+    {
+        super(model, "test");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InfectionRecord infectPeople(final Location location, final TIntSet personsInSublocation, final double duration)
+    {
+        return getInfectionRecord(null, location);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setParameter(final String parameterName, final double value)
+    {
+        // no parameters
+    }
+
+}
@@ -0,0 +1,209 @@
+package nl.tudelft.simulation.medlabs.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * AsyncOutputTest checks that the AsyncOutput writes the records of each file in order, makes the producer wait when the ring
+ * buffer is full, writes and flushes all records at close, and reports a failure of the I/O thread on the producer thread.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class AsyncOutputTest
+{
+    /** the directory for the output files. */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Return the expected content of a file with a number of numbered records.
+     * @param prefix String; the prefix of each record
+     * @param n int; the number of records
+     * @return String; the expected content
+     */
+    private static String records(final String prefix, final int n)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++)
+        {
+            sb.append(prefix).append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRecordOrdering()
+    {
+        // two files that are written alternately through a small ring buffer keep the order of their own records
+        AsyncOutput output = new AsyncOutput(16, 1L, 1024L);
+        StringWriter a = new StringWriter();
+        StringWriter b = new StringWriter();
+        PrintWriter writerA = output.open(a);
+        PrintWriter writerB = output.open(b);
+        int n = 20_000;
+        for (int i = 0; i < n; i++)
+        {
+            writerA.print("a" + i + "\n");
+            writerA.flush();
+            if (i % 3 == 0)
+            {
+                writerB.print("b" + i / 3 + "\n");
+                writerB.flush();
+            }
+        }
+        output.close();
+        assertEquals(records("a", n), a.toString());
+        assertEquals(records("b", (n + 2) / 3), b.toString());
+        assertEquals(n + (n + 2) / 3, output.getNrRecords());
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException
+    {
+        // the I/O thread blocks on the first write, so the producer has to wait once the ring buffer of 4 records is full
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StringWriter target = new StringWriter();
+        Writer blocking = new Writer()
+        {
+            @Override
+            public void write(final char[] cbuf, final int off, final int len) throws IOException
+            {
+                entered.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ie)
+                {
+                    throw new IOException(ie);
+                }
+                target.write(cbuf, off, len);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        AsyncOutput output = new AsyncOutput(4, 1L, 1L);
+        PrintWriter writer = output.open(blocking);
+        int n = 100;
+        Thread producer = new Thread(() ->
+        {
+            for (int i = 0; i < n; i++)
+            {
+                writer.print("r" + i + "\n");
+                writer.flush();
+            }
+        });
+        producer.start();
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (producer.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        assertTrue(producer.isAlive(), "producer did not wait for the blocked I/O thread");
+        release.countDown();
+        producer.join(10_000L);
+        assertTrue(output.getBackpressureWaits() > 0);
+        output.close();
+        assertEquals(records("r", n), target.toString());
+    }
+
+    @Test
+    public void testFlushOnClose() throws IOException
+    {
+        // with a flush interval of an hour and a large flush size, the records only reach the file at close
+        Path file = this.tempDir.resolve("output.csv");
+        AsyncOutput output = new AsyncOutput(64, 3_600_000L, 1L << 30);
+        PrintWriter writer = output.open(file.toString());
+        writer.println("header");
+        writer.flush();
+        writer.println("line 1");
+        writer.flush();
+        // a record that is not flushed is handed over at close as well
+        writer.print("last line");
+        assertEquals(0L, Files.size(file));
+        output.close();
+        assertEquals(List.of("header", "line 1", "last line"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(3L, output.getNrRecords());
+
+        // records after close are refused, and closing again has no effect
+        writer.println("too late");
+        assertThrows(MedlabsRuntimeException.class, () -> writer.flush());
+        output.close();
+    }
+
+    @Test
+    public void testWriterFailure()
+    {
+        // a failure of the I/O thread is reported at one of the next records, and at close
+        Writer failing = new Writer()
+        {
+            @Override
+            public void write(final char[] cbuf, final int off, final int len) throws IOException
+            {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        AsyncOutput output = new AsyncOutput(16, 1L, 1L);
+        PrintWriter writer = output.open(failing);
+        MedlabsRuntimeException exception = assertThrows(MedlabsRuntimeException.class, () ->
+        {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (System.nanoTime() < deadline)
+            {
+                writer.println("record");
+                writer.flush();
+                Thread.sleep(1);
+            }
+        });
+        assertTrue(exception.getCause() instanceof IOException);
+        assertEquals("disk full", exception.getCause().getMessage());
+        exception = assertThrows(MedlabsRuntimeException.class, () -> output.close());
+        assertTrue(exception.getCause() instanceof IOException);
+    }
+
+}
@@ -114,6 +114,11 @@ public class ConditionalProbabilityTest
         {
         }
 
+        @Override
+        public void resumeActivity(final int activityIndex, final Location location, final double remainingH)
+        {
+        }
+
         @Override
         public int getAge()
         {
@@ -204,6 +209,12 @@ public class ConditionalProbabilityTest
         {
         }
 
+        @Override
+        public WeekPattern getPendingWeekPattern()
+        {
+            return null;
+        }
+
         @Override
         public void setExposureTime(final float exposureTime)
         {
@@ -0,0 +1,156 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.FixedDurationActivity;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * HybridRegionsTest runs a susceptible person in one region and an infectious commuter from another region on the
+ * TestSimulator, and checks that the region of the susceptible person is dormant at the start, that the commuter activates it
+ * and materialises the person at the planned location, that the region becomes dormant again after the dormant period and
+ * the person is parked, and that the occupancy profile only counts the persons of dormant regions.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class HybridRegionsTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the hybrid regions. */
+    private HybridRegions hybrid;
+
+    /**
+     * Create a model with a home and a workplace at the same position, and a second home about 11 km away, so the second home
+     * is in another region of 10 by 10 grid cells. Person 0 is susceptible and lives in location 1, person 1 is infectious and
+     * lives in location 2, and both work in location 3. The persons stay at home until 8:00, work for 8 hours, and are at home
+     * for the rest of the day. Regions become dormant after half a day without infectious persons.
+     * @return Person[]; the two persons
+     */
+    private Person[] setup()
+    {
+        this.model = new TestModel();
+        LocationType house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType work = new LocationType(this.model, (byte) 1, "work", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        TestDisease disease = new TestDisease(this.model);
+        this.model.setDiseaseProgression(disease);
+        this.model.setDiseaseTransmission(new TestTransmission(this.model));
+        this.model.setActivityMonitor(new ActivityMonitor(this.model));
+        new Location(this.model, 1, house, 52.06f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 2, house, 52.16f, 4.3f, (short) 1, 100.0f);
+        Location office = new Location(this.model, 3, work, 52.06f, 4.3f, (short) 1, 100.0f);
+
+        Activity sleeping = new UntilFixedTimeActivity(this.model, "sleep", p -> p.getHomeLocation(), 8.0);
+        Activity working = new FixedDurationActivity(this.model, "work", p -> office, 8.0);
+        Activity relaxing = new FixedDurationActivity(this.model, "relax", p -> p.getHomeLocation(), 4.0);
+        new WeekDayPattern(this.model, "week", new DayPattern(this.model, List.of(sleeping, working, relaxing)));
+
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        Person[] persons = new Person[2];
+        for (int i = 0; i < 2; i++)
+        {
+            persons[i] = new IdxPerson(this.model, i, false, (byte) 30, i + 1, (short) 0);
+        }
+        persons[0].setDiseasePhase(disease.getSusceptible());
+        persons[1].setDiseasePhase(disease.getInfectious());
+        this.hybrid = new HybridRegions(this.model, 10, 0.5);
+        this.model.setHybridRegions(this.hybrid);
+        this.hybrid.start();
+        return persons;
+    }
+
+    @Test
+    public void testActivateAndPark() throws SimRuntimeException
+    {
+        Person[] persons = setup();
+        Location home = this.model.getLocationMap().get(1);
+        Location otherHome = this.model.getLocationMap().get(2);
+        Location office = this.model.getLocationMap().get(3);
+
+        // only the region of the infectious person is active, and only that person has been initialized
+        assertEquals(2, this.hybrid.getNumberOfRegions());
+        assertEquals(1, this.hybrid.getNumberActive());
+        assertTrue(this.hybrid.isActive(otherHome));
+        assertFalse(this.hybrid.isActive(home));
+        assertEquals(1, this.hybrid.getNumberRunning());
+        assertFalse(this.hybrid.isRunning(persons[0]));
+        assertTrue(otherHome.getAllPersonIds().contains(1));
+        assertFalse(home.getAllPersonIds().contains(0));
+
+        // the dormant person is counted in the occupancy of the office at 10:00 and of the home at 2:00; the active one is not
+        assertEquals(1, this.hybrid.getDormantOccupancy(office, 10));
+        assertEquals(1, this.hybrid.getDormantOccupancy(home, 2));
+        assertEquals(0, this.hybrid.getDormantOccupancy(otherHome, 10));
+
+        // at 8:00 the infectious commuter enters the office, which activates the region, and person 0 starts working
+        this.model.getTestSimulator().runUntil(8.5);
+        assertEquals(2, this.hybrid.getNumberActive());
+        assertTrue(this.hybrid.isRunning(persons[0]));
+        assertEquals(2, this.hybrid.getNumberRunning());
+        assertEquals(office, persons[0].getCurrentLocation());
+        assertTrue(office.getAllPersonIds().contains(0));
+        assertTrue(office.getAllPersonIds().contains(1));
+        assertEquals(0, this.hybrid.getDormantOccupancy(office, 10));
+
+        // the region stays active for the rest of the day, and person 0 goes home after work
+        this.model.getTestSimulator().runUntil(16.5);
+        assertEquals(home, persons[0].getCurrentLocation());
+        assertTrue(home.getAllPersonIds().contains(0));
+
+        // at midnight the last infectious person was seen 16 hours ago, so the region is dormant and person 0 is parked
+        this.model.getTestSimulator().runUntil(24.5);
+        assertEquals(1, this.hybrid.getNumberActive());
+        assertFalse(this.hybrid.isActive(office));
+        assertFalse(this.hybrid.isRunning(persons[0]));
+        assertEquals(1, this.hybrid.getNumberRunning());
+        assertFalse(home.getAllPersonIds().contains(0));
+        assertEquals(1, this.hybrid.getDormantOccupancy(office, 24 + 10));
+
+        // the commuter activates the region again the next morning, and person 0 is materialised in the office
+        this.model.getTestSimulator().runUntil(32.5);
+        assertTrue(this.hybrid.isRunning(persons[0]));
+        assertEquals(office, persons[0].getCurrentLocation());
+        assertTrue(office.getAllPersonIds().contains(0));
+    }
+
+    @Test
+    public void testArguments()
+    {
+        this.model = new TestModel();
+        assertThrows(MedlabsRuntimeException.class, () -> new HybridRegions(this.model, 0, 1.0));
+        assertThrows(MedlabsRuntimeException.class, () -> new HybridRegions(this.model, 10, -1.0));
+        assertThrows(NullPointerException.class, () -> new HybridRegions(null, 10, 1.0));
+    }
+
+}
@@ -0,0 +1,199 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.FixedDurationActivity;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * LazyPersonsTest runs two persons with the same day pattern on the TestSimulator, and checks that their days are resolved
+ * lazily when no infectious person was present in their planned locations, that they are materialised with the remaining
+ * part of the planned activity when an infectious person enters one of these locations, that the planned person-hours are
+ * corrected for the materialised persons, that a lazy person who becomes ill is materialised at once, and that an ill
+ * person is never lazy.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LazyPersonsTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the disease with a susceptible and an infectious phase. */
+    private TestDisease disease;
+
+    /** the lazy mobility mode. */
+    private LazyPersons lazy;
+
+    /**
+     * Create a model with two homes and a workplace, and two susceptible persons who stay at home until 8:00, work for 8 hours,
+     * and are at home for the rest of the day. Person 0 lives in location 1, person 1 in location 2, and both work in location
+     * 3. The lazy mobility mode is started after the persons have been initialized.
+     * @return Person[]; the two persons
+     */
+    private Person[] setup()
+    {
+        this.model = new TestModel();
+        LocationType house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType work = new LocationType(this.model, (byte) 1, "work", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.disease = new TestDisease(this.model);
+        this.model.setDiseaseProgression(this.disease);
+        this.model.setDiseaseTransmission(new TestTransmission(this.model));
+        this.model.setActivityMonitor(new ActivityMonitor(this.model));
+        new Location(this.model, 1, house, 52.06f, 4.3f, (short) 1, 100.0f);
+        new Location(this.model, 2, house, 52.07f, 4.3f, (short) 1, 100.0f);
+        Location office = new Location(this.model, 3, work, 52.08f, 4.3f, (short) 1, 100.0f);
+
+        Activity sleeping = new UntilFixedTimeActivity(this.model, "sleep", p -> p.getHomeLocation(), 8.0);
+        Activity working = new FixedDurationActivity(this.model, "work", p -> office, 8.0);
+        Activity relaxing = new FixedDurationActivity(this.model, "relax", p -> p.getHomeLocation(), 4.0);
+        new WeekDayPattern(this.model, "week", new DayPattern(this.model, List.of(sleeping, working, relaxing)));
+
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        Person[] persons = new Person[2];
+        for (int i = 0; i < 2; i++)
+        {
+            persons[i] = new IdxPerson(this.model, i, false, (byte) 30, i + 1, (short) 0);
+            persons[i].setDiseasePhase(this.disease.getSusceptible());
+        }
+        this.lazy = new LazyPersons(this.model);
+        this.model.setLazyPersons(this.lazy);
+        for (Person person : persons)
+        {
+            person.init();
+        }
+        this.lazy.start();
+        return persons;
+    }
+
+    @Test
+    public void testLazyAndMaterialisedDays() throws SimRuntimeException
+    {
+        Person[] persons = setup();
+        Location home = this.model.getLocationMap().get(1);
+        Location office = this.model.getLocationMap().get(3);
+
+        // the first day is carried out, because the persons were initialized before the lazy mode started
+        this.model.getTestSimulator().runUntil(12.0);
+        assertEquals(office, persons[0].getCurrentLocation());
+        assertEquals(0, this.lazy.getNumberLazy());
+
+        // at the end of the first day no infectious person has been seen, so both persons are lazy on day 1
+        this.model.getTestSimulator().runUntil(24.5);
+        assertTrue(this.lazy.isLazy(persons[0]));
+        assertTrue(this.lazy.isLazy(persons[1]));
+        assertEquals(2L, this.lazy.getNumberLazyDays());
+        assertFalse(home.getAllPersonIds().contains(0));
+        assertEquals(16.0, this.lazy.getLazyPresenceHours(office, 0, 1), 1E-9);
+        assertEquals(16.0, this.lazy.getLazyPresenceHours(home, 0, 1), 1E-9);
+
+        // the next midnight ends the lazy days and resolves day 2 lazily; the counters of day 1 are kept
+        this.model.getTestSimulator().runUntil(48.5);
+        assertEquals(2, this.lazy.getNumberLazy());
+        assertEquals(4L, this.lazy.getNumberLazyDays());
+        assertEquals(16.0, this.lazy.getLazyPresenceHours(office, 0, 2), 1E-9);
+        assertEquals(16.0, this.lazy.getLazyPresenceHours(office, 0, 1), 1E-9);
+
+        // an infectious person enters the office at 10:00, and both persons continue with the 6 remaining hours of work
+        this.model.getTestSimulator().runUntil(58.0);
+        this.lazy.infectiousEnters(office, 0);
+        assertEquals(2L, this.lazy.getNumberMaterialised());
+        assertEquals(0, this.lazy.getNumberLazy());
+        assertEquals(office, persons[0].getCurrentLocation());
+        assertTrue(office.getAllPersonIds().contains(0));
+        assertTrue(office.getAllPersonIds().contains(1));
+        assertEquals(4.0, this.lazy.getLazyPresenceHours(office, 0, 2), 1E-9);
+        assertEquals(8.0, this.lazy.getLazyPresenceHours(home, 0, 2), 1E-9);
+
+        // the persons follow their day pattern again, and go home after the remaining hours of work
+        this.model.getTestSimulator().runUntil(64.5);
+        assertEquals(home, persons[0].getCurrentLocation());
+        assertTrue(home.getAllPersonIds().contains(0));
+
+        // the infectious visit to the office was less than a day ago at the end of day 2, so day 3 is carried out
+        this.model.getTestSimulator().runUntil(72.5);
+        assertEquals(0, this.lazy.getNumberLazy());
+        assertEquals(4L, this.lazy.getNumberLazyDays());
+        assertTrue(home.getAllPersonIds().contains(0));
+
+        // at the end of day 3, the infectious visit is more than a day ago
+        this.model.getTestSimulator().runUntil(96.5);
+        assertEquals(2, this.lazy.getNumberLazy());
+        assertEquals(6L, this.lazy.getNumberLazyDays());
+    }
+
+    @Test
+    public void testEndedVisitsAndIllPersons() throws SimRuntimeException
+    {
+        Person[] persons = setup();
+        Location home = this.model.getLocationMap().get(1);
+        Location otherHome = this.model.getLocationMap().get(2);
+        Location office = this.model.getLocationMap().get(3);
+        this.model.getTestSimulator().runUntil(41.0);
+        assertEquals(2, this.lazy.getNumberLazy());
+
+        // at 17:00 the persons have left the office, so an infectious person in the office does not materialise them
+        this.lazy.infectiousEnters(office, 0);
+        assertEquals(0L, this.lazy.getNumberMaterialised());
+        assertEquals(2, this.lazy.getNumberLazy());
+
+        // an infectious person in the home of person 0 materialises person 0 only, in the evening at home
+        this.lazy.infectiousEnters(home, 0);
+        assertEquals(1L, this.lazy.getNumberMaterialised());
+        assertFalse(this.lazy.isLazy(persons[0]));
+        assertTrue(this.lazy.isLazy(persons[1]));
+        assertTrue(home.getAllPersonIds().contains(0));
+        assertFalse(otherHome.getAllPersonIds().contains(1));
+
+        // person 1 becomes ill while being lazy, e.g., at the end of the exposed phase, and is materialised at once in the
+        // planned evening at home, as an ill person in the location
+        persons[1].setDiseasePhase(this.disease.getInfectious());
+        assertFalse(this.lazy.isLazy(persons[1]));
+        assertEquals(2L, this.lazy.getNumberMaterialised());
+        assertEquals(otherHome, persons[1].getCurrentLocation());
+        assertTrue(otherHome.getAllPersonIds().contains(1));
+        assertEquals(16.0 - 3.0 - 4.0, this.lazy.getLazyPresenceHours(otherHome, 0, 1), 1E-9);
+
+        // a phase change of a person who is not lazy does not materialise anyone
+        persons[1].setDiseasePhase(this.disease.getInfectious());
+        assertEquals(2L, this.lazy.getNumberMaterialised());
+
+        // the ill person is not lazy on the next day, and follows the day pattern
+        this.model.getTestSimulator().runUntil(48.5);
+        assertFalse(this.lazy.isLazy(persons[1]));
+        assertTrue(otherHome.getAllPersonIds().contains(1));
+        assertEquals(0, this.lazy.getNumberLazy());
+        assertEquals(2L, this.lazy.getNumberLazyDays());
+        this.model.getTestSimulator().runUntil(58.0);
+        assertEquals(office, persons[1].getCurrentLocation());
+    }
+
+}
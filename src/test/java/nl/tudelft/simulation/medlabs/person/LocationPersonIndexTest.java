@@ -0,0 +1,80 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * LocationPersonIndexTest checks that the CSR index returns exactly the persons of each location, in increasing order.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class LocationPersonIndexTest
+{
+    @Test
+    public void testIndex()
+    {
+        // persons in descending order, some of them without a location
+        Random random = new Random(5L);
+        int n = 10_000;
+        int numberOfLocations = 700;
+        int[] personIds = new int[n];
+        int[] locationIds = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            personIds[i] = 2 * (n - i);
+            locationIds[i] = random.nextDouble() < 0.1 ? -1 : random.nextInt(numberOfLocations);
+        }
+        LocationPersonIndex index = LocationPersonIndex.build(personIds, locationIds);
+
+        int total = 0;
+        for (int location = 0; location < numberOfLocations; location++)
+        {
+            TIntArrayList expected = new TIntArrayList();
+            for (int i = n - 1; i >= 0; i--)
+            {
+                if (locationIds[i] == location)
+                    expected.add(personIds[i]);
+            }
+            assertEquals(expected.size(), index.getNumberOfPersons(location));
+            assertArrayEquals(expected.toArray(), index.getPersonIds(location));
+            TIntArrayList visited = new TIntArrayList();
+            index.forEach(location, visited::add);
+            assertArrayEquals(expected.toArray(), visited.toArray());
+            for (int k = 0; k < expected.size(); k++)
+            {
+                assertEquals(expected.get(k), index.getPersonId(location, k));
+                assertTrue(index.contains(location, expected.get(k)));
+                assertFalse(index.contains(location, expected.get(k) + 1));
+            }
+            total += expected.size();
+        }
+        assertEquals(total, index.size());
+
+        // unknown locations are empty
+        assertEquals(0, index.getNumberOfPersons(-1));
+        assertEquals(0, index.getNumberOfPersons(numberOfLocations + 100));
+        assertEquals(0, index.getPersonIds(numberOfLocations + 100).length);
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getPersonId(0, index.getNumberOfPersons(0)));
+        assertThrows(MedlabsRuntimeException.class, () -> LocationPersonIndex.build(new int[] {1}, new int[] {-2}));
+        assertThrows(MedlabsRuntimeException.class, () -> LocationPersonIndex.build(new int[] {1}, new int[0]));
+    }
+
+}
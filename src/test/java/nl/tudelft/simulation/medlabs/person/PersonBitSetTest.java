@@ -0,0 +1,79 @@
+package nl.tudelft.simulation.medlabs.person;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PersonBitSetTest compares the PersonBitSet with java.util.BitSet for random additions and removals, iteration and
+ * intersection.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class PersonBitSetTest
+{
+    @Test
+    public void testAgainstBitSet()
+    {
+        Random random = new Random(11L);
+        int maxId = 300_000;
+        // start small, so the set has to grow
+        PersonBitSet set = new PersonBitSet(64);
+        BitSet reference = new BitSet();
+        for (int i = 0; i < 20_000; i++)
+        {
+            int id = random.nextInt(maxId);
+            if (random.nextDouble() < 0.7)
+                assertEquals(!reference.get(id), set.add(id));
+            else
+                assertEquals(reference.get(id), set.remove(id));
+            reference.set(id, set.contains(id));
+        }
+        assertEquals(reference.cardinality(), set.cardinality());
+        assertArrayEquals(reference.stream().toArray(), set.toArray());
+        for (int from = 0; from < maxId; from += 997)
+        {
+            assertEquals(reference.nextSetBit(from), set.nextSetBit(from));
+        }
+        assertEquals(-1, set.nextSetBit(maxId + 10_000));
+
+        PersonBitSet even = PersonBitSet.fromPredicate(maxId / 2, id -> id % 2 == 0);
+        BitSet evenReference = new BitSet();
+        for (int id = 0; id <= maxId / 2; id += 2)
+        {
+            evenReference.set(id);
+        }
+        BitSet intersection = (BitSet) reference.clone();
+        intersection.and(evenReference);
+        assertEquals(intersection.cardinality(), set.andCardinality(even));
+        assertEquals(intersection.cardinality(), set.count(id -> id % 2 == 0 && id <= maxId / 2));
+
+        // a target that holds old contents, and an intersection in place
+        PersonBitSet target = PersonBitSet.fromPredicate(maxId, id -> id % 3 == 0);
+        set.and(even, target);
+        assertEquals(intersection.cardinality(), target.cardinality());
+        assertArrayEquals(intersection.stream().toArray(), target.toArray());
+        set.and(even, set);
+        assertArrayEquals(intersection.stream().toArray(), set.toArray());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(intersection.nextSetBit(0)));
+        assertEquals(-1, set.nextSetBit(0));
+    }
+
+}
@@ -0,0 +1,158 @@
+package nl.tudelft.simulation.medlabs.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.medlabs.common.MedlabsRuntimeException;
+
+/**
+ * ClosureStateTest tests the reference counting of closures, the per-location overrides, and the policy epoch of the
+ * ClosureState, and the state of the locations under many overlapping closure policies. The benchmark of the ClosureState is
+ * ITClosureState.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ClosureStateTest
+{
+    @Test
+    public void testReferenceCounting()
+    {
+        ClosureState state = new ClosureState();
+        byte school = 5;
+        byte shop = (byte) -10;
+        int s1 = state.registerLocation();
+        int s2 = state.registerLocation();
+        int p1 = state.registerLocation();
+        assertFalse(state.isClosed(school, s1));
+
+        // two overlapping policies close the schools; the schools open after both are lifted
+        state.closeType(school);
+        state.closeType(school);
+        state.closeType(shop);
+        assertTrue(state.isClosed(school, s1));
+        assertTrue(state.isClosed(shop, p1));
+        state.openType(school);
+        assertTrue(state.isClosed(school, s2));
+        state.openType(school);
+        assertFalse(state.isClosed(school, s2));
+        assertThrows(MedlabsRuntimeException.class, () -> state.openType(school));
+
+        // overrides win over the type state
+        state.setOverride(shop, p1, false);
+        assertFalse(state.isClosed(shop, p1));
+        state.setOverride(school, s1, true);
+        assertTrue(state.isClosed(school, s1));
+        assertFalse(state.isClosed(school, s2));
+        state.clearOverride(school, s1);
+        state.clearOverride(shop, p1);
+        assertFalse(state.isClosed(school, s1));
+        assertTrue(state.isClosed(shop, p1));
+
+        // overrides beyond the initial bitmap size
+        int far = 0;
+        for (int i = 0; i < 10_000; i++)
+        {
+            far = state.registerLocation();
+        }
+        state.setOverride(school, far, true);
+        assertTrue(state.isClosed(school, far));
+        assertFalse(state.isClosed(school, far - 1));
+    }
+
+    @Test
+    public void testPolicyEpoch()
+    {
+        ClosureState state = new ClosureState();
+        byte school = 5;
+        int s1 = state.registerLocation();
+        int epoch = state.getPolicyEpoch();
+        assertEquals(epoch, state.getPolicyEpoch());
+
+        // every change of a closure starts a new epoch, so cached policy decisions become stale
+        state.closeType(school);
+        assertTrue(state.getPolicyEpoch() != epoch);
+        epoch = state.getPolicyEpoch();
+        state.setOverride(school, s1, false);
+        assertTrue(state.getPolicyEpoch() != epoch);
+        epoch = state.getPolicyEpoch();
+        state.clearOverride(school, s1);
+        assertTrue(state.getPolicyEpoch() != epoch);
+        epoch = state.getPolicyEpoch();
+        state.nextPolicyEpoch();
+        assertTrue(state.getPolicyEpoch() != epoch);
+
+        // queries do not change the epoch
+        epoch = state.getPolicyEpoch();
+        state.isClosed(school, s1);
+        assertEquals(epoch, state.getPolicyEpoch());
+    }
+
+    @Test
+    public void testOverlappingPolicies()
+    {
+        // 200 policies that each close 5 out of 40 location types are randomly closed and opened; a location is closed when at
+        // least one closed policy covers its type
+        int numberOfTypes = 40;
+        int numberOfPolicies = 200;
+        int numberOfLocations = 2_000;
+        Random random = new Random(42L);
+        ClosureState state = new ClosureState();
+        byte[] locationTypes = new byte[numberOfLocations];
+        for (int i = 0; i < numberOfLocations; i++)
+        {
+            locationTypes[i] = (byte) random.nextInt(numberOfTypes);
+            assertEquals(i, state.registerLocation());
+        }
+        byte[][] policyTypes = new byte[numberOfPolicies][5];
+        for (int p = 0; p < numberOfPolicies; p++)
+        {
+            for (int k = 0; k < 5; k++)
+            {
+                policyTypes[p][k] = (byte) random.nextInt(numberOfTypes);
+            }
+        }
+        boolean[] policyClosed = new boolean[numberOfPolicies];
+        for (int c = 0; c < 500; c++)
+        {
+            int change = random.nextInt(numberOfPolicies);
+            policyClosed[change] = !policyClosed[change];
+            for (byte type : policyTypes[change])
+            {
+                if (policyClosed[change])
+                    state.closeType(type);
+                else
+                    state.openType(type);
+            }
+            if (c % 50 == 0)
+            {
+                for (int i = 0; i < numberOfLocations; i++)
+                {
+                    boolean expected = false;
+                    for (int p = 0; p < numberOfPolicies && !expected; p++)
+                    {
+                        for (byte type : policyTypes[p])
+                        {
+                            expected |= policyClosed[p] && type == locationTypes[i];
+                        }
+                    }
+                    assertEquals(expected, state.isClosed(locationTypes[i], i), "change " + c + ", location " + i);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package nl.tudelft.simulation.medlabs.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ITClosureState is an evaluation benchmark of the ClosureState that is not part of the unit tests: it is excluded from
+ * surefire, and is run by failsafe with <code>mvn verify</code>. 200 policies that each close 5 out of 40 location types are
+ * randomly closed and opened 100 times, with 500,000 locations. The type-level state is compared with setting a closed flag per
+ * location, where a location is only opened when no other closed policy covers its type. The outcome of both methods is
+ * checked to be identical.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ITClosureState
+{
+    @Test
+    public void testOverlappingPolicies()
+    {
+        int numberOfTypes = 40;
+        int numberOfPolicies = 200;
+        int numberOfLocations = 500_000;
+        int numberOfChanges = 100;
+        Random random = new Random(42L);
+
+        byte[] locationTypes = new byte[numberOfLocations];
+        for (int i = 0; i < numberOfLocations; i++)
+        {
+            locationTypes[i] = (byte) random.nextInt(numberOfTypes);
+        }
+        byte[][] policyTypes = new byte[numberOfPolicies][5];
+        for (int p = 0; p < numberOfPolicies; p++)
+        {
+            for (int k = 0; k < 5; k++)
+            {
+                policyTypes[p][k] = (byte) random.nextInt(numberOfTypes);
+            }
+        }
+        int[] changes = new int[numberOfChanges];
+        for (int c = 0; c < numberOfChanges; c++)
+        {
+            changes[c] = random.nextInt(numberOfPolicies);
+        }
+
+        // per-location flags: every change iterates all locations of the affected types
+        long t0 = System.nanoTime();
+        boolean[] flags = new boolean[numberOfLocations];
+        boolean[] policyClosed = new boolean[numberOfPolicies];
+        int[] typeCount = new int[numberOfTypes];
+        for (int change : changes)
+        {
+            policyClosed[change] = !policyClosed[change];
+            for (byte type : policyTypes[change])
+            {
+                typeCount[type] += policyClosed[change] ? 1 : -1;
+            }
+            for (int i = 0; i < numberOfLocations; i++)
+            {
+                for (byte type : policyTypes[change])
+                {
+                    if (locationTypes[i] == type)
+                        flags[i] = typeCount[type] > 0;
+                }
+            }
+        }
+        long flagNanos = System.nanoTime() - t0;
+
+        // closure state: every change updates the counts of the affected types
+        t0 = System.nanoTime();
+        ClosureState state = new ClosureState();
+        for (int i = 0; i < numberOfLocations; i++)
+        {
+            state.registerLocation();
+        }
+        boolean[] stateClosed = new boolean[numberOfPolicies];
+        for (int change : changes)
+        {
+            stateClosed[change] = !stateClosed[change];
+            for (byte type : policyTypes[change])
+            {
+                if (stateClosed[change])
+                    state.closeType(type);
+                else
+                    state.openType(type);
+            }
+        }
+        long stateNanos = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        int closed = 0;
+        for (int i = 0; i < numberOfLocations; i++)
+        {
+            boolean isClosed = state.isClosed(locationTypes[i], i);
+            assertEquals(flags[i], isClosed, "location " + i);
+            if (isClosed)
+                closed++;
+        }
+        long checkNanos = System.nanoTime() - t0;
+
+        System.out.println(String.format(
+                "ClosureState benchmark: %d changes of %d overlapping policies, %d locations (%d closed)%n"
+                        + "  per-location flags: %8.1f ms%n  closure state:       %8.1f ms%n  %d closure checks:  %8.1f ms",
+                numberOfChanges, numberOfPolicies, numberOfLocations, closed, flagNanos / 1.0E6, stateNanos / 1.0E6,
+                numberOfLocations, checkNanos / 1.0E6));
+    }
+
+}
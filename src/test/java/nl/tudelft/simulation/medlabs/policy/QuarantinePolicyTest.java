@@ -0,0 +1,186 @@
+package nl.tudelft.simulation.medlabs.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekPattern;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxWorker;
+
+/**
+ * QuarantinePolicyTest checks that persons who are sent into quarantine finish their day with the activities of their standard
+ * week pattern, stay at home from the start of the next day, and return to their standard week pattern at the start of the day
+ * after the quarantine ends.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class QuarantinePolicyTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the standard week pattern: home until 8:00, work until 17:00, home until 23:00, and a gap until midnight. */
+    private WeekPattern standard;
+
+    /** the quarantine week pattern: home until midnight. */
+    private WeekPattern stayHome;
+
+    /** the work activity of the standard week pattern. */
+    private Activity working;
+
+    /** two workers who share house 1, and a worker of house 3; all of them work in office 2. */
+    private IdxWorker[] workers;
+
+    /**
+     * Create the model with the locations, the week patterns and the workers, and start the workers.
+     */
+    private void setup()
+    {
+        this.model = new TestModel();
+        TestDisease disease = new TestDisease(this.model);
+        this.model.setDiseaseProgression(disease);
+        this.model.setDiseaseTransmission(new TestTransmission(this.model));
+        this.model.setActivityMonitor(new ActivityMonitor(this.model));
+        LocationType house =
+                new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType office =
+                new LocationType(this.model, (byte) 1, "office", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        new Location(this.model, 1, house, 52.06f, 4.30f, (short) 1, 100.0f);
+        new Location(this.model, 2, office, 52.07f, 4.30f, (short) 1, 1000.0f);
+        new Location(this.model, 3, house, 52.06f, 4.31f, (short) 1, 100.0f);
+
+        Activity sleeping = new UntilFixedTimeActivity(this.model, "sleep", p -> p.getHomeLocation(), 8.0);
+        this.working = new UntilFixedTimeActivity(this.model, "work", p -> ((IdxWorker) p).getWorkLocation(), 17.0);
+        Activity relaxing = new UntilFixedTimeActivity(this.model, "relax", p -> p.getHomeLocation(), 23.0);
+        this.standard = new WeekDayPattern(this.model, "standard",
+                new DayPattern(this.model, List.of(sleeping, this.working, relaxing)));
+        Activity home = new UntilFixedTimeActivity(this.model, "home", p -> p.getHomeLocation(), 24.0);
+        this.stayHome = new WeekDayPattern(this.model, "quarantine", new DayPattern(this.model, List.of(home)));
+
+        this.model.getPersonTypeClassMap().put(IdxWorker.class, new PersonType(this.model, 0, IdxWorker.class));
+        this.workers = new IdxWorker[] {new IdxWorker(this.model, 1, true, (byte) 40, 1, (short) 0, 2),
+                new IdxWorker(this.model, 2, false, (byte) 42, 1, (short) 0, 2),
+                new IdxWorker(this.model, 3, true, (byte) 30, 3, (short) 0, 2)};
+        for (IdxWorker worker : this.workers)
+        {
+            worker.setDiseasePhase(disease.getSusceptible());
+            worker.init();
+        }
+    }
+
+    /**
+     * Assert the location, the current week pattern, and the pending week pattern of a worker.
+     * @param worker IdxWorker; the worker
+     * @param location Location; the expected location
+     * @param current WeekPattern; the expected current week pattern
+     * @param pending WeekPattern; the expected pending week pattern, or null
+     */
+    private static void assertWorker(final IdxWorker worker, final Location location, final WeekPattern current,
+            final WeekPattern pending)
+    {
+        assertEquals(location, worker.getCurrentLocation(), worker.toString());
+        assertEquals(current, worker.getCurrentWeekPattern(), worker.toString());
+        assertEquals(pending, worker.getPendingWeekPattern(), worker.toString());
+    }
+
+    @Test
+    public void testQuarantineAndRelease() throws SimRuntimeException
+    {
+        setup();
+        QuarantinePolicy policy = new QuarantinePolicy(this.model, "household quarantine", this.stayHome, 48.0);
+        Location home = this.model.getLocationMap().get(1);
+        Location office = this.model.getLocationMap().get(2);
+        IdxWorker first = this.workers[0];
+        IdxWorker second = this.workers[1];
+        IdxWorker other = this.workers[2];
+
+        // the household is sent into quarantine at 10:00 on day 0, and finishes the working day
+        this.model.getTestSimulator().runUntil(10.0);
+        assertEquals(2, policy.quarantineHousehold(first));
+        assertTrue(policy.isQuarantined(first));
+        assertTrue(policy.isQuarantined(second));
+        assertFalse(policy.isQuarantined(other));
+        assertEquals(2, policy.getNumberQuarantined());
+        assertWorker(first, office, this.standard, this.stayHome);
+        assertEquals(this.working, first.getCurrentActivity());
+        this.model.getTestSimulator().runUntil(20.0);
+        assertWorker(first, home, this.standard, this.stayHome);
+        assertWorker(second, home, this.standard, this.stayHome);
+
+        // the household stays at home from the start of day 1 after the gap until midnight; the other worker goes to work
+        this.model.getTestSimulator().runUntil(34.0);
+        assertWorker(first, home, this.stayHome, null);
+        assertWorker(second, home, this.stayHome, null);
+        assertWorker(other, office, this.standard, null);
+
+        // the quarantine ends at 10:00 on day 2, and the household finishes the day at home
+        this.model.getTestSimulator().runUntil(60.0);
+        assertFalse(policy.isQuarantined(first));
+        assertEquals(0, policy.getNumberQuarantined());
+        assertWorker(first, home, this.stayHome, this.standard);
+        assertWorker(second, home, this.stayHome, this.standard);
+
+        // the last activity of the quarantine pattern ends at midnight; day 3 starts with the standard pattern
+        this.model.getTestSimulator().runUntil(82.0);
+        assertWorker(first, office, this.standard, null);
+        assertWorker(second, office, this.standard, null);
+        assertEquals(this.working, first.getCurrentActivity());
+        assertWorker(other, office, this.standard, null);
+    }
+
+    @Test
+    public void testQuarantineEndsBeforeNextDay() throws SimRuntimeException
+    {
+        setup();
+        QuarantinePolicy policy = new QuarantinePolicy(this.model, "short quarantine", this.stayHome, 4.0);
+        Location office = this.model.getLocationMap().get(2);
+
+        // the workers of the office are sent into quarantine from 10:00 until 14:00 on day 0
+        this.model.getTestSimulator().runUntil(10.0);
+        assertEquals(3, policy.quarantineWorkers(office));
+        for (IdxWorker worker : this.workers)
+        {
+            assertWorker(worker, office, this.standard, this.stayHome);
+        }
+
+        // the quarantine ends before the next day, so the workers never switch to the quarantine pattern
+        this.model.getTestSimulator().runUntil(15.0);
+        assertEquals(0, policy.getNumberQuarantined());
+        for (IdxWorker worker : this.workers)
+        {
+            assertWorker(worker, office, this.standard, null);
+            assertEquals(this.working, worker.getCurrentActivity());
+        }
+        this.model.getTestSimulator().runUntil(34.0);
+        for (IdxWorker worker : this.workers)
+        {
+            assertWorker(worker, office, this.standard, null);
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package nl.tudelft.simulation.medlabs.transit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.TravelActivityTransit;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.locator.CurrentLocator;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.DistanceThresholdSpeedModel;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.MovableLocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxWorker;
+
+/**
+ * ITTransitScale is a scale run of the TransitNetwork that is not part of the unit tests: it is excluded from surefire, and is
+ * run by failsafe with <code>mvn verify</code>. It simulates one day of 200,000 commuters on 20 bus corridors with a line in
+ * each direction, and reports the wall-clock time of the day, the time per boarding, and the boarding statistics. The run
+ * checks that every rider reaches work in the morning and home in the evening.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class ITTransitScale
+{
+    /** the number of riders. */
+    private static final int RIDERS = 200_000;
+
+    /** the number of corridors, each with a line in both directions. */
+    private static final int CORRIDORS = 20;
+
+    /** the number of stops per line; the riders live near the first half, and work near the second half. */
+    private static final int STOPS = 20;
+
+    /** the number of different times at which the riders leave home. */
+    private static final int START_TIMES = 12;
+
+    /**
+     * Return a list of departure times with a fixed headway.
+     * @param fromH double; the first departure
+     * @param toH double; the last departure
+     * @param headwayH double; the headway
+     * @return double[]; the departure times
+     */
+    private static double[] departures(final double fromH, final double toH, final double headwayH)
+    {
+        int n = (int) Math.round((toH - fromH) / headwayH) + 1;
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            result[i] = fromH + i * headwayH;
+        }
+        return result;
+    }
+
+    @Test
+    public void testCommuterDay() throws SimRuntimeException
+    {
+        TestModel model = new TestModel();
+        TestDisease disease = new TestDisease(model);
+        model.setDiseaseProgression(disease);
+        model.setDiseaseTransmission(new TestTransmission(model));
+        model.setActivityMonitor(new ActivityMonitor(model));
+        model.setTravelTimeMatrix(
+                new TravelTimeMatrix(model, new DistanceThresholdSpeedModel(1000.0, 5000.0, 1.0, 3.0, 10.0), 10, 1L << 26));
+        LocationType walkType = new LocationType(model, (byte) -1, "walk", Location.class, null, false, false, 0.0, false, 1.0,
+                1.0);
+        Location walk = new Location(model, -1, walkType, 52.06f, 4.3f, (short) 1, 1E6f);
+        model.setLocationWalk(walk);
+        LocationType house =
+                new LocationType(model, (byte) 0, "house", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        model.setLocationTypeHouse(house);
+        LocationType work = new LocationType(model, (byte) 1, "work", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        LocationType stopType =
+                new LocationType(model, (byte) 2, "stop", Location.class, null, false, false, 1.0, false, 1.0, 1.0);
+        MovableLocationType busType = new MovableLocationType(model, (byte) 3, "bus", TransitVehicle.class, null, false, false,
+                1.0, false, 1.0, 1.0);
+
+        // corridors 2.2 km apart, with stops about 410 m apart, a home near each stop of the first half of the corridor, and
+        // a workplace near each stop of the second half
+        TransitNetwork network = new TransitNetwork(model, stopType, 500.0, 1_000_000);
+        double[] runTimesH = new double[STOPS - 1];
+        Arrays.fill(runTimesH, 0.03);
+        int nextId = 0;
+        int[][] locationIds = new int[CORRIDORS][STOPS];
+        for (int c = 0; c < CORRIDORS; c++)
+        {
+            float lat = 52.0f + 0.02f * c;
+            Location[] stops = new Location[STOPS];
+            Location[] reverse = new Location[STOPS];
+            for (int s = 0; s < STOPS; s++)
+            {
+                float lon = 4.25f + 0.006f * s;
+                stops[s] = new Location(model, nextId++, stopType, lat, lon, (short) 1, 20.0f);
+                reverse[STOPS - 1 - s] = stops[s];
+                locationIds[c][s] = nextId;
+                new Location(model, nextId++, s < STOPS / 2 ? house : work, lat + 0.0005f, lon, (short) 1, 1000.0f);
+            }
+            network.addLine("east " + c, stops, runTimesH, departures(6.0, 12.0, 1.0 / 30.0), busType, (short) 2, 150.0f);
+            network.addLine("west " + c, reverse, runTimesH, departures(16.5, 22.0, 1.0 / 30.0), busType, (short) 2, 150.0f);
+        }
+
+        // the riders leave home at different times between 6:30 and 7:54, and work until 17:00
+        Activity toWork = new TravelActivityTransit(model, "to work", p -> walk, new CurrentLocator(),
+                p -> ((IdxWorker) p).getWorkLocation(), network);
+        Activity working = new UntilFixedTimeActivity(model, "work", p -> ((IdxWorker) p).getWorkLocation(), 17.0);
+        Activity toHome =
+                new TravelActivityTransit(model, "to home", p -> walk, new CurrentLocator(), p -> p.getHomeLocation(), network);
+        Activity relaxing = new UntilFixedTimeActivity(model, "relax", p -> p.getHomeLocation(), 24.0);
+        for (int w = 0; w < START_TIMES; w++)
+        {
+            Activity sleeping = new UntilFixedTimeActivity(model, "sleep", p -> p.getHomeLocation(), 6.5 + 0.125 * w);
+            new WeekDayPattern(model, "week " + w,
+                    new DayPattern(model, List.of(sleeping, toWork, working, toHome, relaxing)));
+        }
+
+        model.getPersonTypeClassMap().put(IdxWorker.class, new PersonType(model, 0, IdxWorker.class));
+        List<Person> persons = new ArrayList<>(RIDERS);
+        for (int i = 0; i < RIDERS; i++)
+        {
+            int c = i % CORRIDORS;
+            int k = i / CORRIDORS;
+            int homeStop = k % (STOPS / 2);
+            int workStop = STOPS / 2 + (k / (STOPS / 2)) % (STOPS / 2);
+            Person person = new IdxWorker(model, i, i % 2 == 0, (byte) 30, locationIds[c][homeStop],
+                    (short) ((k / STOPS) % START_TIMES), locationIds[c][workStop]);
+            person.setDiseasePhase(disease.getSusceptible());
+            persons.add(person);
+        }
+
+        long t0 = System.nanoTime();
+        network.start();
+        for (Person person : persons)
+        {
+            person.init();
+        }
+        model.getTestSimulator().runUntil(12.0);
+        long nanosMorning = System.nanoTime() - t0;
+        int atWork = 0;
+        for (Person person : persons)
+        {
+            if (person.getCurrentLocation().equals(((IdxWorker) person).getWorkLocation()))
+                atWork++;
+        }
+        long boardingsMorning = network.getNumberOfBoardings();
+        model.getTestSimulator().runUntil(24.0);
+        long nanosDay = System.nanoTime() - t0;
+        int atHome = 0;
+        for (Person person : persons)
+        {
+            if (person.getCurrentLocation().equals(person.getHomeLocation()))
+                atHome++;
+        }
+        int vehicles = 0;
+        for (TransitLine line : network.getLines())
+        {
+            vehicles += line.getNumberOfVehicles();
+        }
+
+        System.out.println(String.format(
+                "TransitNetwork scale run: %d riders, %d lines, %d vehicles, %d vehicle trips%n"
+                        + "  boardings %d (morning %d), denied %d, fallback %d%n"
+                        + "  wall time morning %.0f ms, day %.0f ms, %.0f ns per boarding",
+                RIDERS, network.getLines().size(), vehicles, network.getNumberOfVehicleTrips(),
+                network.getNumberOfBoardings(), boardingsMorning, network.getNumberOfDeniedBoardings(),
+                network.getNumberOfFallbackTrips(), nanosMorning / 1.0E6, nanosDay / 1.0E6,
+                (double) nanosDay / Math.max(1L, network.getNumberOfBoardings())));
+        assertEquals(RIDERS, atWork);
+        assertEquals(RIDERS, atHome);
+        assertTrue(network.getNumberOfBoardings() + network.getNumberOfFallbackTrips() >= 2L * RIDERS);
+    }
+
+}
@@ -0,0 +1,249 @@
+package nl.tudelft.simulation.medlabs.transit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import nl.tudelft.simulation.dsol.SimRuntimeException;
+import nl.tudelft.simulation.medlabs.activity.Activity;
+import nl.tudelft.simulation.medlabs.activity.ActivityMonitor;
+import nl.tudelft.simulation.medlabs.activity.TravelActivityTransit;
+import nl.tudelft.simulation.medlabs.activity.UntilFixedTimeActivity;
+import nl.tudelft.simulation.medlabs.activity.locator.CurrentLocator;
+import nl.tudelft.simulation.medlabs.activity.pattern.DayPattern;
+import nl.tudelft.simulation.medlabs.activity.pattern.WeekDayPattern;
+import nl.tudelft.simulation.medlabs.activity.travel.DistanceThresholdSpeedModel;
+import nl.tudelft.simulation.medlabs.activity.travel.SpeedModel;
+import nl.tudelft.simulation.medlabs.activity.travel.TravelTimeMatrix;
+import nl.tudelft.simulation.medlabs.location.Location;
+import nl.tudelft.simulation.medlabs.location.LocationType;
+import nl.tudelft.simulation.medlabs.location.MovableLocationType;
+import nl.tudelft.simulation.medlabs.model.TestDisease;
+import nl.tudelft.simulation.medlabs.model.TestModel;
+import nl.tudelft.simulation.medlabs.model.TestTransmission;
+import nl.tudelft.simulation.medlabs.person.Person;
+import nl.tudelft.simulation.medlabs.person.PersonType;
+import nl.tudelft.simulation.medlabs.person.index.IdxPerson;
+
+/**
+ * TransitNetworkTest runs persons who travel from home to work with a bus line on the TestSimulator, and checks that the
+ * waiting riders board in one batch when the bus departs, that riders who do not fit in the bus wait for the next bus, that
+ * the riders alight in one batch at their stop and walk to their destination, that riders who do not fit in the last bus of
+ * the day and riders without a route use the fallback travel time, and that findRoute picks the right stops and returns no
+ * route when no line or no departure is available.
+ * <p>
+ * Copyright (c) 2024-2024 Delft University of Technology, Jaffalaan 5, 2628 BX Delft, the Netherlands. All rights reserved. The
+ * MEDLABS project (Modeling Epidemic Disease with Large-scale Agent-Based Simulation) is aimed at providing policy analysis
+ * tools to predict and help contain the spread of epidemics. It makes use of the DSOL simulation engine and the agent-based
+ * modeling formalism. See for project information <a href="http://www.simulation.tudelft.nl/"> www.simulation.tudelft.nl</a>.
+ * The original MEDLABS Java library was developed as part of the PhD research of Mingxin Zhang at TU Delft and is described in
+ * the PhD thesis "Large-Scale Agent-Based Social Simulation" (2016). This software is licensed under the BSD license. See
+ * license.txt in the main project.
+ * </p>
+ * @author <a href="https://www.tudelft.nl/averbraeck">Alexander Verbraeck</a>
+ */
+public class TransitNetworkTest
+{
+    /** the model. */
+    private TestModel model;
+
+    /** the network. */
+    private TransitNetwork network;
+
+    /** the line with stops 10, 11 and 12. */
+    private TransitLine line;
+
+    /** the walk location. */
+    private Location walk;
+
+    /** the home of the persons, near stop 10. */
+    private Location home;
+
+    /** the work location of the persons, near stop 12. */
+    private Location work;
+
+    /**
+     * Create a model with one bus line from stop 10 via stop 11 to stop 12, about 2 km apart, with 15 minutes between the
+     * stops, and buses for 2 persons. The persons live near stop 10, leave home at 7:54 to travel to work near stop 12 with the
+     * bus, work until 17:00, travel home, and stay at home for the rest of the day. There is no bus in the other direction. A
+     * shop (id 22) is near stop 11, and a location without a stop nearby (id 23) is 2 km north of the home.
+     * @param departuresH double[]; the departures of the bus from stop 10
+     * @param numberOfPersons int; the number of persons
+     * @return Person[]; the persons, who have been initialized
+     */
+    private Person[] setup(final double[] departuresH, final int numberOfPersons)
+    {
+        this.model = new TestModel();
+        this.model.setDiseaseProgression(new TestDisease(this.model));
+        this.model.setDiseaseTransmission(new TestTransmission(this.model));
+        this.model.setActivityMonitor(new ActivityMonitor(this.model));
+        SpeedModel speeds = new DistanceThresholdSpeedModel(1000.0, 5000.0, 1.0, 3.0, 10.0);
+        this.model.setTravelTimeMatrix(new TravelTimeMatrix(this.model, speeds, 10, 1L << 20));
+        LocationType walkType =
+                new LocationType(this.model, (byte) -1, "walk", Location.class, null, false, false, 0.0, false, 1.0, 1.0);
+        this.walk = new Location(this.model, -1, walkType, 52.06f, 4.3f, (short) 1, 1E6f);
+        this.model.setLocationWalk(this.walk);
+        LocationType house = new LocationType(this.model, (byte) 0, "house", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        this.model.setLocationTypeHouse(house);
+        LocationType other = new LocationType(this.model, (byte) 1, "other", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        LocationType stopType = new LocationType(this.model, (byte) 2, "stop", Location.class, null, false, false, 1.0, false,
+                1.0, 1.0);
+        MovableLocationType busType = new MovableLocationType(this.model, (byte) 3, "bus", TransitVehicle.class, null, false,
+                false, 1.0, false, 1.0, 1.0);
+        Location[] stops = new Location[3];
+        for (int i = 0; i < 3; i++)
+        {
+            stops[i] = new Location(this.model, 10 + i, stopType, 52.06f, 4.30f + 0.03f * i, (short) 1, 10.0f);
+        }
+        this.home = new Location(this.model, 20, house, 52.0605f, 4.30f, (short) 1, 100.0f);
+        this.work = new Location(this.model, 21, other, 52.0605f, 4.36f, (short) 1, 100.0f);
+        new Location(this.model, 22, other, 52.0605f, 4.33f, (short) 1, 100.0f);
+        new Location(this.model, 23, other, 52.08f, 4.30f, (short) 1, 100.0f);
+
+        this.network = new TransitNetwork(this.model, stopType, 500.0, 1000);
+        this.line = this.network.addLine("1", stops, new double[] {0.25, 0.25}, departuresH, busType, (short) 1, 2.0f);
+
+        Activity sleeping = new UntilFixedTimeActivity(this.model, "sleep", p -> this.home, 7.9);
+        Activity toWork = new TravelActivityTransit(this.model, "to work", p -> this.walk, new CurrentLocator(), p -> this.work,
+                this.network);
+        Activity working = new UntilFixedTimeActivity(this.model, "work", p -> this.work, 17.0);
+        Activity toHome = new TravelActivityTransit(this.model, "to home", p -> this.walk, new CurrentLocator(), p -> this.home,
+                this.network);
+        Activity relaxing = new UntilFixedTimeActivity(this.model, "relax", p -> this.home, 24.0);
+        new WeekDayPattern(this.model, "week",
+                new DayPattern(this.model, List.of(sleeping, toWork, working, toHome, relaxing)));
+
+        this.model.getPersonTypeClassMap().put(IdxPerson.class, new PersonType(this.model, 0, IdxPerson.class));
+        TestDisease disease = (TestDisease) this.model.getDiseaseProgression();
+        Person[] persons = new Person[numberOfPersons];
+        for (int i = 0; i < numberOfPersons; i++)
+        {
+            persons[i] = new IdxPerson(this.model, i, false, (byte) 30, 20, (short) 0);
+            persons[i].setDiseasePhase(disease.getSusceptible());
+        }
+        this.network.start();
+        for (Person person : persons)
+        {
+            person.init();
+        }
+        return persons;
+    }
+
+    @Test
+    public void testBatchedBoardingAndCapacity() throws SimRuntimeException
+    {
+        Person[] persons = setup(new double[] {8.0, 9.0}, 3);
+
+        // the persons walk to the stop, and wait there in the walk location
+        this.model.getTestSimulator().runUntil(7.95);
+        assertEquals(3, this.walk.getAllPersonIds().size());
+        assertEquals(0L, this.network.getNumberOfBoardings());
+
+        // the bus of 8:00 takes the first two persons in one batch; the third person does not fit and waits
+        this.model.getTestSimulator().runUntil(8.0);
+        TransitVehicle bus = (TransitVehicle) this.model.getLocationMap().get(1000);
+        assertEquals(2, bus.getCapacity());
+        assertEquals(2, bus.getAllPersonIds().size());
+        assertEquals(bus, persons[0].getCurrentLocation());
+        assertEquals(bus, persons[1].getCurrentLocation());
+        assertEquals(this.walk, persons[2].getCurrentLocation());
+        assertEquals(2L, this.network.getNumberOfBoardings());
+        assertEquals(1L, this.network.getNumberOfDeniedBoardings());
+
+        // the bus passes stop 11 at 8:15 without riders getting off
+        this.model.getTestSimulator().runUntil(8.3);
+        assertEquals(this.line.getStop(1).getLongitude(), bus.getLongitude(), 1E-6);
+        assertEquals(2, bus.getStopPosition());
+        assertEquals(2, bus.getAllPersonIds().size());
+
+        // both riders alight in one batch at 8:30 at stop 12, and walk about 55 m to work
+        this.model.getTestSimulator().runUntil(8.5);
+        assertEquals(0, bus.getAllPersonIds().size());
+        assertEquals(this.walk, persons[0].getCurrentLocation());
+        this.model.getTestSimulator().runUntil(8.6);
+        assertEquals(this.work, persons[0].getCurrentLocation());
+        assertEquals(this.work, persons[1].getCurrentLocation());
+        assertTrue(this.work.getAllPersonIds().contains(1));
+        assertEquals(this.walk, persons[2].getCurrentLocation());
+
+        // the third person takes the bus of 9:00, which is the same vehicle
+        this.model.getTestSimulator().runUntil(9.6);
+        assertEquals(this.work, persons[2].getCurrentLocation());
+        assertEquals(3L, this.network.getNumberOfBoardings());
+        assertEquals(2L, this.network.getNumberOfVehicleTrips());
+        assertEquals(1, this.line.getNumberOfVehicles());
+        assertEquals(0L, this.network.getNumberOfFallbackTrips());
+
+        // there is no bus back, so the persons travel home with the travel time matrix in the walk location
+        this.model.getTestSimulator().runUntil(17.1);
+        assertEquals(3, this.walk.getAllPersonIds().size());
+        this.model.getTestSimulator().runUntil(18.0);
+        assertEquals(3, this.home.getAllPersonIds().size());
+        assertEquals(3L, this.network.getNumberOfBoardings());
+
+        // the next day, the departures are scheduled again
+        this.model.getTestSimulator().runUntil(24.0 + 9.6);
+        assertEquals(3, this.work.getAllPersonIds().size());
+        assertEquals(6L, this.network.getNumberOfBoardings());
+        assertEquals(4L, this.network.getNumberOfVehicleTrips());
+        assertEquals(1, this.line.getNumberOfVehicles());
+    }
+
+    @Test
+    public void testFallbackWhenLastBusIsFull() throws SimRuntimeException
+    {
+        Person[] persons = setup(new double[] {8.0}, 3);
+
+        // the bus of 8:00 is the last bus, so the third person uses the travel time matrix from the stop to work
+        this.model.getTestSimulator().runUntil(8.0);
+        assertEquals(2L, this.network.getNumberOfBoardings());
+        assertEquals(1L, this.network.getNumberOfFallbackTrips());
+        assertEquals(1L, this.network.getNumberOfDeniedBoardings());
+        assertEquals(this.walk, persons[2].getCurrentLocation());
+        assertEquals(0, this.line.getWaitingPersons(0).size());
+
+        // about 4.1 km by bike takes about 23 minutes, so the third person arrives before the bus
+        this.model.getTestSimulator().runUntil(8.45);
+        assertEquals(this.work, persons[2].getCurrentLocation());
+        assertTrue(persons[0].getCurrentLocation() instanceof TransitVehicle);
+        this.model.getTestSimulator().runUntil(8.6);
+        assertEquals(3, this.work.getAllPersonIds().size());
+    }
+
+    @Test
+    public void testFindRoute() throws SimRuntimeException
+    {
+        setup(new double[] {8.0, 9.0}, 0);
+        Location shop = this.model.getLocationMap().get(22);
+        Location farAway = this.model.getLocationMap().get(23);
+
+        // from home to work: board at the first stop, alight at the last stop; to the shop: alight at the middle stop
+        long route = this.network.findRoute(this.home, this.work);
+        assertEquals(0, TransitNetwork.routeLine(route));
+        assertEquals(0, TransitNetwork.routeBoardPosition(route));
+        assertEquals(2, TransitNetwork.routeAlightPosition(route));
+        assertEquals(1, TransitNetwork.routeAlightPosition(this.network.findRoute(this.home, shop)));
+
+        // no route against the direction of the line, within walking distance, or without a stop near the origin
+        assertEquals(-1L, this.network.findRoute(this.work, this.home));
+        assertEquals(-1L, this.network.findRoute(this.home, this.line.getStop(0)));
+        assertEquals(-1L, this.network.findRoute(farAway, this.work));
+
+        // the departures at the stops
+        assertEquals(8.5, this.line.nextDepartureAt(2, 8.2), 1E-9);
+        assertEquals(24.0 + 8.25, this.line.nextDepartureAt(1, 24.0 + 7.0), 1E-9);
+        assertTrue(Double.isNaN(this.line.nextDepartureAt(0, 9.5)));
+
+        // the last bus leaves at 9:00, so there is a route just before 9:00, and no route after it
+        this.model.getTestSimulator().runUntil(8.9);
+        assertEquals(route, this.network.findRoute(this.home, this.work));
+        this.model.getTestSimulator().runUntil(9.1);
+        assertEquals(-1L, this.network.findRoute(this.home, this.work));
+    }
+
+}